@@ -1,27 +1,43 @@
 package ru.kursach.kpo.tour_agency_backend.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
+import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingBatchCreateRequest;
+import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingBatchResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingCreateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingStatusUpdateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingUpdateRequest;
+import ru.kursach.kpo.tour_agency_backend.dto.pagination.CursorPageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.model.enums.BookingStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.PageCountMode;
 import ru.kursach.kpo.tour_agency_backend.repository.UserRepository;
 import ru.kursach.kpo.tour_agency_backend.service.entity.BookingService;
+import ru.kursach.kpo.tour_agency_backend.service.idempotency.IdempotencyStore;
+import ru.kursach.kpo.tour_agency_backend.service.inventory.BookingAdmissionGate;
+import ru.kursach.kpo.tour_agency_backend.service.streaming.RowStreamWriter;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/v1/bookings")
@@ -30,8 +46,13 @@ import java.util.List;
 @SecurityRequirement(name = "bearerAuth")
 public class BookingController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final BookingService bookingService;
+    private final RowStreamWriter rowStreamWriter;
     private final UserRepository userRepository;
+    private final IdempotencyStore idempotencyStore;
+    private final BookingAdmissionGate bookingAdmissionGate;
 
     @PatchMapping("/my/{id}/cancel")
     public BookingResponseDto cancelMy(@PathVariable Long id) {
@@ -49,6 +70,7 @@ public class BookingController {
             @RequestParam(name = "createdFrom", required = false) LocalDateTime createdFrom,
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
             @RequestParam(name = "createdTo", required = false) LocalDateTime createdTo,
+            @RequestParam(name = "count", defaultValue = "EXACT") PageCountMode count,
             @RequestParam(name = "page", defaultValue = "0") int page,
             @RequestParam(name = "size", defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
     ) {
@@ -58,11 +80,36 @@ public class BookingController {
                 status,
                 createdFrom,
                 createdTo,
+                count,
                 page,
                 size
         );
     }
 
+    @Operation(summary = "Получить бронирования постранично по курсору (без подсчёта общего количества)")
+    @GetMapping("/cursor")
+    public CursorPageResponseDto<BookingResponseDto> getAllByCursor(
+            @RequestParam(name = "userId", required = false) Long userId,
+            @RequestParam(name = "tourDepartureId", required = false) Long tourDepartureId,
+            @RequestParam(name = "status", required = false) BookingStatus status,
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @RequestParam(name = "createdFrom", required = false) LocalDateTime createdFrom,
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @RequestParam(name = "createdTo", required = false) LocalDateTime createdTo,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
+    ) {
+        return bookingService.getAllByCursor(
+                userId,
+                tourDepartureId,
+                status,
+                createdFrom,
+                createdTo,
+                cursor,
+                size
+        );
+    }
+
     @Operation(summary = "Мои бронирования (по текущему пользователю из токена)")
     @GetMapping("/my/paged")
     public PageResponseDto<BookingResponseDto> getMyPaged(
@@ -70,6 +117,7 @@ public class BookingController {
             @RequestParam(name = "status", required = false) BookingStatus status,
             @RequestParam(name = "createdFrom", required = false) LocalDateTime createdFrom,
             @RequestParam(name = "createdTo", required = false) LocalDateTime createdTo,
+            @RequestParam(name = "count", defaultValue = "EXACT") PageCountMode count,
             @RequestParam(name = "page", defaultValue = "0") int page,
             @RequestParam(name = "size", defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
     ) {
@@ -80,11 +128,35 @@ public class BookingController {
                 status,
                 createdFrom,
                 createdTo,
+                count,
                 page,
                 size
         );
     }
 
+    @Operation(summary = "Мои бронирования постранично по курсору")
+    @GetMapping("/my/cursor")
+    public CursorPageResponseDto<BookingResponseDto> getMyByCursor(
+            @RequestParam(name = "tourDepartureId", required = false) Long tourDepartureId,
+            @RequestParam(name = "status", required = false) BookingStatus status,
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @RequestParam(name = "createdFrom", required = false) LocalDateTime createdFrom,
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+            @RequestParam(name = "createdTo", required = false) LocalDateTime createdTo,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
+    ) {
+        return bookingService.getAllByCursor(
+                currentUserId(),
+                tourDepartureId,
+                status,
+                createdFrom,
+                createdTo,
+                cursor,
+                size
+        );
+    }
+
     @Operation(summary = "Поиск бронирований по email пользователя (с пагинацией)")
     @GetMapping("/search/by-user-email")
     public PageResponseDto<BookingResponseDto> searchByUserEmail(
@@ -95,12 +167,31 @@ public class BookingController {
         return bookingService.searchByUserEmail(email, page, size);
     }
 
-    @Operation(summary = "Создать бронирование")
+    @Operation(summary = "Создать бронирование (повтор с тем же Idempotency-Key вернёт ту же бронь)")
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public BookingResponseDto create(@RequestBody @Valid BookingCreateRequest request) {
+    public BookingResponseDto create(
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestBody @Valid BookingCreateRequest request
+    ) {
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        return idempotencyStore.execute(email + ":booking-create", idempotencyKey, request,
+                () -> bookingAdmissionGate.admit(request.tourDepartureId(),
+                        () -> bookingService.create(request, email)));
+    }
+
+    @Operation(summary = "Создать пакет бронирований (201 — создано хотя бы одно, 400 — ни одного)")
+    @PostMapping("/batch")
+    public ResponseEntity<BookingBatchResponseDto> createBatch(@RequestBody @Valid BookingBatchCreateRequest request) {
         String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        return bookingService.create(request, email);
+        List<Long> departureIds = request.items().stream()
+                .map(BookingCreateRequest::tourDepartureId)
+                .filter(Objects::nonNull)
+                .toList();
+        BookingBatchResponseDto result = bookingAdmissionGate.admitAll(departureIds,
+                () -> bookingService.createBatch(request, email));
+        HttpStatus status = result.created() > 0 ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(result);
     }
 
     @Operation(summary = "Получить бронирование по id")
@@ -109,10 +200,20 @@ public class BookingController {
         return bookingService.getById(id);
     }
 
-    @Operation(summary = "Получить список всех бронирований")
+    @Operation(summary = "Получить список всех бронирований (JSON-массив, отдаётся потоком)")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = BookingResponseDto.class))))
     @GetMapping
-    public List<BookingResponseDto> getAll() {
-        return bookingService.getAll();
+    public void getAll(HttpServletResponse response) throws IOException {
+        rowStreamWriter.jsonArray(response, bookingService::streamAll);
+    }
+
+    @Operation(summary = "Выгрузить все бронирования в NDJSON (объект на строку, отдаётся потоком)")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = RowStreamWriter.NDJSON,
+            schema = @Schema(implementation = BookingResponseDto.class)))
+    @GetMapping("/export")
+    public void export(HttpServletResponse response) throws IOException {
+        rowStreamWriter.ndjson(response, bookingService::streamAll);
     }
 
     @Operation(summary = "Обновить бронирование")
@@ -129,10 +230,14 @@ public class BookingController {
         bookingService.delete(id);
     }
 
+    @Operation(summary = "Изменить статус бронирования (поддерживает Idempotency-Key)")
     @PatchMapping("/{id}/status")
     public BookingResponseDto updateStatus(@PathVariable Long id,
+                                           @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
                                            @RequestBody @Valid BookingStatusUpdateRequest request) {
-        return bookingService.updateStatus(id, request);
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        return idempotencyStore.execute(email + ":booking-status:" + id, idempotencyKey, request,
+                () -> bookingService.updateStatus(id, request));
     }
 
     private Long currentUserId() {
@@ -0,0 +1,27 @@
+package ru.kursach.kpo.tour_agency_backend.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.CapacityReconciliationReportDto;
+import ru.kursach.kpo.tour_agency_backend.service.inventory.CapacityReconciliationService;
+
+@RestController
+@RequestMapping("/api/v1/admin/capacity")
+@RequiredArgsConstructor
+@Tag(name = "Администрирование: вместимость вылетов")
+@SecurityRequirement(name = "bearerAuth")
+public class CapacityReconciliationController {
+
+    private final CapacityReconciliationService capacityReconciliationService;
+
+    @Operation(summary = "Сверить занятые места вылетов с бронированиями (repair=true — исправить расхождения)")
+    @PostMapping("/reconcile")
+    public CapacityReconciliationReportDto reconcile(
+            @RequestParam(name = "repair", defaultValue = "false") boolean repair
+    ) {
+        return capacityReconciliationService.reconcile(repair);
+    }
+}
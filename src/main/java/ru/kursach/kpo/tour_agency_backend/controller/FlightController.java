@@ -1,22 +1,41 @@
 package ru.kursach.kpo.tour_agency_backend.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
 import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightCreateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightResponseDto;
+import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightRouteDto;
+import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightSuggestionDto;
 import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightUpdateRequest;
+import ru.kursach.kpo.tour_agency_backend.dto.itinerary.ItineraryDto;
+import ru.kursach.kpo.tour_agency_backend.dto.pagination.CursorPageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
+import ru.kursach.kpo.tour_agency_backend.model.enums.FlightRouteSort;
+import ru.kursach.kpo.tour_agency_backend.model.enums.FlightStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.ItinerarySort;
+import ru.kursach.kpo.tour_agency_backend.model.enums.PageCountMode;
 import ru.kursach.kpo.tour_agency_backend.repository.UserRepository;
 import ru.kursach.kpo.tour_agency_backend.service.entity.FlightService;
+import ru.kursach.kpo.tour_agency_backend.service.itinerary.ItineraryEngine;
+import ru.kursach.kpo.tour_agency_backend.service.streaming.RowStreamWriter;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -27,6 +46,8 @@ import java.util.List;
 public class FlightController {
 
     private final FlightService flightService;
+    private final RowStreamWriter rowStreamWriter;
+    private final ItineraryEngine itineraryEngine;
     private final UserRepository userRepository;
 
 
@@ -53,6 +74,50 @@ public class FlightController {
         return flightService.getFlightsForDeparture(departureId, flightNumber, page, size);
     }
 
+    @Operation(summary = "Маршруты из города в город с пересадками (по сумме цен или длительности)")
+    @GetMapping("/itineraries")
+    public List<ItineraryDto> searchItineraries(
+            @RequestParam(name = "fromCityId") Long fromCityId,
+            @RequestParam(name = "toCityId") Long toCityId,
+            @RequestParam(name = "departFrom") LocalDateTime departFrom,
+            @RequestParam(name = "departTo") LocalDateTime departTo,
+            @RequestParam(name = "maxLegs", defaultValue = "2") int maxLegs,
+            @RequestParam(name = "minConnectionMinutes", defaultValue = "60") int minConnectionMinutes,
+            @RequestParam(name = "sort", defaultValue = "PRICE") ItinerarySort sort,
+            @RequestParam(name = "limit", defaultValue = "10") int limit
+    ) {
+        return itineraryEngine.search(
+                fromCityId, toCityId, departFrom, departTo, maxLegs, minConnectionMinutes, sort, limit
+        );
+    }
+
+    @Operation(summary = "Прямые рейсы из города в город на дату (± flexDays) с фильтром по статусу (по умолчанию SCHEDULED)")
+    @GetMapping("/routes")
+    public PageResponseDto<FlightRouteDto> searchRoutes(
+            @RequestParam(name = "fromCityId") Long fromCityId,
+            @RequestParam(name = "toCityId") Long toCityId,
+            @RequestParam(name = "date") LocalDate date,
+            @RequestParam(name = "flexDays", defaultValue = "0") int flexDays,
+            @RequestParam(name = "status", required = false) List<FlightStatus> statuses,
+            @RequestParam(name = "sort", defaultValue = "DEPART_AT") FlightRouteSort sort,
+            @RequestParam(name = "count", defaultValue = "EXACT") PageCountMode count,
+            @RequestParam(name = "page", defaultValue = "0") int page,
+            @RequestParam(name = "size", defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
+    ) {
+        return flightService.searchRoutes(
+                fromCityId, toCityId, date, flexDays, statuses, sort, count, page, size
+        );
+    }
+
+    @Operation(summary = "Подобрать рейсы для вылета тура (по городу и датам, из индекса в памяти)")
+    @GetMapping("/suggest-for-departure/{departureId}")
+    public List<FlightSuggestionDto> suggestForDeparture(
+            @PathVariable Long departureId,
+            @RequestParam(name = "limit", defaultValue = "20") int limit
+    ) {
+        return flightService.suggestForDeparture(departureId, limit);
+    }
+
     @Operation(summary = "Получить список рейсов, подходящих для базового города тура")
     @GetMapping("/for-tour/{tourId}")
     public PageResponseDto<FlightResponseDto> getFlightsForTourBaseCity(
@@ -69,6 +134,7 @@ public class FlightController {
             @RequestParam(name = "flightNumber", required = false) String flightNumber,
             @RequestParam(name = "departureAirportName", required = false) String departureAirportName,
             @RequestParam(name = "arrivalAirportName", required = false) String arrivalAirportName,
+            @RequestParam(name = "count", defaultValue = "EXACT") PageCountMode count,
             @RequestParam(name = "page", defaultValue = "0") int page,
             @RequestParam(name = "size", defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
     ) {
@@ -76,11 +142,30 @@ public class FlightController {
                 flightNumber,
                 departureAirportName,
                 arrivalAirportName,
+                count,
                 page,
                 size
         );
     }
 
+    @Operation(summary = "Получить рейсы постранично по курсору (без подсчёта общего количества)")
+    @GetMapping("/cursor")
+    public CursorPageResponseDto<FlightResponseDto> getAllByCursor(
+            @RequestParam(name = "flightNumber", required = false) String flightNumber,
+            @RequestParam(name = "departureAirportName", required = false) String departureAirportName,
+            @RequestParam(name = "arrivalAirportName", required = false) String arrivalAirportName,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
+    ) {
+        return flightService.getAllByCursor(
+                flightNumber,
+                departureAirportName,
+                arrivalAirportName,
+                cursor,
+                size
+        );
+    }
+
     @Operation(summary = "Найти рейс по точному номеру рейса")
     @GetMapping("/search")
     public FlightResponseDto search(@RequestParam String number) {
@@ -100,10 +185,20 @@ public class FlightController {
         return flightService.getById(id);
     }
 
-    @Operation(summary = "Получить список всех рейсов")
+    @Operation(summary = "Получить список всех рейсов (JSON-массив, отдаётся потоком)")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = FlightResponseDto.class))))
     @GetMapping
-    public List<FlightResponseDto> getAll() {
-        return flightService.getAll();
+    public void getAll(HttpServletResponse response) throws IOException {
+        rowStreamWriter.jsonArray(response, flightService::streamAll);
+    }
+
+    @Operation(summary = "Выгрузить все рейсы в NDJSON (объект на строку, отдаётся потоком)")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = RowStreamWriter.NDJSON,
+            schema = @Schema(implementation = FlightResponseDto.class)))
+    @GetMapping("/export")
+    public void export(HttpServletResponse response) throws IOException {
+        rowStreamWriter.ndjson(response, flightService::streamAll);
     }
 
     @Operation(summary = "Обновить рейс")
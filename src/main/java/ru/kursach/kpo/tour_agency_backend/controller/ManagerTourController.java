@@ -15,6 +15,7 @@ import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
 import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.tour.TourResponseDto;
 import ru.kursach.kpo.tour_agency_backend.model.entity.UserEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.PageCountMode;
 import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
 import ru.kursach.kpo.tour_agency_backend.repository.UserRepository;
 import ru.kursach.kpo.tour_agency_backend.service.entity.TourService;
@@ -36,6 +37,7 @@ public class ManagerTourController {
             @RequestParam(required = false) Long baseCityId,
             @RequestParam(required = false) TourStatus status,
             @RequestParam(required = false) Boolean active,
+            @RequestParam(defaultValue = "EXACT") PageCountMode count,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
     ) {
@@ -56,6 +58,7 @@ public class ManagerTourController {
                 status,
                 active,
                 manager.getId(),
+                count,
                 page,
                 size
         );
@@ -9,7 +9,7 @@ import org.springframework.web.bind.annotation.RestController;
 import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
 import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.tour.TourResponseDto;
-import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.PageCountMode;
 import ru.kursach.kpo.tour_agency_backend.service.entity.TourService;
 
 @RestController
@@ -22,17 +22,18 @@ public class PublicTourController {
 
     @GetMapping("/paged")
     public PageResponseDto<TourResponseDto> getPublicTours(
+            @RequestParam(required = false) String q,
             @RequestParam(required = false) String title,
             @RequestParam(required = false) Long baseCityId,
+            @RequestParam(defaultValue = "EXACT") PageCountMode count,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
     ) {
-        return tourService.getAllPaged(
+        return tourService.getPublicPaged(
+                q,
                 title,
                 baseCityId,
-                TourStatus.PUBLISHED,
-                true,
-                null,
+                count,
                 page,
                 size
         );
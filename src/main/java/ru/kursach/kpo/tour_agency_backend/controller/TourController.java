@@ -2,11 +2,17 @@ package ru.kursach.kpo.tour_agency_backend.controller;
 
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
@@ -15,10 +21,12 @@ import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.tour.TourCreateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.tour.TourResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.tour.TourUpdateRequest;
+import ru.kursach.kpo.tour_agency_backend.model.enums.PageCountMode;
 import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
 import ru.kursach.kpo.tour_agency_backend.service.entity.TourService;
+import ru.kursach.kpo.tour_agency_backend.service.streaming.RowStreamWriter;
 
-import java.util.List;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/api/v1/tours")
@@ -28,6 +36,7 @@ import java.util.List;
 public class TourController {
 
     private final TourService tourService;
+    private final RowStreamWriter rowStreamWriter;
 
     @Operation(summary = "Получить публичный тур по id")
     @GetMapping("/public/{id}")
@@ -35,14 +44,17 @@ public class TourController {
         return tourService.getById(id); // или отдельный метод, если нужно скрыть неактивные/неопубликованные
     }
 
+    @Operation(summary = "Каталог опубликованных туров; q — полнотекстовый поиск по названию и описанию с ранжированием")
     @GetMapping("/public/paged")
     public PageResponseDto<TourResponseDto> getPublicPaged(
+            @RequestParam(name = "q", required = false) String q,
             @RequestParam(name = "title", required = false) String title,
             @RequestParam(name = "baseCityId", required = false) Long baseCityId,
+            @RequestParam(name = "count", defaultValue = "EXACT") PageCountMode count,
             @RequestParam(name = "page", defaultValue = "0") int page,
             @RequestParam(name = "size", defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
     ) {
-        return tourService.getPublicPaged(title, baseCityId, page, size);
+        return tourService.getPublicPaged(q, title, baseCityId, count, page, size);
     }
 
     @GetMapping("/my/paged")
@@ -67,10 +79,11 @@ public class TourController {
             @RequestParam(name = "status", required = false) TourStatus status,
             @RequestParam(name = "active", required = false) Boolean active,
             @RequestParam(name = "managerUserId", required = false) Long managerUserId,
+            @RequestParam(name = "count", defaultValue = "EXACT") PageCountMode count,
             @RequestParam(name = "page", defaultValue = "0") int page,
             @RequestParam(name = "size", defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
     ) {
-        return tourService.getAllPaged(title, baseCityId, status, active, managerUserId, page, size);
+        return tourService.getAllPaged(title, baseCityId, status, active, managerUserId, count, page, size);
     }
 
     @Operation(summary = "Поиск туров по названию (с пагинацией)")
@@ -96,10 +109,20 @@ public class TourController {
         return tourService.getById(id);
     }
 
-    @Operation(summary = "Получить список всех туров (без фильтрации)")
+    @Operation(summary = "Получить список всех туров без фильтрации (JSON-массив, отдаётся потоком)")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = TourResponseDto.class))))
     @GetMapping
-    public List<TourResponseDto> getAll() {
-        return tourService.getAll();
+    public void getAll(HttpServletResponse response) throws IOException {
+        rowStreamWriter.jsonArray(response, tourService::streamAll);
+    }
+
+    @Operation(summary = "Выгрузить все туры в NDJSON (объект на строку, отдаётся потоком)")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = RowStreamWriter.NDJSON,
+            schema = @Schema(implementation = TourResponseDto.class)))
+    @GetMapping("/export")
+    public void export(HttpServletResponse response) throws IOException {
+        rowStreamWriter.ndjson(response, tourService::streamAll);
     }
 
     @Operation(summary = "Обновить тур")
@@ -1,25 +1,40 @@
 package ru.kursach.kpo.tour_agency_backend.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
+import ru.kursach.kpo.tour_agency_backend.dto.pagination.CursorPageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
+import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.DepartureSearchResponseDto;
+import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.PriceQuoteDto;
 import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.TourDepartureCreateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.TourDepartureResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.TourDepartureUpdateRequest;
+import ru.kursach.kpo.tour_agency_backend.model.enums.DepartureSearchSort;
+import ru.kursach.kpo.tour_agency_backend.model.enums.PageCountMode;
 import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
 import ru.kursach.kpo.tour_agency_backend.repository.UserRepository;
 import ru.kursach.kpo.tour_agency_backend.service.entity.TourDepartureService;
+import ru.kursach.kpo.tour_agency_backend.service.pricing.PriceMatrixCache;
+import ru.kursach.kpo.tour_agency_backend.service.search.DepartureSearchService;
+import ru.kursach.kpo.tour_agency_backend.service.streaming.RowStreamWriter;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/tour-departures")
@@ -29,7 +44,10 @@ import java.util.List;
 public class TourDepartureController {
 
     private final TourDepartureService tourDepartureService;
+    private final RowStreamWriter rowStreamWriter;
     private final UserRepository userRepository;
+    private final PriceMatrixCache priceMatrixCache;
+    private final DepartureSearchService departureSearchService;
 
     @GetMapping("/my/paged")
     public PageResponseDto<TourDepartureResponseDto> getMyPaged(
@@ -65,10 +83,42 @@ public class TourDepartureController {
             @RequestParam(name = "status", required = false) TourDepartureStatus status,
             @RequestParam(name = "startFrom", required = false) LocalDate startFrom,
             @RequestParam(name = "startTo", required = false) LocalDate startTo,
+            @RequestParam(name = "count", defaultValue = "EXACT") PageCountMode count,
             @RequestParam(name = "page", defaultValue = "0") int page,
             @RequestParam(name = "size", defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
     ) {
-        return tourDepartureService.getAllPaged(tourId, status, startFrom, startTo, page, size);
+        return tourDepartureService.getAllPaged(tourId, status, startFrom, startTo, count, page, size);
+    }
+
+    @Operation(summary = "Получить вылеты туров постранично по курсору (без подсчёта общего количества)")
+    @GetMapping("/cursor")
+    public CursorPageResponseDto<TourDepartureResponseDto> getAllByCursor(
+            @RequestParam(name = "tourId", required = false) Long tourId,
+            @RequestParam(name = "status", required = false) TourDepartureStatus status,
+            @RequestParam(name = "startFrom", required = false) LocalDate startFrom,
+            @RequestParam(name = "startTo", required = false) LocalDate startTo,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
+    ) {
+        return tourDepartureService.getAllByCursor(tourId, status, startFrom, startTo, cursor, size);
+    }
+
+    @Operation(summary = "Поиск вылетов опубликованных туров по городу, датам, свободным местам и цене, с фасетами по городам и статусам")
+    @GetMapping("/search")
+    public DepartureSearchResponseDto search(
+            @RequestParam(name = "cityId", required = false) Long cityId,
+            @RequestParam(name = "status", required = false) TourDepartureStatus status,
+            @RequestParam(name = "startFrom", required = false) LocalDate startFrom,
+            @RequestParam(name = "startTo", required = false) LocalDate startTo,
+            @RequestParam(name = "minFreeSeats", required = false) Integer minFreeSeats,
+            @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
+            @RequestParam(name = "sort", defaultValue = "START_DATE") DepartureSearchSort sort,
+            @RequestParam(name = "page", defaultValue = "0") int page,
+            @RequestParam(name = "size", defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
+    ) {
+        return departureSearchService.search(
+                cityId, status, startFrom, startTo, minFreeSeats, maxPrice, sort, page, size
+        );
     }
 
     @Operation(summary = "Поиск вылетов по туру (с пагинацией)")
@@ -94,10 +144,29 @@ public class TourDepartureController {
         return tourDepartureService.getById(id);
     }
 
-    @Operation(summary = "Получить список всех вылетов туров")
+    @Operation(summary = "Рассчитать стоимость бронирования вылета без его создания")
+    @GetMapping("/{id}/quote")
+    public PriceQuoteDto quote(@PathVariable Long id,
+                               @RequestParam Long outboundFlightId,
+                               @RequestParam(required = false) Long returnFlightId,
+                               @RequestParam(defaultValue = "1") int persons) {
+        return priceMatrixCache.quote(id, outboundFlightId, returnFlightId, persons);
+    }
+
+    @Operation(summary = "Получить список всех вылетов туров (JSON-массив, отдаётся потоком)")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = TourDepartureResponseDto.class))))
     @GetMapping
-    public List<TourDepartureResponseDto> getAll() {
-        return tourDepartureService.getAll();
+    public void getAll(HttpServletResponse response) throws IOException {
+        rowStreamWriter.jsonArray(response, tourDepartureService::streamAll);
+    }
+
+    @Operation(summary = "Выгрузить все вылеты туров в NDJSON (объект на строку, отдаётся потоком)")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = RowStreamWriter.NDJSON,
+            schema = @Schema(implementation = TourDepartureResponseDto.class)))
+    @GetMapping("/export")
+    public void export(HttpServletResponse response) throws IOException {
+        rowStreamWriter.ndjson(response, tourDepartureService::streamAll);
     }
 
     @Operation(summary = "Обновить вылет тура")
@@ -0,0 +1,35 @@
+package ru.kursach.kpo.tour_agency_backend.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.kursach.kpo.tour_agency_backend.dto.typeahead.TypeaheadItemDto;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TypeaheadKind;
+import ru.kursach.kpo.tour_agency_backend.service.typeahead.TypeaheadIndex;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/typeahead")
+@RequiredArgsConstructor
+@Tag(name = "Автодополнение")
+@SecurityRequirement(name = "bearerAuth")
+public class TypeaheadController {
+
+    private final TypeaheadIndex typeaheadIndex;
+
+    @Operation(summary = "Подсказки по префиксу: города (название, страна) и аэропорты (IATA-код, название), без запросов к БД")
+    @GetMapping
+    public List<TypeaheadItemDto> suggest(
+            @RequestParam(name = "q", required = false) String q,
+            @RequestParam(name = "kind", required = false) TypeaheadKind kind,
+            @RequestParam(name = "limit", defaultValue = "10") int limit
+    ) {
+        return typeaheadIndex.search(q, kind, limit);
+    }
+}
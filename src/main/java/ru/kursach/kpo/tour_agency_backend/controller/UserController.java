@@ -1,11 +1,17 @@
 package ru.kursach.kpo.tour_agency_backend.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
@@ -13,10 +19,12 @@ import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.user.UserCreateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.user.UserUpdateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.user.UserResponseDto;
+import ru.kursach.kpo.tour_agency_backend.model.enums.PageCountMode;
 import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
 import ru.kursach.kpo.tour_agency_backend.service.entity.UserService;
+import ru.kursach.kpo.tour_agency_backend.service.streaming.RowStreamWriter;
 
-import java.util.List;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/api/v1/users")
@@ -26,6 +34,7 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final RowStreamWriter rowStreamWriter;
 
     @GetMapping("/paged")
     @PreAuthorize("hasRole('ADMIN')")
@@ -33,10 +42,11 @@ public class UserController {
             @RequestParam(name = "q", required = false) String q,
             @RequestParam(name = "role", required = false) UserRole role,
             @RequestParam(name = "active", required = false) Boolean active,
+            @RequestParam(name = "count", defaultValue = "EXACT") PageCountMode count,
             @RequestParam(name = "page", defaultValue = "0") int page,
             @RequestParam(name = "size", defaultValue = Constants.DEFAULT_PAGE_SIZE) int size
     ) {
-        return userService.getAllPaged(q, role, active, page, size);
+        return userService.getAllPaged(q, role, active, count, page, size);
     }
 
     @Operation(summary = "Поиск пользователей по имени (с пагинацией)")
@@ -65,11 +75,22 @@ public class UserController {
         return userService.getById(id);
     }
 
-    @Operation(summary = "Получить список всех пользователей")
+    @Operation(summary = "Получить список всех пользователей (JSON-массив, отдаётся потоком)")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            array = @ArraySchema(schema = @Schema(implementation = UserResponseDto.class))))
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public List<UserResponseDto> getAll() {
-        return userService.getAll();
+    public void getAll(HttpServletResponse response) throws IOException {
+        rowStreamWriter.jsonArray(response, userService::streamAll);
+    }
+
+    @Operation(summary = "Выгрузить всех пользователей в NDJSON (объект на строку, отдаётся потоком)")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = RowStreamWriter.NDJSON,
+            schema = @Schema(implementation = UserResponseDto.class)))
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void export(HttpServletResponse response) throws IOException {
+        rowStreamWriter.ndjson(response, userService::streamAll);
     }
 
     @Operation(summary = "Обновить пользователя")
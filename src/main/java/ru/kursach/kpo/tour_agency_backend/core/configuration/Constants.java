@@ -11,6 +11,12 @@ public class Constants {
 
     public static final String DEFAULT_PAGE_SIZE = "4";
 
+    // allocationSize последовательностей id (pooled): nextval = N закрепляет за вызывающим id (N - 49 .. N)
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // строк за одно обращение к курсору при потоковой выдаче списков
+    public static final int STREAM_FETCH_SIZE = 500;
+
     public static final Integer OTP_EXPIRATION_MINUTES = 10;
 
     public static final String PHONE_PATTERN = "^((8|\\+374|\\+994|\\+995|\\+375|\\+7|\\+380|\\+38|\\+996|\\+998|\\+993)[\\- ]?)?\\(?\\d{3,5}\\)?[\\- ]?\\d{1}[\\- ]?\\d{1}[\\- ]?\\d{1}[\\- ]?\\d{1}[\\- ]?\\d{1}(([\\- ]?\\d{1})?[\\- ]?\\d{1})?$";
@@ -0,0 +1,18 @@
+package ru.kursach.kpo.tour_agency_backend.core.configuration;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FlywayConfig {
+
+    /**
+     * До JPA Flyway ничего не делает: миграции запускает SchemaMigrationRunner,
+     * когда Hibernate уже построил схему.
+     */
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy() {
+        return flyway -> { };
+    }
+}
@@ -0,0 +1,13 @@
+package ru.kursach.kpo.tour_agency_backend.core.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import ru.kursach.kpo.tour_agency_backend.repository.support.BaseJpaRepository;
+
+@Configuration
+@EnableJpaRepositories(
+        basePackages = "ru.kursach.kpo.tour_agency_backend.repository",
+        repositoryBaseClass = BaseJpaRepository.class
+)
+public class JpaConfig {
+}
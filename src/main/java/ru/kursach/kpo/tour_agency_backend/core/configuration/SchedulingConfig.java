@@ -0,0 +1,9 @@
+package ru.kursach.kpo.tour_agency_backend.core.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -62,9 +62,15 @@ public class SecurityConfig {
 
                         .requestMatchers("/api/v1/airports/**").hasRole("ADMIN")
 
+                        // автодополнение городов и аэропортов — все роли
+                        .requestMatchers(HttpMethod.GET, "/api/v1/typeahead").hasAnyRole("USER", "MANAGER", "ADMIN")
+
                         // flights: подбор рейсов для привязок (ADMIN + MANAGER)
                         .requestMatchers(HttpMethod.GET, "/api/v1/flights/for-tour/**").hasAnyRole("USER", "ADMIN", "MANAGER")
                         .requestMatchers(HttpMethod.GET, "/api/v1/flights/for-departure/**").hasAnyRole("USER", "ADMIN", "MANAGER")
+                        // поиск маршрутов с пересадками — для клиентов тоже
+                        .requestMatchers(HttpMethod.GET, "/api/v1/flights/itineraries").hasAnyRole("USER", "ADMIN", "MANAGER")
+                        .requestMatchers(HttpMethod.GET, "/api/v1/flights/routes").hasAnyRole("USER", "ADMIN", "MANAGER")
 
                         // flights: CRUD — только ADMIN
                         //.requestMatchers("/api/v1/flights/**").hasRole("ADMIN")
@@ -110,6 +116,7 @@ public class SecurityConfig {
                         //.requestMatchers(HttpMethod.POST, "/api/v1/bookings/**").hasRole("USER")
                         // пример: разрешаем авторизованным пользователям создавать бронь
                         .requestMatchers(HttpMethod.POST, "/api/v1/bookings", "/api/v1/bookings/").hasAnyRole("USER","MANAGER","ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/v1/bookings/batch").hasAnyRole("USER","MANAGER","ADMIN")
 
 // и разрешаем "мои брони"
                         .requestMatchers(HttpMethod.GET, "/api/v1/bookings/my/**").hasAnyRole("USER","MANAGER","ADMIN")
@@ -117,7 +124,7 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.PATCH, "/api/v1/bookings/*/status").hasAnyRole("ADMIN","MANAGER")
 
                         // MANAGER / ADMIN: управление
-                        .requestMatchers(HttpMethod.GET, "/api/v1/bookings/paged").hasAnyRole("MANAGER", "ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/api/v1/bookings/paged", "/api/v1/bookings/cursor").hasAnyRole("MANAGER", "ADMIN")
 
                         .requestMatchers(HttpMethod.GET, "/api/v1/bookings/search/**").hasAnyRole("MANAGER", "ADMIN")
 
@@ -127,6 +134,8 @@ public class SecurityConfig {
 
                         .requestMatchers(HttpMethod.DELETE, "/api/v1/bookings/**").hasAnyRole("MANAGER", "ADMIN")
                         .requestMatchers("/endpoint", "/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
 
                         //.requestMatchers("/api/v1/public/**").permitAll()
                         //.requestMatchers("/api/v1/manager/**").hasRole("MANAGER")
@@ -0,0 +1,35 @@
+package ru.kursach.kpo.tour_agency_backend.core.setup;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+/**
+ * Миграции classpath:db/migration (Flyway) поверх схемы, которую строит Hibernate (ddl-auto=update).
+ * <p>
+ * Spring Boot запускает Flyway до JPA, а скрипты рассчитаны на уже созданные таблицы и последовательности,
+ * поэтому стратегия Flyway при старте пустая (см. FlywayConfig), а миграции выполняются здесь —
+ * после создания EntityManagerFactory и до первых вставок при старте.
+ * Блокировку от параллельного запуска несколькими экземплярами берёт сам Flyway.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class SchemaMigrationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrationRunner.class);
+
+    private final Flyway flyway;
+
+    @PostConstruct
+    public void migrate() {
+        MigrateResult result = flyway.migrate();
+        logger.info("Schema migrations: {} applied, schema version {}",
+                result.migrationsExecuted, result.targetSchemaVersion);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.kursach.kpo.tour_agency_backend.dto.booking;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import ru.kursach.kpo.tour_agency_backend.model.enums.BookingBatchMode;
+
+import java.util.List;
+
+@Schema(description = "Запрос на пакетное создание бронирований")
+public record BookingBatchCreateRequest(
+
+        @Schema(description = "Режим: ALL_OR_NOTHING — всё или ничего, BEST_EFFORT — создать всё, что получится",
+                example = "ALL_OR_NOTHING")
+        BookingBatchMode mode,
+
+        @Schema(description = "Бронирования пакета")
+        @NotEmpty(message = "Пакет бронирований не может быть пустым")
+        @Size(max = 1000, message = "В пакете может быть не больше 1000 бронирований")
+        List<@Valid BookingCreateRequest> items
+) {}
@@ -0,0 +1,22 @@
+package ru.kursach.kpo.tour_agency_backend.dto.booking;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+
+@Builder
+@Schema(description = "Результат по одной позиции пакета бронирований")
+public record BookingBatchItemResultDto(
+
+        @Schema(description = "Номер позиции в запросе (0-based)", example = "0")
+        int index,
+
+        @Schema(description = "Бронирование создано", example = "true")
+        boolean created,
+
+        @Schema(description = "Созданное бронирование (если created = true)")
+        BookingResponseDto booking,
+
+        @Schema(description = "Причина отказа (если created = false)",
+                example = "Нельзя забронировать 2 мест: превышена вместимость вылета")
+        String error
+) {}
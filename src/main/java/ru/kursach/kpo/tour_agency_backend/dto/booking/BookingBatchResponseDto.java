@@ -0,0 +1,27 @@
+package ru.kursach.kpo.tour_agency_backend.dto.booking;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import ru.kursach.kpo.tour_agency_backend.model.enums.BookingBatchMode;
+
+import java.util.List;
+
+@Builder
+@Schema(description = "Результат пакетного создания бронирований")
+public record BookingBatchResponseDto(
+
+        @Schema(description = "Режим обработки пакета", example = "BEST_EFFORT")
+        BookingBatchMode mode,
+
+        @Schema(description = "Позиций в запросе", example = "10")
+        int requested,
+
+        @Schema(description = "Создано бронирований", example = "8")
+        int created,
+
+        @Schema(description = "Отклонено позиций", example = "2")
+        int rejected,
+
+        @Schema(description = "Результаты по позициям, в порядке запроса")
+        List<BookingBatchItemResultDto> items
+) {}
@@ -26,6 +26,9 @@ public record BookingResponseDto(
         @Schema(description = "Дата создания", example = "2025-12-31T10:15:00")
         LocalDateTime createdAt,
 
+        @Schema(description = "Места удерживаются до (только для PENDING)", example = "2025-12-31T10:30:00")
+        LocalDateTime holdExpiresAt,
+
         @Schema(description = "ID пользователя", example = "5")
         Long userId,
 
@@ -0,0 +1,32 @@
+package ru.kursach.kpo.tour_agency_backend.dto.flight;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+@Builder
+@Schema(description = "Рейс, подходящий вылету тура по городу и датам")
+public record FlightSuggestionDto(
+
+        @Schema(description = "ID рейса", example = "1")
+        Long id,
+
+        @Schema(description = "Номер рейса", example = "SU100")
+        String flightNumber,
+
+        @Schema(description = "Время вылета", example = "2025-12-31T10:00:00")
+        LocalDateTime departAt,
+
+        @Schema(description = "Время прилёта", example = "2025-12-31T12:30:00")
+        LocalDateTime arriveAt,
+
+        @Schema(description = "ID аэропорта вылета", example = "1")
+        Long departureAirportId,
+
+        @Schema(description = "ID аэропорта прилёта", example = "2")
+        Long arrivalAirportId,
+
+        @Schema(description = "Уже привязан к вылету", example = "false")
+        boolean linked
+) {}
@@ -0,0 +1,31 @@
+package ru.kursach.kpo.tour_agency_backend.dto.itinerary;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Builder
+@Schema(description = "Маршрут между городами: один или несколько рейсов с пересадками")
+public record ItineraryDto(
+
+        @Schema(description = "Время вылета первого рейса", example = "2025-12-31T10:00:00")
+        LocalDateTime departAt,
+
+        @Schema(description = "Время прилёта последнего рейса", example = "2025-12-31T18:30:00")
+        LocalDateTime arriveAt,
+
+        @Schema(description = "Длительность маршрута в минутах", example = "510")
+        long durationMinutes,
+
+        @Schema(description = "Сумма базовых цен рейсов", example = "27000.00")
+        BigDecimal totalPrice,
+
+        @Schema(description = "Число пересадок", example = "1")
+        int transfers,
+
+        @Schema(description = "Рейсы маршрута по порядку")
+        List<ItineraryLegDto> legs
+) {}
@@ -0,0 +1,33 @@
+package ru.kursach.kpo.tour_agency_backend.dto.itinerary;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Builder
+@Schema(description = "Перелёт в составе маршрута")
+public record ItineraryLegDto(
+
+        @Schema(description = "ID рейса", example = "1")
+        Long flightId,
+
+        @Schema(description = "Номер рейса", example = "SU100")
+        String flightNumber,
+
+        @Schema(description = "ID аэропорта вылета", example = "1")
+        Long departureAirportId,
+
+        @Schema(description = "ID аэропорта прилёта", example = "2")
+        Long arrivalAirportId,
+
+        @Schema(description = "Время вылета", example = "2025-12-31T10:00:00")
+        LocalDateTime departAt,
+
+        @Schema(description = "Время прилёта", example = "2025-12-31T12:30:00")
+        LocalDateTime arriveAt,
+
+        @Schema(description = "Базовая цена рейса", example = "15000.00")
+        BigDecimal basePrice
+) {}
@@ -0,0 +1,24 @@
+package ru.kursach.kpo.tour_agency_backend.dto.pagination;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+@Schema(description = "Страница результатов с курсорной (keyset) пагинацией")
+public record CursorPageResponseDto<T>(
+
+        @Schema(description = "Размер страницы (количество элементов)", example = "10")
+        int size,
+
+        @Schema(description = "Курсор следующей страницы (null — это последняя страница)",
+                example = "MjAyNi0wMS0xMFQxMDowMHw0Mg", nullable = true)
+        String nextCursor,
+
+        @Schema(description = "Есть ли следующая страница", example = "true")
+        boolean hasNext,
+
+        @Schema(description = "Список элементов на текущей странице")
+        List<T> content
+) {}
@@ -15,11 +15,19 @@ public record PageResponseDto<T>(
         @Schema(description = "Размер страницы (количество элементов)", example = "10")
         int size,
 
-        @Schema(description = "Общее количество страниц", example = "5")
-        int totalPages,
+        @Schema(description = "Общее количество страниц (null, если общее количество не считалось)",
+                example = "5", nullable = true)
+        Integer totalPages,
 
-        @Schema(description = "Общее количество элементов", example = "42")
-        long totalElements,
+        @Schema(description = "Общее количество элементов (null, если не считалось)",
+                example = "42", nullable = true)
+        Long totalElements,
+
+        @Schema(description = "totalElements — оценка по статистике БД, а не точный подсчёт", example = "false")
+        boolean totalEstimated,
+
+        @Schema(description = "Есть ли следующая страница", example = "true")
+        boolean hasNext,
 
         @Schema(description = "Список элементов на текущей странице")
         List<T> content
@@ -5,6 +5,7 @@ import lombok.Builder;
 import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 
 @Builder
 @Schema(description = "Тур (ответ)")
@@ -41,5 +42,15 @@ public record TourResponseDto(
         Long managerUserId,
 
         @Schema(description = "Имя менеджера тура", example = "ivan_petrov")
-        String managerUsername
+        String managerUsername,
+
+        @Schema(description = "Минимальная цена среди предстоящих вылетов в продаже",
+                example = "42000.00", nullable = true)
+        BigDecimal minPrice,
+
+        @Schema(description = "Дата ближайшего вылета в продаже", example = "2026-06-01", nullable = true)
+        LocalDate nextDepartureDate,
+
+        @Schema(description = "Свободных мест на предстоящих вылетах", example = "24", nullable = true)
+        Integer seatsLeft
 ) {}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package ru.kursach.kpo.tour_agency_backend.dto.tourdeparture;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
+
+@Builder
+@Schema(description = "Расхождение capacityReserved вылета с фактическими бронированиями")
+public record CapacityDriftDto(
+
+        @Schema(description = "ID вылета тура", example = "1")
+        Long tourDepartureId,
+
+        @Schema(description = "Вместимость", example = "30")
+        int capacityTotal,
+
+        @Schema(description = "capacityReserved в таблице вылетов", example = "12")
+        int capacityReserved,
+
+        @Schema(description = "Мест по PENDING/CONFIRMED бронированиям", example = "10")
+        int countedReserved,
+
+        @Schema(description = "Текущий статус вылета", example = "PLANNED")
+        TourDepartureStatus status,
+
+        @Schema(description = "Статус вылета после исправления", example = "PLANNED")
+        TourDepartureStatus expectedStatus
+) {}
@@ -0,0 +1,32 @@
+package ru.kursach.kpo.tour_agency_backend.dto.tourdeparture;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+@Schema(description = "Отчёт о сверке capacityReserved вылетов с бронированиями")
+public record CapacityReconciliationReportDto(
+
+        @Schema(description = "Проверено вылетов", example = "1200")
+        int departuresChecked,
+
+        @Schema(description = "Вылетов с расхождением (места или статус)", example = "3")
+        int departuresDrifted,
+
+        @Schema(description = "Сумма |capacityReserved - фактические места| по всем вылетам", example = "7")
+        long totalSeatDrift,
+
+        @Schema(description = "Выполнялось ли исправление", example = "true")
+        boolean repaired,
+
+        @Schema(description = "Исправлено строк (строки, изменённые параллельно, пропускаются)", example = "3")
+        int rowsRepaired,
+
+        @Schema(description = "Длительность сверки, мс", example = "850")
+        long durationMs,
+
+        @Schema(description = "Первые расхождения (не больше 100)")
+        List<CapacityDriftDto> drifts
+) {}
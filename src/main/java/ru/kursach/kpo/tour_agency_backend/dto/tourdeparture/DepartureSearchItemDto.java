@@ -0,0 +1,43 @@
+package ru.kursach.kpo.tour_agency_backend.dto.tourdeparture;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Builder
+@Schema(description = "Вылет тура в результатах поиска: уже посчитанные свободные места и итоговая цена")
+public record DepartureSearchItemDto(
+
+        @Schema(description = "ID вылета тура", example = "1")
+        Long tourDepartureId,
+
+        @Schema(description = "ID тура", example = "1")
+        Long tourId,
+
+        @Schema(description = "Название тура", example = "Париж на выходные")
+        String tourTitle,
+
+        @Schema(description = "ID базового города тура", example = "1")
+        Long baseCityId,
+
+        @Schema(description = "Базовый город тура", example = "Москва")
+        String baseCityName,
+
+        @Schema(description = "Дата начала", example = "2026-06-01")
+        LocalDate startDate,
+
+        @Schema(description = "Дата окончания", example = "2026-06-07")
+        LocalDate endDate,
+
+        @Schema(description = "Свободные места (capacityTotal - capacityReserved)", example = "20")
+        int freeSeats,
+
+        @Schema(description = "Цена тура на одного человека: priceOverride или базовая цена тура", example = "60000.00")
+        BigDecimal price,
+
+        @Schema(description = "Статус вылета", example = "PLANNED")
+        TourDepartureStatus status
+) {}
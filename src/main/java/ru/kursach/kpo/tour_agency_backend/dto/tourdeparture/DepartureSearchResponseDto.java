@@ -0,0 +1,21 @@
+package ru.kursach.kpo.tour_agency_backend.dto.tourdeparture;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
+
+import java.util.List;
+
+@Builder
+@Schema(description = "Результат поиска вылетов: страница и фасеты")
+public record DepartureSearchResponseDto(
+
+        @Schema(description = "Страница найденных вылетов")
+        PageResponseDto<DepartureSearchItemDto> results,
+
+        @Schema(description = "Число вылетов по городам (с учётом всех фильтров, кроме города)")
+        List<FacetCountDto> cityFacets,
+
+        @Schema(description = "Число вылетов по статусам (с учётом всех фильтров, кроме статуса)")
+        List<FacetCountDto> statusFacets
+) {}
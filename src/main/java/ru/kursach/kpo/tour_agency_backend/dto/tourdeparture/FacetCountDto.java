@@ -0,0 +1,18 @@
+package ru.kursach.kpo.tour_agency_backend.dto.tourdeparture;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+
+@Builder
+@Schema(description = "Значение фасета и число вылетов с ним")
+public record FacetCountDto(
+
+        @Schema(description = "Значение фильтра (ID города или статус)", example = "1")
+        String value,
+
+        @Schema(description = "Подпись значения", example = "Москва")
+        String label,
+
+        @Schema(description = "Число подходящих вылетов", example = "12")
+        long count
+) {}
@@ -0,0 +1,29 @@
+package ru.kursach.kpo.tour_agency_backend.dto.tourdeparture;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+
+@Builder
+@Schema(description = "Расчёт стоимости бронирования без его создания")
+public record PriceQuoteDto(
+
+        @Schema(description = "ID вылета тура", example = "1")
+        Long tourDepartureId,
+
+        @Schema(description = "ID рейса туда", example = "10")
+        Long outboundFlightId,
+
+        @Schema(description = "ID рейса обратно", example = "11", nullable = true)
+        Long returnFlightId,
+
+        @Schema(description = "Количество человек", example = "2")
+        int personsCount,
+
+        @Schema(description = "Цена на одного человека", example = "55000.00")
+        BigDecimal pricePerPerson,
+
+        @Schema(description = "Итоговая стоимость", example = "110000.00")
+        BigDecimal totalPrice
+) {}
@@ -8,7 +8,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 
-@Builder
+@Builder(toBuilder = true)
 @Schema(description = "Вылет тура (ответ)")
 public record TourDepartureResponseDto(
 
@@ -24,11 +24,6 @@ public record TourDepartureUpdateRequest(
         @Min(value = 1, message = "Вместимость должна быть >= 1")
         Integer capacityTotal,
 
-        @Schema(description = "Количество забронированных мест", example = "10")
-        @NotNull(message = "Количество забронированных мест обязательно")
-        @Min(value = 0, message = "Забронированных мест не может быть меньше 0")
-        Integer capacityReserved,
-
         @Schema(description = "Переопределённая цена для этого вылета", example = "60000.00")
         @DecimalMin(value = "0.0", inclusive = false, message = "Цена должна быть положительной")
         BigDecimal priceOverride,
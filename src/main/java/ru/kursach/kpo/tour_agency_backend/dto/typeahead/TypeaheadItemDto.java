@@ -0,0 +1,25 @@
+package ru.kursach.kpo.tour_agency_backend.dto.typeahead;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TypeaheadKind;
+
+@Builder
+@Schema(description = "Подсказка автодополнения (город или аэропорт)")
+public record TypeaheadItemDto(
+
+        @Schema(description = "Тип подсказки", example = "AIRPORT")
+        TypeaheadKind kind,
+
+        @Schema(description = "ID города или аэропорта", example = "1")
+        Long id,
+
+        @Schema(description = "Основной текст", example = "SVO — Шереметьево")
+        String label,
+
+        @Schema(description = "Уточнение: страна для города, город для аэропорта", example = "Москва")
+        String detail,
+
+        @Schema(description = "ID города (для аэропорта — город аэропорта)", example = "1")
+        Long cityId
+) {}
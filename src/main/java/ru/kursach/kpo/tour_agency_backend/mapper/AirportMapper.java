@@ -6,10 +6,33 @@ import ru.kursach.kpo.tour_agency_backend.dto.airport.AirportUpdateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.airport.AirportResponseDto;
 import ru.kursach.kpo.tour_agency_backend.model.entity.AirportEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.CityEntity;
+import ru.kursach.kpo.tour_agency_backend.repository.support.RowProjection;
+
+import java.util.List;
 
 @Component
 public class AirportMapper {
 
+    /**
+     * Строка списка аэропортов вместе с названием города одним SELECT.
+     */
+    public static final RowProjection<AirportEntity, AirportResponseDto> RESPONSE_ROW = RowProjection.of(
+            (root, cb) -> List.of(
+                    root.get("id").alias("id"),
+                    root.get("iataCode").alias("iataCode"),
+                    root.get("name").alias("name"),
+                    root.get("city").get("id").alias("cityId"),
+                    root.get("city").get("name").alias("cityName")
+            ),
+            row -> AirportResponseDto.builder()
+                    .id(row.get("id", Long.class))
+                    .iataCode(row.get("iataCode", String.class))
+                    .name(row.get("name", String.class))
+                    .cityId(row.get("cityId", Long.class))
+                    .cityName(row.get("cityName", String.class))
+                    .build()
+    );
+
     public AirportEntity toEntity(AirportCreateRequest request, CityEntity city) {
         return AirportEntity.builder()
                 .iataCode(request.iataCode())
@@ -1,5 +1,7 @@
 package ru.kursach.kpo.tour_agency_backend.mapper;
 
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
 import org.springframework.stereotype.Component;
 import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingCreateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingResponseDto;
@@ -9,12 +11,57 @@ import ru.kursach.kpo.tour_agency_backend.model.entity.FlightEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.TourDepartureEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.UserEntity;
 import ru.kursach.kpo.tour_agency_backend.model.enums.BookingStatus;
+import ru.kursach.kpo.tour_agency_backend.repository.support.RowProjection;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Component
 public class BookingMapper {
 
+    /**
+     * Строка списка броней одним SELECT: пользователь, вылет с туром и рейс туда — обязательные
+     * связи (неявные JOIN), обратный рейс — LEFT JOIN.
+     */
+    public static final RowProjection<BookingEntity, BookingResponseDto> RESPONSE_ROW = RowProjection.of(
+            (root, cb) -> {
+                Join<BookingEntity, FlightEntity> returnFlight = root.join("returnFlight", JoinType.LEFT);
+                return List.of(
+                        root.get("id").alias("id"),
+                        root.get("personsCount").alias("personsCount"),
+                        root.get("totalPrice").alias("totalPrice"),
+                        root.get("status").alias("status"),
+                        root.get("createdAt").alias("createdAt"),
+                        root.get("holdExpiresAt").alias("holdExpiresAt"),
+                        root.get("user").get("id").alias("userId"),
+                        root.get("user").get("email").alias("userEmail"),
+                        root.get("tourDeparture").get("id").alias("tourDepartureId"),
+                        root.get("tourDeparture").get("tour").get("title").alias("tourTitle"),
+                        root.get("outboundFlight").get("id").alias("outboundFlightId"),
+                        root.get("outboundFlight").get("flightNumber").alias("outboundFlightNumber"),
+                        returnFlight.get("id").alias("returnFlightId"),
+                        returnFlight.get("flightNumber").alias("returnFlightNumber")
+                );
+            },
+            row -> BookingResponseDto.builder()
+                    .id(row.get("id", Long.class))
+                    .personsCount(row.get("personsCount", Integer.class))
+                    .totalPrice(row.get("totalPrice", BigDecimal.class))
+                    .status(row.get("status", BookingStatus.class))
+                    .createdAt(row.get("createdAt", LocalDateTime.class))
+                    .holdExpiresAt(row.get("holdExpiresAt", LocalDateTime.class))
+                    .userId(row.get("userId", Long.class))
+                    .userEmail(row.get("userEmail", String.class))
+                    .tourDepartureId(row.get("tourDepartureId", Long.class))
+                    .tourTitle(row.get("tourTitle", String.class))
+                    .outboundFlightId(row.get("outboundFlightId", Long.class))
+                    .outboundFlightNumber(row.get("outboundFlightNumber", String.class))
+                    .returnFlightId(row.get("returnFlightId", Long.class))
+                    .returnFlightNumber(row.get("returnFlightNumber", String.class))
+                    .build()
+    );
+
     public BookingEntity toEntity(BookingCreateRequest request,
                                   BigDecimal totalPriceCalculated) {
 
@@ -40,6 +87,7 @@ public class BookingMapper {
                 .totalPrice(entity.getTotalPrice())
                 .status(entity.getStatus())
                 .createdAt(entity.getCreatedAt())
+                .holdExpiresAt(entity.getHoldExpiresAt())
                 .userId(entity.getUser() != null ? entity.getUser().getId() : null)
                 .userEmail(entity.getUser() != null ? entity.getUser().getEmail() : null)
                 .tourDepartureId(entity.getTourDeparture() != null
@@ -3,16 +3,55 @@ package ru.kursach.kpo.tour_agency_backend.mapper;
 import org.springframework.stereotype.Component;
 import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightCreateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightResponseDto;
+import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightRouteDto;
 import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightUpdateRequest;
 import ru.kursach.kpo.tour_agency_backend.model.entity.AirportEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.FlightEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.TourDepartureEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.FlightStatus;
+import ru.kursach.kpo.tour_agency_backend.repository.support.RowProjection;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Component
 public class FlightMapper {
 
+    /**
+     * Строка списка рейсов: колонки рейса и названия аэропортов одним SELECT.
+     * tourDepartureIds пустой — сервис добавляет их одним запросом на страницу.
+     */
+    public static final RowProjection<FlightEntity, FlightResponseDto> RESPONSE_ROW = RowProjection.of(
+            (root, cb) -> List.of(
+                    root.get("id").alias("id"),
+                    root.get("flightNumber").alias("flightNumber"),
+                    root.get("carrier").alias("carrier"),
+                    root.get("departAt").alias("departAt"),
+                    root.get("arriveAt").alias("arriveAt"),
+                    root.get("status").alias("status"),
+                    root.get("basePrice").alias("basePrice"),
+                    root.get("departureAirport").get("id").alias("departureAirportId"),
+                    root.get("departureAirport").get("name").alias("departureAirportName"),
+                    root.get("arrivalAirport").get("id").alias("arrivalAirportId"),
+                    root.get("arrivalAirport").get("name").alias("arrivalAirportName")
+            ),
+            row -> FlightResponseDto.builder()
+                    .id(row.get("id", Long.class))
+                    .flightNumber(row.get("flightNumber", String.class))
+                    .carrier(row.get("carrier", String.class))
+                    .departAt(row.get("departAt", LocalDateTime.class))
+                    .arriveAt(row.get("arriveAt", LocalDateTime.class))
+                    .status(row.get("status", FlightStatus.class))
+                    .basePrice(row.get("basePrice", BigDecimal.class))
+                    .departureAirportId(row.get("departureAirportId", Long.class))
+                    .departureAirportName(row.get("departureAirportName", String.class))
+                    .arrivalAirportId(row.get("arrivalAirportId", Long.class))
+                    .arrivalAirportName(row.get("arrivalAirportName", String.class))
+                    .tourDepartureIds(List.of())
+                    .build()
+    );
+
     public FlightEntity toEntity(FlightCreateRequest request,
                                  AirportEntity departureAirport,
                                  AirportEntity arrivalAirport) {
@@ -56,4 +95,25 @@ public class FlightMapper {
                 )
                 .build();
     }
+
+    /**
+     * Без привязанных вылетов: коллекция tourDepartures не загружается на каждую строку.
+     */
+    public FlightRouteDto toRouteDto(FlightEntity flight) {
+        return FlightRouteDto.builder()
+                .id(flight.getId())
+                .flightNumber(flight.getFlightNumber())
+                .carrier(flight.getCarrier())
+                .departAt(flight.getDepartAt())
+                .arriveAt(flight.getArriveAt())
+                .status(flight.getStatus())
+                .basePrice(flight.getBasePrice())
+                .departureAirportId(flight.getDepartureAirport().getId())
+                .departureAirportIata(flight.getDepartureAirport().getIataCode())
+                .departureAirportName(flight.getDepartureAirport().getName())
+                .arrivalAirportId(flight.getArrivalAirport().getId())
+                .arrivalAirportIata(flight.getArrivalAirport().getIataCode())
+                .arrivalAirportName(flight.getArrivalAirport().getName())
+                .build();
+    }
 }
@@ -7,12 +7,46 @@ import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.TourDepartureUpdateR
 import ru.kursach.kpo.tour_agency_backend.model.entity.FlightEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.TourDepartureEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.TourEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
+import ru.kursach.kpo.tour_agency_backend.repository.support.RowProjection;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 @Component
 public class TourDepartureMapper {
 
+    /**
+     * Строка списка вылетов: колонки вылета и название тура одним SELECT.
+     * flightIds пустой — сервис добавляет их одним запросом на страницу.
+     */
+    public static final RowProjection<TourDepartureEntity, TourDepartureResponseDto> RESPONSE_ROW = RowProjection.of(
+            (root, cb) -> List.of(
+                    root.get("id").alias("id"),
+                    root.get("startDate").alias("startDate"),
+                    root.get("endDate").alias("endDate"),
+                    root.get("capacityTotal").alias("capacityTotal"),
+                    root.get("capacityReserved").alias("capacityReserved"),
+                    root.get("priceOverride").alias("priceOverride"),
+                    root.get("status").alias("status"),
+                    root.get("tour").get("id").alias("tourId"),
+                    root.get("tour").get("title").alias("tourTitle")
+            ),
+            row -> TourDepartureResponseDto.builder()
+                    .id(row.get("id", Long.class))
+                    .startDate(row.get("startDate", LocalDate.class))
+                    .endDate(row.get("endDate", LocalDate.class))
+                    .capacityTotal(row.get("capacityTotal", Integer.class))
+                    .capacityReserved(row.get("capacityReserved", Integer.class))
+                    .priceOverride(row.get("priceOverride", BigDecimal.class))
+                    .status(row.get("status", TourDepartureStatus.class))
+                    .tourId(row.get("tourId", Long.class))
+                    .tourTitle(row.get("tourTitle", String.class))
+                    .flightIds(List.of())
+                    .build()
+    );
+
     public TourDepartureEntity toEntity(TourDepartureCreateRequest request,
                                         TourEntity tour) {
         return TourDepartureEntity.builder()
@@ -32,8 +66,6 @@ public class TourDepartureMapper {
                              TourDepartureEntity entity) {
         entity.setStartDate(request.startDate());
         entity.setEndDate(request.endDate());
-        entity.setCapacityTotal(request.capacityTotal());
-        entity.setCapacityReserved(request.capacityReserved());
         entity.setPriceOverride(request.priceOverride());
         entity.setStatus(request.status());
         entity.setTour(tour);
@@ -1,16 +1,73 @@
 package ru.kursach.kpo.tour_agency_backend.mapper;
 
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import org.hibernate.query.criteria.JpaEntityJoin;
+import org.hibernate.query.criteria.JpaRoot;
+import org.hibernate.query.sqm.tree.SqmJoinType;
 import org.springframework.stereotype.Component;
 import ru.kursach.kpo.tour_agency_backend.dto.tour.TourCreateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.tour.TourResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.tour.TourUpdateRequest;
 import ru.kursach.kpo.tour_agency_backend.model.entity.CityEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.TourEntity;
+import ru.kursach.kpo.tour_agency_backend.model.entity.TourSummaryEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.UserEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
+import ru.kursach.kpo.tour_agency_backend.repository.support.RowProjection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
 
 @Component
 public class TourMapper {
 
+    /**
+     * Строка списка туров одним SELECT: город (обязательная связь), менеджер — LEFT JOIN,
+     * сводка по вылетам — LEFT JOIN tour_summary (поля сводки null, если её ещё нет).
+     */
+    public static final RowProjection<TourEntity, TourResponseDto> RESPONSE_ROW = RowProjection.of(
+            (root, cb) -> {
+                Join<TourEntity, UserEntity> manager = root.join("managerUser", JoinType.LEFT);
+                JpaEntityJoin<TourSummaryEntity> summary =
+                        ((JpaRoot<TourEntity>) root).join(TourSummaryEntity.class, SqmJoinType.LEFT);
+                summary.on(cb.equal(summary.get("tourId"), root.get("id")));
+                return List.of(
+                        root.get("id").alias("id"),
+                        root.get("title").alias("title"),
+                        root.get("description").alias("description"),
+                        root.get("durationDays").alias("durationDays"),
+                        root.get("basePrice").alias("basePrice"),
+                        root.get("status").alias("status"),
+                        root.get("active").alias("active"),
+                        root.get("baseCity").get("id").alias("baseCityId"),
+                        root.get("baseCity").get("name").alias("baseCityName"),
+                        manager.get("id").alias("managerUserId"),
+                        manager.get("username").alias("managerUsername"),
+                        summary.get("minPrice").alias("minPrice"),
+                        summary.get("nextDepartureDate").alias("nextDepartureDate"),
+                        summary.get("seatsLeft").alias("seatsLeft")
+                );
+            },
+            row -> TourResponseDto.builder()
+                    .id(row.get("id", Long.class))
+                    .title(row.get("title", String.class))
+                    .description(row.get("description", String.class))
+                    .durationDays(row.get("durationDays", Integer.class))
+                    .basePrice(row.get("basePrice", BigDecimal.class))
+                    .status(row.get("status", TourStatus.class))
+                    .active(row.get("active", Boolean.class))
+                    .baseCityId(row.get("baseCityId", Long.class))
+                    .baseCityName(row.get("baseCityName", String.class))
+                    .managerUserId(row.get("managerUserId", Long.class))
+                    .managerUsername(row.get("managerUsername", String.class))
+                    .minPrice(row.get("minPrice", BigDecimal.class))
+                    .nextDepartureDate(row.get("nextDepartureDate", LocalDate.class))
+                    .seatsLeft(row.get("seatsLeft", Integer.class))
+                    .build()
+    );
+
     public TourEntity toEntity(TourCreateRequest request,
                                CityEntity baseCity,
                                UserEntity managerUser) {
@@ -40,6 +97,13 @@ public class TourMapper {
     }
 
     public TourResponseDto toDto(TourEntity entity) {
+        return toDto(entity, null);
+    }
+
+    /**
+     * @param summary сводка по вылетам тура; null — поля сводки в ответе пустые
+     */
+    public TourResponseDto toDto(TourEntity entity, TourSummaryEntity summary) {
         return TourResponseDto.builder()
                 .id(entity.getId())
                 .title(entity.getTitle())
@@ -52,6 +116,9 @@ public class TourMapper {
                 .baseCityName(entity.getBaseCity().getName())
                 .managerUserId(entity.getManagerUser() != null ? entity.getManagerUser().getId() : null)
                 .managerUsername(entity.getManagerUser() != null ? entity.getManagerUser().getUsername() : null)
+                .minPrice(summary != null ? summary.getMinPrice() : null)
+                .nextDepartureDate(summary != null ? summary.getNextDepartureDate() : null)
+                .seatsLeft(summary != null ? summary.getSeatsLeft() : null)
                 .build();
     }
 }
\ No newline at end of file
@@ -5,10 +5,36 @@ import ru.kursach.kpo.tour_agency_backend.dto.user.UserCreateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.user.UserUpdateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.user.UserResponseDto;
 import ru.kursach.kpo.tour_agency_backend.model.entity.UserEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
+import ru.kursach.kpo.tour_agency_backend.repository.support.RowProjection;
+
+import java.util.List;
 
 @Component
 public class UserMapper {
 
+    /**
+     * Строка списка пользователей: только колонки ответа, без хеша пароля и коллекций.
+     */
+    public static final RowProjection<UserEntity, UserResponseDto> RESPONSE_ROW = RowProjection.of(
+            (root, cb) -> List.of(
+                    root.get("id").alias("id"),
+                    root.get("username").alias("username"),
+                    root.get("email").alias("email"),
+                    root.get("phone").alias("phone"),
+                    root.get("userRole").alias("userRole"),
+                    root.get("active").alias("active")
+            ),
+            row -> UserResponseDto.builder()
+                    .id(row.get("id", Long.class))
+                    .username(row.get("username", String.class))
+                    .email(row.get("email", String.class))
+                    .phone(row.get("phone", String.class))
+                    .userRole(row.get("userRole", UserRole.class))
+                    .active(row.get("active", Boolean.class))
+                    .build()
+    );
+
     public UserEntity toEntity(UserCreateRequest request, String encodedPassword) {
         return UserEntity.builder()
                 .username(request.username())
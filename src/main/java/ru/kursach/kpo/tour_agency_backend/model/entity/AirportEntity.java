@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -18,13 +19,18 @@ import java.util.List;
         name = "airports",
         uniqueConstraints = {
                 @UniqueConstraint(columnNames = {"iata_code"})
+        },
+        indexes = {
+                // город -> его аэропорты при поиске рейсов по маршруту
+                @Index(name = "idx_airports_city_id", columnList = "city_id")
         }
 )
 @ToString
 public class AirportEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "airports_seq")
+    @SequenceGenerator(name = "airports_seq", sequenceName = "airports_seq", allocationSize = Constants.ID_ALLOCATION_SIZE)
     private Long id;
 
     @NotBlank
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
+import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
 import ru.kursach.kpo.tour_agency_backend.model.enums.BookingStatus;
 
 import java.math.BigDecimal;
@@ -16,11 +17,25 @@ import java.time.LocalDateTime;
 @Builder
 @ToString
 @Entity
-@Table(name = "bookings")
+@Table(
+        name = "bookings",
+        indexes = {
+                @Index(name = "idx_bookings_status_hold_expires_at", columnList = "status, hold_expires_at"),
+                // покрывающий индекс для сверки мест: SUM(persons_count) по вылету без чтения таблицы
+                @Index(name = "idx_bookings_departure_status_persons", columnList = "tour_departure_id, status, persons_count"),
+                // keyset-пагинация: общий список и «мои брони»
+                @Index(name = "idx_bookings_created_at_id", columnList = "created_at, id"),
+                @Index(name = "idx_bookings_user_created_at_id", columnList = "user_id, created_at, id"),
+                // фильтры списка броней по статусу и по вылету в том же порядке created_at, id
+                @Index(name = "idx_bookings_status_created_at_id", columnList = "status, created_at, id"),
+                @Index(name = "idx_bookings_departure_created_at_id", columnList = "tour_departure_id, created_at, id")
+        }
+)
 public class BookingEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = Constants.ID_ALLOCATION_SIZE)
     private Long id;
 
     @NotNull
@@ -42,6 +57,10 @@ public class BookingEntity {
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
+    // до какого момента PENDING-бронь удерживает места (для остальных статусов null)
+    @Column(name = "hold_expires_at")
+    private LocalDateTime holdExpiresAt;
+
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "user_id", nullable = false)
     @ToString.Exclude
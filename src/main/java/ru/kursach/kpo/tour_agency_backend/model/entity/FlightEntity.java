@@ -5,6 +5,8 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.Hibernate;
+import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
 import ru.kursach.kpo.tour_agency_backend.model.enums.FlightStatus;
 
 import java.math.BigDecimal;
@@ -23,12 +25,20 @@ import java.util.List;
         name = "flights",
         uniqueConstraints = {
                 @UniqueConstraint(columnNames = {"flight_number"})
+        },
+        indexes = {
+                // keyset-пагинация по (flight_number, id)
+                @Index(name = "idx_flights_flight_number_id", columnList = "flight_number, id"),
+                // поиск по маршруту: диапазон depart_at внутри каждого аэропорта вылета / прилёта
+                @Index(name = "idx_flights_departure_airport_depart_at", columnList = "departure_airport_id, depart_at"),
+                @Index(name = "idx_flights_arrival_airport_depart_at", columnList = "arrival_airport_id, depart_at")
         }
 )
 public class FlightEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "flights_seq")
+    @SequenceGenerator(name = "flights_seq", sequenceName = "flights_seq", allocationSize = Constants.ID_ALLOCATION_SIZE)
     private Long id;
 
     @NotBlank
@@ -73,7 +83,13 @@ public class FlightEntity {
     @JoinTable(
             name = "flight_tour_departure",
             joinColumns = @JoinColumn(name = "flight_id"),
-            inverseJoinColumns = @JoinColumn(name = "tour_departure_id")
+            inverseJoinColumns = @JoinColumn(name = "tour_departure_id"),
+            indexes = {
+                    @Index(name = "idx_flight_tour_departure_departure_flight",
+                            columnList = "tour_departure_id, flight_id"),
+                    @Index(name = "idx_flight_tour_departure_flight_departure",
+                            columnList = "flight_id, tour_departure_id")
+            }
     )
     @Builder.Default
     @ToString.Exclude
@@ -101,7 +117,10 @@ public class FlightEntity {
 
     public void addOutboundBooking(BookingEntity booking) {
         if (booking == null) return;
-        if (!outboundBookings.contains(booking)) outboundBookings.add(booking);
+        // не инициализируем коллекцию ради contains(): у рейса могут быть тысячи броней
+        if (!Hibernate.isInitialized(outboundBookings) || !outboundBookings.contains(booking)) {
+            outboundBookings.add(booking);
+        }
         booking.setOutboundFlight(this);
     }
 
@@ -115,7 +134,9 @@ public class FlightEntity {
 
     public void addReturnBooking(BookingEntity booking) {
         if (booking == null) return;
-        if (!returnBookings.contains(booking)) returnBookings.add(booking);
+        if (!Hibernate.isInitialized(returnBookings) || !returnBookings.contains(booking)) {
+            returnBookings.add(booking);
+        }
         booking.setReturnFlight(this);
     }
 
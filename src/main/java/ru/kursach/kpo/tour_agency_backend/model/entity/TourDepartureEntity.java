@@ -3,6 +3,7 @@ package ru.kursach.kpo.tour_agency_backend.model.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
+import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
 import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
 
 import java.math.BigDecimal;
@@ -17,11 +18,20 @@ import java.util.List;
 @Builder
 @ToString
 @Entity
-@Table(name = "tour_departures")
+@Table(
+        name = "tour_departures",
+        indexes = {
+                // keyset-пагинация по (start_date, id)
+                @Index(name = "idx_tour_departures_start_date_id", columnList = "start_date, id"),
+                // список вылетов с фильтром по статусу
+                @Index(name = "idx_tour_departures_status_start_date_id", columnList = "status, start_date, id")
+        }
+)
 public class TourDepartureEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tour_departures_seq")
+    @SequenceGenerator(name = "tour_departures_seq", sequenceName = "tour_departures_seq", allocationSize = Constants.ID_ALLOCATION_SIZE)
     private Long id;
 
     @NotNull
@@ -32,12 +42,14 @@ public class TourDepartureEntity {
     @Column(name = "end_date", nullable = false)
     private LocalDate endDate;
 
+    // вместимость и занятые места меняются только условными UPDATE (TourDepartureRepository),
+    // UPDATE сущности их не пишет и не затирает места, занятые параллельно
     @NotNull
-    @Column(name = "capacity_total", nullable = false)
+    @Column(name = "capacity_total", nullable = false, updatable = false)
     private Integer capacityTotal;
 
     @NotNull
-    @Column(name = "capacity_reserved", nullable = false)
+    @Column(name = "capacity_reserved", nullable = false, updatable = false)
     @Builder.Default
     private Integer capacityReserved = 0;
 
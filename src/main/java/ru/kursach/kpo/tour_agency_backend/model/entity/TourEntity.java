@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
 import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
 
 import java.math.BigDecimal;
@@ -18,11 +19,19 @@ import java.util.List;
 @Builder
 @ToString
 @Entity
-@Table(name = "tours")
+@Table(
+        name = "tours",
+        indexes = {
+                // «мои туры» менеджера и фильтр по городу в админском списке
+                @Index(name = "idx_tours_manager_user_title", columnList = "manager_user_id, title"),
+                @Index(name = "idx_tours_base_city_title", columnList = "base_city_id, title")
+        }
+)
 public class TourEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tours_seq")
+    @SequenceGenerator(name = "tours_seq", sequenceName = "tours_seq", allocationSize = Constants.ID_ALLOCATION_SIZE)
     private Long id;
 
     @NotBlank
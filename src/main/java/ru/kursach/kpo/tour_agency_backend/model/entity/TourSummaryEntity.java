@@ -0,0 +1,44 @@
+package ru.kursach.kpo.tour_agency_backend.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Сводка по предстоящим вылетам тура (read model, см. V6__tour_summary.sql).
+ * Пишется только SQL-ом из TourSummaryService, через JPA — только чтение.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+@Entity
+@Immutable
+@Table(name = "tour_summary")
+public class TourSummaryEntity {
+
+    @Id
+    @Column(name = "tour_id")
+    private Long tourId;
+
+    /** минимальная цена среди вылетов в продаже; null — таких вылетов нет */
+    @Column(name = "min_price", precision = 10, scale = 2)
+    private BigDecimal minPrice;
+
+    @Column(name = "next_departure_date")
+    private LocalDate nextDepartureDate;
+
+    @Column(name = "seats_left", nullable = false)
+    private int seatsLeft;
+
+    @Column(name = "upcoming_departures", nullable = false)
+    private int upcomingDepartures;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
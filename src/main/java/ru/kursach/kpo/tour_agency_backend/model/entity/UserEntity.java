@@ -5,6 +5,7 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
 import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
 
 import java.util.ArrayList;
@@ -18,6 +19,10 @@ import java.util.List;
 @Entity
 @Builder
 @Table(name = "app_users",
+        indexes = {
+            // список пользователей с фильтром по роли, порядок username, id
+            @Index(name = "idx_app_users_role_username_id", columnList = "user_role, username, id")
+        },
         uniqueConstraints = {
             @UniqueConstraint(columnNames = "email")
         }
@@ -25,7 +30,8 @@ import java.util.List;
 public class UserEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "app_users_seq")
+    @SequenceGenerator(name = "app_users_seq", sequenceName = "app_users_seq", allocationSize = Constants.ID_ALLOCATION_SIZE)
     @EqualsAndHashCode.Include
     private Long id;
 
@@ -0,0 +1,6 @@
+package ru.kursach.kpo.tour_agency_backend.model.enums;
+
+public enum BookingBatchMode {
+    ALL_OR_NOTHING,
+    BEST_EFFORT
+}
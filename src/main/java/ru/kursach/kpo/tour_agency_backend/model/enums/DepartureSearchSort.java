@@ -0,0 +1,15 @@
+package ru.kursach.kpo.tour_agency_backend.model.enums;
+
+/**
+ * Порядок результатов поиска вылетов.
+ */
+public enum DepartureSearchSort {
+    /** по дате начала, ближайшие раньше */
+    START_DATE,
+    /** по итоговой цене (priceOverride или базовая цена тура), дешёвые раньше */
+    PRICE_ASC,
+    /** по итоговой цене, дорогие раньше */
+    PRICE_DESC,
+    /** по числу свободных мест, больше мест раньше */
+    FREE_SEATS_DESC
+}
@@ -0,0 +1,13 @@
+package ru.kursach.kpo.tour_agency_backend.model.enums;
+
+/**
+ * Порядок результатов поиска рейсов по маршруту.
+ */
+public enum FlightRouteSort {
+    /** по времени вылета, ранние раньше */
+    DEPART_AT,
+    /** по базовой цене, дешёвые раньше */
+    PRICE_ASC,
+    /** по базовой цене, дорогие раньше */
+    PRICE_DESC
+}
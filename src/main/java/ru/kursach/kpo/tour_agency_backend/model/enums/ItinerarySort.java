@@ -0,0 +1,11 @@
+package ru.kursach.kpo.tour_agency_backend.model.enums;
+
+/**
+ * Порядок маршрутов в поиске перелётов с пересадками.
+ */
+public enum ItinerarySort {
+    /** по сумме базовых цен рейсов, дешёвые раньше */
+    PRICE,
+    /** по времени от вылета первого рейса до прилёта последнего, быстрые раньше */
+    DURATION
+}
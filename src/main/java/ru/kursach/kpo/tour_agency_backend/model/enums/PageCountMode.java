@@ -0,0 +1,13 @@
+package ru.kursach.kpo.tour_agency_backend.model.enums;
+
+/**
+ * Как считать общее количество элементов для постраничного списка.
+ */
+public enum PageCountMode {
+    /** COUNT(*) по фильтру — точные totalElements/totalPages */
+    EXACT,
+    /** без подсчёта: выбирается size + 1 строк, известен только hasNext */
+    NONE,
+    /** оценка планировщика PostgreSQL (pg_class.reltuples) для списка без фильтров */
+    ESTIMATED
+}
@@ -0,0 +1,9 @@
+package ru.kursach.kpo.tour_agency_backend.model.enums;
+
+/**
+ * Тип подсказки автодополнения.
+ */
+public enum TypeaheadKind {
+    CITY,
+    AIRPORT
+}
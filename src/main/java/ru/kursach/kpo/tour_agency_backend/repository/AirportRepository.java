@@ -1,33 +1,28 @@
 package ru.kursach.kpo.tour_agency_backend.repository;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.kursach.kpo.tour_agency_backend.model.entity.AirportEntity;
+import ru.kursach.kpo.tour_agency_backend.repository.support.RowProjectionExecutor;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface AirportRepository extends JpaRepository<AirportEntity, Long> {
+public interface AirportRepository extends JpaRepository<AirportEntity, Long>,
+        JpaSpecificationExecutor<AirportEntity>, RowProjectionExecutor<AirportEntity> {
 
     boolean existsByIataCodeIgnoreCase(String iataCode);
 
     Optional<AirportEntity> findByIataCodeIgnoreCase(String iataCode);
 
-    @Query("""
-       SELECT a
-       FROM AirportEntity a
-       WHERE LOWER(a.iataCode) LIKE CONCAT('%', :iata, '%')
-         AND LOWER(a.name) LIKE CONCAT('%', :name, '%')
-         AND (:cityId IS NULL OR a.city.id = :cityId)
-   """)
-    Page<AirportEntity> search(
-            @Param("iata") String iata,
-            @Param("name") String name,
-            @Param("cityId") Long cityId,
-            Pageable pageable
-    );
+    /**
+     * Аэропорты города одним запросом: поиск рейсов по маршруту дальше фильтрует
+     * flights по id аэропортов, без JOIN на каждую строку.
+     */
+    @Query("SELECT a FROM AirportEntity a WHERE a.city.id = :cityId")
+    List<AirportEntity> findAllByCityId(@Param("cityId") Long cityId);
 }
@@ -0,0 +1,62 @@
+package ru.kursach.kpo.tour_agency_backend.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import ru.kursach.kpo.tour_agency_backend.model.entity.BookingEntity;
+import ru.kursach.kpo.tour_agency_backend.repository.support.PooledIdAllocator;
+
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Пакетная вставка бронирований через JDBC batch (один round-trip на пачку вместо persist + flush на каждую бронь).
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookingBatchRepository {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO bookings (id, persons_count, total_price, status, created_at, hold_expires_at,
+                                  user_id, tour_departure_id, outbound_flight_id, return_flight_id)
+            VALUES (:id, :personsCount, :totalPrice, :status, :createdAt, :holdExpiresAt,
+                    :userId, :tourDepartureId, :outboundFlightId, :returnFlightId)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final PooledIdAllocator idAllocator;
+
+    /**
+     * Вставляет бронирования и проставляет им id из bookings_seq.
+     * Связи берутся только по id — сущности user/departure/flights не догружаются.
+     */
+    public void insertAll(List<BookingEntity> bookings) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = idAllocator.allocate("bookings_seq", bookings.size());
+        for (int i = 0; i < bookings.size(); i++) {
+            bookings.get(i).setId(ids.get(i));
+        }
+
+        SqlParameterSource[] params = bookings.stream()
+                .map(b -> new MapSqlParameterSource()
+                        .addValue("id", b.getId())
+                        .addValue("personsCount", b.getPersonsCount())
+                        .addValue("totalPrice", b.getTotalPrice())
+                        .addValue("status", b.getStatus().name())
+                        .addValue("createdAt", b.getCreatedAt())
+                        .addValue("holdExpiresAt", b.getHoldExpiresAt(), Types.TIMESTAMP)
+                        .addValue("userId", b.getUser().getId())
+                        .addValue("tourDepartureId", b.getTourDeparture().getId())
+                        .addValue("outboundFlightId", b.getOutboundFlight().getId())
+                        .addValue("returnFlightId",
+                                b.getReturnFlight() != null ? b.getReturnFlight().getId() : null, Types.BIGINT))
+                .toArray(SqlParameterSource[]::new);
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, params);
+    }
+}
@@ -1,34 +1,100 @@
 package ru.kursach.kpo.tour_agency_backend.repository;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.kursach.kpo.tour_agency_backend.model.entity.BookingEntity;
 import ru.kursach.kpo.tour_agency_backend.model.enums.BookingStatus;
+import ru.kursach.kpo.tour_agency_backend.repository.support.RowProjectionExecutor;
+import ru.kursach.kpo.tour_agency_backend.repository.support.SliceSpecificationExecutor;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface BookingRepository extends JpaRepository<BookingEntity, Long> {
+public interface BookingRepository extends JpaRepository<BookingEntity, Long>,
+        JpaSpecificationExecutor<BookingEntity>, SliceSpecificationExecutor<BookingEntity>,
+        RowProjectionExecutor<BookingEntity> {
+
+    /**
+     * Бронь с блокировкой строки (SELECT ... FOR UPDATE) до конца транзакции:
+     * статус читается уже после блокировки, сборщик просроченных удержаний строку пропустит.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from BookingEntity b where b.id = :id")
+    Optional<BookingEntity> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Смена статуса, только если в БД он всё ещё fromStatus.
+     * Заодно блокирует строку — сборщик просроченных удержаний её пропустит.
+     */
+    @Modifying(flushAutomatically = true)
     @Query("""
-        select b
-        from BookingEntity b
-        join b.user u
-        where (:userId is null or u.id = :userId)
-          and (:tourDepartureId is null or b.tourDeparture.id = :tourDepartureId)
-          and (:status is null or b.status = :status)
-          and b.createdAt >= coalesce(:createdFrom, b.createdAt)
-          and b.createdAt <= coalesce(:createdTo, b.createdAt)
+        update BookingEntity b
+        set b.status = :toStatus, b.holdExpiresAt = :holdExpiresAt
+        where b.id = :id and b.status = :fromStatus
     """)
-    Page<BookingEntity> searchPaged(
-            @Param("userId") Long userId,
-            @Param("tourDepartureId") Long tourDepartureId,
-            @Param("status") BookingStatus status,
-            @Param("createdFrom") LocalDateTime createdFrom,
-            @Param("createdTo") LocalDateTime createdTo,
-            Pageable pageable
+    int compareAndSetStatus(
+            @Param("id") Long id,
+            @Param("fromStatus") BookingStatus fromStatus,
+            @Param("toStatus") BookingStatus toStatus,
+            @Param("holdExpiresAt") LocalDateTime holdExpiresAt
     );
+
+    /**
+     * Подтверждение удержания: PENDING -> CONFIRMED, только пока удержание не истекло.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+        update BookingEntity b
+        set b.status = ru.kursach.kpo.tour_agency_backend.model.enums.BookingStatus.CONFIRMED,
+            b.holdExpiresAt = null
+        where b.id = :id
+          and b.status = ru.kursach.kpo.tour_agency_backend.model.enums.BookingStatus.PENDING
+          and (b.holdExpiresAt is null or b.holdExpiresAt > :now)
+    """)
+    int confirmHold(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Переводит пачку просроченных PENDING-броней в EXPIRED одним запросом
+     * и возвращает, сколько мест освободилось на каждом вылете.
+     * Строки, заблокированные другими транзакциями, пропускаются (SKIP LOCKED).
+     * Вызывать внутри пишущей транзакции.
+     */
+    @Query(value = """
+        WITH expired AS (
+            SELECT id
+            FROM bookings
+            WHERE status = 'PENDING'
+              AND hold_expires_at <= :now
+            ORDER BY hold_expires_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+        ), updated AS (
+            UPDATE bookings b
+            SET status = 'EXPIRED', hold_expires_at = NULL
+            FROM expired e
+            WHERE b.id = e.id
+            RETURNING b.tour_departure_id, b.persons_count
+        )
+        SELECT tour_departure_id AS departureId,
+               CAST(SUM(persons_count) AS integer) AS persons,
+               CAST(COUNT(*) AS integer) AS bookings
+        FROM updated
+        GROUP BY tour_departure_id
+        ORDER BY tour_departure_id
+    """, nativeQuery = true)
+    List<ExpiredHolds> expireHolds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    interface ExpiredHolds {
+        Long getDepartureId();
+        Integer getPersons();
+        Integer getBookings();
+    }
 }
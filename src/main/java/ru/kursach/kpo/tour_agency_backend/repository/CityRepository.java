@@ -17,18 +17,27 @@ public interface CityRepository extends JpaRepository<CityEntity, Long> {
 
     Optional<CityEntity> findByNameIgnoreCaseAndCountryIgnoreCase(String name, String country);
 
-    Page<CityEntity> findByNameContainingIgnoreCaseAndCountryContainingIgnoreCase(
-            String name,
-            String country,
+    @Query("""
+           SELECT c
+           FROM CityEntity c
+           WHERE (:name = '' OR LOWER(c.name) LIKE CONCAT('%', :name, '%'))
+             AND (:country = '' OR LOWER(c.country) LIKE CONCAT('%', :country, '%'))
+           """)
+    Page<CityEntity> search(
+            @Param("name") String name,
+            @Param("country") String country,
             Pageable pageable
     );
 
+    /**
+     * q — в нижнем регистре; OR по двум столбцам планировщик собирает через BitmapOr двух GIN-индексов.
+     */
     @Query("""
            SELECT c
            FROM CityEntity c
            WHERE (:q IS NULL
-               OR LOWER(c.name)    LIKE LOWER(CONCAT('%', :q, '%'))
-               OR LOWER(c.country) LIKE LOWER(CONCAT('%', :q, '%'))
+               OR LOWER(c.name)    LIKE CONCAT('%', :q, '%')
+               OR LOWER(c.country) LIKE CONCAT('%', :q, '%')
            )
            """)
     Page<CityEntity> searchFree(@Param("q") String q, Pageable pageable);
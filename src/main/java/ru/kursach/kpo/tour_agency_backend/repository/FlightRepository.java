@@ -3,32 +3,26 @@ package ru.kursach.kpo.tour_agency_backend.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.kursach.kpo.tour_agency_backend.model.entity.FlightEntity;
+import ru.kursach.kpo.tour_agency_backend.repository.support.RowProjectionExecutor;
+import ru.kursach.kpo.tour_agency_backend.repository.support.SliceSpecificationExecutor;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface FlightRepository extends JpaRepository<FlightEntity, Long> {
+public interface FlightRepository extends JpaRepository<FlightEntity, Long>,
+        JpaSpecificationExecutor<FlightEntity>, SliceSpecificationExecutor<FlightEntity>,
+        RowProjectionExecutor<FlightEntity> {
 
     boolean existsByFlightNumberIgnoreCase(String flightNumber);
 
-    @Query("""
-       SELECT f
-       FROM FlightEntity f
-       WHERE LOWER(f.flightNumber) LIKE CONCAT('%', :flightNumber, '%')
-         AND LOWER(f.departureAirport.name) LIKE CONCAT('%', :departureAirportName, '%')
-         AND LOWER(f.arrivalAirport.name) LIKE CONCAT('%', :arrivalAirportName, '%')
-       """)
-    Page<FlightEntity> search(
-            @Param("flightNumber") String flightNumber,
-            @Param("departureAirportName") String departureAirportName,
-            @Param("arrivalAirportName") String arrivalAirportName,
-            Pageable pageable
-    );
-
     Optional<FlightEntity> findByFlightNumberIgnoreCase(String flightNumber);
 
     @Query("""
@@ -46,22 +40,97 @@ public interface FlightRepository extends JpaRepository<FlightEntity, Long> {
             Pageable pageable
     );
 
-    @Query("""
-    SELECT f
-    FROM FlightEntity f
-    WHERE (:cityId IS NULL
-           OR f.departureAirport.city.id = :cityId
-           OR f.arrivalAirport.city.id = :cityId)
-      AND (:flightNumber = ''
-           OR LOWER(f.flightNumber) LIKE CONCAT('%', :flightNumber, '%'))
-      AND (f.arriveAt >= :from)
-      AND (f.departAt < :toExclusive)
-    """)
-    Page<FlightEntity> searchForTourDeparture(
+    /**
+     * Рейсы из/в город, чьё время [departAt, arriveAt] пересекается с окном [from, toExclusive).
+     * Пересечение записано через диапазоны — по нему работает GiST-индекс idx_flights_time_range
+     * (см. V7__range_overlap.sql), фильтр и подсчёт страницы целиком в БД.
+     */
+    @Query(value = """
+       SELECT f.*
+       FROM flights f
+       JOIN airports da ON da.id = f.departure_airport_id
+       JOIN airports aa ON aa.id = f.arrival_airport_id
+       WHERE tsrange(f.depart_at, f.arrive_at, '[]') && tsrange(:from, :toExclusive, '[)')
+         AND (da.city_id = :cityId OR aa.city_id = :cityId)
+         AND (:flightNumber = '' OR LOWER(f.flight_number) LIKE CONCAT('%', :flightNumber, '%'))
+       ORDER BY f.flight_number, f.id
+       """, countQuery = """
+       SELECT COUNT(*)
+       FROM flights f
+       JOIN airports da ON da.id = f.departure_airport_id
+       JOIN airports aa ON aa.id = f.arrival_airport_id
+       WHERE tsrange(f.depart_at, f.arrive_at, '[]') && tsrange(:from, :toExclusive, '[)')
+         AND (da.city_id = :cityId OR aa.city_id = :cityId)
+         AND (:flightNumber = '' OR LOWER(f.flight_number) LIKE CONCAT('%', :flightNumber, '%'))
+       """, nativeQuery = true)
+    Page<FlightEntity> searchOverlapping(
             @Param("cityId") Long cityId,
             @Param("flightNumber") String flightNumber,
-            @Param("from") java.time.LocalDateTime from,
-            @Param("toExclusive") java.time.LocalDateTime toExclusive,
+            @Param("from") LocalDateTime from,
+            @Param("toExclusive") LocalDateTime toExclusive,
             Pageable pageable
     );
+
+    /**
+     * Какие из рейсов привязаны к каким из вылетов (одним запросом по join-таблице).
+     */
+    @Query(value = """
+       SELECT ftd.flight_id AS flightId, ftd.tour_departure_id AS tourDepartureId
+       FROM flight_tour_departure ftd
+       WHERE ftd.tour_departure_id IN (:departureIds)
+         AND ftd.flight_id IN (:flightIds)
+       """, nativeQuery = true)
+    List<FlightDepartureLink> findLinks(
+            @Param("departureIds") Collection<Long> departureIds,
+            @Param("flightIds") Collection<Long> flightIds
+    );
+
+    /**
+     * Привязки рейсов страницы к вылетам — один запрос вместо обхода коллекции каждого рейса.
+     */
+    @Query(value = """
+       SELECT ftd.flight_id AS flightId, ftd.tour_departure_id AS tourDepartureId
+       FROM flight_tour_departure ftd
+       WHERE ftd.flight_id IN (:flightIds)
+       ORDER BY ftd.flight_id, ftd.tour_departure_id
+       """, nativeQuery = true)
+    List<FlightDepartureLink> findLinksByFlightIds(@Param("flightIds") Collection<Long> flightIds);
+
+    /**
+     * Привязки вылетов страницы к рейсам — один запрос вместо обхода коллекции каждого вылета.
+     */
+    @Query(value = """
+       SELECT ftd.flight_id AS flightId, ftd.tour_departure_id AS tourDepartureId
+       FROM flight_tour_departure ftd
+       WHERE ftd.tour_departure_id IN (:departureIds)
+       ORDER BY ftd.tour_departure_id, ftd.flight_id
+       """, nativeQuery = true)
+    List<FlightDepartureLink> findLinksByDepartureIds(@Param("departureIds") Collection<Long> departureIds);
+
+    /**
+     * Какие из рейсов привязаны к вылету — проверка по индексу join-таблицы,
+     * без загрузки коллекций рейса.
+     */
+    @Query(value = """
+       SELECT ftd.flight_id
+       FROM flight_tour_departure ftd
+       WHERE ftd.tour_departure_id = :departureId
+         AND ftd.flight_id IN (:flightIds)
+       """, nativeQuery = true)
+    List<Long> findLinkedFlightIds(
+            @Param("departureId") Long departureId,
+            @Param("flightIds") Collection<Long> flightIds
+    );
+
+    @Query(value = """
+       SELECT ftd.tour_departure_id
+       FROM flight_tour_departure ftd
+       WHERE ftd.flight_id = :flightId
+       """, nativeQuery = true)
+    List<Long> findLinkedDepartureIds(@Param("flightId") Long flightId);
+
+    interface FlightDepartureLink {
+        Long getFlightId();
+        Long getTourDepartureId();
+    }
 }
@@ -4,73 +4,144 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.kursach.kpo.tour_agency_backend.model.entity.TourDepartureEntity;
 import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
+import ru.kursach.kpo.tour_agency_backend.repository.support.RowProjectionExecutor;
+import ru.kursach.kpo.tour_agency_backend.repository.support.SliceSpecificationExecutor;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface TourDepartureRepository extends JpaRepository<TourDepartureEntity, Long>, JpaSpecificationExecutor<TourDepartureEntity> {
+public interface TourDepartureRepository extends JpaRepository<TourDepartureEntity, Long>,
+        JpaSpecificationExecutor<TourDepartureEntity>, SliceSpecificationExecutor<TourDepartureEntity>,
+        RowProjectionExecutor<TourDepartureEntity> {
 
     List<TourDepartureEntity> findByTour_Id(Long tourId);
 
+    @Query("select d from TourDepartureEntity d join fetch d.tour where d.id in :ids")
+    List<TourDepartureEntity> findAllWithTourByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select d from TourDepartureEntity d join fetch d.tour where d.id = :id")
+    Optional<TourDepartureEntity> findWithTourById(@Param("id") Long id);
+
     List<TourDepartureEntity> findByStatus(TourDepartureStatus status);
 
     List<TourDepartureEntity> findByStartDateBetween(LocalDate from, LocalDate to);
 
-    @Query("""
-        SELECT d
-        FROM TourDepartureEntity d
-        WHERE (:tourId IS NULL OR d.tour.id = :tourId)
-          AND (:status IS NULL OR d.status = :status)
-          AND d.startDate >= COALESCE(:startFrom, d.startDate)
-          AND d.endDate   <= COALESCE(:startTo,  d.endDate)
-        """)
-    Page<TourDepartureEntity> searchPaged(
-            @Param("tourId") Long tourId,
-            @Param("status") TourDepartureStatus status,
-            @Param("startFrom") LocalDate startFrom,
-            @Param("startTo") LocalDate startTo,
+    /**
+     * Вылеты туров из указанных городов, чьи даты [startDate, endDate] пересекаются с окном [from, to].
+     * Пересечение записано через диапазоны — по нему работает GiST-индекс idx_tour_departures_date_range
+     * (см. V7__range_overlap.sql). С фильтром по статусу — {@link #searchOverlappingInCitiesWithStatus}.
+     */
+    @Query(value = """
+        SELECT td.*
+        FROM tour_departures td
+        JOIN tours t ON t.id = td.tour_id
+        WHERE daterange(td.start_date, td.end_date, '[]') && daterange(:from, :to, '[]')
+          AND t.base_city_id IN (:cityIds)
+        ORDER BY td.start_date, td.id
+        """, countQuery = """
+        SELECT COUNT(*)
+        FROM tour_departures td
+        JOIN tours t ON t.id = td.tour_id
+        WHERE daterange(td.start_date, td.end_date, '[]') && daterange(:from, :to, '[]')
+          AND t.base_city_id IN (:cityIds)
+        """, nativeQuery = true)
+    Page<TourDepartureEntity> searchOverlappingInCities(
+            @Param("cityIds") Collection<Long> cityIds,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to,
             Pageable pageable
     );
 
-    @Query("""
-        SELECT d
-        FROM TourDepartureEntity d
-        JOIN d.tour t
-        WHERE t.baseCity.id IN :cityIds
-          AND (:status IS NULL OR d.status = :status)
-          AND d.startDate >= COALESCE(:startFrom, d.startDate)
-          AND d.endDate   <= COALESCE(:startTo,  d.endDate)
-        """)
-    Page<TourDepartureEntity> searchByBaseCities(
-            @Param("cityIds") List<Long> cityIds,
-            @Param("status") TourDepartureStatus status,
-            @Param("startFrom") LocalDate startFrom,
-            @Param("startTo") LocalDate startTo,
+    /**
+     * То же, только вылеты в статусе status. Отдельный запрос, а не «:status IS NULL OR ...»:
+     * у подготовленного запроса с таким условием общий план не может опираться на статус.
+     */
+    @Query(value = """
+        SELECT td.*
+        FROM tour_departures td
+        JOIN tours t ON t.id = td.tour_id
+        WHERE daterange(td.start_date, td.end_date, '[]') && daterange(:from, :to, '[]')
+          AND t.base_city_id IN (:cityIds)
+          AND td.status = :status
+        ORDER BY td.start_date, td.id
+        """, countQuery = """
+        SELECT COUNT(*)
+        FROM tour_departures td
+        JOIN tours t ON t.id = td.tour_id
+        WHERE daterange(td.start_date, td.end_date, '[]') && daterange(:from, :to, '[]')
+          AND t.base_city_id IN (:cityIds)
+          AND td.status = :status
+        """, nativeQuery = true)
+    Page<TourDepartureEntity> searchOverlappingInCitiesWithStatus(
+            @Param("cityIds") Collection<Long> cityIds,
+            @Param("status") String status,
+            @Param("from") LocalDate from,
+            @Param("to") LocalDate to,
             Pageable pageable
     );
 
-    @Query("""
-    SELECT d
-    FROM TourDepartureEntity d
-    WHERE d.tour.managerUser.id = :managerId
-      AND (:tourId IS NULL OR d.tour.id = :tourId)
-      AND (:status IS NULL OR d.status = :status)
-      AND (:startFrom IS NULL OR d.startDate >= :startFrom)
-      AND (:startTo IS NULL OR d.endDate <= :startTo)
-""")
-    Page<TourDepartureEntity> searchMyPaged(
-            @Param("managerId") Long managerId,
-            @Param("tourId") Long tourId,
-            @Param("status") TourDepartureStatus status,
-            @Param("startFrom") LocalDate startFrom,
-            @Param("startTo") LocalDate startTo,
-            Pageable pageable
-    );
-}
\ No newline at end of file
+    /**
+     * Атомарно занимает места на вылете одним условным UPDATE (без чтения и без SELECT ... FOR UPDATE).
+     * Если после резервирования места закончились — PLANNED переводится в SALES_CLOSED тем же запросом.
+     *
+     * Hibernate перед нативным запросом сбрасывает сессию, поэтому вставленная бронь уже в БД.
+     *
+     * @return сколько мест осталось после резервирования; null — мест не хватило (или вылета нет)
+     */
+    @Query(value = """
+        UPDATE tour_departures
+        SET capacity_reserved = capacity_reserved + :persons,
+            status = CASE
+                WHEN status = 'PLANNED' AND capacity_reserved + :persons >= capacity_total THEN 'SALES_CLOSED'
+                ELSE status
+            END
+        WHERE id = :id
+          AND capacity_reserved + :persons <= capacity_total
+        RETURNING capacity_total - capacity_reserved
+        """, nativeQuery = true)
+    Integer tryReserveSeats(@Param("id") Long id, @Param("persons") int persons);
+
+    /**
+     * Меняет вместимость вылета одним условным UPDATE: новая вместимость не может быть меньше уже занятых мест.
+     * Строка вылета остаётся заблокированной до конца транзакции.
+     *
+     * @return занятых мест на момент изменения; null — занято больше, чем новая вместимость (или вылета нет)
+     */
+    @Query(value = """
+        UPDATE tour_departures
+        SET capacity_total = :total
+        WHERE id = :id
+          AND capacity_reserved <= :total
+        RETURNING capacity_reserved
+        """, nativeQuery = true)
+    Integer updateCapacityTotal(@Param("id") Long id, @Param("total") int total);
+
+    @Query("select d.capacityTotal - d.capacityReserved from TourDepartureEntity d where d.id = :id")
+    Integer findFreeSeats(@Param("id") Long id);
+
+    /**
+     * Атомарно освобождает места на вылете (не уходя ниже нуля).
+     * Если места снова появились — SALES_CLOSED переводится обратно в PLANNED тем же запросом.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+        UPDATE tour_departures
+        SET capacity_reserved = GREATEST(capacity_reserved - :persons, 0),
+            status = CASE
+                WHEN status = 'SALES_CLOSED' AND GREATEST(capacity_reserved - :persons, 0) < capacity_total THEN 'PLANNED'
+                ELSE status
+            END
+        WHERE id = :id
+        """, nativeQuery = true)
+    int releaseSeats(@Param("id") Long id, @Param("persons") int persons);
+}
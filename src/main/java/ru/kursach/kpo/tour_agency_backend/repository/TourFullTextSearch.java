@@ -0,0 +1,21 @@
+package ru.kursach.kpo.tour_agency_backend.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
+
+/**
+ * Полнотекстовый поиск туров по названию и описанию (GIN по tours.search_vector, см. V4__tour_search_vector.sql).
+ * query — готовый tsquery, порядок — по релевантности, при равенстве по id. Возвращаются id туров страницы.
+ * Фильтры cityId, status и active попадают в SQL, только если заданы.
+ */
+public interface TourFullTextSearch {
+
+    Page<Long> searchFullTextIds(String query, Long cityId, TourStatus status, Boolean active, Pageable pageable);
+
+    /**
+     * То же, что {@link #searchFullTextIds}, но без COUNT: выбирает size + 1 строк.
+     */
+    Slice<Long> searchFullTextIdSlice(String query, Long cityId, TourStatus status, Boolean active, Pageable pageable);
+}
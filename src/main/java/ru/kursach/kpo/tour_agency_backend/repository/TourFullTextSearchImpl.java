@@ -0,0 +1,80 @@
+package ru.kursach.kpo.tour_agency_backend.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
+
+import java.util.List;
+
+/**
+ * Условия собираются под заданные фильтры, без «:x IS NULL OR ...»: такой catch-all в общем плане
+ * подготовленного запроса не даёт ни индексного условия по городу, ни partial-индекса
+ * idx_tours_search_vector_published. Статус и активность пишутся литералами (значение enum / boolean),
+ * чтобы условие partial-индекса было видно в тексте запроса, а не только в значении параметра.
+ */
+class TourFullTextSearchImpl implements TourFullTextSearch {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Long> searchFullTextIds(String query, Long cityId, TourStatus status, Boolean active, Pageable pageable) {
+        List<Long> ids = selectIds(query, cityId, status, active,
+                (int) pageable.getOffset(), pageable.getPageSize());
+        return PageableExecutionUtils.getPage(ids, pageable, () -> count(query, cityId, status, active));
+    }
+
+    @Override
+    public Slice<Long> searchFullTextIdSlice(String query, Long cityId, TourStatus status, Boolean active, Pageable pageable) {
+        List<Long> ids = selectIds(query, cityId, status, active,
+                (int) pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = ids.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? ids.subList(0, pageable.getPageSize()) : ids, pageable, hasNext);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> selectIds(String query, Long cityId, TourStatus status, Boolean active, int offset, int limit) {
+        Query select = entityManager.createNativeQuery(
+                "SELECT t.id FROM tours t WHERE " + filter(cityId, status, active)
+                        + " ORDER BY ts_rank_cd(t.search_vector, to_tsquery('russian', :query)) DESC, t.id",
+                Long.class);
+        bind(select, query, cityId);
+        select.setFirstResult(offset);
+        select.setMaxResults(limit);
+        return select.getResultList();
+    }
+
+    private long count(String query, Long cityId, TourStatus status, Boolean active) {
+        Query count = entityManager.createNativeQuery(
+                "SELECT COUNT(*) FROM tours t WHERE " + filter(cityId, status, active), Long.class);
+        bind(count, query, cityId);
+        return (Long) count.getSingleResult();
+    }
+
+    private static String filter(Long cityId, TourStatus status, Boolean active) {
+        StringBuilder where = new StringBuilder("t.search_vector @@ to_tsquery('russian', :query)");
+        if (cityId != null) {
+            where.append(" AND t.base_city_id = :cityId");
+        }
+        if (status != null) {
+            where.append(" AND t.status = '").append(status.name()).append('\'');
+        }
+        if (active != null) {
+            where.append(active ? " AND t.is_active" : " AND NOT t.is_active");
+        }
+        return where.toString();
+    }
+
+    private static void bind(Query query, String tsQuery, Long cityId) {
+        query.setParameter("query", tsQuery);
+        if (cityId != null) {
+            query.setParameter("cityId", cityId);
+        }
+    }
+}
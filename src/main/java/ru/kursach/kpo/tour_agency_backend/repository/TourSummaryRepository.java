@@ -0,0 +1,9 @@
+package ru.kursach.kpo.tour_agency_backend.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ru.kursach.kpo.tour_agency_backend.model.entity.TourSummaryEntity;
+
+@Repository
+public interface TourSummaryRepository extends JpaRepository<TourSummaryEntity, Long> {
+}
@@ -1,19 +1,20 @@
 package ru.kursach.kpo.tour_agency_backend.repository;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 import ru.kursach.kpo.tour_agency_backend.model.entity.UserEntity;
 import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
+import ru.kursach.kpo.tour_agency_backend.repository.support.RowProjectionExecutor;
+import ru.kursach.kpo.tour_agency_backend.repository.support.SliceSpecificationExecutor;
 
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<UserEntity, Long> {
+public interface UserRepository extends JpaRepository<UserEntity, Long>,
+        JpaSpecificationExecutor<UserEntity>, SliceSpecificationExecutor<UserEntity>,
+        RowProjectionExecutor<UserEntity> {
 
     boolean existsByEmail(String email);
 
@@ -24,22 +25,4 @@ public interface UserRepository extends JpaRepository<UserEntity, Long> {
     Optional<UserEntity> findByUsername(String username);
 
     List<UserEntity> findByUserRole(UserRole userRole);
-
-    @Query("""
-       SELECT u
-       FROM UserEntity u
-       WHERE (:q = '' OR
-              LOWER(u.username) LIKE CONCAT('%', :q, '%') OR
-              LOWER(u.email) LIKE CONCAT('%', :q, '%') OR
-              LOWER(COALESCE(u.phone, '')) LIKE CONCAT('%', :q, '%')
-       )
-       AND (:role IS NULL OR u.userRole = :role)
-       AND (:active IS NULL OR u.active = :active)
-       """)
-    Page<UserEntity> searchPaged(
-            @Param("q") String q,
-            @Param("role") UserRole role,
-            @Param("active") Boolean active,
-            Pageable pageable
-    );
 }
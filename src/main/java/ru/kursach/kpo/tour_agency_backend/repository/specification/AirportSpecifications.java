@@ -0,0 +1,37 @@
+package ru.kursach.kpo.tour_agency_backend.repository.specification;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import ru.kursach.kpo.tour_agency_backend.model.entity.AirportEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Фильтры списка аэропортов; в запрос попадают только переданные условия.
+ */
+public final class AirportSpecifications {
+
+    private AirportSpecifications() {
+    }
+
+    /**
+     * @param iata подстрока IATA-кода в нижнем регистре; пустая — без условия
+     * @param name подстрока названия в нижнем регистре; пустая — без условия
+     */
+    public static Specification<AirportEntity> search(String iata, String name, Long cityId) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (iata != null && !iata.isEmpty()) {
+                predicates.add(cb.like(cb.lower(root.get("iataCode")), "%" + iata + "%"));
+            }
+            if (name != null && !name.isEmpty()) {
+                predicates.add(cb.like(cb.lower(root.get("name")), "%" + name + "%"));
+            }
+            if (cityId != null) {
+                predicates.add(cb.equal(root.get("city").get("id"), cityId));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package ru.kursach.kpo.tour_agency_backend.repository.specification;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import ru.kursach.kpo.tour_agency_backend.model.entity.BookingEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.BookingStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Фильтры списка броней. В запрос попадают только переданные условия —
+ * у каждого набора фильтров свой SQL и свой план, условия сравнимы с индексами.
+ */
+public final class BookingSpecifications {
+
+    private BookingSpecifications() {
+    }
+
+    public static Specification<BookingEntity> search(
+            Long userId,
+            Long tourDepartureId,
+            BookingStatus status,
+            LocalDateTime createdFrom,
+            LocalDateTime createdTo
+    ) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (userId != null) {
+                predicates.add(cb.equal(root.get("user").get("id"), userId));
+            }
+            if (tourDepartureId != null) {
+                predicates.add(cb.equal(root.get("tourDeparture").get("id"), tourDepartureId));
+            }
+            if (status != null) {
+                predicates.add(cb.equal(root.get("status"), status));
+            }
+            if (createdFrom != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), createdFrom));
+            }
+            if (createdTo != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("createdAt"), createdTo));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * Keyset-условие для порядка created_at desc, id desc: строки строго после (createdAt, id).
+     * Первое условие — диапазон по индексу (..., created_at, id), второе отсекает уже показанные строки.
+     */
+    public static Specification<BookingEntity> before(LocalDateTime createdAt, long id) {
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.get("createdAt"), createdAt),
+                cb.or(
+                        cb.lessThan(root.get("createdAt"), createdAt),
+                        cb.lessThan(root.get("id"), id)
+                )
+        );
+    }
+}
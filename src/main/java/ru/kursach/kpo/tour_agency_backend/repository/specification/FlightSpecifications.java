@@ -0,0 +1,88 @@
+package ru.kursach.kpo.tour_agency_backend.repository.specification;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import ru.kursach.kpo.tour_agency_backend.model.entity.FlightEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.FlightStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Фильтры поиска рейсов; в запрос попадают только переданные условия.
+ */
+public final class FlightSpecifications {
+
+    private FlightSpecifications() {
+    }
+
+    /**
+     * Фильтры приходят уже в нижнем регистре; пустой фильтр снимает условие целиком,
+     * непустой ищется по GIN-индексу триграмм lower(...) (см. V3__trigram_search.sql).
+     */
+    public static Specification<FlightEntity> search(
+            String flightNumber,
+            String departureAirportName,
+            String arrivalAirportName
+    ) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (flightNumber != null && !flightNumber.isEmpty()) {
+                predicates.add(cb.like(cb.lower(root.get("flightNumber")), "%" + flightNumber + "%"));
+            }
+            if (departureAirportName != null && !departureAirportName.isEmpty()) {
+                predicates.add(cb.like(
+                        cb.lower(root.get("departureAirport").get("name")), "%" + departureAirportName + "%"));
+            }
+            if (arrivalAirportName != null && !arrivalAirportName.isEmpty()) {
+                predicates.add(cb.like(
+                        cb.lower(root.get("arrivalAirport").get("name")), "%" + arrivalAirportName + "%"));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * Keyset-условие для порядка flight_number, id: строки строго после (flightNumber, id).
+     * Первое условие — диапазон по индексу (flight_number, id), второе отсекает уже показанные строки.
+     */
+    public static Specification<FlightEntity> after(String flightNumber, long id) {
+        return (root, query, cb) -> cb.and(
+                cb.greaterThanOrEqualTo(root.get("flightNumber"), flightNumber),
+                cb.or(
+                        cb.greaterThan(root.get("flightNumber"), flightNumber),
+                        cb.greaterThan(root.get("id"), id)
+                )
+        );
+    }
+
+    /**
+     * Рейсы между аэропортами двух городов с вылетом в [from, toExclusive).
+     * Условия на id аэропортов идут по внешним ключам flights без JOIN на airports —
+     * план берёт диапазон depart_at из idx_flights_departure_airport_depart_at
+     * (или arrival_airport_*) для каждого аэропорта.
+     *
+     * @param statuses пустой — без условия на статус
+     */
+    public static Specification<FlightEntity> route(
+            Collection<Long> departureAirportIds,
+            Collection<Long> arrivalAirportIds,
+            LocalDateTime from,
+            LocalDateTime toExclusive,
+            Collection<FlightStatus> statuses
+    ) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(root.get("departureAirport").get("id").in(departureAirportIds));
+            predicates.add(root.get("arrivalAirport").get("id").in(arrivalAirportIds));
+            predicates.add(cb.greaterThanOrEqualTo(root.get("departAt"), from));
+            predicates.add(cb.lessThan(root.get("departAt"), toExclusive));
+            if (statuses != null && !statuses.isEmpty()) {
+                predicates.add(root.get("status").in(statuses));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+}
@@ -0,0 +1,64 @@
+package ru.kursach.kpo.tour_agency_backend.repository.specification;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import ru.kursach.kpo.tour_agency_backend.model.entity.TourDepartureEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Фильтры списков вылетов; в запрос попадают только переданные условия.
+ */
+public final class TourDepartureSpecifications {
+
+    private TourDepartureSpecifications() {
+    }
+
+    /**
+     * startTo ограничивает дату окончания вылета — как и раньше в списке вылетов.
+     */
+    public static Specification<TourDepartureEntity> search(
+            Long tourId,
+            TourDepartureStatus status,
+            LocalDate startFrom,
+            LocalDate startTo
+    ) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (tourId != null) {
+                predicates.add(cb.equal(root.get("tour").get("id"), tourId));
+            }
+            if (status != null) {
+                predicates.add(cb.equal(root.get("status"), status));
+            }
+            if (startFrom != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("startDate"), startFrom));
+            }
+            if (startTo != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("endDate"), startTo));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    public static Specification<TourDepartureEntity> managedBy(Long managerId) {
+        return (root, query, cb) -> cb.equal(root.get("tour").get("managerUser").get("id"), managerId);
+    }
+
+    /**
+     * Keyset-условие для порядка start_date, id: строки строго после (startDate, id).
+     * Первое условие — диапазон по индексу (start_date, id), второе отсекает уже показанные строки.
+     */
+    public static Specification<TourDepartureEntity> after(LocalDate startDate, long id) {
+        return (root, query, cb) -> cb.and(
+                cb.greaterThanOrEqualTo(root.get("startDate"), startDate),
+                cb.or(
+                        cb.greaterThan(root.get("startDate"), startDate),
+                        cb.greaterThan(root.get("id"), id)
+                )
+        );
+    }
+}
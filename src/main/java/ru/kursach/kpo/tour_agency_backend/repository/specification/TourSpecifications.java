@@ -0,0 +1,54 @@
+package ru.kursach.kpo.tour_agency_backend.repository.specification;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import ru.kursach.kpo.tour_agency_backend.model.entity.TourEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Фильтры списков туров; в запрос попадают только переданные условия.
+ */
+public final class TourSpecifications {
+
+    private TourSpecifications() {
+    }
+
+    /**
+     * @param title подстрока названия в нижнем регистре (GIN-индекс триграмм по lower(title))
+     */
+    public static Specification<TourEntity> search(
+            String title,
+            Long cityId,
+            TourStatus status,
+            Boolean active,
+            Long managerId
+    ) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (title != null && !title.isEmpty()) {
+                predicates.add(cb.like(cb.lower(root.get("title")), "%" + title + "%"));
+            }
+            if (cityId != null) {
+                predicates.add(cb.equal(root.get("baseCity").get("id"), cityId));
+            }
+            if (status != null) {
+                predicates.add(cb.equal(root.get("status"), status));
+            }
+            if (active != null) {
+                predicates.add(cb.equal(root.get("active"), active));
+            }
+            if (managerId != null) {
+                predicates.add(cb.equal(root.get("managerUser").get("id"), managerId));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    public static Specification<TourEntity> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+}
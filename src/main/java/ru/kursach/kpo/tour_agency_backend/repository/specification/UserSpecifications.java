@@ -0,0 +1,43 @@
+package ru.kursach.kpo.tour_agency_backend.repository.specification;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import ru.kursach.kpo.tour_agency_backend.model.entity.UserEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Фильтры списка пользователей; в запрос попадают только переданные условия.
+ */
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    /**
+     * @param q подстрока username, email или телефона в нижнем регистре; пустая — без условия
+     */
+    public static Specification<UserEntity> search(String q, UserRole role, Boolean active) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (q != null && !q.isEmpty()) {
+                String pattern = "%" + q + "%";
+                // три GIN-индекса триграмм, план — BitmapOr
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.get("username")), pattern),
+                        cb.like(cb.lower(root.get("email")), pattern),
+                        cb.like(cb.lower(root.get("phone")), pattern)
+                ));
+            }
+            if (role != null) {
+                predicates.add(cb.equal(root.get("userRole"), role));
+            }
+            if (active != null) {
+                predicates.add(cb.equal(root.get("active"), active));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+}
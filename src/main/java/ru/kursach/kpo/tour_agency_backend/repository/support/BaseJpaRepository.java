@@ -0,0 +1,114 @@
+package ru.kursach.kpo.tour_agency_backend.repository.support;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Базовый класс всех репозиториев (см. JpaConfig): SimpleJpaRepository + {@link SliceSpecificationExecutor}
+ * + {@link RowProjectionExecutor}.
+ */
+public class BaseJpaRepository<T, ID> extends SimpleJpaRepository<T, ID>
+        implements SliceSpecificationExecutor<T>, RowProjectionExecutor<T> {
+
+    private final EntityManager entityManager;
+
+    public BaseJpaRepository(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
+        super(entityInformation, entityManager);
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Slice<T> findSlice(Specification<T> spec, Pageable pageable) {
+        TypedQuery<T> query = getQuery(spec, pageable.getSort());
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize() + 1);
+
+        List<T> rows = query.getResultList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    @Override
+    public <R> Page<R> findRows(Specification<T> spec, RowProjection<T, R> projection, Pageable pageable) {
+        List<R> content = selectRows(spec, projection, pageable.getSort(),
+                (int) pageable.getOffset(), pageable.getPageSize());
+        return PageableExecutionUtils.getPage(content, pageable, () -> spec != null ? count(spec) : count());
+    }
+
+    @Override
+    public <R> Slice<R> findRowSlice(Specification<T> spec, RowProjection<T, R> projection, Pageable pageable) {
+        List<R> rows = selectRows(spec, projection, pageable.getSort(),
+                (int) pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    @Override
+    public <R> List<R> findRows(Specification<T> spec, RowProjection<T, R> projection, Sort sort, int limit) {
+        return selectRows(spec, projection, sort, 0, limit);
+    }
+
+    @Override
+    public <R> Stream<R> streamRows(Specification<T> spec, RowProjection<T, R> projection, Sort sort, int fetchSize) {
+        TypedQuery<Tuple> query = tupleQuery(spec, projection, sort);
+        query.setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize);
+        query.setHint(HibernateHints.HINT_READ_ONLY, true);
+        // getResultStream — ScrollableResults FORWARD_ONLY: строки не копятся ни в списке, ни в сессии
+        return query.getResultStream().map(projection::map);
+    }
+
+    private <R> List<R> selectRows(
+            Specification<T> spec,
+            RowProjection<T, R> projection,
+            Sort sort,
+            int offset,
+            int limit
+    ) {
+        TypedQuery<Tuple> typed = tupleQuery(spec, projection, sort);
+        if (offset > 0) {
+            typed.setFirstResult(offset);
+        }
+        if (limit > 0) {
+            typed.setMaxResults(limit);
+        }
+        return typed.getResultList().stream().map(projection::map).toList();
+    }
+
+    private TypedQuery<Tuple> tupleQuery(Specification<T> spec, RowProjection<T, ?> projection, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(getDomainClass());
+
+        query.multiselect(projection.columns(root, cb));
+        if (spec != null) {
+            Predicate where = spec.toPredicate(root, query, cb);
+            if (where != null) {
+                query.where(where);
+            }
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+
+        return entityManager.createQuery(query);
+    }
+}
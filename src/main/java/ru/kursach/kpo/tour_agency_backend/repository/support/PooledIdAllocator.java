@@ -0,0 +1,48 @@
+package ru.kursach.kpo.tour_agency_backend.repository.support;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Выдача id из последовательностей *_seq для вставок мимо Hibernate (JDBC batch).
+ * <p>
+ * Блоки берутся так же, как pooled-оптимизатор Hibernate с allocationSize = {@link Constants#ID_ALLOCATION_SIZE}:
+ * nextval = N закрепляет за вызывающим id (N - 49 .. N), поэтому id, выданные здесь и Hibernate, не пересекаются.
+ */
+@Component
+@RequiredArgsConstructor
+public class PooledIdAllocator {
+
+    private static final String NEXT_BLOCKS_SQL = """
+            SELECT nextval(CAST(:sequence AS regclass)) FROM generate_series(1, :blocks)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * @return count новых id из последовательности sequence (одним запросом на все блоки)
+     */
+    public List<Long> allocate(String sequence, int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+        int blockSize = Constants.ID_ALLOCATION_SIZE;
+        int blocks = (count + blockSize - 1) / blockSize;
+        List<Long> highs = jdbcTemplate.queryForList(NEXT_BLOCKS_SQL,
+                Map.of("sequence", sequence, "blocks", blocks), Long.class);
+
+        List<Long> ids = new ArrayList<>(count);
+        for (Long high : highs) {
+            for (long id = high - blockSize + 1; id <= high && ids.size() < count; id++) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+}
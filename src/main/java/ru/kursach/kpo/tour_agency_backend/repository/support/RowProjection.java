@@ -0,0 +1,42 @@
+package ru.kursach.kpo.tour_agency_backend.repository.support;
+
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Строка списка, собранная из отдельных колонок одним запросом, — вместо загрузки сущности
+ * и обхода её ленивых связей в маппере.
+ * <p>
+ * Колонки выбираются с alias и читаются из {@link Tuple} по нему же. Обязательные связи
+ * лучше брать путём root.get("связь").get("поле"): Hibernate переиспользует этот неявный
+ * JOIN, если по той же связи фильтрует и Specification. Необязательные — через явный LEFT JOIN.
+ */
+public interface RowProjection<T, R> {
+
+    List<Selection<?>> columns(Root<T> root, CriteriaBuilder cb);
+
+    R map(Tuple row);
+
+    static <T, R> RowProjection<T, R> of(
+            BiFunction<Root<T>, CriteriaBuilder, List<Selection<?>>> columns,
+            Function<Tuple, R> mapper
+    ) {
+        return new RowProjection<>() {
+            @Override
+            public List<Selection<?>> columns(Root<T> root, CriteriaBuilder cb) {
+                return columns.apply(root, cb);
+            }
+
+            @Override
+            public R map(Tuple row) {
+                return mapper.apply(row);
+            }
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package ru.kursach.kpo.tour_agency_backend.repository.support;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Выборка по {@link Specification} сразу в строки {@link RowProjection}: один SELECT нужных колонок,
+ * без сущностей в контексте персистентности и без ленивых догрузок при маппинге.
+ * spec = null — без условий.
+ */
+public interface RowProjectionExecutor<T> {
+
+    /**
+     * Страница строк; общее количество — тем же COUNT, что и у findAll(spec, pageable).
+     */
+    <R> Page<R> findRows(Specification<T> spec, RowProjection<T, R> projection, Pageable pageable);
+
+    /**
+     * Страница строк без COUNT: выбирает size + 1 строк.
+     */
+    <R> Slice<R> findRowSlice(Specification<T> spec, RowProjection<T, R> projection, Pageable pageable);
+
+    /**
+     * @param limit не больше limit строк; 0 — без ограничения
+     */
+    <R> List<R> findRows(Specification<T> spec, RowProjection<T, R> projection, Sort sort, int limit);
+
+    /**
+     * Все строки однонаправленным курсором: с сервера читается по fetchSize строк за раз.
+     * Вызывать в транзакции (в PostgreSQL курсор работает только без autocommit); поток закрывать.
+     */
+    <R> Stream<R> streamRows(Specification<T> spec, RowProjection<T, R> projection, Sort sort, int fetchSize);
+}
@@ -0,0 +1,17 @@
+package ru.kursach.kpo.tour_agency_backend.repository.support;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Выборка по {@link Specification} страницей без COUNT — дополнение к JpaSpecificationExecutor,
+ * у которого findAll(spec, pageable) всегда считает общее количество.
+ */
+public interface SliceSpecificationExecutor<T> {
+
+    /**
+     * Выбирает size + 1 строк: лишняя строка только показывает, есть ли следующая страница.
+     */
+    Slice<T> findSlice(Specification<T> spec, Pageable pageable);
+}
@@ -18,8 +18,13 @@ import ru.kursach.kpo.tour_agency_backend.model.entity.AirportEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.CityEntity;
 import ru.kursach.kpo.tour_agency_backend.repository.AirportRepository;
 import ru.kursach.kpo.tour_agency_backend.repository.CityRepository;
+import ru.kursach.kpo.tour_agency_backend.repository.specification.AirportSpecifications;
+import ru.kursach.kpo.tour_agency_backend.service.itinerary.ItineraryEngine;
+import ru.kursach.kpo.tour_agency_backend.service.matching.FlightDepartureIndex;
+import ru.kursach.kpo.tour_agency_backend.service.typeahead.TypeaheadIndex;
 
 import java.util.List;
+import java.util.Locale;
 
 @Service
 @RequiredArgsConstructor
@@ -28,6 +33,9 @@ public class AirportService {
     private final AirportRepository airportRepository;
     private final CityRepository cityRepository;
     private final AirportMapper airportMapper;
+    private final TypeaheadIndex typeaheadIndex;
+    private final FlightDepartureIndex flightDepartureIndex;
+    private final ItineraryEngine itineraryEngine;
 
     @Transactional(readOnly = true)
     public PageResponseDto<AirportResponseDto> getAllPaged(
@@ -38,11 +46,11 @@ public class AirportService {
             int size
     ) {
         String iata = (iataFilter != null && !iataFilter.isBlank())
-                ? iataFilter.trim().toLowerCase()
+                ? iataFilter.trim().toLowerCase(Locale.ROOT)
                 : "";
 
         String name = (nameFilter != null && !nameFilter.isBlank())
-                ? nameFilter.trim().toLowerCase()
+                ? nameFilter.trim().toLowerCase(Locale.ROOT)
                 : "";
 
         PageRequest pageable = PageRequest.of(
@@ -51,10 +59,9 @@ public class AirportService {
                 Sort.by("iataCode").ascending().and(Sort.by("name").ascending())
         );
 
-        Page<AirportEntity> airportPage = airportRepository.search(
-                iata,
-                name,
-                cityId,
+        Page<AirportResponseDto> airportPage = airportRepository.findRows(
+                AirportSpecifications.search(iata, name, cityId),
+                AirportMapper.RESPONSE_ROW,
                 pageable
         );
 
@@ -63,9 +70,8 @@ public class AirportService {
                 .size(airportPage.getSize())
                 .totalPages(airportPage.getTotalPages())
                 .totalElements(airportPage.getTotalElements())
-                .content(airportPage.getContent().stream()
-                        .map(airportMapper::toDto)
-                        .toList())
+                .hasNext(airportPage.hasNext())
+                .content(airportPage.getContent())
                 .build();
     }
 
@@ -108,6 +114,9 @@ public class AirportService {
         city.addAirport(airport);
 
         airport = airportRepository.save(airport);
+        typeaheadIndex.airportChanged(airport);
+        flightDepartureIndex.airportChanged(airport);
+        itineraryEngine.airportChanged(airport);
         return airportMapper.toDto(airport);
     }
 
@@ -123,9 +132,7 @@ public class AirportService {
 
     @Transactional(readOnly = true)
     public List<AirportResponseDto> getAll() {
-        return airportRepository.findAll().stream()
-                .map(airportMapper::toDto)
-                .toList();
+        return airportRepository.findRows(null, AirportMapper.RESPONSE_ROW, Sort.unsorted(), 0);
     }
 
     @Transactional
@@ -159,6 +166,9 @@ public class AirportService {
 
         airportMapper.updateEntity(request, airport);
         airport = airportRepository.save(airport);
+        typeaheadIndex.airportChanged(airport);
+        flightDepartureIndex.airportChanged(airport);
+        itineraryEngine.airportChanged(airport);
 
         return airportMapper.toDto(airport);
     }
@@ -177,6 +187,8 @@ public class AirportService {
 
         try {
             airportRepository.delete(airport);
+            typeaheadIndex.airportDeleted(id);
+            flightDepartureIndex.airportDeleted(id);
         } catch (DataIntegrityViolationException ex) {
             throw new ResponseStatusException(
                     HttpStatus.CONFLICT,
@@ -4,27 +4,49 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
+import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
+import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingBatchCreateRequest;
+import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingBatchItemResultDto;
+import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingBatchResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingCreateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingStatusUpdateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.booking.BookingUpdateRequest;
+import ru.kursach.kpo.tour_agency_backend.dto.pagination.CursorPageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.mapper.BookingMapper;
 import ru.kursach.kpo.tour_agency_backend.model.entity.*;
+import ru.kursach.kpo.tour_agency_backend.model.enums.BookingBatchMode;
 import ru.kursach.kpo.tour_agency_backend.model.enums.BookingStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.PageCountMode;
 import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
 import ru.kursach.kpo.tour_agency_backend.repository.*;
+import ru.kursach.kpo.tour_agency_backend.repository.specification.BookingSpecifications;
+import ru.kursach.kpo.tour_agency_backend.service.inventory.SeatInventoryEngine;
+import ru.kursach.kpo.tour_agency_backend.service.inventory.SeatReservationService;
+import ru.kursach.kpo.tour_agency_backend.service.pagination.KeysetCursor;
+import ru.kursach.kpo.tour_agency_backend.service.pagination.PageResults;
+import ru.kursach.kpo.tour_agency_backend.service.pagination.RowCountEstimator;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -35,6 +57,14 @@ public class BookingService {
     private final TourDepartureRepository tourDepartureRepository;
     private final FlightRepository flightRepository;
     private final BookingMapper bookingMapper;
+    private final SeatReservationService seatReservationService;
+    private final BookingBatchRepository bookingBatchRepository;
+    private final RowCountEstimator rowCountEstimator;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.booking.hold-ttl:PT15M}")
+    private Duration holdTtl;
+
     private String trimToNull(String s) {
         if (s == null) return null;
         String t = s.trim();
@@ -54,13 +84,14 @@ public class BookingService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Отменить можно только PENDING");
         }
 
+        BookingStatus oldStatus = booking.getStatus();
+        changeStatus(booking, BookingStatus.CANCELLED);
+
         // освободить места, если статус занимал места
-        if (isStatusCounting(booking.getStatus())) {
-            TourDepartureEntity dep = booking.getTourDeparture();
-            dep.setCapacityReserved(dep.getCapacityReserved() - booking.getPersonsCount());
+        if (isStatusCounting(oldStatus)) {
+            seatReservationService.release(booking.getTourDeparture().getId(), booking.getPersonsCount());
         }
 
-        booking.setStatus(BookingStatus.CANCELLED);
         bookingRepository.save(booking);
 
         return bookingMapper.toDto(booking);
@@ -78,12 +109,8 @@ public class BookingService {
 
         userEmail = trimToNull(userEmail); // ✅ пустое -> null
 
-        return bookingRepository.searchPaged(
-                userId,
-                tourDepartureId,
-                status,
-                createdFrom,
-                createdTo,
+        return bookingRepository.findAll(
+                BookingSpecifications.search(userId, tourDepartureId, status, createdFrom, createdTo),
                 pageable
         );
     }
@@ -95,6 +122,7 @@ public class BookingService {
             BookingStatus status,
             LocalDateTime createdFrom,
             LocalDateTime createdTo,
+            PageCountMode countMode,
             int page,
             int size
     ) {
@@ -106,24 +134,53 @@ public class BookingService {
                 Sort.by("createdAt").descending().and(Sort.by("id").descending())
         );
 
-        Page<BookingEntity> bookingPage = bookingRepository.searchPaged(
-                userId,
-                tourDepartureId,
-                status,
-                createdFrom,
-                createdTo,
-                pageable
+        boolean unfiltered = userId == null && tourDepartureId == null && status == null
+                && createdFrom == null && createdTo == null;
+        Specification<BookingEntity> filter =
+                BookingSpecifications.search(userId, tourDepartureId, status, createdFrom, createdTo);
+
+        return PageResults.fetch(
+                countMode,
+                pageable,
+                p -> bookingRepository.findRows(filter, BookingMapper.RESPONSE_ROW, p),
+                p -> bookingRepository.findRowSlice(filter, BookingMapper.RESPONSE_ROW, p),
+                unfiltered ? () -> rowCountEstimator.estimate("bookings") : null,
+                Function.identity()
         );
+    }
 
-        return PageResponseDto.<BookingResponseDto>builder()
-                .page(bookingPage.getNumber())
-                .size(bookingPage.getSize())
-                .totalPages(bookingPage.getTotalPages())
-                .totalElements(bookingPage.getTotalElements())
-                .content(bookingPage.getContent().stream()
-                        .map(bookingMapper::toDto)
-                        .toList())
-                .build();
+    /**
+     * Keyset-режим для {@link #getAllPaged}: тот же фильтр и порядок, но без OFFSET и COUNT.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<BookingResponseDto> getAllByCursor(
+            Long userId,
+            Long tourDepartureId,
+            BookingStatus status,
+            LocalDateTime createdFrom,
+            LocalDateTime createdTo,
+            String cursor,
+            int size
+    ) {
+        KeysetCursor.validateSize(size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        Specification<BookingEntity> filter =
+                BookingSpecifications.search(userId, tourDepartureId, status, createdFrom, createdTo);
+        if (after != null) {
+            filter = filter.and(BookingSpecifications.before(after.keyAsDateTime(), after.id()));
+        }
+
+        List<BookingResponseDto> rows = bookingRepository.findRows(
+                filter,
+                BookingMapper.RESPONSE_ROW,
+                Sort.by("createdAt").descending().and(Sort.by("id").descending()),
+                size + 1
+        );
+
+        return KeysetCursor.page(rows, size,
+                b -> new KeysetCursor(b.createdAt().toString(), b.id()),
+                Function.identity());
     }
 
     @Transactional(readOnly = true)
@@ -138,11 +195,22 @@ public class BookingService {
                     "Параметр email обязателен для поиска бронирований по пользователю"
             );
         }
-        return getAllPaged(null, null, null, null, null, page, size);
+        return getAllPaged(null, null, null, null, null, PageCountMode.EXACT, page, size);
     }
 
-    @Transactional
+    /**
+     * С движком мест решение о местах принимается до транзакции (см. SeatReservationService#holdBeforeTransaction),
+     * транзакция открывается уже с занятыми местами.
+     */
     public BookingResponseDto create(BookingCreateRequest request, String userEmailFromToken) {
+        try (SeatInventoryEngine.Hold hold = seatReservationService.holdBeforeTransaction(
+                request.tourDepartureId(), request.personsCount())) {
+            return transactionTemplate.execute(status -> create(request, userEmailFromToken, hold));
+        }
+    }
+
+    private BookingResponseDto create(BookingCreateRequest request, String userEmailFromToken,
+                                      SeatInventoryEngine.Hold hold) {
 
         if (userEmailFromToken == null || userEmailFromToken.isBlank()) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Не удалось определить пользователя из токена");
@@ -154,23 +222,25 @@ public class BookingService {
                         "Пользователь с email=" + userEmailFromToken + " не найден"
                 ));
 
+        // вылет сразу с туром: цена и название тура нужны ниже
         TourDepartureEntity tourDeparture = tourDepartureRepository
-                .findById(request.tourDepartureId())
+                .findWithTourById(request.tourDepartureId())
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.BAD_REQUEST,
                         "Вылет тура с id=" + request.tourDepartureId() + " не найден"
                 ));
 
-        validateDepartureForBooking(tourDeparture);
-
-        int persons = request.personsCount();
-        if (persons <= 0) {
-            throw new ResponseStatusException(
-                    HttpStatus.BAD_REQUEST,
-                    "Количество человек должно быть больше 0"
-            );
+        if (tourDeparture.getStatus() == TourDepartureStatus.SALES_CLOSED
+                || tourDeparture.getCapacityReserved() >= tourDeparture.getCapacityTotal()) {
+            seatReservationService.soldOut(tourDeparture.getId());
         }
 
+        // оба рейса одним запросом, привязку к вылету — одним запросом по join-таблице
+        Set<Long> flightIds = requestedFlightIds(request);
+        BookingEntity booking = buildPendingBooking(request, user, tourDeparture,
+                flightsById(flightIds), linkedPairs(Set.of(tourDeparture.getId()), flightIds), LocalDateTime.now());
+
+        int persons = booking.getPersonsCount();
         int available = tourDeparture.getCapacityTotal() - tourDeparture.getCapacityReserved();
         if (persons > available) {
             throw new ResponseStatusException(
@@ -179,50 +249,267 @@ public class BookingService {
             );
         }
 
-        // ✅ рейс туда обязателен
-        FlightEntity outbound = requireFlight(request.outboundFlightId(), "Туда");
-        validateFlightBelongsToDeparture(outbound, tourDeparture, "Туда");
+        FlightEntity outbound = booking.getOutboundFlight();
+        FlightEntity ret = booking.getReturnFlight();
 
-        // ✅ рейс обратно опционален
-        FlightEntity ret = null;
-        if (request.returnFlightId() != null) {
-            ret = requireFlight(request.returnFlightId(), "Обратно");
-            validateFlightBelongsToDeparture(ret, tourDeparture, "Обратно");
+        // связи (как у тебя)
+        user.addBooking(booking);
+        tourDeparture.addBooking(booking);
+        outbound.addOutboundBooking(booking);
+        if (ret != null) ret.addReturnBooking(booking);
 
-            if (ret.getId().equals(outbound.getId())) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                        "Нельзя выбрать один и тот же рейс туда и обратно");
+        booking = bookingRepository.save(booking);
+
+        // места занимаем последним запросом транзакции: строка вылета блокируется только до коммита
+        String noSeats = "Нельзя забронировать " + persons + " мест: превышена вместимость вылета";
+        if (hold != null) {
+            if (!hold.attachToTransaction()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, noSeats);
+            }
+        } else if (isStatusCounting(booking.getStatus())) {
+            reserveSeats(tourDeparture, persons, noSeats);
+        }
+
+        return bookingMapper.toDto(booking);
+    }
+
+    /**
+     * Пакетное создание бронирований текущего пользователя.
+     * Все вылеты, рейсы и их связи читаются несколькими IN-запросами,
+     * места на каждом вылете занимаются одним UPDATE на весь пакет, брони вставляются JDBC batch.
+     * <p>
+     * ALL_OR_NOTHING: при любой ошибке ничего не создаётся (транзакция откатывается).
+     * BEST_EFFORT: создаётся всё, что прошло проверки и поместилось по местам.
+     */
+    @Transactional
+    public BookingBatchResponseDto createBatch(BookingBatchCreateRequest request, String userEmailFromToken) {
+
+        if (userEmailFromToken == null || userEmailFromToken.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Не удалось определить пользователя из токена");
+        }
+
+        UserEntity user = userRepository.findByEmail(userEmailFromToken)
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.UNAUTHORIZED,
+                        "Пользователь с email=" + userEmailFromToken + " не найден"
+                ));
+
+        BookingBatchMode mode = request.mode() != null ? request.mode() : BookingBatchMode.ALL_OR_NOTHING;
+        List<BookingCreateRequest> items = request.items();
+        int count = items.size();
+
+        // --- всё нужное одним набором запросов
+        Set<Long> departureIds = new HashSet<>();
+        Set<Long> flightIds = new HashSet<>();
+        for (BookingCreateRequest item : items) {
+            departureIds.add(item.tourDepartureId());
+            flightIds.addAll(requestedFlightIds(item));
+        }
+
+        Map<Long, TourDepartureEntity> departures = tourDepartureRepository.findAllWithTourByIdIn(departureIds).stream()
+                .collect(Collectors.toMap(TourDepartureEntity::getId, Function.identity()));
+        Map<Long, FlightEntity> flights = flightsById(flightIds);
+        Set<List<Long>> links = linkedPairs(departureIds, flightIds);
+
+        // --- проверки по позициям (без обращений к БД)
+        BookingEntity[] bookings = new BookingEntity[count];
+        String[] errors = new String[count];
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < count; i++) {
+            try {
+                bookings[i] = buildBatchBooking(items.get(i), user, departures, flights, links, now);
+            } catch (ResponseStatusException ex) {
+                errors[i] = ex.getReason();
+            }
+        }
+
+        if (mode == BookingBatchMode.ALL_OR_NOTHING && Arrays.stream(errors).anyMatch(Objects::nonNull)) {
+            return batchResult(mode, bookings, errors, false);
+        }
+
+        // --- места: один UPDATE на вылет (по возрастанию id, чтобы пакеты не блокировали друг друга крест-накрест)
+        Map<Long, List<Integer>> byDeparture = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            if (bookings[i] != null) {
+                byDeparture.computeIfAbsent(bookings[i].getTourDeparture().getId(), id -> new ArrayList<>()).add(i);
+            }
+        }
+
+        for (Map.Entry<Long, List<Integer>> entry : byDeparture.entrySet()) {
+            Long departureId = entry.getKey();
+            List<Integer> indexes = entry.getValue();
+            int persons = indexes.stream().mapToInt(i -> bookings[i].getPersonsCount()).sum();
+
+            if (seatReservationService.tryReserve(departureId, persons)) {
+                continue;
+            }
+
+            if (mode == BookingBatchMode.ALL_OR_NOTHING) {
+                for (int i : indexes) {
+                    errors[i] = "Нельзя забронировать " + persons + " мест на вылет id=" + departureId
+                            + " для пакета: превышена вместимость вылета";
+                }
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return batchResult(mode, bookings, errors, false);
             }
+
+            // BEST_EFFORT: весь пакет не влез — занимаем места по одной позиции, сколько получится
+            for (int i : indexes) {
+                int itemPersons = bookings[i].getPersonsCount();
+                if (!seatReservationService.tryReserve(departureId, itemPersons)) {
+                    errors[i] = "Нельзя забронировать " + itemPersons + " мест: превышена вместимость вылета";
+                    bookings[i] = null;
+                }
+            }
+        }
+
+        bookingBatchRepository.insertAll(Arrays.stream(bookings).filter(Objects::nonNull).toList());
+        return batchResult(mode, bookings, errors, true);
+    }
+
+    private BookingEntity buildBatchBooking(
+            BookingCreateRequest item,
+            UserEntity user,
+            Map<Long, TourDepartureEntity> departures,
+            Map<Long, FlightEntity> flights,
+            Set<List<Long>> links,
+            LocalDateTime now
+    ) {
+        TourDepartureEntity departure = departures.get(item.tourDepartureId());
+        if (departure == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Вылет тура с id=" + item.tourDepartureId() + " не найден"
+            );
+        }
+        return buildPendingBooking(item, user, departure, flights, links, now);
+    }
+
+    /**
+     * Проверки новой брони, общие для create и createBatch: вылет, количество человек, рейсы и их привязка к вылету.
+     * Вылет, рейсы и привязки уже загружены, к БД метод не обращается.
+     * Места не занимает — это делает вызывающий код.
+     *
+     * @param links пары (flightId, tourDepartureId) из flight_tour_departure
+     */
+    private BookingEntity buildPendingBooking(
+            BookingCreateRequest item,
+            UserEntity user,
+            TourDepartureEntity departure,
+            Map<Long, FlightEntity> flights,
+            Set<List<Long>> links,
+            LocalDateTime now
+    ) {
+        validateDepartureForBooking(departure);
+
+        int persons = item.personsCount();
+        if (persons <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Количество человек должно быть больше 0");
+        }
+
+        if (item.outboundFlightId().equals(item.returnFlightId())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Нельзя выбрать один и тот же рейс туда и обратно");
         }
 
-        BigDecimal totalPriceCalculated = calculateTotalPrice(tourDeparture, persons, outbound, ret);
+        // ✅ рейс туда обязателен, обратно — опционален
+        FlightEntity outbound = requireLinkedFlight(item.outboundFlightId(), departure, flights, links, "Туда");
+        FlightEntity ret = null;
+        if (item.returnFlightId() != null) {
+            ret = requireLinkedFlight(item.returnFlightId(), departure, flights, links, "Обратно");
+        }
 
-        BookingEntity booking = BookingEntity.builder()
+        return BookingEntity.builder()
                 .personsCount(persons)
-                .totalPrice(totalPriceCalculated)
+                .totalPrice(calculateTotalPrice(departure, persons, outbound, ret))
                 .status(BookingStatus.PENDING)
+                .createdAt(now)
+                .holdExpiresAt(now.plus(holdTtl))
                 .user(user)
-                .tourDeparture(tourDeparture)
+                .tourDeparture(departure)
                 .outboundFlight(outbound)
                 .returnFlight(ret)
                 .build();
+    }
 
-        if (isStatusCounting(booking.getStatus())) {
-            tourDeparture.setCapacityReserved(
-                    tourDeparture.getCapacityReserved() + persons
-            );
-            syncSalesClosedStatus(tourDeparture);
+    private static Set<Long> requestedFlightIds(BookingCreateRequest item) {
+        Set<Long> ids = new HashSet<>();
+        ids.add(item.outboundFlightId());
+        if (item.returnFlightId() != null) ids.add(item.returnFlightId());
+        return ids;
+    }
+
+    private Map<Long, FlightEntity> flightsById(Collection<Long> flightIds) {
+        return flightRepository.findAllById(flightIds).stream()
+                .collect(Collectors.toMap(FlightEntity::getId, Function.identity()));
+    }
+
+    /**
+     * Привязки рейсов к вылетам одним запросом по join-таблице — пары (flightId, tourDepartureId).
+     */
+    private Set<List<Long>> linkedPairs(Collection<Long> departureIds, Collection<Long> flightIds) {
+        return flightRepository.findLinks(departureIds, flightIds).stream()
+                .map(link -> List.of(link.getFlightId(), link.getTourDepartureId()))
+                .collect(Collectors.toSet());
+    }
+
+    private BookingBatchResponseDto batchResult(
+            BookingBatchMode mode,
+            BookingEntity[] bookings,
+            String[] errors,
+            boolean committed
+    ) {
+        List<BookingBatchItemResultDto> results = new ArrayList<>(bookings.length);
+        int created = 0;
+
+        for (int i = 0; i < bookings.length; i++) {
+            if (committed && bookings[i] != null) {
+                created++;
+                results.add(BookingBatchItemResultDto.builder()
+                        .index(i)
+                        .created(true)
+                        .booking(toBatchDto(bookings[i]))
+                        .build());
+            } else {
+                results.add(BookingBatchItemResultDto.builder()
+                        .index(i)
+                        .created(false)
+                        .error(errors[i] != null ? errors[i] : "Пакет отклонён из-за ошибок в других позициях")
+                        .build());
+            }
         }
 
-        // места учитываем как и раньше
-        // связи (как у тебя)
-        user.addBooking(booking);
-        tourDeparture.addBooking(booking);
-        outbound.addOutboundBooking(booking);
-        if (ret != null) ret.addReturnBooking(booking);
+        return BookingBatchResponseDto.builder()
+                .mode(mode)
+                .requested(bookings.length)
+                .created(created)
+                .rejected(bookings.length - created)
+                .items(results)
+                .build();
+    }
 
-        booking = bookingRepository.save(booking);
-        return bookingMapper.toDto(booking);
+    /**
+     * DTO из уже загруженных данных — без повторного чтения вставленных строк.
+     */
+    private BookingResponseDto toBatchDto(BookingEntity booking) {
+        FlightEntity ret = booking.getReturnFlight();
+        return BookingResponseDto.builder()
+                .id(booking.getId())
+                .personsCount(booking.getPersonsCount())
+                .totalPrice(booking.getTotalPrice())
+                .status(booking.getStatus())
+                .createdAt(booking.getCreatedAt())
+                .holdExpiresAt(booking.getHoldExpiresAt())
+                .userId(booking.getUser().getId())
+                .userEmail(booking.getUser().getEmail())
+                .tourDepartureId(booking.getTourDeparture().getId())
+                .tourTitle(booking.getTourDeparture().getTour().getTitle())
+                .outboundFlightId(booking.getOutboundFlight().getId())
+                .outboundFlightNumber(booking.getOutboundFlight().getFlightNumber())
+                .returnFlightId(ret != null ? ret.getId() : null)
+                .returnFlightNumber(ret != null ? ret.getFlightNumber() : null)
+                .build();
     }
 
     @Transactional(readOnly = true)
@@ -236,10 +523,11 @@ public class BookingService {
     }
 
     @Transactional(readOnly = true)
-    public List<BookingResponseDto> getAll() {
-        return bookingRepository.findAll().stream()
-                .map(bookingMapper::toDto)
-                .toList();
+    public void streamAll(Consumer<? super BookingResponseDto> sink) {
+        try (Stream<BookingResponseDto> rows = bookingRepository.streamRows(
+                null, BookingMapper.RESPONSE_ROW, Sort.unsorted(), Constants.STREAM_FETCH_SIZE)) {
+            rows.forEach(sink);
+        }
     }
 
     @Transactional
@@ -270,7 +558,8 @@ public class BookingService {
 
         // На всякий случай: если вылет уже “закрыт” — запрещаем смены на counting-статусы
         // (можно ослабить правило, если хочешь)
-        if (isStatusCounting(newStatus)) {
+        // удержание (PENDING) уже занимает места, поэтому его подтверждение проверку не проходит
+        if (!isStatusCounting(oldStatus) && isStatusCounting(newStatus)) {
             validateDepartureForBooking(departure);
         }
 
@@ -282,26 +571,21 @@ public class BookingService {
         boolean oldCounting = isStatusCounting(oldStatus);
         boolean newCounting = isStatusCounting(newStatus);
 
+        // сначала статус (PENDING -> CONFIRMED только пока не истекло удержание), потом места
+        changeStatus(booking, newStatus);
+
         // 1) освобождаем места, если раньше статус занимал места
         if (oldCounting && !newCounting) {
-            departure.setCapacityReserved(departure.getCapacityReserved() - persons);
+            seatReservationService.release(departure.getId(), persons);
         }
 
         // 2) занимаем места, если новый статус занимает места
         if (!oldCounting && newCounting) {
             int available = departure.getCapacityTotal() - departure.getCapacityReserved();
-            if (persons > available) {
-                throw new ResponseStatusException(
-                        HttpStatus.BAD_REQUEST,
-                        "Нельзя перевести бронь в статус " + newStatus +
-                                ": не хватает мест (нужно " + persons + ", доступно " + available + ")"
-                );
-            }
-            departure.setCapacityReserved(departure.getCapacityReserved() + persons);
+            reserveSeats(departure, persons,
+                    "Нельзя перевести бронь в статус " + newStatus +
+                            ": не хватает мест (нужно " + persons + ", доступно " + available + ")");
         }
-        syncSalesClosedStatus(departure);
-
-        booking.setStatus(newStatus);
 
         booking = bookingRepository.save(booking);
         return bookingMapper.toDto(booking);
@@ -329,7 +613,14 @@ public class BookingService {
                         "Вылет тура с id=" + request.tourDepartureId() + " не найден"
                 ));
 
-        validateDepartureForBooking(newDeparture);
+        // бронь, которая остаётся на своём вылете, уже держит там места — закрытые продажи ей не мешают
+        boolean sameDeparture = booking.getTourDeparture() != null
+                && booking.getTourDeparture().getId().equals(newDeparture.getId());
+        if (sameDeparture) {
+            validateDepartureOpen(newDeparture);
+        } else {
+            validateDepartureForBooking(newDeparture);
+        }
 
         int newPersons = request.personsCount();
         if (newPersons <= 0) {
@@ -363,23 +654,27 @@ public class BookingService {
         int oldPersons = booking.getPersonsCount();
         BookingStatus oldStatus = booking.getStatus();
 
-        // --- capacity accounting
-        if (oldDeparture != null && isStatusCounting(oldStatus)) {
-            int updated = oldDeparture.getCapacityReserved() - oldPersons;
-            oldDeparture.setCapacityReserved(Math.max(0, updated));
-            syncSalesClosedStatus(oldDeparture);
-        }
-
-        if (isStatusCounting(newStatus)) {
-            int available = newDeparture.getCapacityTotal() - newDeparture.getCapacityReserved();
-            if (newPersons > available) {
-                throw new ResponseStatusException(
-                        HttpStatus.BAD_REQUEST,
-                        "Нельзя забронировать " + newPersons + " мест: превышена вместимость вылета"
-                );
+        changeStatus(booking, newStatus);
+
+        // --- capacity accounting (при нехватке мест транзакция откатится вместе с освобождением).
+        // На том же вылете занимается/возвращается только разница: освобождение применяется после коммита,
+        // и повторное резервирование всех мест упёрлось бы в собственные места брони.
+        int oldHeld = oldDeparture != null && isStatusCounting(oldStatus) ? oldPersons : 0;
+        int newHeld = isStatusCounting(newStatus) ? newPersons : 0;
+        String noSeats = "Нельзя забронировать " + newPersons + " мест: превышена вместимость вылета";
+        if (sameDeparture) {
+            if (newHeld > oldHeld) {
+                reserveSeats(newDeparture, newHeld - oldHeld, noSeats);
+            } else if (newHeld < oldHeld) {
+                seatReservationService.release(newDeparture.getId(), oldHeld - newHeld);
+            }
+        } else {
+            if (oldHeld > 0) {
+                seatReservationService.release(oldDeparture.getId(), oldHeld);
+            }
+            if (newHeld > 0) {
+                reserveSeats(newDeparture, newHeld, noSeats);
             }
-            newDeparture.setCapacityReserved(newDeparture.getCapacityReserved() + newPersons);
-            syncSalesClosedStatus(newDeparture);
         }
 
         // --- total price (с учётом рейсов)
@@ -420,7 +715,6 @@ public class BookingService {
         // --- apply simple fields
         booking.setPersonsCount(newPersons);
         booking.setTotalPrice(totalPriceCalculated);
-        booking.setStatus(newStatus);
 
         booking = bookingRepository.save(booking);
         return bookingMapper.toDto(booking);
@@ -429,7 +723,8 @@ public class BookingService {
     @Transactional
     public void delete(Long id) {
 
-        BookingEntity booking = bookingRepository.findById(id)
+        // строка заблокирована до коммита: сборщик удержаний не вернёт эти же места второй раз
+        BookingEntity booking = bookingRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND,
                         "Бронирование с id=" + id + " не найдено"
@@ -442,9 +737,7 @@ public class BookingService {
 
         // capacity back (только если статус учитывался)
         if (departure != null && isStatusCounting(booking.getStatus())) {
-            int updated = departure.getCapacityReserved() - booking.getPersonsCount();
-            departure.setCapacityReserved(Math.max(0, updated));
-            syncSalesClosedStatus(departure);
+            seatReservationService.release(departure.getId(), booking.getPersonsCount());
         }
 
         // unlink relations (важен порядок — сначала связи, потом delete)
@@ -496,9 +789,21 @@ public class BookingService {
      * Проверка, что по данному вылету ещё можно создавать / изменять бронирования.
      */
     private void validateDepartureForBooking(TourDepartureEntity departure) {
+        if (departure.getStatus() == TourDepartureStatus.SALES_CLOSED) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Нельзя работать с бронированиями для вылета со статусом: " + departure.getStatus()
+            );
+        }
+        validateDepartureOpen(departure);
+    }
+
+    /**
+     * Вылет не отменён, не завершён и ещё не начался; закрытые продажи допускаются.
+     */
+    private void validateDepartureOpen(TourDepartureEntity departure) {
         if (departure.getStatus() == TourDepartureStatus.CANCELLED
-                || departure.getStatus() == TourDepartureStatus.COMPLETED
-                || departure.getStatus() == TourDepartureStatus.SALES_CLOSED) {
+                || departure.getStatus() == TourDepartureStatus.COMPLETED) {
             throw new ResponseStatusException(
                     HttpStatus.BAD_REQUEST,
                     "Нельзя работать с бронированиями для вылета со статусом: " + departure.getStatus()
@@ -521,35 +826,82 @@ public class BookingService {
                 ));
     }
 
+    private FlightEntity requireLinkedFlight(
+            Long flightId,
+            TourDepartureEntity departure,
+            Map<Long, FlightEntity> flights,
+            Set<List<Long>> links,
+            String label
+    ) {
+        FlightEntity flight = flights.get(flightId);
+        if (flight == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    label + " рейс с id=" + flightId + " не найден"
+            );
+        }
+        if (!links.contains(List.of(flightId, departure.getId()))) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    label + " рейс id=" + flightId + " не относится к вылету тура id=" + departure.getId()
+            );
+        }
+        return flight;
+    }
+
     private void validateFlightBelongsToDeparture(FlightEntity flight, TourDepartureEntity dep, String label) {
-        if (!flight.getTourDepartures().contains(dep)) {
+        if (flightRepository.findLinkedFlightIds(dep.getId(), List.of(flight.getId())).isEmpty()) {
             throw new ResponseStatusException(
                     HttpStatus.BAD_REQUEST,
                     label + " рейс id=" + flight.getId() + " не относится к вылету тура id=" + dep.getId()
             );
         }
     }
-    private void syncSalesClosedStatus(TourDepartureEntity dep) {
-        if (dep == null) return;
-
-        int reserved = dep.getCapacityReserved() != null ? dep.getCapacityReserved() : 0;
-        int total = dep.getCapacityTotal() != null ? dep.getCapacityTotal() : 0;
+    /**
+     * Меняет статус брони условным UPDATE: только если в БД он всё ещё тот, что мы прочитали.
+     * Так отмена/подтверждение не пересекаются со сборщиком просроченных удержаний
+     * и места не освобождаются дважды.
+     */
+    private void changeStatus(BookingEntity booking, BookingStatus newStatus) {
+        BookingStatus oldStatus = booking.getStatus();
+        LocalDateTime now = LocalDateTime.now();
 
-        // если места кончились -> закрываем продажи
-        if (total > 0 && reserved >= total) {
-            if (dep.getStatus() == TourDepartureStatus.PLANNED) {
-                dep.setStatus(TourDepartureStatus.SALES_CLOSED);
+        if (oldStatus == BookingStatus.PENDING && newStatus == BookingStatus.CONFIRMED) {
+            if (bookingRepository.confirmHold(booking.getId(), now) == 0) {
+                throw new ResponseStatusException(
+                        HttpStatus.CONFLICT,
+                        "Время удержания мест по бронированию истекло"
+                );
             }
+            booking.setStatus(newStatus);
+            booking.setHoldExpiresAt(null);
             return;
         }
 
-        // если места появились обратно -> можно открыть продажи (по желанию)
-        if (reserved < total) {
-            if (dep.getStatus() == TourDepartureStatus.SALES_CLOSED) {
-                dep.setStatus(TourDepartureStatus.PLANNED);
-            }
+        LocalDateTime holdExpiresAt = null;
+        if (newStatus == BookingStatus.PENDING) {
+            holdExpiresAt = oldStatus == BookingStatus.PENDING && booking.getHoldExpiresAt() != null
+                    ? booking.getHoldExpiresAt()
+                    : now.plus(holdTtl);
         }
-    }
 
+        if (bookingRepository.compareAndSetStatus(booking.getId(), oldStatus, newStatus, holdExpiresAt) == 0) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Статус бронирования с id=" + booking.getId() + " уже изменился, обновите данные"
+            );
+        }
+        booking.setStatus(newStatus);
+        booking.setHoldExpiresAt(holdExpiresAt);
+    }
 
-}
\ No newline at end of file
+    /**
+     * Занимает места условным UPDATE; если мест не хватило — 400 с переданным сообщением.
+     * Проверка по загруженной сущности выше — лишь быстрый отказ, решение принимает БД.
+     */
+    private void reserveSeats(TourDepartureEntity departure, int persons, String errorMessage) {
+        if (!seatReservationService.tryReserve(departure.getId(), persons)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, errorMessage);
+        }
+    }
+}
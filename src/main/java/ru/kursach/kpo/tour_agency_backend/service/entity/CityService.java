@@ -16,8 +16,10 @@ import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.mapper.CityMapper;
 import ru.kursach.kpo.tour_agency_backend.model.entity.CityEntity;
 import ru.kursach.kpo.tour_agency_backend.repository.CityRepository;
+import ru.kursach.kpo.tour_agency_backend.service.typeahead.TypeaheadIndex;
 
 import java.util.List;
+import java.util.Locale;
 
 @Service
 @RequiredArgsConstructor
@@ -25,6 +27,7 @@ public class CityService {
 
     private final CityRepository cityRepository;
     private final CityMapper cityMapper;
+    private final TypeaheadIndex typeaheadIndex;
 
     @Transactional(readOnly = true)
     public PageResponseDto<CityResponseDto> getAllPaged(
@@ -33,8 +36,8 @@ public class CityService {
             int page,
             int size
     ) {
-        String name = nameFilter != null ? nameFilter.trim() : "";
-        String country = countryFilter != null ? countryFilter.trim() : "";
+        String name = nameFilter != null ? nameFilter.trim().toLowerCase(Locale.ROOT) : "";
+        String country = countryFilter != null ? countryFilter.trim().toLowerCase(Locale.ROOT) : "";
 
         PageRequest pageable = PageRequest.of(
                 page,
@@ -42,18 +45,14 @@ public class CityService {
                 Sort.by("name").ascending().and(Sort.by("country").ascending())
         );
 
-        Page<CityEntity> cityPage = cityRepository
-                .findByNameContainingIgnoreCaseAndCountryContainingIgnoreCase(
-                        name,
-                        country,
-                        pageable
-                );
+        Page<CityEntity> cityPage = cityRepository.search(name, country, pageable);
 
         return PageResponseDto.<CityResponseDto>builder()
                 .page(cityPage.getNumber())
                 .size(cityPage.getSize())
                 .totalPages(cityPage.getTotalPages())
                 .totalElements(cityPage.getTotalElements())
+                .hasNext(cityPage.hasNext())
                 .content(cityPage.getContent().stream()
                         .map(cityMapper::toDto)
                         .toList())
@@ -86,7 +85,7 @@ public class CityService {
             int size
     ) {
         String q = (query != null && !query.trim().isBlank())
-                ? query.trim()
+                ? query.trim().toLowerCase(Locale.ROOT)
                 : null;
 
         PageRequest pageable = PageRequest.of(
@@ -102,6 +101,7 @@ public class CityService {
                 .size(cityPage.getSize())
                 .totalPages(cityPage.getTotalPages())
                 .totalElements(cityPage.getTotalElements())
+                .hasNext(cityPage.hasNext())
                 .content(cityPage.getContent().stream()
                         .map(cityMapper::toDto)
                         .toList())
@@ -119,6 +119,7 @@ public class CityService {
 
         CityEntity city = cityMapper.toEntity(request);
         city = cityRepository.save(city);
+        typeaheadIndex.cityChanged(city);
         return cityMapper.toDto(city);
     }
 
@@ -160,6 +161,7 @@ public class CityService {
 
         cityMapper.updateEntity(request, city);
         city = cityRepository.save(city);
+        typeaheadIndex.cityChanged(city);
 
         return cityMapper.toDto(city);
     }
@@ -174,6 +176,7 @@ public class CityService {
 
         try {
             cityRepository.delete(city);
+            typeaheadIndex.cityDeleted(id);
         } catch (DataIntegrityViolationException ex) {
             throw new ResponseStatusException(
                     HttpStatus.CONFLICT,
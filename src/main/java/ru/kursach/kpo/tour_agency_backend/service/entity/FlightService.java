@@ -5,32 +5,66 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
+import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
 import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightCreateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightResponseDto;
+import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightRouteDto;
+import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightSuggestionDto;
 import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightUpdateRequest;
+import ru.kursach.kpo.tour_agency_backend.dto.pagination.CursorPageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.mapper.FlightMapper;
 import ru.kursach.kpo.tour_agency_backend.model.entity.*;
+import ru.kursach.kpo.tour_agency_backend.model.enums.FlightRouteSort;
+import ru.kursach.kpo.tour_agency_backend.model.enums.FlightStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.PageCountMode;
 import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
 import ru.kursach.kpo.tour_agency_backend.repository.*;
+import ru.kursach.kpo.tour_agency_backend.repository.FlightRepository.FlightDepartureLink;
+import ru.kursach.kpo.tour_agency_backend.repository.specification.FlightSpecifications;
+import ru.kursach.kpo.tour_agency_backend.service.itinerary.ItineraryEngine;
+import ru.kursach.kpo.tour_agency_backend.service.matching.FlightDepartureIndex;
+import ru.kursach.kpo.tour_agency_backend.service.matching.FlightDepartureIndex.DepartureWindow;
+import ru.kursach.kpo.tour_agency_backend.service.matching.FlightDepartureIndex.FlightWindow;
+import ru.kursach.kpo.tour_agency_backend.service.pagination.KeysetCursor;
+import ru.kursach.kpo.tour_agency_backend.service.pagination.PageResults;
+import ru.kursach.kpo.tour_agency_backend.service.pagination.RowCountEstimator;
+import ru.kursach.kpo.tour_agency_backend.service.pricing.PriceMatrixCache;
+import ru.kursach.kpo.tour_agency_backend.service.streaming.RowBatches;
 
 import java.time.LocalDate;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class FlightService {
 
+    public static final int MAX_SUGGESTIONS = 100;
+    public static final int MAX_ROUTE_FLEX_DAYS = 3;
+
     private final FlightRepository flightRepository;
     private final AirportRepository airportRepository;
     private final TourDepartureRepository tourDepartureRepository;
     private final TourRepository tourRepository;
     private final FlightMapper flightMapper;
     private final UserRepository userRepository;
+    private final PriceMatrixCache priceMatrixCache;
+    private final RowCountEstimator rowCountEstimator;
+    private final FlightDepartureIndex flightDepartureIndex;
+    private final ItineraryEngine itineraryEngine;
 
     @Transactional(readOnly = true)
     public PageResponseDto<FlightResponseDto> getFlightsForTourDeparture(
@@ -56,15 +90,16 @@ public class FlightService {
 
         Long cityId = tour.getBaseCity().getId();
 
-        String flightNumber = (flightNumberFilter != null) ? flightNumberFilter.trim().toLowerCase() : "";
+        String flightNumber = (flightNumberFilter != null) ? flightNumberFilter.trim().toLowerCase(Locale.ROOT) : "";
 
-        var pageable = PageRequest.of(page, size, Sort.by("flightNumber").ascending());
+        // порядок (flight_number, id) задан в самом запросе
+        var pageable = PageRequest.of(page, size);
 
         // границы по времени, чтобы корректно сравнивать с LocalDateTime в рейсе
         var from = startDate.atStartOfDay();
         var toExclusive = endDate.plusDays(1).atStartOfDay(); // конец дня (exclusive)
 
-        Page<FlightEntity> flights = flightRepository.searchForTourDeparture(
+        Page<FlightEntity> flights = flightRepository.searchOverlapping(
                 cityId,
                 flightNumber,
                 from,
@@ -77,6 +112,7 @@ public class FlightService {
                 .size(flights.getSize())
                 .totalPages(flights.getTotalPages())
                 .totalElements(flights.getTotalElements())
+                .hasNext(flights.hasNext())
                 .content(flights.getContent().stream().map(flightMapper::toDto).toList())
                 .build();
     }
@@ -98,26 +134,19 @@ public class FlightService {
         Long cityId = tour.getBaseCity().getId();
 
         String flightNumber = (flightNumberFilter != null)
-                ? flightNumberFilter.trim().toLowerCase()
+                ? flightNumberFilter.trim().toLowerCase(Locale.ROOT)
                 : "";
 
-        PageRequest pageable = PageRequest.of(page, size, Sort.by("flightNumber").ascending());
-
-        Page<FlightEntity> flights = flightRepository.searchByCityAndNumber(
+        // пересечение с датами вылета проверяется в запросе — страница и totalElements согласованы
+        Page<FlightEntity> flights = flightRepository.searchOverlapping(
                 cityId,
                 flightNumber,
-                pageable
+                departure.getStartDate().atStartOfDay(),
+                departure.getEndDate().plusDays(1).atStartOfDay(),
+                PageRequest.of(page, size)
         );
 
-        LocalDate depStart = departure.getStartDate();
-        LocalDate depEnd = departure.getEndDate();
-
         List<FlightResponseDto> content = flights.getContent().stream()
-                .filter(f -> {
-                    LocalDate fd = f.getDepartAt().toLocalDate();
-                    LocalDate fa = f.getArriveAt().toLocalDate();
-                    return !(fa.isBefore(depStart) || fd.isAfter(depEnd)); // пересечение интервалов
-                })
                 .map(flightMapper::toDto)
                 .toList();
 
@@ -126,11 +155,57 @@ public class FlightService {
                 .size(flights.getSize())
                 .totalPages(flights.getTotalPages())
                 .totalElements(flights.getTotalElements())
+                .hasNext(flights.hasNext())
                 .content(content)
                 .build();
     }
 
 
+    /**
+     * Подбор рейсов для вылета целиком по индексу в памяти, по дню вылета (внутри дня — по id).
+     * Из БД читаются только уже привязанные рейсы (по индексу join-таблицы).
+     */
+    @Transactional(readOnly = true)
+    public List<FlightSuggestionDto> suggestForDeparture(Long departureId, int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Параметр limit должен быть от 1 до " + MAX_SUGGESTIONS
+            );
+        }
+
+        DepartureWindow departure = flightDepartureIndex.departure(departureId);
+        if (departure == null) {
+            departure = tourDepartureRepository.findWithTourById(departureId)
+                    .map(flightDepartureIndex::departureWindow)
+                    .orElseThrow(() -> new ResponseStatusException(
+                            HttpStatus.NOT_FOUND,
+                            "Вылет тура с id=" + departureId + " не найден"
+                    ));
+        }
+
+        List<FlightWindow> flights = flightDepartureIndex.compatibleFlights(departure, limit);
+        if (flights.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> linked = new HashSet<>(flightRepository.findLinkedFlightIds(
+                departureId,
+                flights.stream().map(FlightWindow::id).toList()
+        ));
+
+        return flights.stream()
+                .map(f -> FlightSuggestionDto.builder()
+                        .id(f.id())
+                        .flightNumber(f.flightNumber())
+                        .departAt(f.departAt())
+                        .arriveAt(f.arriveAt())
+                        .departureAirportId(f.departureAirportId())
+                        .arrivalAirportId(f.arrivalAirportId())
+                        .linked(linked.contains(f.id()))
+                        .build())
+                .toList();
+    }
+
     @Transactional(readOnly = true)
     public PageResponseDto<FlightResponseDto> getFlightsForTourBaseCity(
             Long tourId,
@@ -147,7 +222,7 @@ public class FlightService {
         Long cityId = tour.getBaseCity().getId();
 
         String flightNumber = (flightNumberFilter != null)
-                ? flightNumberFilter.trim().toLowerCase()
+                ? flightNumberFilter.trim().toLowerCase(Locale.ROOT)
                 : "";
 
         PageRequest pageable = PageRequest.of(
@@ -167,6 +242,7 @@ public class FlightService {
                 .size(flights.getSize())
                 .totalPages(flights.getTotalPages())
                 .totalElements(flights.getTotalElements())
+                .hasNext(flights.hasNext())
                 .content(flights.getContent().stream()
                         .map(flightMapper::toDto)
                         .toList())
@@ -178,19 +254,20 @@ public class FlightService {
             String flightNumberFilter,
             String departureAirportNameFilter,
             String arrivalAirportNameFilter,
+            PageCountMode countMode,
             int page,
             int size
     ) {
         String flightNumber = (flightNumberFilter != null && !flightNumberFilter.trim().isEmpty())
-                ? flightNumberFilter.trim().toLowerCase()
+                ? flightNumberFilter.trim().toLowerCase(Locale.ROOT)
                 : "";
 
         String departureAirportName = (departureAirportNameFilter != null && !departureAirportNameFilter.trim().isEmpty())
-                ? departureAirportNameFilter.trim().toLowerCase()
+                ? departureAirportNameFilter.trim().toLowerCase(Locale.ROOT)
                 : "";
 
         String arrivalAirportName = (arrivalAirportNameFilter != null && !arrivalAirportNameFilter.trim().isEmpty())
-                ? arrivalAirportNameFilter.trim().toLowerCase()
+                ? arrivalAirportNameFilter.trim().toLowerCase(Locale.ROOT)
                 : "";
 
         PageRequest pageable = PageRequest.of(
@@ -199,22 +276,172 @@ public class FlightService {
                 Sort.by("flightNumber").ascending()
         );
 
-        Page<FlightEntity> flightPage = flightRepository.search(
-                flightNumber,
-                departureAirportName,
-                arrivalAirportName,
-                pageable
+        boolean unfiltered = flightNumber.isEmpty() && departureAirportName.isEmpty() && arrivalAirportName.isEmpty();
+        Specification<FlightEntity> filter =
+                FlightSpecifications.search(flightNumber, departureAirportName, arrivalAirportName);
+
+        PageResponseDto<FlightResponseDto> rows = PageResults.fetch(
+                countMode,
+                pageable,
+                p -> flightRepository.findRows(filter, FlightMapper.RESPONSE_ROW, p),
+                p -> flightRepository.findRowSlice(filter, FlightMapper.RESPONSE_ROW, p),
+                unfiltered ? () -> rowCountEstimator.estimate("flights") : null,
+                Function.identity()
         );
+        return PageResults.withContent(rows, withDepartureIds(rows.content()));
+    }
 
-        return PageResponseDto.<FlightResponseDto>builder()
-                .page(flightPage.getNumber())
-                .size(flightPage.getSize())
-                .totalPages(flightPage.getTotalPages())
-                .totalElements(flightPage.getTotalElements())
-                .content(flightPage.getContent().stream()
-                        .map(flightMapper::toDto)
-                        .toList())
-                .build();
+    /**
+     * Рейсы из города в город с вылетом в date ± flexDays.
+     * Города раскрываются в id аэропортов (по запросу на город), дальше фильтр по внешним
+     * ключам flights и составным индексам (аэропорт, depart_at) — без JOIN на каждую строку.
+     *
+     * @param statuses пустой или null — рейсы в любом статусе
+     */
+    @Transactional(readOnly = true)
+    public PageResponseDto<FlightRouteDto> searchRoutes(
+            Long fromCityId,
+            Long toCityId,
+            LocalDate date,
+            int flexDays,
+            List<FlightStatus> statuses,
+            FlightRouteSort sort,
+            PageCountMode countMode,
+            int page,
+            int size
+    ) {
+        if (fromCityId == null || toCityId == null || date == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fromCityId, toCityId и date обязательны");
+        }
+        if (fromCityId.equals(toCityId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Города вылета и прилёта должны различаться");
+        }
+        if (flexDays < 0 || flexDays > MAX_ROUTE_FLEX_DAYS) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "flexDays должен быть от 0 до " + MAX_ROUTE_FLEX_DAYS
+            );
+        }
+        if (page < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Номер страницы не может быть отрицательным");
+        }
+        KeysetCursor.validateSize(size);
+
+        // аэропорты остаются в контексте персистентности — маппинг берёт названия оттуда
+        List<Long> fromAirportIds = airportRepository.findAllByCityId(fromCityId).stream()
+                .map(AirportEntity::getId)
+                .toList();
+        List<Long> toAirportIds = airportRepository.findAllByCityId(toCityId).stream()
+                .map(AirportEntity::getId)
+                .toList();
+
+        PageRequest pageable = PageRequest.of(page, size, routeOrder(sort));
+
+        if (fromAirportIds.isEmpty() || toAirportIds.isEmpty()) {
+            return PageResults.fetch(
+                    countMode,
+                    pageable,
+                    Page::<FlightEntity>empty,
+                    Page::<FlightEntity>empty,
+                    null,
+                    flightMapper::toRouteDto
+            );
+        }
+
+        Specification<FlightEntity> filter = FlightSpecifications.route(
+                fromAirportIds,
+                toAirportIds,
+                date.minusDays(flexDays).atStartOfDay(),
+                date.plusDays(flexDays + 1L).atStartOfDay(),
+                // по умолчанию — только рейсы по расписанию: отменённые и улетевшие в подбор не попадают
+                statuses == null || statuses.isEmpty() ? List.of(FlightStatus.SCHEDULED) : statuses
+        );
+
+        return PageResults.fetch(
+                countMode,
+                pageable,
+                p -> flightRepository.findAll(filter, p),
+                p -> flightRepository.findSlice(filter, p),
+                null,
+                flightMapper::toRouteDto
+        );
+    }
+
+    private static Sort routeOrder(FlightRouteSort sort) {
+        Sort byDepartAt = Sort.by("departAt").ascending().and(Sort.by("id").ascending());
+        if (sort == null) {
+            return byDepartAt;
+        }
+        return switch (sort) {
+            case DEPART_AT -> byDepartAt;
+            case PRICE_ASC -> Sort.by("basePrice").ascending().and(byDepartAt);
+            case PRICE_DESC -> Sort.by("basePrice").descending().and(byDepartAt);
+        };
+    }
+
+    /**
+     * Keyset-режим для {@link #getAllPaged}: тот же фильтр и порядок, но без OFFSET и COUNT.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<FlightResponseDto> getAllByCursor(
+            String flightNumberFilter,
+            String departureAirportNameFilter,
+            String arrivalAirportNameFilter,
+            String cursor,
+            int size
+    ) {
+        KeysetCursor.validateSize(size);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        Specification<FlightEntity> filter = FlightSpecifications.search(
+                normalizeFilter(flightNumberFilter),
+                normalizeFilter(departureAirportNameFilter),
+                normalizeFilter(arrivalAirportNameFilter)
+        );
+        if (after != null) {
+            filter = filter.and(FlightSpecifications.after(after.key(), after.id()));
+        }
+
+        List<FlightResponseDto> rows = flightRepository.findRows(
+                filter,
+                FlightMapper.RESPONSE_ROW,
+                Sort.by("flightNumber").ascending().and(Sort.by("id").ascending()),
+                size + 1
+        );
+
+        return KeysetCursor.page(withDepartureIds(rows), size,
+                f -> new KeysetCursor(f.flightNumber(), f.id()),
+                Function.identity());
+    }
+
+    /**
+     * Добавляет к строкам рейсов id привязанных вылетов — один запрос по join-таблице на страницу.
+     */
+    private List<FlightResponseDto> withDepartureIds(List<FlightResponseDto> rows) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        return withDepartureIds(rows, flightRepository.findLinksByFlightIds(
+                rows.stream().map(FlightResponseDto::id).toList()));
+    }
+
+    private static List<FlightResponseDto> withDepartureIds(
+            List<FlightResponseDto> rows,
+            List<FlightDepartureLink> links
+    ) {
+        Map<Long, List<Long>> departureIds = links.stream().collect(Collectors.groupingBy(
+                FlightDepartureLink::getFlightId,
+                Collectors.mapping(FlightDepartureLink::getTourDepartureId, Collectors.toList())
+        ));
+        return rows.stream()
+                .map(f -> f.toBuilder().tourDepartureIds(departureIds.getOrDefault(f.id(), List.of())).build())
+                .toList();
+    }
+
+    private String normalizeFilter(String filter) {
+        return (filter != null && !filter.trim().isEmpty())
+                ? filter.trim().toLowerCase(Locale.ROOT)
+                : "";
     }
 
     @Transactional(readOnly = true)
@@ -267,6 +494,8 @@ public class FlightService {
         arrivalAirport.addArrivalFlight(flight);
 
         flight = flightRepository.save(flight);
+        flightDepartureIndex.flightChanged(flight);
+        itineraryEngine.flightChanged(flight);
         return flightMapper.toDto(flight);
     }
 
@@ -281,10 +510,12 @@ public class FlightService {
     }
 
     @Transactional(readOnly = true)
-    public List<FlightResponseDto> getAll() {
-        return flightRepository.findAll().stream()
-                .map(flightMapper::toDto)
-                .toList();
+    public void streamAll(Consumer<? super FlightResponseDto> sink) {
+        // привязки к вылетам — одним запросом на порцию строк курсора
+        try (Stream<FlightResponseDto> rows = flightRepository.streamRows(
+                null, FlightMapper.RESPONSE_ROW, Sort.unsorted(), Constants.STREAM_FETCH_SIZE)) {
+            RowBatches.forEach(rows, Constants.STREAM_FETCH_SIZE, batch -> withDepartureIds(batch).forEach(sink));
+        }
     }
 
     @Transactional
@@ -341,6 +572,9 @@ public class FlightService {
 
         validateAllDeparturesForFlight(flight);
         flight = flightRepository.save(flight);
+        priceMatrixCache.flightChanged(flight.getId());
+        flightDepartureIndex.flightChanged(flight);
+        itineraryEngine.flightChanged(flight);
 
         return flightMapper.toDto(flight);
     }
@@ -368,6 +602,9 @@ public class FlightService {
 
         try {
             flightRepository.delete(flight);
+            priceMatrixCache.flightChanged(id);
+            flightDepartureIndex.flightDeleted(id);
+            itineraryEngine.flightDeleted(id);
         } catch (DataIntegrityViolationException ex) {
             throw new ResponseStatusException(
                     HttpStatus.CONFLICT,
@@ -408,6 +645,7 @@ public class FlightService {
         flight.addTourDeparture(departure);
 
         flight = flightRepository.save(flight);
+        priceMatrixCache.departureChanged(departureId);
         return flightMapper.toDto(flight);
     }
 
@@ -441,6 +679,7 @@ public class FlightService {
         flight.removeTourDeparture(departure);
 
         flight = flightRepository.save(flight);
+        priceMatrixCache.departureChanged(departureId);
         return flightMapper.toDto(flight);
     }
 
@@ -488,12 +727,18 @@ public class FlightService {
             );
         }
     }
+
     /**
      * Повторно валидирует все вылеты тура, уже привязанные к рейсу.
      * Нужен на случай, когда у рейса меняются аэропорты или даты.
+     * Вылеты читаются одним запросом по индексу join-таблицы вместе с турами.
      */
     private void validateAllDeparturesForFlight(FlightEntity flight) {
-        for (TourDepartureEntity departure : flight.getTourDepartures()) {
+        List<Long> departureIds = flightRepository.findLinkedDepartureIds(flight.getId());
+        if (departureIds.isEmpty()) {
+            return;
+        }
+        for (TourDepartureEntity departure : tourDepartureRepository.findAllWithTourByIdIn(departureIds)) {
             validateDepartureForFlight(departure, flight);
         }
     }
@@ -2,13 +2,17 @@ package ru.kursach.kpo.tour_agency_backend.service.entity;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
+import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
+import ru.kursach.kpo.tour_agency_backend.dto.pagination.CursorPageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.TourDepartureCreateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.TourDepartureResponseDto;
@@ -18,19 +22,35 @@ import ru.kursach.kpo.tour_agency_backend.model.entity.FlightEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.TourDepartureEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.TourEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.UserEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.PageCountMode;
 import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
 import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
 import ru.kursach.kpo.tour_agency_backend.repository.FlightRepository;
+import ru.kursach.kpo.tour_agency_backend.repository.FlightRepository.FlightDepartureLink;
 import ru.kursach.kpo.tour_agency_backend.repository.TourDepartureRepository;
 import ru.kursach.kpo.tour_agency_backend.repository.TourRepository;
 import ru.kursach.kpo.tour_agency_backend.repository.UserRepository;
+import ru.kursach.kpo.tour_agency_backend.repository.specification.TourDepartureSpecifications;
+import ru.kursach.kpo.tour_agency_backend.service.inventory.SeatReservationService;
+import ru.kursach.kpo.tour_agency_backend.service.matching.FlightDepartureIndex;
+import ru.kursach.kpo.tour_agency_backend.service.pagination.KeysetCursor;
+import ru.kursach.kpo.tour_agency_backend.service.pagination.PageResults;
+import ru.kursach.kpo.tour_agency_backend.service.pagination.RowCountEstimator;
+import ru.kursach.kpo.tour_agency_backend.service.pricing.PriceMatrixCache;
+import ru.kursach.kpo.tour_agency_backend.service.streaming.RowBatches;
+import ru.kursach.kpo.tour_agency_backend.service.summary.TourSummaryService;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.sql.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -41,6 +61,11 @@ public class TourDepartureService {
     private final FlightRepository flightRepository;
     private final TourDepartureMapper tourDepartureMapper;
     private final UserRepository userRepository;
+    private final SeatReservationService seatReservationService;
+    private final PriceMatrixCache priceMatrixCache;
+    private final RowCountEstimator rowCountEstimator;
+    private final TourSummaryService tourSummaryService;
+    private final FlightDepartureIndex flightDepartureIndex;
 
     @Transactional(readOnly = true)
     public PageResponseDto<TourDepartureResponseDto> getMyPaged(
@@ -58,13 +83,11 @@ public class TourDepartureService {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Доступ только для менеджеров");
         }
 
-        Page<TourDepartureEntity> pageData =
-                tourDepartureRepository.searchMyPaged(
-                        manager.getId(),
-                        tourId,
-                        status,
-                        startFrom,
-                        startTo,
+        Page<TourDepartureResponseDto> pageData =
+                tourDepartureRepository.findRows(
+                        TourDepartureSpecifications.managedBy(manager.getId())
+                                .and(TourDepartureSpecifications.search(tourId, status, startFrom, startTo)),
+                        TourDepartureMapper.RESPONSE_ROW,
                         PageRequest.of(page, size, Sort.by("startDate").ascending())
                 );
 
@@ -73,9 +96,8 @@ public class TourDepartureService {
                 .size(pageData.getSize())
                 .totalPages(pageData.getTotalPages())
                 .totalElements(pageData.getTotalElements())
-                .content(pageData.getContent().stream()
-                        .map(tourDepartureMapper::toDto)
-                        .toList())
+                .hasNext(pageData.hasNext())
+                .content(withFlightIds(pageData.getContent()))
                 .build();
     }
 
@@ -85,6 +107,7 @@ public class TourDepartureService {
             TourDepartureStatus status,
             LocalDate startFrom,
             LocalDate startTo,
+            PageCountMode countMode,
             int page,
             int size
     ) {
@@ -101,23 +124,82 @@ public class TourDepartureService {
             );
         }
 
-        Page<TourDepartureEntity> departuresPage = tourDepartureRepository.searchPaged(
-                tourId,
-                status,
-                startFrom,
-                startTo,
-                pageable
+        boolean unfiltered = tourId == null && status == null && startFrom == null && startTo == null;
+        Specification<TourDepartureEntity> filter =
+                TourDepartureSpecifications.search(tourId, status, startFrom, startTo);
+
+        PageResponseDto<TourDepartureResponseDto> rows = PageResults.fetch(
+                countMode,
+                pageable,
+                p -> tourDepartureRepository.findRows(filter, TourDepartureMapper.RESPONSE_ROW, p),
+                p -> tourDepartureRepository.findRowSlice(filter, TourDepartureMapper.RESPONSE_ROW, p),
+                unfiltered ? () -> rowCountEstimator.estimate("tour_departures") : null,
+                Function.identity()
         );
+        return PageResults.withContent(rows, withFlightIds(rows.content()));
+    }
 
-        return PageResponseDto.<TourDepartureResponseDto>builder()
-                .page(departuresPage.getNumber())
-                .size(departuresPage.getSize())
-                .totalPages(departuresPage.getTotalPages())
-                .totalElements(departuresPage.getTotalElements())
-                .content(departuresPage.getContent().stream()
-                        .map(tourDepartureMapper::toDto)
-                        .toList())
-                .build();
+    /**
+     * Keyset-режим для {@link #getAllPaged}: тот же фильтр и порядок, но без OFFSET и COUNT.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<TourDepartureResponseDto> getAllByCursor(
+            Long tourId,
+            TourDepartureStatus status,
+            LocalDate startFrom,
+            LocalDate startTo,
+            String cursor,
+            int size
+    ) {
+        KeysetCursor.validateSize(size);
+        if (startFrom != null && startTo != null && startFrom.isAfter(startTo)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "startFrom не может быть позже startTo"
+            );
+        }
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        Specification<TourDepartureEntity> filter =
+                TourDepartureSpecifications.search(tourId, status, startFrom, startTo);
+        if (after != null) {
+            filter = filter.and(TourDepartureSpecifications.after(after.keyAsDate(), after.id()));
+        }
+
+        List<TourDepartureResponseDto> rows = tourDepartureRepository.findRows(
+                filter,
+                TourDepartureMapper.RESPONSE_ROW,
+                Sort.by("startDate").ascending().and(Sort.by("id").ascending()),
+                size + 1
+        );
+
+        return KeysetCursor.page(withFlightIds(rows), size,
+                d -> new KeysetCursor(d.startDate().toString(), d.id()),
+                Function.identity());
+    }
+
+    /**
+     * Добавляет к строкам вылетов id привязанных рейсов — один запрос по join-таблице на страницу.
+     */
+    private List<TourDepartureResponseDto> withFlightIds(List<TourDepartureResponseDto> rows) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        return withFlightIds(rows, flightRepository.findLinksByDepartureIds(
+                rows.stream().map(TourDepartureResponseDto::id).toList()));
+    }
+
+    private static List<TourDepartureResponseDto> withFlightIds(
+            List<TourDepartureResponseDto> rows,
+            List<FlightDepartureLink> links
+    ) {
+        Map<Long, List<Long>> flightIds = links.stream().collect(Collectors.groupingBy(
+                FlightDepartureLink::getTourDepartureId,
+                Collectors.mapping(FlightDepartureLink::getFlightId, Collectors.toList())
+        ));
+        return rows.stream()
+                .map(d -> d.toBuilder().flightIds(flightIds.getOrDefault(d.id(), List.of())).build())
+                .toList();
     }
 
     @Transactional(readOnly = true)
@@ -133,7 +215,7 @@ public class TourDepartureService {
             );
         }
 
-        return getAllPaged(tourId, null, null, null, page, size);
+        return getAllPaged(tourId, null, null, null, PageCountMode.EXACT, page, size);
     }
 
     @Transactional(readOnly = true)
@@ -169,25 +251,20 @@ public class TourDepartureService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "startFrom не может быть позже startTo");
         }
 
-        var pageable = PageRequest.of(
-                page,
-                size,
-                Sort.by("startDate").ascending().and(Sort.by("id").ascending())
-        );
-
-        Page<TourDepartureEntity> departuresPage = tourDepartureRepository.searchByBaseCities(
-                cityIds,
-                status,
-                effectiveFrom,
-                effectiveTo,
-                pageable
-        );
+        // вылеты, пересекающиеся с окном по датам; порядок (start_date, id) задан в самом запросе
+        Pageable pageable = PageRequest.of(page, size);
+        Page<TourDepartureEntity> departuresPage = status != null
+                ? tourDepartureRepository.searchOverlappingInCitiesWithStatus(
+                        cityIds, status.name(), effectiveFrom, effectiveTo, pageable)
+                : tourDepartureRepository.searchOverlappingInCities(
+                        cityIds, effectiveFrom, effectiveTo, pageable);
 
         return PageResponseDto.<TourDepartureResponseDto>builder()
                 .page(departuresPage.getNumber())
                 .size(departuresPage.getSize())
                 .totalPages(departuresPage.getTotalPages())
                 .totalElements(departuresPage.getTotalElements())
+                .hasNext(departuresPage.hasNext())
                 .content(departuresPage.getContent().stream()
                         .map(tourDepartureMapper::toDto)
                         .toList())
@@ -242,6 +319,8 @@ public class TourDepartureService {
         }
 
         departure = tourDepartureRepository.save(departure);
+        tourSummaryService.toursChanged(tour.getId());
+        flightDepartureIndex.departureChanged(departure);
         return tourDepartureMapper.toDto(departure);
     }
 
@@ -256,10 +335,12 @@ public class TourDepartureService {
     }
 
     @Transactional(readOnly = true)
-    public List<TourDepartureResponseDto> getAll() {
-        return tourDepartureRepository.findAll().stream()
-                .map(tourDepartureMapper::toDto)
-                .toList();
+    public void streamAll(Consumer<? super TourDepartureResponseDto> sink) {
+        // привязки рейсов — одним запросом на порцию строк курсора
+        try (Stream<TourDepartureResponseDto> rows = tourDepartureRepository.streamRows(
+                null, TourDepartureMapper.RESPONSE_ROW, Sort.unsorted(), Constants.STREAM_FETCH_SIZE)) {
+            RowBatches.forEach(rows, Constants.STREAM_FETCH_SIZE, batch -> withFlightIds(batch).forEach(sink));
+        }
     }
 
     @Transactional
@@ -277,8 +358,8 @@ public class TourDepartureService {
             assertManagerOwnsDeparture(user, departure);
         }
 
-        // ✅ твои проверки (оставляем)
-        validateCapacity(request.capacityTotal(), request.capacityReserved());
+        // ✅ твои проверки (оставляем); занятые места не редактируются — их ведут брони
+        requireCapacityTotal(request.capacityTotal());
 
         if (request.endDate().isBefore(request.startDate())) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
@@ -298,6 +379,8 @@ public class TourDepartureService {
             assertManagerOwnsTour(user, newTour);
         }
 
+        changeCapacity(departure, request.capacityTotal());
+
         // ✅ твоя логика переноса между турами (оставляем)
         TourEntity oldTour = departure.getTour();
         if (!oldTour.getId().equals(newTour.getId())) {
@@ -335,6 +418,10 @@ public class TourDepartureService {
         validateAllFlightsForDeparture(departure);
 
         departure = tourDepartureRepository.save(departure);
+        seatReservationService.departureUpdated(departure.getId());
+        priceMatrixCache.departureChanged(departure.getId());
+        tourSummaryService.toursChanged(oldTour.getId(), newTour.getId());
+        flightDepartureIndex.departureChanged(departure);
         return tourDepartureMapper.toDto(departure);
     }
 
@@ -353,6 +440,8 @@ public class TourDepartureService {
             assertManagerOwnsDeparture(user, departure);
         }
 
+        Long tourId = departure.getTour() != null ? departure.getTour().getId() : null;
+
         // ✅ твоя логика отвязки (оставляем)
         if (departure.getTour() != null) {
             departure.getTour().removeDeparture(departure);
@@ -364,6 +453,10 @@ public class TourDepartureService {
 
         try {
             tourDepartureRepository.delete(departure);
+            seatReservationService.departureDeleted(id);
+            priceMatrixCache.departureChanged(id);
+            tourSummaryService.toursChanged(tourId);
+            flightDepartureIndex.departureDeleted(id);
         } catch (DataIntegrityViolationException ex) {
             throw new ResponseStatusException(
                     HttpStatus.CONFLICT,
@@ -372,14 +465,33 @@ public class TourDepartureService {
         }
     }
 
-    private void validateCapacity(Integer capacityTotal, Integer capacityReserved) {
-        int reserved = capacityReserved != null ? capacityReserved : 0;
+    /**
+     * Новая вместимость — условным UPDATE, чтобы не затереть места, занятые параллельными бронями.
+     */
+    private void changeCapacity(TourDepartureEntity departure, int capacityTotal) {
+        Integer reserved = tourDepartureRepository.updateCapacityTotal(departure.getId(), capacityTotal);
+        if (reserved == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Нельзя уменьшить вместимость до " + capacityTotal + ": забронировано больше мест"
+            );
+        }
+        departure.setCapacityTotal(capacityTotal);
+        departure.setCapacityReserved(reserved);
+    }
+
+    private void requireCapacityTotal(Integer capacityTotal) {
         if (capacityTotal == null) {
             throw new ResponseStatusException(
                     HttpStatus.BAD_REQUEST,
                     "Вместимость (capacityTotal) обязательна"
             );
         }
+    }
+
+    private void validateCapacity(Integer capacityTotal, Integer capacityReserved) {
+        int reserved = capacityReserved != null ? capacityReserved : 0;
+        requireCapacityTotal(capacityTotal);
         if (reserved > capacityTotal) {
             throw new ResponseStatusException(
                     HttpStatus.BAD_REQUEST,
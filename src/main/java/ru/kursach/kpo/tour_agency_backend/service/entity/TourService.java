@@ -6,9 +6,11 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
+import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
 import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.tour.TourCreateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.tour.TourResponseDto;
@@ -17,50 +19,72 @@ import ru.kursach.kpo.tour_agency_backend.mapper.TourMapper;
 import ru.kursach.kpo.tour_agency_backend.model.entity.CityEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.TourEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.UserEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.PageCountMode;
 import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
 import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
 import ru.kursach.kpo.tour_agency_backend.repository.CityRepository;
 import ru.kursach.kpo.tour_agency_backend.repository.TourRepository;
+import ru.kursach.kpo.tour_agency_backend.repository.TourSummaryRepository;
 import ru.kursach.kpo.tour_agency_backend.repository.UserRepository;
-
+import ru.kursach.kpo.tour_agency_backend.repository.specification.TourSpecifications;
+import ru.kursach.kpo.tour_agency_backend.service.pagination.PageResults;
+import ru.kursach.kpo.tour_agency_backend.service.pagination.RowCountEstimator;
+import ru.kursach.kpo.tour_agency_backend.service.matching.FlightDepartureIndex;
+import ru.kursach.kpo.tour_agency_backend.service.pricing.PriceMatrixCache;
+import ru.kursach.kpo.tour_agency_backend.service.summary.TourSummaryService;
+
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class TourService {
 
     private final TourRepository tourRepository;
+    private final TourSummaryRepository tourSummaryRepository;
     private final CityRepository cityRepository;
     private final UserRepository userRepository;
     private final TourMapper tourMapper;
+    private final PriceMatrixCache priceMatrixCache;
+    private final FlightDepartureIndex flightDepartureIndex;
+    private final RowCountEstimator rowCountEstimator;
+    private final TourSummaryService tourSummaryService;
 
     @Transactional(readOnly = true)
     public PageResponseDto<TourResponseDto> getPublicPaged(
+            String q,
             String title,
             Long baseCityId,
+            PageCountMode countMode,
             int page,
             int size
     ) {
-        String titleFilter = title != null ? title.trim() : null;
+        if (toPrefixTsQuery(q) != null) {
+            return searchFullText(q, baseCityId, TourStatus.PUBLISHED, true, countMode, page, size);
+        }
+
+        String titleFilter = title != null ? title.trim().toLowerCase(Locale.ROOT) : null;
 
         var pageable = PageRequest.of(page, size, Sort.by("title").ascending());
 
-        Page<TourEntity> tours = tourRepository.searchPaged(
-                titleFilter,
-                baseCityId,
-                TourStatus.PUBLISHED,
-                true,
+        Specification<TourEntity> filter =
+                TourSpecifications.search(titleFilter, baseCityId, TourStatus.PUBLISHED, true, null);
+
+        // опубликованные активные туры — уже фильтр, оценка по всей таблице неприменима
+        return PageResults.fetch(
+                countMode,
+                pageable,
+                p -> tourRepository.findRows(filter, TourMapper.RESPONSE_ROW, p),
+                p -> tourRepository.findRowSlice(filter, TourMapper.RESPONSE_ROW, p),
                 null,
-                pageable
+                Function.identity()
         );
-
-        return PageResponseDto.<TourResponseDto>builder()
-                .page(tours.getNumber())
-                .size(tours.getSize())
-                .totalPages(tours.getTotalPages())
-                .totalElements(tours.getTotalElements())
-                .content(tours.getContent().stream().map(tourMapper::toDto).toList())
-                .build();
     }
 
     @Transactional(readOnly = true)
@@ -80,16 +104,13 @@ public class TourService {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Доступ только для менеджеров");
         }
 
-        String titleFilter = title != null ? title.trim() : null;
+        String titleFilter = title != null ? title.trim().toLowerCase(Locale.ROOT) : null;
 
         var pageable = PageRequest.of(page, size, Sort.by("title").ascending());
 
-        Page<TourEntity> tours = tourRepository.searchPaged(
-                titleFilter,
-                baseCityId,
-                status,
-                active,
-                manager.getId(),
+        Page<TourResponseDto> tours = tourRepository.findRows(
+                TourSpecifications.search(titleFilter, baseCityId, status, active, manager.getId()),
+                TourMapper.RESPONSE_ROW,
                 pageable
         );
 
@@ -98,7 +119,8 @@ public class TourService {
                 .size(tours.getSize())
                 .totalPages(tours.getTotalPages())
                 .totalElements(tours.getTotalElements())
-                .content(tours.getContent().stream().map(tourMapper::toDto).toList())
+                .hasNext(tours.hasNext())
+                .content(tours.getContent())
                 .build();
     }
 
@@ -109,10 +131,11 @@ public class TourService {
             TourStatus status,
             Boolean active,
             Long managerUserId,
+            PageCountMode countMode,
             int page,
             int size
     ) {
-        String titleFilter = title != null ? title.trim() : null;
+        String titleFilter = title != null ? title.trim().toLowerCase(Locale.ROOT) : null;
 
         PageRequest pageable = PageRequest.of(
                 page,
@@ -120,24 +143,76 @@ public class TourService {
                 Sort.by("title").ascending()
         );
 
-        Page<TourEntity> tours = tourRepository.searchPaged(
-                titleFilter,
-                baseCityId,
-                status,
-                active,
-                managerUserId,
-                pageable
+        boolean unfiltered = (titleFilter == null || titleFilter.isEmpty())
+                && baseCityId == null && status == null && active == null && managerUserId == null;
+        Specification<TourEntity> filter =
+                TourSpecifications.search(titleFilter, baseCityId, status, active, managerUserId);
+
+        return PageResults.fetch(
+                countMode,
+                pageable,
+                p -> tourRepository.findRows(filter, TourMapper.RESPONSE_ROW, p),
+                p -> tourRepository.findRowSlice(filter, TourMapper.RESPONSE_ROW, p),
+                unfiltered ? () -> rowCountEstimator.estimate("tours") : null,
+                Function.identity()
         );
+    }
 
-        return PageResponseDto.<TourResponseDto>builder()
-                .page(tours.getNumber())
-                .size(tours.getSize())
-                .totalPages(tours.getTotalPages())
-                .totalElements(tours.getTotalElements())
-                .content(tours.getContent().stream()
-                        .map(tourMapper::toDto)
-                        .toList())
-                .build();
+    /**
+     * Полнотекстовый поиск по названию и описанию с ранжированием по релевантности.
+     * Каждое слово ищется как префикс, так что неполное последнее слово тоже находит туры.
+     */
+    @Transactional(readOnly = true)
+    public PageResponseDto<TourResponseDto> searchFullText(
+            String q,
+            Long baseCityId,
+            TourStatus status,
+            Boolean active,
+            PageCountMode countMode,
+            int page,
+            int size
+    ) {
+        String query = toPrefixTsQuery(q);
+        if (query == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Параметр q должен содержать хотя бы одно слово"
+            );
+        }
+        // порядок задаёт сам запрос (ts_rank_cd), поэтому pageable без Sort
+        PageResponseDto<Long> found = PageResults.fetch(
+                countMode,
+                PageRequest.of(page, size),
+                p -> tourRepository.searchFullTextIds(query, baseCityId, status, active, p),
+                p -> tourRepository.searchFullTextIdSlice(query, baseCityId, status, active, p),
+                null,
+                Function.identity()
+        );
+
+        // нативный запрос задаёт порядок по релевантности — строки страницы одним запросом по id
+        List<Long> ids = found.content();
+        Map<Long, TourResponseDto> rows = ids.isEmpty() ? Map.of() : tourRepository
+                .findRows(TourSpecifications.idIn(ids), TourMapper.RESPONSE_ROW, Sort.unsorted(), 0).stream()
+                .collect(Collectors.toMap(TourResponseDto::id, Function.identity()));
+
+        return PageResults.withContent(found, ids.stream().map(rows::get).toList());
+    }
+
+    /**
+     * Строка пользователя -> tsquery вида "слово1:* & слово2:*".
+     * В запрос попадают только буквы и цифры, так что синтаксис tsquery из ввода не пробрасывается.
+     *
+     * @return null, если слов нет
+     */
+    static String toPrefixTsQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+        List<String> terms = Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(term -> !term.isEmpty())
+                .map(term -> term + ":*")
+                .toList();
+        return terms.isEmpty() ? null : String.join(" & ", terms);
     }
 
     @Transactional(readOnly = true)
@@ -153,7 +228,7 @@ public class TourService {
             );
         }
 
-        return getAllPaged(title, null, null, null, null, page, size);
+        return getAllPaged(title, null, null, null, null, PageCountMode.EXACT, page, size);
     }
 
 
@@ -175,6 +250,8 @@ public class TourService {
         }
 
         tour = tourRepository.save(tour);
+        tourSummaryService.toursChanged(tour.getId());
+        flightDepartureIndex.tourChanged(tour);
         return tourMapper.toDto(tour);
     }
 
@@ -185,14 +262,15 @@ public class TourService {
                         HttpStatus.NOT_FOUND,
                         "Тур с id=" + id + " не найден"
                 ));
-        return tourMapper.toDto(tour);
+        return tourMapper.toDto(tour, tourSummaryRepository.findById(id).orElse(null));
     }
 
     @Transactional(readOnly = true)
-    public List<TourResponseDto> getAll() {
-        return tourRepository.findAll(Sort.by("title").ascending()).stream()
-                .map(tourMapper::toDto)
-                .toList();
+    public void streamAll(Consumer<? super TourResponseDto> sink) {
+        try (Stream<TourResponseDto> rows = tourRepository.streamRows(
+                null, TourMapper.RESPONSE_ROW, Sort.by("title").ascending(), Constants.STREAM_FETCH_SIZE)) {
+            rows.forEach(sink);
+        }
     }
 
     @Transactional
@@ -230,6 +308,9 @@ public class TourService {
 
         tourMapper.updateEntity(request, newCity, newManager, tour);
         tour = tourRepository.save(tour);
+        priceMatrixCache.tourChanged(tour.getId());
+        tourSummaryService.toursChanged(tour.getId());
+        flightDepartureIndex.tourChanged(tour);
 
         return tourMapper.toDto(tour);
     }
@@ -254,6 +335,8 @@ public class TourService {
 
         try {
             tourRepository.delete(tour);
+            priceMatrixCache.tourChanged(id);
+            flightDepartureIndex.tourDeleted(id);
         } catch (DataIntegrityViolationException ex) {
             throw new ResponseStatusException(
                     HttpStatus.CONFLICT,
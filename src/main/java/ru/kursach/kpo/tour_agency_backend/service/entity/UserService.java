@@ -1,8 +1,8 @@
 package ru.kursach.kpo.tour_agency_backend.service.entity;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -10,6 +10,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
+import ru.kursach.kpo.tour_agency_backend.core.configuration.Constants;
 import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
 import ru.kursach.kpo.tour_agency_backend.dto.user.UserCreateRequest;
 import ru.kursach.kpo.tour_agency_backend.dto.user.UserUpdateRequest;
@@ -18,11 +19,18 @@ import ru.kursach.kpo.tour_agency_backend.mapper.UserMapper;
 import ru.kursach.kpo.tour_agency_backend.model.entity.BookingEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.TourEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.UserEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.PageCountMode;
 import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
 import ru.kursach.kpo.tour_agency_backend.repository.UserRepository;
+import ru.kursach.kpo.tour_agency_backend.repository.specification.UserSpecifications;
+import ru.kursach.kpo.tour_agency_backend.service.pagination.PageResults;
+import ru.kursach.kpo.tour_agency_backend.service.pagination.RowCountEstimator;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -31,16 +39,18 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final UserMapper userMapper;
+    private final RowCountEstimator rowCountEstimator;
 
     @Transactional(readOnly = true)
     public PageResponseDto<UserResponseDto> getAllPaged(
             String q,
             UserRole role,
             Boolean active,
+            PageCountMode countMode,
             int page,
             int size
     ) {
-        String query = (q != null && !q.isBlank()) ? q.trim().toLowerCase() : "";
+        String query = (q != null && !q.isBlank()) ? q.trim().toLowerCase(Locale.ROOT) : "";
 
         var pageable = PageRequest.of(
                 page,
@@ -48,15 +58,17 @@ public class UserService {
                 Sort.by("username").ascending().and(Sort.by("id").ascending())
         );
 
-        Page<UserEntity> userPage = userRepository.searchPaged(query, role, active, pageable);
+        boolean unfiltered = query.isEmpty() && role == null && active == null;
+        Specification<UserEntity> filter = UserSpecifications.search(query, role, active);
 
-        return PageResponseDto.<UserResponseDto>builder()
-                .page(userPage.getNumber())
-                .size(userPage.getSize())
-                .totalPages(userPage.getTotalPages())
-                .totalElements(userPage.getTotalElements())
-                .content(userPage.getContent().stream().map(userMapper::toDto).toList())
-                .build();
+        return PageResults.fetch(
+                countMode,
+                pageable,
+                p -> userRepository.findAll(filter, p),
+                p -> userRepository.findSlice(filter, p),
+                unfiltered ? () -> rowCountEstimator.estimate("users") : null,
+                userMapper::toDto
+        );
     }
 
     @Transactional(readOnly = true)
@@ -72,7 +84,7 @@ public class UserService {
             );
         }
 
-        return getAllPaged(username, null, null, page, size);
+        return getAllPaged(username, null, null, PageCountMode.EXACT, page, size);
     }
 
     @Transactional
@@ -104,10 +116,11 @@ public class UserService {
     }
 
     @Transactional(readOnly = true)
-    public List<UserResponseDto> getAll() {
-        return userRepository.findAll().stream()
-                .map(userMapper::toDto)
-                .toList();
+    public void streamAll(Consumer<? super UserResponseDto> sink) {
+        try (Stream<UserResponseDto> rows = userRepository.streamRows(
+                null, UserMapper.RESPONSE_ROW, Sort.unsorted(), Constants.STREAM_FETCH_SIZE)) {
+            rows.forEach(sink);
+        }
     }
 
     @Transactional
@@ -0,0 +1,135 @@
+package ru.kursach.kpo.tour_agency_backend.service.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Хранилище ответов по Idempotency-Key (в памяти, с TTL).
+ * <p>
+ * Первый запрос с ключом выполняет действие, повторы получают сохранённый ответ
+ * без обращения к БД. Одновременные дубли ждут результата первого запроса.
+ * Если действие завершилось ошибкой, ключ освобождается — повтор выполнится заново.
+ */
+@Component
+public class IdempotencyStore {
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // канонический JSON: поля и ключи словарей по алфавиту, чтобы одно и то же тело давало один отпечаток
+    private final ObjectWriter canonicalWriter;
+
+    public IdempotencyStore(ObjectMapper objectMapper) {
+        this.canonicalWriter = objectMapper.copy()
+                .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+                .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+                .writer();
+    }
+
+    @Value("${app.idempotency.ttl:PT24H}")
+    private Duration ttl;
+
+    @Value("${app.idempotency.wait-timeout:PT30S}")
+    private Duration waitTimeout;
+
+    /**
+     * @param scope   область ключа (пользователь + операция), чтобы ключи разных клиентов не пересекались
+     * @param key     значение заголовка Idempotency-Key (если пусто — действие выполняется как обычно)
+     * @param request тело запроса: повтор ключа с другим телом — 422
+     */
+    public <T> T execute(String scope, String key, Object request, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+
+        String storeKey = scope + ':' + key.trim();
+        byte[] fingerprint = fingerprint(request);
+        Entry entry = new Entry(fingerprint, new CompletableFuture<>(), System.nanoTime() + ttl.toNanos());
+
+        while (true) {
+            Entry existing = entries.putIfAbsent(storeKey, entry);
+            if (existing == null) {
+                return runAndStore(storeKey, entry, action);
+            }
+            if (existing.isExpired()) {
+                entries.remove(storeKey, existing);
+                continue;
+            }
+            if (!MessageDigest.isEqual(existing.fingerprint, fingerprint)) {
+                throw new ResponseStatusException(
+                        HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency-Key уже использован с другим запросом"
+                );
+            }
+            return awaitStored(existing);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval:PT1M}")
+    public void evictExpired() {
+        entries.values().removeIf(Entry::isExpired);
+    }
+
+    /**
+     * SHA-256 канонического JSON тела запроса.
+     */
+    private byte[] fingerprint(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(canonicalWriter.writeValueAsBytes(request));
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Не удалось вычислить отпечаток запроса для Idempotency-Key", ex);
+        }
+    }
+
+    private <T> T runAndStore(String storeKey, Entry entry, Supplier<T> action) {
+        try {
+            T result = action.get();
+            entry.response.complete(result);
+            return result;
+        } catch (Throwable ex) {
+            // в том числе Error: иначе ключ до истечения TTL ждал бы ответа, который не придёт
+            entries.remove(storeKey, entry);
+            entry.response.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T awaitStored(Entry entry) {
+        try {
+            return (T) entry.response.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw new ResponseStatusException(
+                    HttpStatus.CONFLICT,
+                    "Запрос с этим Idempotency-Key ещё выполняется, повторите позже"
+            );
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание результата по Idempotency-Key прервано", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private record Entry(byte[] fingerprint, CompletableFuture<Object> response, long expiresAtNanos) {
+        boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos > 0;
+        }
+    }
+}
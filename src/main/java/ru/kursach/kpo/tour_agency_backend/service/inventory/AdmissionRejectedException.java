@@ -0,0 +1,27 @@
+package ru.kursach.kpo.tour_agency_backend.service.inventory;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+/**
+ * Отказ в допуске к бронированию (429/503) с заголовком Retry-After.
+ */
+public class AdmissionRejectedException extends ResponseStatusException {
+
+    private final Duration retryAfter;
+
+    public AdmissionRejectedException(HttpStatus status, String reason, Duration retryAfter) {
+        super(status, reason);
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+        return headers;
+    }
+}
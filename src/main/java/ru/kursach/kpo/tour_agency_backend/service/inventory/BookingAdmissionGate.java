@@ -0,0 +1,225 @@
+package ru.kursach.kpo.tour_agency_backend.service.inventory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Допуск к созданию брони на вылет.
+ * <p>
+ * На каждый вылет — не больше maxConcurrent одновременных транзакций бронирования,
+ * остальные ждут в ограниченной очереди в порядке прихода (честный семафор).
+ * Очередь переполнена — 429, не дождались — 503, места на вылете закончились — сразу 503;
+ * везде с Retry-After. Пока на вылет нет конкуренции, запрос проходит по быстрому пути
+ * (один tryAcquire) и в очередь не попадает. Пакетные брони проходят через {@link #admitAll}.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingAdmissionGate {
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    @Value("${app.booking.admission.max-concurrent-per-departure:4}")
+    private int maxConcurrent;
+
+    @Value("${app.booking.admission.max-queue-per-departure:200}")
+    private int maxQueue;
+
+    @Value("${app.booking.admission.max-wait:PT3S}")
+    private Duration maxWait;
+
+    @Value("${app.booking.admission.sold-out-ttl:PT10S}")
+    private Duration soldOutTtl;
+
+    @Value("${app.booking.admission.retry-after-busy:PT2S}")
+    private Duration retryAfterBusy;
+
+    @Value("${app.booking.admission.retry-after-sold-out:PT30S}")
+    private Duration retryAfterSoldOut;
+
+    private Timer waitTimer;
+    private Counter rejectedQueueFull;
+    private Counter rejectedTimeout;
+    private Counter rejectedSoldOut;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("booking.admission.queue.depth", queued, AtomicInteger::get)
+                .description("Запросов на бронирование, ждущих допуска")
+                .register(meterRegistry);
+        Gauge.builder("booking.admission.lanes", lanes, ConcurrentHashMap::size)
+                .description("Вылетов с активной очередью допуска")
+                .register(meterRegistry);
+        waitTimer = Timer.builder("booking.admission.wait")
+                .description("Время ожидания допуска к бронированию")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        rejectedQueueFull = rejectedCounter("queue_full");
+        rejectedTimeout = rejectedCounter("timeout");
+        rejectedSoldOut = rejectedCounter("sold_out");
+    }
+
+    /**
+     * Выполняет action, когда вылет departureId допускает ещё одну транзакцию бронирования.
+     */
+    public <T> T admit(Long departureId, Supplier<T> action) {
+        Lane lane = acquire(departureId, true);
+        try {
+            return action.get();
+        } finally {
+            lane.permits.release();
+        }
+    }
+
+    /**
+     * То же для пакета бронирований: по разрешению на каждый вылет пакета.
+     * Разрешения берутся по возрастанию id вылета (в том же порядке пакет занимает места),
+     * поэтому пакеты не ждут друг друга крест-накрест. Распроданный вылет пакет не отклоняет:
+     * его позиции получат ошибку вместимости, остальные — создаются по режиму пакета.
+     */
+    public <T> T admitAll(Collection<Long> departureIds, Supplier<T> action) {
+        List<Lane> acquired = new ArrayList<>();
+        try {
+            for (Long departureId : new TreeSet<>(departureIds)) {
+                acquired.add(acquire(departureId, false));
+            }
+            return action.get();
+        } finally {
+            acquired.forEach(lane -> lane.permits.release());
+        }
+    }
+
+    private Lane acquire(Long departureId, boolean rejectSoldOut) {
+        Lane lane = lanes.computeIfAbsent(departureId, id -> new Lane(maxConcurrent));
+        if (rejectSoldOut) {
+            rejectIfSoldOut(lane);
+        }
+
+        // быстрый путь: вылет не под нагрузкой
+        if (!lane.permits.hasQueuedThreads() && lane.permits.tryAcquire()) {
+            return lane;
+        }
+
+        if (lane.waiting.incrementAndGet() > maxQueue) {
+            lane.waiting.decrementAndGet();
+            rejectedQueueFull.increment();
+            throw new AdmissionRejectedException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Слишком много одновременных бронирований на этот вылет, повторите попытку позже",
+                    retryAfterBusy);
+        }
+
+        queued.incrementAndGet();
+        long started = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = lane.permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            lane.waiting.decrementAndGet();
+            queued.decrementAndGet();
+            waitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+
+        if (!acquired) {
+            rejectedTimeout.increment();
+            throw new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Очередь на бронирование этого вылета не успела дойти, повторите попытку позже",
+                    retryAfterBusy);
+        }
+
+        if (rejectSoldOut) {
+            try {
+                // пока ждали, места могли закончиться
+                rejectIfSoldOut(lane);
+            } catch (AdmissionRejectedException ex) {
+                lane.permits.release();
+                throw ex;
+            }
+        }
+        return lane;
+    }
+
+    /**
+     * Места на вылете закончились: следующие запросы отклоняются без похода в БД.
+     * Флаг живёт sold-out-ttl, потом вылет снова проверяется бронированием.
+     */
+    public void markSoldOut(Long departureId) {
+        Lane lane = lanes.get(departureId);
+        if (lane != null) {
+            lane.soldOutUntilNanos = System.nanoTime() + soldOutTtl.toNanos();
+        }
+    }
+
+    /**
+     * На вылете могли появиться места (отмена, истёкшее удержание, изменение вместимости).
+     */
+    public void clearSoldOut(Long departureId) {
+        Lane lane = lanes.get(departureId);
+        if (lane != null) {
+            lane.soldOutUntilNanos = 0;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.booking.admission.cleanup-interval:PT1M}")
+    public void evictIdleLanes() {
+        // гонка с только что пришедшим запросом лишь ненадолго даёт вылету вторую очередь
+        lanes.values().removeIf(lane -> lane.isIdle(maxConcurrent));
+    }
+
+    private void rejectIfSoldOut(Lane lane) {
+        if (lane.isSoldOut()) {
+            rejectedSoldOut.increment();
+            throw new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Свободных мест на вылете нет", retryAfterSoldOut);
+        }
+    }
+
+    private Counter rejectedCounter(String reason) {
+        return Counter.builder("booking.admission.rejected")
+                .description("Отказы в допуске к бронированию")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static final class Lane {
+        private final Semaphore permits;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private volatile long soldOutUntilNanos;
+
+        private Lane(int maxConcurrent) {
+            this.permits = new Semaphore(maxConcurrent, true);
+        }
+
+        private boolean isSoldOut() {
+            long until = soldOutUntilNanos;
+            return until != 0 && System.nanoTime() - until < 0;
+        }
+
+        private boolean isIdle(int maxConcurrent) {
+            return waiting.get() == 0 && permits.availablePermits() == maxConcurrent && !isSoldOut();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ru.kursach.kpo.tour_agency_backend.service.inventory;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.kursach.kpo.tour_agency_backend.repository.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Сборщик просроченных удержаний: PENDING-брони, у которых истёк hold_expires_at,
+ * переводятся в EXPIRED пачками, а их места возвращаются на вылеты.
+ */
+@Service
+@RequiredArgsConstructor
+public class BookingHoldSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingHoldSweeper.class);
+
+    private final BookingRepository bookingRepository;
+    private final SeatReservationService seatReservationService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.booking.hold-sweep-batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(
+            initialDelayString = "${app.booking.hold-sweep-interval:PT30S}",
+            fixedDelayString = "${app.booking.hold-sweep-interval:PT30S}"
+    )
+    public void sweepExpiredHolds() {
+        int expired = 0;
+        int swept;
+        do {
+            Integer batch = transactionTemplate.execute(status -> sweepBatch());
+            swept = batch != null ? batch : 0;
+            expired += swept;
+        } while (swept >= batchSize);
+
+        if (expired > 0) {
+            logger.info("Expired {} booking holds", expired);
+        }
+    }
+
+    /**
+     * Одна пачка в одной транзакции: UPDATE броней и по одному UPDATE на каждый затронутый вылет.
+     *
+     * @return сколько броней переведено в EXPIRED
+     */
+    private int sweepBatch() {
+        List<BookingRepository.ExpiredHolds> released =
+                bookingRepository.expireHolds(LocalDateTime.now(), batchSize);
+
+        int bookings = 0;
+        for (BookingRepository.ExpiredHolds holds : released) {
+            seatReservationService.release(holds.getDepartureId(), holds.getPersons());
+            bookings += holds.getBookings();
+        }
+        return bookings;
+    }
+}
@@ -0,0 +1,180 @@
+package ru.kursach.kpo.tour_agency_backend.service.inventory;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.CapacityDriftDto;
+import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.CapacityReconciliationReportDto;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
+import ru.kursach.kpo.tour_agency_backend.service.summary.TourSummaryService;
+
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сверка tour_departures.capacity_reserved с фактической суммой мест
+ * по PENDING/CONFIRMED бронированиям.
+ * <p>
+ * Суммы считаются одним GROUP BY по bookings и читаются курсором (fetch size),
+ * исправления применяются пачками одним UPDATE ... FROM unnest(...) на пачку.
+ * Строка исправляется, только если capacity_reserved не изменился с момента чтения.
+ */
+@Service
+@RequiredArgsConstructor
+public class CapacityReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CapacityReconciliationService.class);
+
+    private static final int FETCH_SIZE = 10_000;
+    private static final int REPAIR_CHUNK_SIZE = 1_000;
+    private static final int REPORTED_DRIFTS_LIMIT = 100;
+
+    private static final String COUNTED_SQL = """
+            SELECT d.id, d.capacity_total, d.capacity_reserved, d.status,
+                   COALESCE(s.reserved, 0) AS counted
+            FROM tour_departures d
+            LEFT JOIN (
+                SELECT tour_departure_id, SUM(persons_count) AS reserved
+                FROM bookings
+                WHERE status IN ('PENDING', 'CONFIRMED')
+                GROUP BY tour_departure_id
+            ) s ON s.tour_departure_id = d.id
+            """;
+
+    private static final String REPAIR_SQL = """
+            UPDATE tour_departures d
+            SET capacity_reserved = r.counted,
+                status = CASE
+                    WHEN d.status = 'PLANNED' AND r.counted >= d.capacity_total THEN 'SALES_CLOSED'
+                    WHEN d.status = 'SALES_CLOSED' AND r.counted < d.capacity_total THEN 'PLANNED'
+                    ELSE d.status
+                END
+            FROM unnest(?, ?, ?) AS r(id, expected, counted)
+            WHERE d.id = r.id
+              AND d.capacity_reserved = r.expected
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<SeatInventoryEngine> inventoryEngine;
+    private final TourSummaryService tourSummaryService;
+
+    @Value("${app.capacity-reconciliation.repair:true}")
+    private boolean repairOnSchedule;
+
+    @Scheduled(cron = "${app.capacity-reconciliation.cron:0 30 3 * * *}")
+    public void reconcileOnSchedule() {
+        CapacityReconciliationReportDto report = reconcile(repairOnSchedule);
+        if (report.departuresDrifted() > 0) {
+            logger.warn("Capacity reconciliation: {} of {} departures drifted by {} seats, {} rows repaired",
+                    report.departuresDrifted(), report.departuresChecked(),
+                    report.totalSeatDrift(), report.rowsRepaired());
+        }
+    }
+
+    /**
+     * @param repair исправить расхождения. Если включён {@link SeatInventoryEngine},
+     *               счётчики принадлежат ему — выполняется только отчёт.
+     */
+    public CapacityReconciliationReportDto reconcile(boolean repair) {
+        long started = System.currentTimeMillis();
+        boolean doRepair = repair && inventoryEngine.getIfAvailable() == null;
+
+        List<CapacityDriftDto> drifts = new ArrayList<>();
+        int[] checked = {0};
+        long[] seatDrift = {0};
+
+        // курсор в PostgreSQL работает только внутри транзакции
+        transactionTemplate.execute(status -> {
+            jdbcTemplate.query(con -> {
+                var ps = con.prepareStatement(COUNTED_SQL);
+                ps.setFetchSize(FETCH_SIZE);
+                return ps;
+            }, rs -> {
+                checked[0]++;
+                int total = rs.getInt("capacity_total");
+                int reserved = rs.getInt("capacity_reserved");
+                int counted = rs.getInt("counted");
+                TourDepartureStatus current = TourDepartureStatus.valueOf(rs.getString("status"));
+                TourDepartureStatus expected = expectedStatus(current, counted, total);
+
+                if (reserved != counted || current != expected) {
+                    seatDrift[0] += Math.abs(reserved - counted);
+                    drifts.add(CapacityDriftDto.builder()
+                            .tourDepartureId(rs.getLong("id"))
+                            .capacityTotal(total)
+                            .capacityReserved(reserved)
+                            .countedReserved(counted)
+                            .status(current)
+                            .expectedStatus(expected)
+                            .build());
+                }
+            });
+            return null;
+        });
+
+        int repaired = 0;
+        if (doRepair) {
+            for (int from = 0; from < drifts.size(); from += REPAIR_CHUNK_SIZE) {
+                List<CapacityDriftDto> chunk = drifts.subList(from, Math.min(from + REPAIR_CHUNK_SIZE, drifts.size()));
+                Integer updated = transactionTemplate.execute(status -> repairChunk(chunk));
+                repaired += updated != null ? updated : 0;
+            }
+            if (repaired > 0) {
+                tourSummaryService.departuresChanged(drifts.stream().map(CapacityDriftDto::tourDepartureId).toList());
+            }
+        }
+
+        return CapacityReconciliationReportDto.builder()
+                .departuresChecked(checked[0])
+                .departuresDrifted(drifts.size())
+                .totalSeatDrift(seatDrift[0])
+                .repaired(doRepair)
+                .rowsRepaired(repaired)
+                .durationMs(System.currentTimeMillis() - started)
+                .drifts(List.copyOf(drifts.subList(0, Math.min(REPORTED_DRIFTS_LIMIT, drifts.size()))))
+                .build();
+    }
+
+    private int repairChunk(List<CapacityDriftDto> chunk) {
+        Long[] ids = new Long[chunk.size()];
+        Integer[] expected = new Integer[chunk.size()];
+        Integer[] counted = new Integer[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            ids[i] = chunk.get(i).tourDepartureId();
+            expected[i] = chunk.get(i).capacityReserved();
+            counted[i] = chunk.get(i).countedReserved();
+        }
+
+        return jdbcTemplate.update(con -> {
+            var ps = con.prepareStatement(REPAIR_SQL);
+            Array idArray = con.createArrayOf("bigint", ids);
+            Array expectedArray = con.createArrayOf("integer", expected);
+            Array countedArray = con.createArrayOf("integer", counted);
+            ps.setArray(1, idArray);
+            ps.setArray(2, expectedArray);
+            ps.setArray(3, countedArray);
+            return ps;
+        });
+    }
+
+    /**
+     * Тот же переход PLANNED <-> SALES_CLOSED, что делают UPDATE резервирования мест.
+     */
+    private TourDepartureStatus expectedStatus(TourDepartureStatus current, int counted, int total) {
+        if (current == TourDepartureStatus.PLANNED && counted >= total) {
+            return TourDepartureStatus.SALES_CLOSED;
+        }
+        if (current == TourDepartureStatus.SALES_CLOSED && counted < total) {
+            return TourDepartureStatus.PLANNED;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,394 @@
+package ru.kursach.kpo.tour_agency_backend.service.inventory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import ru.kursach.kpo.tour_agency_backend.service.summary.TourSummaryService;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static ru.kursach.kpo.tour_agency_backend.service.transaction.TransactionHooks.afterCompletion;
+
+/**
+ * In-memory учёт мест на вылетах для распродаж.
+ * <p>
+ * Вылеты разбиты по шардам (id % shards), у каждого шарда один поток —
+ * только он читает и меняет счётчики своих вылетов, поэтому решение «есть места / нет мест»
+ * принимается без блокировок строки tour_departures и без ожидания соединения из пула.
+ * Принятые (закоммиченные) изменения копятся в шарде и пачкой сбрасываются в tour_departures.
+ * При старте capacity_reserved пересчитывается по таблице bookings.
+ * <p>
+ * Включается свойством app.inventory.engine.enabled=true.
+ */
+@Service
+@DependsOn({"entityManagerFactory", "schemaMigrationRunner"})
+@ConditionalOnProperty(name = "app.inventory.engine.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class SeatInventoryEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatInventoryEngine.class);
+
+    private static final String RECOVER_SQL = """
+            UPDATE tour_departures d
+            SET capacity_reserved = s.reserved,
+                status = CASE
+                    WHEN d.status = 'PLANNED' AND s.reserved >= d.capacity_total THEN 'SALES_CLOSED'
+                    WHEN d.status = 'SALES_CLOSED' AND s.reserved < d.capacity_total THEN 'PLANNED'
+                    ELSE d.status
+                END
+            FROM (
+                SELECT td.id, COALESCE(SUM(b.persons_count), 0) AS reserved
+                FROM tour_departures td
+                LEFT JOIN bookings b
+                       ON b.tour_departure_id = td.id
+                      AND b.status IN ('PENDING', 'CONFIRMED')
+                GROUP BY td.id
+            ) s
+            WHERE s.id = d.id
+              AND d.capacity_reserved <> s.reserved
+            """;
+
+    private static final String LOAD_ALL_SQL = """
+            SELECT id, capacity_total, capacity_reserved
+            FROM tour_departures
+            WHERE status NOT IN ('CANCELLED', 'COMPLETED')
+            """;
+
+    private static final String LOAD_ONE_SQL = """
+            SELECT id, capacity_total, capacity_reserved
+            FROM tour_departures
+            WHERE id = :id
+            """;
+
+    private static final String APPLY_DELTA_SQL = """
+            UPDATE tour_departures
+            SET capacity_reserved = GREATEST(capacity_reserved + :delta, 0),
+                status = CASE
+                    WHEN status = 'PLANNED' AND GREATEST(capacity_reserved + :delta, 0) >= capacity_total THEN 'SALES_CLOSED'
+                    WHEN status = 'SALES_CLOSED' AND GREATEST(capacity_reserved + :delta, 0) < capacity_total THEN 'PLANNED'
+                    ELSE status
+                END
+            WHERE id = :id
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TourSummaryService tourSummaryService;
+
+    @Value("${app.inventory.engine.shards:4}")
+    private int shardCount;
+
+    @Value("${app.inventory.engine.flush-interval-ms:50}")
+    private long flushIntervalMs;
+
+    @Value("${app.inventory.engine.decision-timeout-ms:2000}")
+    private long decisionTimeoutMs;
+
+    private Shard[] shards;
+    private ExecutorService flushExecutor;
+
+    @PostConstruct
+    public void start() {
+        int recovered = jdbcTemplate.getJdbcTemplate().update(RECOVER_SQL);
+        logger.info("Seat inventory: capacity_reserved recalculated from bookings for {} departures", recovered);
+
+        flushExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "seat-inventory-flush"));
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+
+        jdbcTemplate.query(LOAD_ALL_SQL, rs -> {
+            long id = rs.getLong("id");
+            Ledger ledger = new Ledger(rs.getInt("capacity_total"), rs.getInt("capacity_reserved"));
+            Shard shard = shardFor(id);
+            shard.executor.execute(() -> shard.ledgers.put(id, ledger));
+        });
+
+        for (Shard shard : shards) {
+            shard.executor.scheduleWithFixedDelay(shard::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        logger.info("Seat inventory engine started with {} shards", shardCount);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.executor.execute(shard::flush);
+            shard.executor.shutdown();
+        }
+        for (Shard shard : shards) {
+            shard.executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Пытается занять места в памяти шарда.
+     * Если вызвана внутри транзакции — изменение уйдёт в БД после коммита,
+     * при откате места возвращаются.
+     */
+    public boolean tryReserve(Long departureId, int persons) {
+        Shard shard = shardFor(departureId);
+        boolean reserved = decide(shard, departureId, persons);
+        if (reserved) {
+            bindToTransaction(shard, departureId, persons);
+        }
+        return reserved;
+    }
+
+    /**
+     * Занимает места до начала транзакции брони: ожидание решения шарда не держит соединение из пула.
+     * Удержание привязывается к транзакции через {@link Hold#attachToTransaction()};
+     * если этого не случилось (ошибка до резервирования), места возвращаются в {@link Hold#close()}.
+     */
+    public Hold hold(Long departureId, int persons) {
+        Shard shard = shardFor(departureId);
+        return new Hold(shard, departureId, persons, decide(shard, departureId, persons));
+    }
+
+    private boolean decide(Shard shard, Long departureId, int persons) {
+        return shard.call(() -> {
+            Ledger ledger = shard.ledger(departureId);
+            if (ledger == null || ledger.reserved + persons > ledger.capacityTotal) {
+                return false;
+            }
+            ledger.reserved += persons;
+            return true;
+        });
+    }
+
+    private void bindToTransaction(Shard shard, Long departureId, int persons) {
+        afterCompletion(
+                () -> shard.executor.execute(() -> shard.addDelta(departureId, persons)),
+                () -> shard.executor.execute(() -> shard.returnSeats(departureId, persons))
+        );
+    }
+
+    /**
+     * Возвращает места. Применяется только после коммита транзакции,
+     * чтобы до коммита эти места не достались другой брони.
+     */
+    public void release(Long departureId, int persons) {
+        Shard shard = shardFor(departureId);
+        afterCompletion(
+                () -> shard.executor.execute(() -> {
+                    Ledger ledger = shard.ledger(departureId);
+                    if (ledger != null) {
+                        ledger.release(persons);
+                    }
+                    shard.addDelta(departureId, -persons);
+                }),
+                () -> { }
+        );
+    }
+
+    /**
+     * Перечитывает capacity_total вылета после его редактирования.
+     * Занятые места остаются за шардом.
+     */
+    public void refreshCapacity(Long departureId) {
+        Shard shard = shardFor(departureId);
+        afterCompletion(
+                () -> shard.executor.execute(() -> {
+                    Ledger ledger = shard.ledgers.get(departureId);
+                    if (ledger != null) {
+                        Ledger fresh = shard.load(departureId);
+                        if (fresh != null) {
+                            ledger.capacityTotal = fresh.capacityTotal;
+                        }
+                    }
+                }),
+                () -> { }
+        );
+    }
+
+    /**
+     * Забывает удалённый вылет.
+     */
+    public void forget(Long departureId) {
+        Shard shard = shardFor(departureId);
+        afterCompletion(
+                () -> shard.executor.execute(() -> {
+                    shard.ledgers.remove(departureId);
+                    shard.pendingDeltas.remove(departureId);
+                }),
+                () -> { }
+        );
+    }
+
+    private Shard shardFor(Long departureId) {
+        return shards[(int) Math.floorMod(departureId, (long) shards.length)];
+    }
+
+    /**
+     * Места, занятые в памяти до транзакции брони.
+     */
+    public final class Hold implements AutoCloseable {
+        private final Shard shard;
+        private final Long departureId;
+        private final int persons;
+        private final boolean reserved;
+        private boolean attached;
+
+        private Hold(Shard shard, Long departureId, int persons, boolean reserved) {
+            this.shard = shard;
+            this.departureId = departureId;
+            this.persons = persons;
+            this.reserved = reserved;
+        }
+
+        /**
+         * Передаёт места текущей транзакции: после коммита они уходят в БД, при откате возвращаются.
+         *
+         * @return false — мест не хватило ещё при удержании
+         */
+        public boolean attachToTransaction() {
+            if (!reserved || attached) {
+                return reserved;
+            }
+            attached = true;
+            bindToTransaction(shard, departureId, persons);
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (reserved && !attached) {
+                attached = true;
+                shard.executor.execute(() -> shard.returnSeats(departureId, persons));
+            }
+        }
+    }
+
+    private static final class Ledger {
+        private int capacityTotal;
+        private int reserved;
+
+        private Ledger(int capacityTotal, int reserved) {
+            this.capacityTotal = capacityTotal;
+            this.reserved = reserved;
+        }
+
+        private void release(int persons) {
+            reserved = Math.max(0, reserved - persons);
+        }
+    }
+
+    /**
+     * Шард: все поля читаются и меняются только из его потока.
+     */
+    private final class Shard {
+        private final ScheduledExecutorService executor;
+        private final Map<Long, Ledger> ledgers = new HashMap<>();
+        private Map<Long, Integer> pendingDeltas = new HashMap<>();
+
+        private Shard(int index) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(
+                    r -> new Thread(r, "seat-inventory-shard-" + index));
+        }
+
+        private <T> T call(Callable<T> task) {
+            Future<T> future = executor.submit(task);
+            try {
+                return future.get(decisionTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                if (future.cancel(false)) {
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                            "Сервис бронирования перегружен, повторите попытку позже");
+                }
+                return getCompleted(future);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Ожидание решения о бронировании прервано", ex);
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("Ошибка учёта мест", ex.getCause());
+            }
+        }
+
+        private <T> T getCompleted(Future<T> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Ожидание решения о бронировании прервано", ex);
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("Ошибка учёта мест", ex.getCause());
+            }
+        }
+
+        /**
+         * Счётчик вылета; вылеты, созданные после старта, подгружаются из БД при первом обращении.
+         */
+        private Ledger ledger(Long departureId) {
+            Ledger ledger = ledgers.get(departureId);
+            if (ledger == null) {
+                ledger = load(departureId);
+                if (ledger != null) {
+                    ledgers.put(departureId, ledger);
+                }
+            }
+            return ledger;
+        }
+
+        private Ledger load(Long departureId) {
+            List<Ledger> rows = jdbcTemplate.query(LOAD_ONE_SQL, Map.of("id", departureId),
+                    (rs, rowNum) -> new Ledger(rs.getInt("capacity_total"), rs.getInt("capacity_reserved")));
+            return rows.isEmpty() ? null : rows.get(0);
+        }
+
+        /**
+         * Возвращает места, не дошедшие до БД (откат или ошибка до транзакции).
+         * Вылет могли удалить (forget) раньше; заново загруженный из БД учёт этих мест не содержит.
+         */
+        private void returnSeats(Long departureId, int persons) {
+            Ledger ledger = ledgers.get(departureId);
+            if (ledger != null) {
+                ledger.release(persons);
+            }
+        }
+
+        private void addDelta(Long departureId, int delta) {
+            pendingDeltas.merge(departureId, delta, Integer::sum);
+        }
+
+        private void flush() {
+            if (pendingDeltas.isEmpty()) {
+                return;
+            }
+            Map<Long, Integer> batch = new TreeMap<>(pendingDeltas);
+            pendingDeltas = new HashMap<>();
+            batch.values().removeIf(delta -> delta == 0);
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            flushExecutor.execute(() -> {
+                try {
+                    SqlParameterSource[] params = batch.entrySet().stream()
+                            .map(e -> new MapSqlParameterSource()
+                                    .addValue("id", e.getKey())
+                                    .addValue("delta", e.getValue()))
+                            .toArray(SqlParameterSource[]::new);
+                    jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, params);
+                    tourSummaryService.departuresChanged(batch.keySet());
+                } catch (RuntimeException ex) {
+                    logger.warn("Seat inventory flush failed, {} departures will be retried", batch.size(), ex);
+                    executor.execute(() -> batch.forEach(this::addDelta));
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ru.kursach.kpo.tour_agency_backend.service.inventory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.kursach.kpo.tour_agency_backend.repository.TourDepartureRepository;
+import ru.kursach.kpo.tour_agency_backend.service.summary.TourSummaryService;
+
+import java.util.List;
+
+import static ru.kursach.kpo.tour_agency_backend.service.transaction.TransactionHooks.afterCommit;
+import static ru.kursach.kpo.tour_agency_backend.service.transaction.TransactionHooks.afterCompletion;
+
+/**
+ * Резервирование мест на вылетах туров.
+ * Места занимаются и освобождаются только условными UPDATE в БД,
+ * без read-modify-write над TourDepartureEntity.capacityReserved.
+ * Если включён {@link SeatInventoryEngine}, решение принимает он, а БД обновляется пачками.
+ */
+@Service
+@RequiredArgsConstructor
+public class SeatReservationService {
+
+    private final TourDepartureRepository tourDepartureRepository;
+    private final ObjectProvider<SeatInventoryEngine> inventoryEngine;
+    private final BookingAdmissionGate admissionGate;
+    private final TourSummaryService tourSummaryService;
+
+    /**
+     * Пытается занять persons мест на вылете.
+     *
+     * @return true — места заняты, false — мест не хватило
+     */
+    @Transactional
+    public boolean tryReserve(Long departureId, int persons) {
+        if (persons <= 0) {
+            return true;
+        }
+        SeatInventoryEngine engine = inventoryEngine.getIfAvailable();
+        if (engine != null) {
+            return engine.tryReserve(departureId, persons);
+        }
+
+        Integer freeSeats = tourDepartureRepository.tryReserveSeats(departureId, persons);
+        if (freeSeats != null) {
+            tourSummaryService.departuresChanged(List.of(departureId));
+            if (freeSeats <= 0) {
+                // последние места заняты только если бронь закоммитится
+                afterCommit(() -> admissionGate.markSoldOut(departureId));
+            }
+            return true;
+        }
+
+        // не хватило мест: если их нет совсем — следующие запросы отсекаются ещё до транзакции.
+        // Отметка ставится после завершения транзакции (при отказе она обычно откатывается),
+        // когда прочитанный остаток уже виден остальным.
+        Integer left = tourDepartureRepository.findFreeSeats(departureId);
+        if (left == null || left <= 0) {
+            Runnable markSoldOut = () -> admissionGate.markSoldOut(departureId);
+            afterCompletion(markSoldOut, markSoldOut);
+        }
+        return false;
+    }
+
+    /**
+     * С {@link SeatInventoryEngine} занимает места до транзакции брони, чтобы ожидание решения шарда
+     * не держало соединение из пула; внутри транзакции удержание передаётся ей через attachToTransaction.
+     *
+     * @return null — движок выключен, места занимаются в транзакции через {@link #tryReserve}
+     */
+    public SeatInventoryEngine.Hold holdBeforeTransaction(Long departureId, int persons) {
+        SeatInventoryEngine engine = inventoryEngine.getIfAvailable();
+        if (engine == null || departureId == null || persons <= 0) {
+            return null;
+        }
+        return engine.hold(departureId, persons);
+    }
+
+    /**
+     * Возвращает persons мест на вылет.
+     */
+    @Transactional
+    public void release(Long departureId, int persons) {
+        if (persons <= 0) {
+            return;
+        }
+        afterCommit(() -> admissionGate.clearSoldOut(departureId));
+        SeatInventoryEngine engine = inventoryEngine.getIfAvailable();
+        if (engine != null) {
+            engine.release(departureId, persons);
+            return;
+        }
+        tourDepartureRepository.releaseSeats(departureId, persons);
+        tourSummaryService.departuresChanged(List.of(departureId));
+    }
+
+    /**
+     * Мест на вылете нет (по уже прочитанным данным) — следующие брони отсекаются без транзакции.
+     */
+    public void soldOut(Long departureId) {
+        admissionGate.markSoldOut(departureId);
+    }
+
+    /**
+     * Вылет отредактирован (могла измениться вместимость).
+     */
+    public void departureUpdated(Long departureId) {
+        afterCommit(() -> admissionGate.clearSoldOut(departureId));
+        inventoryEngine.ifAvailable(engine -> engine.refreshCapacity(departureId));
+    }
+
+    /**
+     * Вылет удалён.
+     */
+    public void departureDeleted(Long departureId) {
+        inventoryEngine.ifAvailable(engine -> engine.forget(departureId));
+    }
+}
@@ -0,0 +1,551 @@
+package ru.kursach.kpo.tour_agency_backend.service.itinerary;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import ru.kursach.kpo.tour_agency_backend.dto.itinerary.ItineraryDto;
+import ru.kursach.kpo.tour_agency_backend.dto.itinerary.ItineraryLegDto;
+import ru.kursach.kpo.tour_agency_backend.model.entity.AirportEntity;
+import ru.kursach.kpo.tour_agency_backend.model.entity.FlightEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.FlightStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.ItinerarySort;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import static ru.kursach.kpo.tour_agency_backend.service.transaction.TransactionHooks.afterCommit;
+
+/**
+ * Поиск маршрутов с пересадками между городами по графу рейсов в памяти.
+ * <p>
+ * Граф — исходящие рейсы каждого аэропорта в примитивных массивах, упорядоченных по времени вылета
+ * (время — минуты эпохи). Продолжения маршрута из аэропорта — непрерывный диапазон этих массивов,
+ * найденный бинарным поиском. Поиск — best-first по стоимости (сумма цен или длительность):
+ * обе стоимости не убывают с каждым рейсом, поэтому маршруты выходят из очереди уже упорядоченными.
+ * <p>
+ * Снимок графа неизменяемый и публикуется целиком: запросы идут без блокировок, изменения
+ * после коммита в FlightService/AirportService копируют только массивы затронутого аэропорта.
+ */
+@Service
+@RequiredArgsConstructor
+public class ItineraryEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ItineraryEngine.class);
+
+    public static final int MAX_LEGS = 4;
+    public static final int MAX_LIMIT = 50;
+    public static final int MAX_CONNECTION_MINUTES = 24 * 60;
+    public static final Duration MAX_DEPARTURE_WINDOW = Duration.ofDays(7);
+
+    /** самая долгая допустимая пересадка */
+    private static final int MAX_LAYOVER_MINUTES = 24 * 60;
+
+    /** предел раскрытых меток на запрос — страховка латентности на плотных узлах */
+    private static final int MAX_EXPANSIONS = 200_000;
+
+    /** рейсы в этих статусах ещё можно включить в маршрут */
+    private static final Set<FlightStatus> ROUTABLE = EnumSet.of(FlightStatus.SCHEDULED, FlightStatus.DELAYED);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Graph graph = Graph.empty();
+
+    /** аэропорт вылета каждого рейса в графе — чтобы убрать рейс при изменении; только под this */
+    private final Map<Long, Integer> flightOrigins = new HashMap<>();
+
+    /**
+     * Исходящие рейсы одного аэропорта, по (вылет, id). После публикации не меняются.
+     */
+    private static final class Departures {
+
+        static final Departures EMPTY = new Departures(0);
+
+        final long[] flightIds;
+        final String[] flightNumbers;
+        final int[] departs;
+        final int[] arrives;
+        final int[] targets;
+        final long[] prices;
+
+        Departures(int size) {
+            flightIds = new long[size];
+            flightNumbers = new String[size];
+            departs = new int[size];
+            arrives = new int[size];
+            targets = new int[size];
+            prices = new long[size];
+        }
+
+        int size() {
+            return flightIds.length;
+        }
+
+        /** первый рейс с вылетом не раньше minute */
+        int lowerBound(int minute) {
+            int lo = 0;
+            int hi = departs.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (departs[mid] < minute) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        Departures with(FlightRow row, int target) {
+            int at = lowerBound(row.departs());
+            while (at < size() && departs[at] == row.departs() && flightIds[at] < row.id()) {
+                at++;
+            }
+            Departures copy = new Departures(size() + 1);
+            copyRange(this, 0, copy, 0, at);
+            copyRange(this, at, copy, at + 1, size() - at);
+            copy.set(at, row, target);
+            return copy;
+        }
+
+        Departures without(long flightId) {
+            int at = -1;
+            for (int i = 0; i < size(); i++) {
+                if (flightIds[i] == flightId) {
+                    at = i;
+                    break;
+                }
+            }
+            if (at < 0) {
+                return this;
+            }
+            Departures copy = new Departures(size() - 1);
+            copyRange(this, 0, copy, 0, at);
+            copyRange(this, at + 1, copy, at, size() - at - 1);
+            return copy;
+        }
+
+        void set(int i, FlightRow row, int target) {
+            flightIds[i] = row.id();
+            flightNumbers[i] = row.flightNumber();
+            departs[i] = row.departs();
+            arrives[i] = row.arrives();
+            targets[i] = target;
+            prices[i] = row.priceCents();
+        }
+
+        private static void copyRange(Departures from, int fromPos, Departures to, int toPos, int length) {
+            System.arraycopy(from.flightIds, fromPos, to.flightIds, toPos, length);
+            System.arraycopy(from.flightNumbers, fromPos, to.flightNumbers, toPos, length);
+            System.arraycopy(from.departs, fromPos, to.departs, toPos, length);
+            System.arraycopy(from.arrives, fromPos, to.arrives, toPos, length);
+            System.arraycopy(from.targets, fromPos, to.targets, toPos, length);
+            System.arraycopy(from.prices, fromPos, to.prices, toPos, length);
+        }
+    }
+
+    /**
+     * Снимок графа: аэропорты пронумерованы подряд, outgoing[i] — рейсы из аэропорта i.
+     */
+    private record Graph(
+            Map<Long, Integer> airportIndex,
+            long[] airportIds,
+            long[] airportCities,
+            Map<Long, int[]> airportsByCity,
+            Departures[] outgoing
+    ) {
+        static Graph empty() {
+            return new Graph(Map.of(), new long[0], new long[0], Map.of(), new Departures[0]);
+        }
+
+        int[] airportsOf(Long cityId) {
+            int[] airports = airportsByCity.get(cityId);
+            return airports != null ? airports : new int[0];
+        }
+    }
+
+    /** Рейс в виде, нужном графу; снимается с сущности в транзакции изменения. */
+    private record FlightRow(
+            long id,
+            String flightNumber,
+            long departureAirportId,
+            long departureCityId,
+            long arrivalAirportId,
+            long arrivalCityId,
+            int departs,
+            int arrives,
+            long priceCents,
+            boolean routable
+    ) {}
+
+    /** Частичный маршрут: последний рейс — block[pos] из аэропорта from. */
+    private record Label(
+            Departures block,
+            int pos,
+            int from,
+            Label parent,
+            int legs,
+            int firstDepart,
+            long priceCents,
+            long cost
+    ) {
+        int airport() {
+            return block.targets[pos];
+        }
+
+        int arrive() {
+            return block.arrives[pos];
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        Map<Long, Long> airports = new HashMap<>();
+        jdbcTemplate.query("SELECT id, city_id FROM airports",
+                rs -> { airports.put(rs.getLong("id"), rs.getLong("city_id")); });
+
+        List<FlightRow> rows = new ArrayList<>();
+        jdbcTemplate.query("""
+                SELECT f.id, f.flight_number, f.departure_airport_id, da.city_id AS departure_city_id,
+                       f.arrival_airport_id, aa.city_id AS arrival_city_id, f.depart_at, f.arrive_at, f.base_price
+                FROM flights f
+                JOIN airports da ON da.id = f.departure_airport_id
+                JOIN airports aa ON aa.id = f.arrival_airport_id
+                WHERE f.status IN ('SCHEDULED', 'DELAYED')
+                """, rs -> {
+            rows.add(new FlightRow(
+                    rs.getLong("id"),
+                    rs.getString("flight_number"),
+                    rs.getLong("departure_airport_id"),
+                    rs.getLong("departure_city_id"),
+                    rs.getLong("arrival_airport_id"),
+                    rs.getLong("arrival_city_id"),
+                    toMinute(rs.getObject("depart_at", LocalDateTime.class)),
+                    toMinute(rs.getObject("arrive_at", LocalDateTime.class)),
+                    toCents(rs.getBigDecimal("base_price")),
+                    true
+            ));
+        });
+
+        Map<Long, Integer> airportIndex = new HashMap<>();
+        long[] airportIds = new long[airports.size()];
+        long[] airportCities = new long[airports.size()];
+        airports.forEach((id, cityId) -> {
+            int index = airportIndex.size();
+            airportIndex.put(id, index);
+            airportIds[index] = id;
+            airportCities[index] = cityId;
+        });
+
+        rows.sort(Comparator.comparingInt(FlightRow::departs).thenComparingLong(FlightRow::id));
+        int[] counts = new int[airportIds.length];
+        for (FlightRow row : rows) {
+            counts[airportIndex.get(row.departureAirportId())]++;
+        }
+        Departures[] outgoing = new Departures[airportIds.length];
+        for (int i = 0; i < outgoing.length; i++) {
+            outgoing[i] = counts[i] == 0 ? Departures.EMPTY : new Departures(counts[i]);
+        }
+        int[] filled = new int[airportIds.length];
+        flightOrigins.clear();
+        for (FlightRow row : rows) {
+            int origin = airportIndex.get(row.departureAirportId());
+            outgoing[origin].set(filled[origin]++, row, airportIndex.get(row.arrivalAirportId()));
+            flightOrigins.put(row.id(), origin);
+        }
+
+        graph = new Graph(Map.copyOf(airportIndex), airportIds, airportCities,
+                groupByCity(airportCities), outgoing);
+        logger.info("Itinerary graph built: {} airports, {} flights", airportIds.length, rows.size());
+    }
+
+    /**
+     * Маршруты из города в город с вылетом первого рейса в окне [departFrom, departTo].
+     *
+     * @param maxLegs              сколько рейсов максимум (1 — только прямые)
+     * @param minConnectionMinutes минимальное время на пересадку
+     */
+    public List<ItineraryDto> search(
+            Long fromCityId,
+            Long toCityId,
+            LocalDateTime departFrom,
+            LocalDateTime departTo,
+            int maxLegs,
+            int minConnectionMinutes,
+            ItinerarySort sort,
+            int limit
+    ) {
+        validate(fromCityId, toCityId, departFrom, departTo, maxLegs, minConnectionMinutes, limit);
+        boolean byPrice = sort != ItinerarySort.DURATION;
+
+        Graph g = graph;
+        PriorityQueue<Label> queue = new PriorityQueue<>(
+                Comparator.comparingLong(Label::cost).thenComparingInt(Label::arrive));
+
+        int windowStart = toMinute(departFrom);
+        int windowEnd = toMinute(departTo);
+        for (int origin : g.airportsOf(fromCityId)) {
+            Departures block = g.outgoing()[origin];
+            for (int i = block.lowerBound(windowStart); i < block.size() && block.departs[i] <= windowEnd; i++) {
+                if (g.airportCities()[block.targets[i]] == fromCityId) {
+                    continue;
+                }
+                long cost = byPrice ? block.prices[i] : block.arrives[i] - block.departs[i];
+                queue.add(new Label(block, i, origin, null, 1, block.departs[i], block.prices[i], cost));
+            }
+        }
+
+        List<ItineraryDto> results = new ArrayList<>();
+        // раскрытые метки по аэропортам: (прилёт, число рейсов) для отсечения
+        Map<Integer, List<Label>> expanded = new HashMap<>();
+        int expansions = 0;
+
+        while (!queue.isEmpty() && results.size() < limit && expansions < MAX_EXPANSIONS) {
+            Label label = queue.poll();
+            int airport = label.airport();
+
+            if (g.airportCities()[airport] == toCityId) {
+                results.add(toDto(g, label));
+                continue;
+            }
+            if (label.legs() >= maxLegs || dominated(expanded.get(airport), label, limit, byPrice)) {
+                continue;
+            }
+            expanded.computeIfAbsent(airport, a -> new ArrayList<>()).add(label);
+            expansions++;
+
+            Departures block = g.outgoing()[airport];
+            int earliest = label.arrive() + minConnectionMinutes;
+            int latest = label.arrive() + MAX_LAYOVER_MINUTES;
+            for (int i = block.lowerBound(earliest); i < block.size() && block.departs[i] <= latest; i++) {
+                int target = block.targets[i];
+                if (visitsCity(g, label, g.airportCities()[target])) {
+                    continue;
+                }
+                long price = label.priceCents() + block.prices[i];
+                long cost = byPrice ? price : block.arrives[i] - label.firstDepart();
+                queue.add(new Label(block, i, airport, label, label.legs() + 1, label.firstDepart(), price, cost));
+            }
+        }
+        return results;
+    }
+
+    // ---------- обновления из сервисов (применяются после коммита) ----------
+
+    public void flightChanged(FlightEntity flight) {
+        FlightRow row = toRow(flight);
+        afterCommit(() -> applyFlight(row));
+    }
+
+    public void flightDeleted(Long id) {
+        afterCommit(() -> removeFlight(id));
+    }
+
+    public void airportChanged(AirportEntity airport) {
+        long id = airport.getId();
+        long cityId = airport.getCity().getId();
+        afterCommit(() -> applyAirport(id, cityId));
+    }
+
+    // ---------- helpers ----------
+
+    private synchronized void applyFlight(FlightRow row) {
+        removeFlight(row.id());
+        if (!row.routable()) {
+            return;
+        }
+        applyAirport(row.departureAirportId(), row.departureCityId());
+        applyAirport(row.arrivalAirportId(), row.arrivalCityId());
+
+        Graph g = graph;
+        int origin = g.airportIndex().get(row.departureAirportId());
+        int target = g.airportIndex().get(row.arrivalAirportId());
+        Departures[] outgoing = g.outgoing().clone();
+        outgoing[origin] = outgoing[origin].with(row, target);
+        graph = new Graph(g.airportIndex(), g.airportIds(), g.airportCities(), g.airportsByCity(), outgoing);
+        flightOrigins.put(row.id(), origin);
+    }
+
+    private synchronized void removeFlight(Long id) {
+        Integer origin = flightOrigins.remove(id);
+        if (origin == null) {
+            return;
+        }
+        Graph g = graph;
+        Departures[] outgoing = g.outgoing().clone();
+        outgoing[origin] = outgoing[origin].without(id);
+        graph = new Graph(g.airportIndex(), g.airportIds(), g.airportCities(), g.airportsByCity(), outgoing);
+    }
+
+    /** добавляет аэропорт или переносит его в другой город */
+    private synchronized void applyAirport(long id, long cityId) {
+        Graph g = graph;
+        Integer index = g.airportIndex().get(id);
+        if (index != null && g.airportCities()[index] == cityId) {
+            return;
+        }
+        Map<Long, Integer> airportIndex = g.airportIndex();
+        long[] airportIds = g.airportIds();
+        long[] airportCities;
+        Departures[] outgoing = g.outgoing();
+        if (index == null) {
+            Map<Long, Integer> grown = new HashMap<>(airportIndex);
+            index = airportIds.length;
+            grown.put(id, index);
+            airportIndex = Map.copyOf(grown);
+            airportIds = Arrays.copyOf(airportIds, index + 1);
+            airportIds[index] = id;
+            airportCities = Arrays.copyOf(g.airportCities(), index + 1);
+            outgoing = Arrays.copyOf(outgoing, index + 1);
+            outgoing[index] = Departures.EMPTY;
+        } else {
+            airportCities = g.airportCities().clone();
+        }
+        airportCities[index] = cityId;
+        graph = new Graph(airportIndex, airportIds, airportCities, groupByCity(airportCities), outgoing);
+    }
+
+    private static Map<Long, int[]> groupByCity(long[] airportCities) {
+        Map<Long, List<Integer>> grouped = new HashMap<>();
+        for (int i = 0; i < airportCities.length; i++) {
+            grouped.computeIfAbsent(airportCities[i], c -> new ArrayList<>()).add(i);
+        }
+        Map<Long, int[]> result = new HashMap<>();
+        grouped.forEach((cityId, airports) ->
+                result.put(cityId, airports.stream().mapToInt(Integer::intValue).toArray()));
+        return Map.copyOf(result);
+    }
+
+    /**
+     * Метка отсекается, если в аэропорту уже раскрыто limit меток не дороже (они раньше в очереди),
+     * прилетевших не позже и с не большим числом рейсов: любое её продолжение доступно и им.
+     * По длительности этого мало — итог считается от вылета первого рейса, поэтому доминирующая
+     * метка должна ещё и вылететь не раньше: иначе её продолжение может оказаться длиннее.
+     */
+    private static boolean dominated(List<Label> labels, Label label, int limit, boolean byPrice) {
+        if (labels == null || labels.size() < limit) {
+            return false;
+        }
+        int dominating = 0;
+        for (Label other : labels) {
+            boolean covers = other.arrive() <= label.arrive() && other.legs() <= label.legs()
+                    && (byPrice || other.firstDepart() >= label.firstDepart());
+            if (covers && ++dominating >= limit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** маршрут уже был в этом городе (пересадка внутри города или петля) */
+    private static boolean visitsCity(Graph g, Label label, long cityId) {
+        if (g.airportCities()[label.airport()] == cityId) {
+            return true;
+        }
+        for (Label l = label; l != null; l = l.parent()) {
+            if (g.airportCities()[l.from()] == cityId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ItineraryDto toDto(Graph g, Label last) {
+        LinkedList<ItineraryLegDto> legs = new LinkedList<>();
+        for (Label l = last; l != null; l = l.parent()) {
+            Departures block = l.block();
+            int i = l.pos();
+            legs.addFirst(ItineraryLegDto.builder()
+                    .flightId(block.flightIds[i])
+                    .flightNumber(block.flightNumbers[i])
+                    .departureAirportId(g.airportIds()[l.from()])
+                    .arrivalAirportId(g.airportIds()[block.targets[i]])
+                    .departAt(toDateTime(block.departs[i]))
+                    .arriveAt(toDateTime(block.arrives[i]))
+                    .basePrice(BigDecimal.valueOf(block.prices[i], 2))
+                    .build());
+        }
+        return ItineraryDto.builder()
+                .departAt(toDateTime(last.firstDepart()))
+                .arriveAt(toDateTime(last.arrive()))
+                .durationMinutes(last.arrive() - last.firstDepart())
+                .totalPrice(BigDecimal.valueOf(last.priceCents(), 2))
+                .transfers(last.legs() - 1)
+                .legs(List.copyOf(legs))
+                .build();
+    }
+
+    private static FlightRow toRow(FlightEntity flight) {
+        AirportEntity departure = flight.getDepartureAirport();
+        AirportEntity arrival = flight.getArrivalAirport();
+        return new FlightRow(
+                flight.getId(),
+                flight.getFlightNumber(),
+                departure.getId(),
+                departure.getCity().getId(),
+                arrival.getId(),
+                arrival.getCity().getId(),
+                toMinute(flight.getDepartAt()),
+                toMinute(flight.getArriveAt()),
+                toCents(flight.getBasePrice()),
+                ROUTABLE.contains(flight.getStatus())
+        );
+    }
+
+    private static void validate(
+            Long fromCityId,
+            Long toCityId,
+            LocalDateTime departFrom,
+            LocalDateTime departTo,
+            int maxLegs,
+            int minConnectionMinutes,
+            int limit
+    ) {
+        if (fromCityId == null || toCityId == null || departFrom == null || departTo == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "fromCityId, toCityId, departFrom и departTo обязательны");
+        }
+        if (fromCityId.equals(toCityId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Города вылета и прибытия совпадают");
+        }
+        if (departFrom.isAfter(departTo)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "departFrom не может быть позже departTo");
+        }
+        if (Duration.between(departFrom, departTo).compareTo(MAX_DEPARTURE_WINDOW) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Окно вылета не может быть больше " + MAX_DEPARTURE_WINDOW.toDays() + " дней");
+        }
+        if (maxLegs < 1 || maxLegs > MAX_LEGS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Параметр maxLegs должен быть от 1 до " + MAX_LEGS);
+        }
+        if (minConnectionMinutes < 0 || minConnectionMinutes > MAX_CONNECTION_MINUTES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Параметр minConnectionMinutes должен быть от 0 до " + MAX_CONNECTION_MINUTES);
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Параметр limit должен быть от 1 до " + MAX_LIMIT);
+        }
+    }
+
+    private static int toMinute(LocalDateTime time) {
+        return (int) (time.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    private static LocalDateTime toDateTime(int minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60L, 0, ZoneOffset.UTC);
+    }
+
+    private static long toCents(BigDecimal price) {
+        return price.movePointRight(2).longValue();
+    }
+}
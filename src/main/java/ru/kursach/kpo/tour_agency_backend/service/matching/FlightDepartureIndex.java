@@ -0,0 +1,343 @@
+package ru.kursach.kpo.tour_agency_backend.service.matching;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import ru.kursach.kpo.tour_agency_backend.model.entity.AirportEntity;
+import ru.kursach.kpo.tour_agency_backend.model.entity.FlightEntity;
+import ru.kursach.kpo.tour_agency_backend.model.entity.TourDepartureEntity;
+import ru.kursach.kpo.tour_agency_backend.model.entity.TourEntity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static ru.kursach.kpo.tour_agency_backend.service.transaction.TransactionHooks.afterCommit;
+
+/**
+ * Сопоставление рейсов и вылетов туров в памяти.
+ * <p>
+ * Рейс подходит вылету, если базовый город тура — город вылета или прилёта рейса
+ * и даты рейса пересекаются с датами вылета. Для каждого города держится интервальное дерево
+ * рейсов, так что подбор рейсов для вылета не ходит в БД и не раскрывает ленивые связи
+ * (вылет -> тур -> город, рейс -> аэропорт -> город).
+ * Индекс используется только для подсказок: проверки при привязке рейсов и вылетов
+ * идут по данным из БД, чтобы не зависеть от ещё не применённых обновлений.
+ * Загружается целиком при старте, дальше обновляется точечно после коммита изменений
+ * в FlightService/TourDepartureService/TourService/AirportService.
+ */
+@Service
+@RequiredArgsConstructor
+public class FlightDepartureIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightDepartureIndex.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Long> airportCities = new ConcurrentHashMap<>();
+    private final Map<Long, Long> tourCities = new ConcurrentHashMap<>();
+    private final Map<Long, FlightWindow> flights = new ConcurrentHashMap<>();
+    private final Map<Long, DepartureWindow> departures = new ConcurrentHashMap<>();
+
+    private final Map<Long, IntervalTree<FlightWindow>> flightsByCity = new HashMap<>();
+
+    /** Рейс: аэропорты, их города и время в пути. */
+    public record FlightWindow(
+            Long id,
+            String flightNumber,
+            Long departureAirportId,
+            Long arrivalAirportId,
+            Long departureCityId,
+            Long arrivalCityId,
+            LocalDateTime departAt,
+            LocalDateTime arriveAt
+    ) {
+        long firstDay() {
+            return departAt.toLocalDate().toEpochDay();
+        }
+
+        long lastDay() {
+            return arriveAt.toLocalDate().toEpochDay();
+        }
+    }
+
+    /** Вылет тура: базовый город тура и даты. */
+    public record DepartureWindow(
+            Long id,
+            Long tourId,
+            Long baseCityId,
+            LocalDate startDate,
+            LocalDate endDate
+    ) {
+        long firstDay() {
+            return startDate.toEpochDay();
+        }
+
+        long lastDay() {
+            return endDate.toEpochDay();
+        }
+    }
+
+    public enum Mismatch {
+        /** базовый город тура не совпадает ни с одним из городов рейса */
+        CITY,
+        /** даты рейса не пересекаются с датами вылета */
+        DATES
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            airportCities.clear();
+            tourCities.clear();
+            flights.clear();
+            departures.clear();
+            flightsByCity.clear();
+
+            jdbcTemplate.query("SELECT id, city_id FROM airports",
+                    rs -> { airportCities.put(rs.getLong("id"), rs.getLong("city_id")); });
+            jdbcTemplate.query("SELECT id, base_city_id FROM tours",
+                    rs -> { tourCities.put(rs.getLong("id"), rs.getLong("base_city_id")); });
+
+            jdbcTemplate.query("""
+                    SELECT id, flight_number, departure_airport_id, arrival_airport_id, depart_at, arrive_at
+                    FROM flights
+                    """, rs -> {
+                Long departureAirportId = rs.getLong("departure_airport_id");
+                Long arrivalAirportId = rs.getLong("arrival_airport_id");
+                putFlight(new FlightWindow(
+                        rs.getLong("id"),
+                        rs.getString("flight_number"),
+                        departureAirportId,
+                        arrivalAirportId,
+                        airportCities.get(departureAirportId),
+                        airportCities.get(arrivalAirportId),
+                        rs.getObject("depart_at", LocalDateTime.class),
+                        rs.getObject("arrive_at", LocalDateTime.class)
+                ));
+            });
+            jdbcTemplate.query("SELECT id, tour_id, start_date, end_date FROM tour_departures", rs -> {
+                Long tourId = rs.getLong("tour_id");
+                putDeparture(new DepartureWindow(
+                        rs.getLong("id"),
+                        tourId,
+                        tourCities.get(tourId),
+                        rs.getObject("start_date", LocalDate.class),
+                        rs.getObject("end_date", LocalDate.class)
+                ));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Flight/departure index built: {} flights, {} departures", flights.size(), departures.size());
+    }
+
+    // ---------- проверки и подбор ----------
+
+    /**
+     * @return null — рейс подходит вылету
+     */
+    public static Mismatch mismatch(FlightWindow flight, DepartureWindow departure) {
+        Long cityId = departure.baseCityId();
+        if (!cityId.equals(flight.departureCityId()) && !cityId.equals(flight.arrivalCityId())) {
+            return Mismatch.CITY;
+        }
+        if (flight.lastDay() < departure.firstDay() || flight.firstDay() > departure.lastDay()) {
+            return Mismatch.DATES;
+        }
+        return null;
+    }
+
+    /**
+     * Окно рейса по текущему (возможно ещё не сохранённому) состоянию сущности.
+     * Города аэропортов берутся из индекса, связи сущности не раскрываются.
+     */
+    public FlightWindow flightWindow(FlightEntity flight) {
+        return new FlightWindow(
+                flight.getId(),
+                flight.getFlightNumber(),
+                flight.getDepartureAirport().getId(),
+                flight.getArrivalAirport().getId(),
+                cityOf(flight.getDepartureAirport()),
+                cityOf(flight.getArrivalAirport()),
+                flight.getDepartAt(),
+                flight.getArriveAt()
+        );
+    }
+
+    /**
+     * Окно вылета по текущему (возможно ещё не сохранённому) состоянию сущности.
+     */
+    public DepartureWindow departureWindow(TourDepartureEntity departure) {
+        TourEntity tour = departure.getTour();
+        return new DepartureWindow(
+                departure.getId(),
+                tour.getId(),
+                cityOf(tour),
+                departure.getStartDate(),
+                departure.getEndDate()
+        );
+    }
+
+    /** Сохранённое окно вылета; null — вылета нет в индексе. */
+    public DepartureWindow departure(Long id) {
+        return departures.get(id);
+    }
+
+    /** Сохранённое окно рейса; null — рейса нет в индексе. */
+    public FlightWindow flight(Long id) {
+        return flights.get(id);
+    }
+
+    /**
+     * Рейсы, подходящие вылету. Упорядочены по дню вылета, внутри дня — по id
+     * (ключ дерева — день, а не точное время).
+     */
+    public List<FlightWindow> compatibleFlights(DepartureWindow departure, int limit) {
+        List<FlightWindow> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            IntervalTree<FlightWindow> tree = flightsByCity.get(departure.baseCityId());
+            if (tree != null) {
+                tree.collect(departure.firstDay(), departure.lastDay(), limit, found);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    // ---------- обновления из сервисов (применяются после коммита) ----------
+
+    public void flightChanged(FlightEntity flight) {
+        FlightWindow window = flightWindow(flight);
+        afterCommit(() -> write(() -> putFlight(window)));
+    }
+
+    public void flightDeleted(Long id) {
+        afterCommit(() -> write(() -> removeFlight(id)));
+    }
+
+    public void departureChanged(TourDepartureEntity departure) {
+        DepartureWindow window = departureWindow(departure);
+        afterCommit(() -> write(() -> putDeparture(window)));
+    }
+
+    public void departureDeleted(Long id) {
+        afterCommit(() -> write(() -> removeDeparture(id)));
+    }
+
+    public void tourChanged(TourEntity tour) {
+        Long id = tour.getId();
+        Long cityId = tour.getBaseCity().getId();
+        afterCommit(() -> write(() -> {
+            tourCities.put(id, cityId);
+            // вылеты тура переезжают в дерево нового города
+            for (DepartureWindow d : List.copyOf(departures.values())) {
+                if (id.equals(d.tourId()) && !cityId.equals(d.baseCityId())) {
+                    putDeparture(new DepartureWindow(d.id(), id, cityId, d.startDate(), d.endDate()));
+                }
+            }
+        }));
+    }
+
+    public void tourDeleted(Long id) {
+        afterCommit(() -> tourCities.remove(id));
+    }
+
+    public void airportChanged(AirportEntity airport) {
+        Long id = airport.getId();
+        Long cityId = airport.getCity().getId();
+        afterCommit(() -> write(() -> {
+            airportCities.put(id, cityId);
+            for (FlightWindow f : List.copyOf(flights.values())) {
+                if (id.equals(f.departureAirportId()) || id.equals(f.arrivalAirportId())) {
+                    putFlight(new FlightWindow(
+                            f.id(), f.flightNumber(), f.departureAirportId(), f.arrivalAirportId(),
+                            id.equals(f.departureAirportId()) ? cityId : f.departureCityId(),
+                            id.equals(f.arrivalAirportId()) ? cityId : f.arrivalCityId(),
+                            f.departAt(), f.arriveAt()
+                    ));
+                }
+            }
+        }));
+    }
+
+    public void airportDeleted(Long id) {
+        afterCommit(() -> airportCities.remove(id));
+    }
+
+    // ---------- helpers ----------
+
+    private Long cityOf(AirportEntity airport) {
+        Long cityId = airportCities.get(airport.getId());
+        return cityId != null ? cityId : airport.getCity().getId();
+    }
+
+    private Long cityOf(TourEntity tour) {
+        Long cityId = tour.getId() != null ? tourCities.get(tour.getId()) : null;
+        return cityId != null ? cityId : tour.getBaseCity().getId();
+    }
+
+    private static Set<Long> citiesOf(FlightWindow flight) {
+        Set<Long> cities = new LinkedHashSet<>(2);
+        if (flight.departureCityId() != null) {
+            cities.add(flight.departureCityId());
+        }
+        if (flight.arrivalCityId() != null) {
+            cities.add(flight.arrivalCityId());
+        }
+        return cities;
+    }
+
+    /** вызывается под write-локом */
+    private void putFlight(FlightWindow window) {
+        removeFlight(window.id());
+        flights.put(window.id(), window);
+        for (Long cityId : citiesOf(window)) {
+            flightsByCity.computeIfAbsent(cityId, c -> new IntervalTree<>())
+                    .insert(window.id(), window.firstDay(), window.lastDay(), window);
+        }
+    }
+
+    private void removeFlight(Long id) {
+        FlightWindow old = flights.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (Long cityId : citiesOf(old)) {
+            IntervalTree<FlightWindow> tree = flightsByCity.get(cityId);
+            if (tree != null) {
+                tree.remove(old.id(), old.firstDay());
+            }
+        }
+    }
+
+    private void putDeparture(DepartureWindow window) {
+        removeDeparture(window.id());
+        departures.put(window.id(), window);
+    }
+
+    private void removeDeparture(Long id) {
+        departures.remove(id);
+    }
+
+    private void write(Runnable update) {
+        lock.writeLock().lock();
+        try {
+            update.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ru.kursach.kpo.tour_agency_backend.service.matching;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Интервальное дерево над замкнутыми интервалами [start, end].
+ * <p>
+ * Декартово дерево по ключу (start, id) со случайными приоритетами; в каждом узле хранится
+ * максимальный end поддерева, поэтому поиск пересечений пропускает поддеревья, которые
+ * заканчиваются раньше запрошенного окна: O(log n + k) в среднем.
+ * Не потокобезопасно — синхронизация на стороне {@link FlightDepartureIndex}.
+ */
+final class IntervalTree<T> {
+
+    private static final class Node<T> {
+        final long start;
+        final long end;
+        final long id;
+        final int priority;
+        final T value;
+        long maxEnd;
+        Node<T> left;
+        Node<T> right;
+
+        Node(long start, long end, long id, T value) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.value = value;
+            this.priority = ThreadLocalRandom.current().nextInt();
+            this.maxEnd = end;
+        }
+    }
+
+    private record Split<T>(Node<T> left, Node<T> right) {}
+
+    private Node<T> root;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    void insert(long id, long start, long end, T value) {
+        root = insert(root, new Node<>(start, end, id, value));
+        size++;
+    }
+
+    /**
+     * @param start начало, с которым интервал был вставлен (часть ключа)
+     */
+    void remove(long id, long start) {
+        root = remove(root, start, id);
+    }
+
+    /**
+     * Интервалы, пересекающиеся с [from, to], в порядке (start, id); не больше limit штук.
+     */
+    void collect(long from, long to, int limit, List<T> out) {
+        if (limit > 0) {
+            collect(root, from, to, limit, out);
+        }
+    }
+
+    // ---------- helpers ----------
+
+    /**
+     * @return false — дальше по порядку обхода искать нечего (лимит набран или start > to)
+     */
+    private boolean collect(Node<T> node, long from, long to, int limit, List<T> out) {
+        if (node == null || node.maxEnd < from) {
+            return true;
+        }
+        if (!collect(node.left, from, to, limit, out)) {
+            return false;
+        }
+        if (node.start > to) {
+            // у всех следующих по порядку start ещё больше
+            return false;
+        }
+        if (node.end >= from) {
+            out.add(node.value);
+            if (out.size() >= limit) {
+                return false;
+            }
+        }
+        return collect(node.right, from, to, limit, out);
+    }
+
+    private Node<T> insert(Node<T> node, Node<T> added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.priority > node.priority) {
+            Split<T> parts = split(node, added.start, added.id);
+            added.left = parts.left();
+            added.right = parts.right();
+            update(added);
+            return added;
+        }
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<T> remove(Node<T> node, long start, long id) {
+        if (node == null) {
+            return null;
+        }
+        int c = compare(start, id, node);
+        if (c == 0) {
+            size--;
+            return merge(node.left, node.right);
+        }
+        if (c < 0) {
+            node.left = remove(node.left, start, id);
+        } else {
+            node.right = remove(node.right, start, id);
+        }
+        update(node);
+        return node;
+    }
+
+    /** левая часть — ключи меньше (start, id), правая — остальные */
+    private Split<T> split(Node<T> node, long start, long id) {
+        if (node == null) {
+            return new Split<>(null, null);
+        }
+        if (compare(start, id, node) > 0) {
+            Split<T> parts = split(node.right, start, id);
+            node.right = parts.left();
+            update(node);
+            return new Split<>(node, parts.right());
+        }
+        Split<T> parts = split(node.left, start, id);
+        node.left = parts.right();
+        update(node);
+        return new Split<>(parts.left(), node);
+    }
+
+    /** все ключи left меньше ключей right */
+    private Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node<?> node) {
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static int compare(long start, long id, Node<?> node) {
+        int c = Long.compare(start, node.start);
+        return c != 0 ? c : Long.compare(id, node.id);
+    }
+}
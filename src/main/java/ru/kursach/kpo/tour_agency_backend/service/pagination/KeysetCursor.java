@@ -0,0 +1,90 @@
+package ru.kursach.kpo.tour_agency_backend.service.pagination;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import ru.kursach.kpo.tour_agency_backend.dto.pagination.CursorPageResponseDto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Курсор keyset-пагинации: ключ сортировки последнего элемента страницы и его id.
+ * Клиенту отдаётся непрозрачной строкой (base64url от "ключ|id").
+ * Следующая страница читается условием (ключ, id) > / < (курсор) по индексу,
+ * поэтому её стоимость не зависит от того, насколько далеко листает клиент.
+ */
+public record KeysetCursor(String key, long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((key + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return курсор или null, если cursor пустой (первая страница)
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new KeysetCursor(raw.substring(0, separator), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный курсор страницы");
+        }
+    }
+
+    public LocalDateTime keyAsDateTime() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный курсор страницы");
+        }
+    }
+
+    public LocalDate keyAsDate() {
+        try {
+            return LocalDate.parse(key);
+        } catch (DateTimeParseException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Некорректный курсор страницы");
+        }
+    }
+
+    /**
+     * Собирает страницу из выборки размером size + 1: лишний элемент означает, что есть следующая страница.
+     */
+    public static <E, T> CursorPageResponseDto<T> page(
+            List<E> rows,
+            int size,
+            Function<E, KeysetCursor> cursorOf,
+            Function<E, T> mapper
+    ) {
+        boolean hasNext = rows.size() > size;
+        List<E> content = hasNext ? rows.subList(0, size) : rows;
+
+        return CursorPageResponseDto.<T>builder()
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? cursorOf.apply(content.get(content.size() - 1)).encode() : null)
+                .content(content.stream().map(mapper).toList())
+                .build();
+    }
+
+    public static void validateSize(int size) {
+        if (size <= 0 || size > 100) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Размер страницы должен быть от 1 до 100"
+            );
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ru.kursach.kpo.tour_agency_backend.service.pagination;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
+import ru.kursach.kpo.tour_agency_backend.model.enums.PageCountMode;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Страница списка в выбранном {@link PageCountMode}.
+ * EXACT — Page с COUNT(*), NONE и ESTIMATED — Slice (size + 1 строк, без COUNT).
+ */
+public final class PageResults {
+
+    private PageResults() {
+    }
+
+    /**
+     * @param estimate оценка общего числа строк; null — список отфильтрован и оценка неприменима
+     */
+    public static <E, T> PageResponseDto<T> fetch(
+            PageCountMode mode,
+            Pageable pageable,
+            Function<Pageable, Page<E>> pageQuery,
+            Function<Pageable, Slice<E>> sliceQuery,
+            Supplier<Long> estimate,
+            Function<E, T> mapper
+    ) {
+        if (mode == null || mode == PageCountMode.EXACT) {
+            Page<E> page = pageQuery.apply(pageable);
+            return PageResponseDto.<T>builder()
+                    .page(page.getNumber())
+                    .size(page.getSize())
+                    .totalPages(page.getTotalPages())
+                    .totalElements(page.getTotalElements())
+                    .hasNext(page.hasNext())
+                    .content(page.getContent().stream().map(mapper).toList())
+                    .build();
+        }
+
+        Slice<E> slice = sliceQuery.apply(pageable);
+        Long total = mode == PageCountMode.ESTIMATED && estimate != null ? estimate.get() : null;
+        if (total != null) {
+            // статистика могла устареть: итог не меньше того, что уже точно видно
+            long seen = pageable.getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+            total = Math.max(total, seen);
+        }
+
+        return PageResponseDto.<T>builder()
+                .page(slice.getNumber())
+                .size(slice.getSize())
+                .totalPages(total != null ? (int) ((total + slice.getSize() - 1) / slice.getSize()) : null)
+                .totalElements(total)
+                .totalEstimated(total != null)
+                .hasNext(slice.hasNext())
+                .content(slice.getContent().stream().map(mapper).toList())
+                .build();
+    }
+
+    /**
+     * Та же страница с другим содержимым — когда элементы нельзя отобразить по одному.
+     */
+    public static <T> PageResponseDto<T> withContent(PageResponseDto<?> page, List<T> content) {
+        return PageResponseDto.<T>builder()
+                .page(page.page())
+                .size(page.size())
+                .totalPages(page.totalPages())
+                .totalElements(page.totalElements())
+                .totalEstimated(page.totalEstimated())
+                .hasNext(page.hasNext())
+                .content(content)
+                .build();
+    }
+}
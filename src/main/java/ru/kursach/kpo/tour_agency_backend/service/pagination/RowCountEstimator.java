@@ -0,0 +1,35 @@
+package ru.kursach.kpo.tour_agency_backend.service.pagination;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Оценка числа строк таблицы по статистике планировщика PostgreSQL (pg_class.reltuples).
+ * Стоит одного чтения из каталога вместо COUNT(*) по таблице; точность — на момент последнего ANALYZE.
+ */
+@Component
+@RequiredArgsConstructor
+public class RowCountEstimator {
+
+    private static final String ESTIMATE_SQL = """
+            SELECT reltuples::bigint
+            FROM pg_class
+            WHERE oid = to_regclass(?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return оценка или null, если таблица ещё ни разу не анализировалась
+     */
+    public Long estimate(String table) {
+        List<Long> rows = jdbcTemplate.queryForList(ESTIMATE_SQL, Long.class, table);
+        if (rows.isEmpty() || rows.get(0) == null || rows.get(0) < 0) {
+            return null;
+        }
+        return rows.get(0);
+    }
+}
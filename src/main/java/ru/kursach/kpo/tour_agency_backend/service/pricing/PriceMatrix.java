@@ -0,0 +1,53 @@
+package ru.kursach.kpo.tour_agency_backend.service.pricing;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Цены на человека по всем парам «рейс туда / рейс обратно» одного вылета тура.
+ * Формула та же, что при создании брони: (priceOverride или basePrice тура) + рейс туда + рейс обратно.
+ *
+ * @param perPerson outboundId -> (returnId или {@link #NO_RETURN}) -> цена на человека
+ */
+record PriceMatrix(
+        Long tourDepartureId,
+        Long tourId,
+        BigDecimal basePrice,
+        Map<Long, Map<Long, BigDecimal>> perPerson
+) {
+
+    static final Long NO_RETURN = 0L;
+
+    static PriceMatrix build(Long tourDepartureId, Long tourId, BigDecimal basePrice, Map<Long, BigDecimal> flightPrices) {
+        Map<Long, Map<Long, BigDecimal>> perPerson = new HashMap<>();
+        flightPrices.forEach((outboundId, outboundPrice) -> {
+            Map<Long, BigDecimal> row = new HashMap<>();
+            BigDecimal withOutbound = basePrice.add(outboundPrice);
+            row.put(NO_RETURN, withOutbound);
+            flightPrices.forEach((returnId, returnPrice) -> {
+                if (!returnId.equals(outboundId)) {
+                    row.put(returnId, withOutbound.add(returnPrice));
+                }
+            });
+            perPerson.put(outboundId, Map.copyOf(row));
+        });
+        return new PriceMatrix(tourDepartureId, tourId, basePrice, Map.copyOf(perPerson));
+    }
+
+    Set<Long> flightIds() {
+        return perPerson.keySet();
+    }
+
+    /**
+     * @return цена на человека или null, если такой пары рейсов у вылета нет
+     */
+    BigDecimal pricePerPerson(Long outboundFlightId, Long returnFlightId) {
+        Map<Long, BigDecimal> row = perPerson.get(outboundFlightId);
+        if (row == null) {
+            return null;
+        }
+        return row.get(returnFlightId == null ? NO_RETURN : returnFlightId);
+    }
+}
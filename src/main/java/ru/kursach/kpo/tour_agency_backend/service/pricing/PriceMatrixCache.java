@@ -0,0 +1,152 @@
+package ru.kursach.kpo.tour_agency_backend.service.pricing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.PriceQuoteDto;
+import ru.kursach.kpo.tour_agency_backend.service.transaction.TransactionHooks;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Расчёт стоимости без создания брони.
+ * <p>
+ * Для вылета один раз строится {@link PriceMatrix} по всем привязанным рейсам,
+ * дальше котировки отдаются из памяти без обращения к БД и без транзакции.
+ * Матрицы сбрасываются после коммита изменений тура, вылета или рейса.
+ */
+@Service
+@RequiredArgsConstructor
+public class PriceMatrixCache {
+
+    private static final String LOAD_SQL = """
+            SELECT td.id AS departure_id,
+                   t.id AS tour_id,
+                   COALESCE(td.price_override, t.base_price) AS base_price,
+                   f.id AS flight_id,
+                   f.base_price AS flight_price
+            FROM tour_departures td
+            JOIN tours t ON t.id = td.tour_id
+            LEFT JOIN flight_tour_departure ftd ON ftd.tour_departure_id = td.id
+            LEFT JOIN flights f ON f.id = ftd.flight_id
+            WHERE td.id = :id
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final Map<Long, PriceMatrix> matrices = new ConcurrentHashMap<>();
+
+    /**
+     * Растёт при каждом сбросе: матрица, прочитанная до сброса, в кэш уже не попадёт.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public PriceQuoteDto quote(Long departureId, Long outboundFlightId, Long returnFlightId, int persons) {
+        if (persons <= 0) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Количество человек должно быть больше 0"
+            );
+        }
+        if (outboundFlightId.equals(returnFlightId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Нельзя выбрать один и тот же рейс туда и обратно");
+        }
+
+        PriceMatrix matrix = matrix(departureId);
+        if (!matrix.flightIds().contains(outboundFlightId)) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Туда рейс id=" + outboundFlightId + " не относится к вылету тура id=" + departureId
+            );
+        }
+        BigDecimal pricePerPerson = matrix.pricePerPerson(outboundFlightId, returnFlightId);
+        if (pricePerPerson == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Обратно рейс id=" + returnFlightId + " не относится к вылету тура id=" + departureId
+            );
+        }
+
+        return PriceQuoteDto.builder()
+                .tourDepartureId(departureId)
+                .outboundFlightId(outboundFlightId)
+                .returnFlightId(returnFlightId)
+                .personsCount(persons)
+                .pricePerPerson(pricePerPerson)
+                .totalPrice(pricePerPerson.multiply(BigDecimal.valueOf(persons)))
+                .build();
+    }
+
+    /**
+     * Изменились цена или рейсы вылета.
+     */
+    public void departureChanged(Long departureId) {
+        afterCommit(() -> matrices.remove(departureId));
+    }
+
+    /**
+     * Изменилась базовая цена тура — сбрасываются все его вылеты.
+     */
+    public void tourChanged(Long tourId) {
+        afterCommit(() -> matrices.values().removeIf(m -> m.tourId().equals(tourId)));
+    }
+
+    /**
+     * Изменилась цена рейса — сбрасываются вылеты, к которым он привязан.
+     */
+    public void flightChanged(Long flightId) {
+        afterCommit(() -> matrices.values().removeIf(m -> m.flightIds().contains(flightId)));
+    }
+
+    private PriceMatrix matrix(Long departureId) {
+        PriceMatrix cached = matrices.get(departureId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadedAt = generation.get();
+        PriceMatrix loaded = load(departureId);
+        if (generation.get() == loadedAt) {
+            matrices.putIfAbsent(departureId, loaded);
+        }
+        return loaded;
+    }
+
+    private PriceMatrix load(Long departureId) {
+        Map<Long, BigDecimal> flightPrices = new LinkedHashMap<>();
+        Long[] tourId = new Long[1];
+        BigDecimal[] basePrice = new BigDecimal[1];
+
+        jdbcTemplate.query(LOAD_SQL, Map.of("id", departureId), rs -> {
+            tourId[0] = rs.getLong("tour_id");
+            basePrice[0] = rs.getBigDecimal("base_price");
+            long flightId = rs.getLong("flight_id");
+            if (!rs.wasNull()) {
+                flightPrices.put(flightId, rs.getBigDecimal("flight_price"));
+            }
+        });
+
+        if (tourId[0] == null) {
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND,
+                    "Вылет тура с id=" + departureId + " не найден"
+            );
+        }
+        return PriceMatrix.build(departureId, tourId[0], basePrice[0], flightPrices);
+    }
+
+    private void afterCommit(Runnable eviction) {
+        Runnable evict = () -> {
+            generation.incrementAndGet();
+            eviction.run();
+        };
+        TransactionHooks.afterCommit(evict);
+    }
+}
@@ -0,0 +1,184 @@
+package ru.kursach.kpo.tour_agency_backend.service.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
+import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.DepartureSearchItemDto;
+import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.DepartureSearchResponseDto;
+import ru.kursach.kpo.tour_agency_backend.dto.tourdeparture.FacetCountDto;
+import ru.kursach.kpo.tour_agency_backend.model.enums.DepartureSearchSort;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
+import ru.kursach.kpo.tour_agency_backend.service.pagination.KeysetCursor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Поиск вылетов опубликованных туров по городу, окну дат, свободным местам и итоговой цене.
+ * <p>
+ * Свободные места и цена (priceOverride или базовая цена тура) считаются в самом запросе,
+ * по ним же фильтр и сортировка. Весь ответ — два запроса: страница и фасеты,
+ * фасеты по городу и статусу считаются одним проходом через GROUPING SETS.
+ */
+@Service
+@RequiredArgsConstructor
+public class DepartureSearchService {
+
+    private static final String FROM = """
+            FROM tour_departures td
+            JOIN tours t ON t.id = td.tour_id
+            JOIN cities c ON c.id = t.base_city_id
+            WHERE t.status = 'PUBLISHED' AND t.is_active
+            """;
+
+    private static final String CITY_CONDITION = "t.base_city_id = :cityId";
+    private static final String STATUS_CONDITION = "td.status = :status";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Transactional(readOnly = true)
+    public DepartureSearchResponseDto search(
+            Long cityId,
+            TourDepartureStatus status,
+            LocalDate startFrom,
+            LocalDate startTo,
+            Integer minFreeSeats,
+            BigDecimal maxPrice,
+            DepartureSearchSort sort,
+            int page,
+            int size
+    ) {
+        KeysetCursor.validateSize(size);
+        if (page < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Номер страницы не может быть отрицательным");
+        }
+        if (startFrom != null && startTo != null && startFrom.isAfter(startTo)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "startFrom не может быть позже startTo");
+        }
+        if (minFreeSeats != null && minFreeSeats < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minFreeSeats не может быть отрицательным");
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cityId", cityId)
+                .addValue("status", status != null ? status.name() : null)
+                .addValue("limit", size)
+                .addValue("offset", (long) page * size);
+
+        // условия по всем фильтрам, кроме города и статуса: по ним считаются фасеты
+        StringBuilder common = new StringBuilder(FROM);
+        if (startFrom != null) {
+            common.append(" AND td.start_date >= :startFrom");
+            params.addValue("startFrom", startFrom);
+        }
+        if (startTo != null) {
+            common.append(" AND td.start_date <= :startTo");
+            params.addValue("startTo", startTo);
+        }
+        if (minFreeSeats != null) {
+            common.append(" AND td.capacity_total - td.capacity_reserved >= :minFreeSeats");
+            params.addValue("minFreeSeats", minFreeSeats);
+        }
+        if (maxPrice != null) {
+            common.append(" AND COALESCE(td.price_override, t.base_price) <= :maxPrice");
+            params.addValue("maxPrice", maxPrice);
+        }
+
+        String cityCondition = cityId != null ? CITY_CONDITION : "TRUE";
+        String statusCondition = status != null ? STATUS_CONDITION : "TRUE";
+
+        List<DepartureSearchItemDto> content = jdbcTemplate.query("""
+                SELECT td.id, t.id AS tour_id, t.title, c.id AS city_id, c.name AS city_name,
+                       td.start_date, td.end_date, td.status,
+                       td.capacity_total - td.capacity_reserved AS free_seats,
+                       COALESCE(td.price_override, t.base_price) AS price
+                """ + common
+                        + " AND " + cityCondition + " AND " + statusCondition
+                        + " ORDER BY " + orderBy(sort)
+                        + " LIMIT :limit OFFSET :offset",
+                params,
+                (rs, rowNum) -> DepartureSearchItemDto.builder()
+                        .tourDepartureId(rs.getLong("id"))
+                        .tourId(rs.getLong("tour_id"))
+                        .tourTitle(rs.getString("title"))
+                        .baseCityId(rs.getLong("city_id"))
+                        .baseCityName(rs.getString("city_name"))
+                        .startDate(rs.getObject("start_date", LocalDate.class))
+                        .endDate(rs.getObject("end_date", LocalDate.class))
+                        .status(TourDepartureStatus.valueOf(rs.getString("status")))
+                        .freeSeats(rs.getInt("free_seats"))
+                        .price(rs.getBigDecimal("price"))
+                        .build()
+        );
+
+        List<FacetCountDto> cityFacets = new ArrayList<>();
+        List<FacetCountDto> statusFacets = new ArrayList<>();
+        jdbcTemplate.query("""
+                SELECT GROUPING(c.id) AS by_status, c.id AS city_id, c.name AS city_name, td.status,
+                       COUNT(*) FILTER (WHERE %s) AS city_count,
+                       COUNT(*) FILTER (WHERE %s) AS status_count
+                """.formatted(statusCondition, cityCondition) + common
+                        + " GROUP BY GROUPING SETS ((c.id, c.name), (td.status))",
+                params,
+                rs -> {
+                    if (rs.getInt("by_status") == 0) {
+                        long count = rs.getLong("city_count");
+                        if (count > 0) {
+                            cityFacets.add(new FacetCountDto(
+                                    String.valueOf(rs.getLong("city_id")), rs.getString("city_name"), count));
+                        }
+                    } else {
+                        long count = rs.getLong("status_count");
+                        if (count > 0) {
+                            String value = rs.getString("status");
+                            statusFacets.add(new FacetCountDto(value, value, count));
+                        }
+                    }
+                }
+        );
+        cityFacets.sort(Comparator.comparingLong(FacetCountDto::count).reversed()
+                .thenComparing(FacetCountDto::label));
+        statusFacets.sort(Comparator.comparing(f -> TourDepartureStatus.valueOf(f.value())));
+
+        // фасет по статусу уже учитывает все остальные фильтры — из него и общее количество
+        long total = statusFacets.stream()
+                .filter(f -> status == null || f.value().equals(status.name()))
+                .mapToLong(FacetCountDto::count)
+                .sum();
+
+        PageResponseDto<DepartureSearchItemDto> results = PageResponseDto.<DepartureSearchItemDto>builder()
+                .page(page)
+                .size(size)
+                .totalPages((int) ((total + size - 1) / size))
+                .totalElements(total)
+                .hasNext((long) page * size + content.size() < total)
+                .content(content)
+                .build();
+
+        return DepartureSearchResponseDto.builder()
+                .results(results)
+                .cityFacets(cityFacets)
+                .statusFacets(statusFacets)
+                .build();
+    }
+
+    private static String orderBy(DepartureSearchSort sort) {
+        if (sort == null) {
+            sort = DepartureSearchSort.START_DATE;
+        }
+        return switch (sort) {
+            case START_DATE -> "td.start_date, td.id";
+            case PRICE_ASC -> "price, td.start_date, td.id";
+            case PRICE_DESC -> "price DESC, td.start_date, td.id";
+            case FREE_SEATS_DESC -> "free_seats DESC, td.start_date, td.id";
+        };
+    }
+}
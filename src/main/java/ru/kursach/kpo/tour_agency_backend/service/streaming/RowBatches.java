@@ -0,0 +1,28 @@
+package ru.kursach.kpo.tour_agency_backend.service.streaming;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Нарезка потока строк на порции — чтобы догружать связанные данные одним запросом на порцию.
+ */
+public final class RowBatches {
+
+    private RowBatches() {
+    }
+
+    public static <T> void forEach(Stream<T> rows, int batchSize, Consumer<List<T>> action) {
+        List<T> batch = new ArrayList<>(batchSize);
+        Iterator<T> it = rows.iterator();
+        while (it.hasNext()) {
+            batch.add(it.next());
+            if (batch.size() == batchSize || !it.hasNext()) {
+                action.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+}
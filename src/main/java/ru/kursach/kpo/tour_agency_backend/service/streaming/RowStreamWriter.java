@@ -0,0 +1,122 @@
+package ru.kursach.kpo.tour_agency_backend.service.streaming;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Пишет строки списка в ответ по мере чтения из курсора — JSON-массивом или NDJSON (строка на объект).
+ * <p>
+ * В памяти только буфер генератора: запись в поток ответа блокируется, пока клиент не заберёт
+ * данные, и следующая порция строк из БД читается только после этого.
+ * Ошибку после начала записи статусом уже не сообщить — ответ просто обрывается.
+ * <p>
+ * Цена — транзакция и соединение из пула заняты, пока клиент читает ответ. Поэтому одновременных
+ * NDJSON-выгрузок (/export) не больше app.streaming.export.max-concurrent (остальным сразу 503,
+ * без ожидания соединения); обычные списки (JSON-массив) не ограничены — это те же GET-списки, что и раньше.
+ * Ответ дольше app.streaming.max-duration обрывается и отдаёт соединение.
+ * Запись, заблокированная совсем не читающим клиентом, ограничена таймаутом соединения сервера.
+ */
+@Component
+@RequiredArgsConstructor
+public class RowStreamWriter {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.streaming.export.max-concurrent:2}")
+    private int maxConcurrentExports;
+
+    @Value("${app.streaming.max-duration:PT5M}")
+    private Duration maxDuration;
+
+    private Semaphore exportPermits;
+
+    @PostConstruct
+    public void init() {
+        exportPermits = new Semaphore(maxConcurrentExports);
+    }
+
+    /**
+     * Источник строк: передаёт каждую строку в sink, пока открыт курсор (обычно метод сервиса в транзакции).
+     */
+    @FunctionalInterface
+    public interface RowSource {
+        void forEach(Consumer<Object> sink);
+    }
+
+    public void jsonArray(HttpServletResponse response, RowSource source) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        write(response, source, writer().writeValuesAsArray(response.getOutputStream()));
+    }
+
+    /**
+     * Выгрузка (/export): не больше app.streaming.export.max-concurrent одновременно.
+     */
+    public void ndjson(HttpServletResponse response, RowSource source) throws IOException {
+        acquireExport();
+        try {
+            response.setContentType(NDJSON);
+            write(response, source, writer().withRootValueSeparator("\n").writeValues(response.getOutputStream()));
+        } finally {
+            exportPermits.release();
+        }
+    }
+
+    // ---------- helpers ----------
+
+    private ObjectWriter writer() {
+        // сбрасываем по заполнении буфера, а не после каждой строки
+        return objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    private void write(HttpServletResponse response, RowSource source, SequenceWriter out) throws IOException {
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        long deadline = System.nanoTime() + maxDuration.toNanos();
+        try {
+            source.forEach(row -> {
+                try {
+                    if (System.nanoTime() - deadline > 0) {
+                        throw new IOException("Выгрузка не уложилась в " + maxDuration + " и прервана");
+                    }
+                    out.write(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // закрываем (и дописываем "]") только при успехе: оборванный ответ не должен выглядеть полным
+        out.close();
+    }
+
+    /**
+     * Занимает место под выгрузку до того, как в ответ что-то записано, — пока ещё можно ответить 503.
+     */
+    private void acquireExport() {
+        if (!exportPermits.tryAcquire()) {
+            throw new ResponseStatusException(
+                    HttpStatus.SERVICE_UNAVAILABLE,
+                    "Слишком много одновременных выгрузок, повторите попытку позже"
+            );
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package ru.kursach.kpo.tour_agency_backend.service.summary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static ru.kursach.kpo.tour_agency_backend.service.transaction.TransactionHooks.afterCommit;
+
+/**
+ * Поддержка сводки tour_summary (минимальная цена, ближайший вылет, свободные места).
+ * <p>
+ * Сервисы сообщают, какие туры или вылеты изменились. Правки туров и вылетов (редкие, из админки)
+ * пересчитывают строки своих туров сразу после коммита отдельной короткой транзакцией.
+ * Изменения занятых мест (брони, отмены, сброс движка мест) только копятся в наборе вылетов
+ * и пересчитываются фоновой задачей раз в app.tour-summary.seat-refresh-interval одним запросом
+ * на все затронутые туры: путь брони не ждёт пересчёта, не берёт второе соединение и не блокирует
+ * строку сводки, а места в карточке тура отстают на этот интервал.
+ * Если пересчёт не удался, строку поправит ночная пересборка,
+ * она же сдвигает "ближайший вылет" по мере того, как проходят даты.
+ */
+@Service
+public class TourSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TourSummaryService.class);
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO tour_summary (tour_id, min_price, next_departure_date, seats_left, upcoming_departures, updated_at)
+            SELECT t.id,
+                   MIN(COALESCE(td.price_override, t.base_price)),
+                   MIN(td.start_date),
+                   COALESCE(SUM(GREATEST(td.capacity_total - td.capacity_reserved, 0)), 0),
+                   COUNT(td.id),
+                   now()
+            FROM tours t
+            LEFT JOIN tour_departures td
+                   ON td.tour_id = t.id AND td.status = 'PLANNED' AND td.start_date >= CURRENT_DATE
+            %s
+            GROUP BY t.id
+            ON CONFLICT (tour_id) DO UPDATE SET
+                min_price = EXCLUDED.min_price,
+                next_departure_date = EXCLUDED.next_departure_date,
+                seats_left = EXCLUDED.seats_left,
+                upcoming_departures = EXCLUDED.upcoming_departures,
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    private static final String REFRESH_SQL = UPSERT_SQL.formatted("WHERE t.id = ANY(?)");
+    private static final String REBUILD_SQL = UPSERT_SQL.formatted("");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+
+    // вылеты с изменёнными местами, ждущие фонового пересчёта
+    private final Set<Long> pendingDepartures = ConcurrentHashMap.newKeySet();
+
+    public TourSummaryService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        // вызывается из afterCommit, где ресурсы исходной транзакции ещё привязаны к потоку
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Изменились тур (базовая цена) или состав/даты/цены его вылетов.
+     */
+    public void toursChanged(Long... tourIds) {
+        List<Long> ids = Arrays.stream(tourIds).filter(Objects::nonNull).distinct().toList();
+        if (!ids.isEmpty()) {
+            afterCommit(() -> refresh(() -> ids));
+        }
+    }
+
+    /**
+     * Изменились занятые места вылетов (бронь, отмена, сброс пачки движка мест).
+     * Вылеты попадают в очередь пересчёта после коммита; сам пересчёт — в {@link #flushSeatChanges()}.
+     */
+    public void departuresChanged(Collection<Long> departureIds) {
+        if (departureIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(departureIds);
+        afterCommit(() -> pendingDepartures.addAll(ids));
+    }
+
+    /**
+     * Пересчитывает туры накопившихся вылетов одной транзакцией.
+     * Если пересчёт не удался, вылеты возвращаются в очередь до следующего запуска.
+     */
+    @Scheduled(fixedDelayString = "${app.tour-summary.seat-refresh-interval:PT2S}")
+    public void flushSeatChanges() {
+        List<Long> drained = new ArrayList<>();
+        for (Iterator<Long> it = pendingDepartures.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        Long[] ids = drained.toArray(Long[]::new);
+        boolean refreshed = refresh(() -> jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("SELECT DISTINCT tour_id FROM tour_departures WHERE id = ANY(?)");
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        }, (rs, rowNum) -> rs.getLong(1)));
+        if (!refreshed) {
+            pendingDepartures.addAll(drained);
+        }
+    }
+
+    /**
+     * Полная пересборка сводки по всем турам.
+     *
+     * @return число пересчитанных строк
+     */
+    public int rebuildAll() {
+        Integer rows = requiresNew.execute(status -> jdbcTemplate.update(REBUILD_SQL));
+        return rows != null ? rows : 0;
+    }
+
+    @Scheduled(cron = "${app.tour-summary.rebuild-cron:0 45 3 * * *}")
+    public void rebuildOnSchedule() {
+        long started = System.currentTimeMillis();
+        int rows = rebuildAll();
+        logger.info("Tour summary rebuilt: {} tours in {} ms", rows, System.currentTimeMillis() - started);
+    }
+
+    // ---------- helpers ----------
+
+    /**
+     * @return false — пересчёт не удался
+     */
+    private boolean refresh(Supplier<List<Long>> tourIds) {
+        try {
+            requiresNew.executeWithoutResult(status -> {
+                Long[] ids = tourIds.get().stream().sorted().toArray(Long[]::new);
+                if (ids.length == 0) {
+                    return;
+                }
+                // параллельные пересчёты одного тура идут по очереди: следующий пересчёт
+                // начинается после коммита предыдущего и видит все изменения, что были до него
+                jdbcTemplate.query(con -> {
+                    var ps = con.prepareStatement(
+                            "SELECT tour_id FROM tour_summary WHERE tour_id = ANY(?) ORDER BY tour_id FOR UPDATE");
+                    ps.setArray(1, con.createArrayOf("bigint", ids));
+                    return ps;
+                }, rs -> { });
+                jdbcTemplate.update(con -> {
+                    var ps = con.prepareStatement(REFRESH_SQL);
+                    Array idArray = con.createArrayOf("bigint", ids);
+                    ps.setArray(1, idArray);
+                    return ps;
+                });
+            });
+            return true;
+        } catch (RuntimeException ex) {
+            logger.warn("Tour summary refresh failed, left to the nightly rebuild", ex);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package ru.kursach.kpo.tour_agency_backend.service.typeahead;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import ru.kursach.kpo.tour_agency_backend.dto.typeahead.TypeaheadItemDto;
+import ru.kursach.kpo.tour_agency_backend.model.entity.AirportEntity;
+import ru.kursach.kpo.tour_agency_backend.model.entity.CityEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TypeaheadKind;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static ru.kursach.kpo.tour_agency_backend.service.transaction.TransactionHooks.afterCommit;
+
+/**
+ * Автодополнение по городам (название, страна) и аэропортам (IATA-код, название) целиком в памяти.
+ * <p>
+ * Индекс — отсортированная карта "терм -> подсказка": поиск по префиксу это диапазон
+ * [prefix, prefix + U+FFFF), без обращения к БД. Термы — всё значение поля и каждое слово в нём,
+ * так что "peter" находит "Saint Petersburg".
+ * Загружается целиком при старте, дальше обновляется точечно после коммита изменений в CityService/AirportService.
+ */
+@Service
+@RequiredArgsConstructor
+public class TypeaheadIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TypeaheadIndex.class);
+
+    public static final int MAX_LIMIT = 50;
+
+    /** отделяет терм от идентификатора документа в ключе; меньше любого символа терма */
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentSkipListMap<String, TypeaheadItemDto> terms = new ConcurrentSkipListMap<>();
+
+    /** ключи терм-карты по документу ("CITY:1") — чтобы снять старые термы при изменении */
+    private final Map<String, List<String>> keysByDocument = new ConcurrentHashMap<>();
+
+    private final Map<Long, CityDoc> cities = new ConcurrentHashMap<>();
+    private final Map<Long, AirportDoc> airports = new ConcurrentHashMap<>();
+
+    private record CityDoc(String name, String country) {}
+
+    private record AirportDoc(String iataCode, String name, Long cityId) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        terms.clear();
+        keysByDocument.clear();
+        cities.clear();
+        airports.clear();
+
+        jdbcTemplate.query("SELECT id, name, country FROM cities", rs -> {
+            cities.put(rs.getLong("id"), new CityDoc(rs.getString("name"), rs.getString("country")));
+        });
+        jdbcTemplate.query("SELECT id, iata_code, name, city_id FROM airports", rs -> {
+            airports.put(rs.getLong("id"),
+                    new AirportDoc(rs.getString("iata_code"), rs.getString("name"), rs.getLong("city_id")));
+        });
+
+        cities.forEach(this::indexCity);
+        airports.forEach(this::indexAirport);
+        logger.info("Typeahead index built: {} cities, {} airports, {} terms",
+                cities.size(), airports.size(), terms.size());
+    }
+
+    /**
+     * Подсказки по префиксу в порядке термов: точное совпадение раньше более длинных.
+     *
+     * @param kind null — города и аэропорты вместе
+     */
+    public List<TypeaheadItemDto> search(String q, TypeaheadKind kind, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Параметр limit должен быть от 1 до " + MAX_LIMIT
+            );
+        }
+        String prefix = normalize(q);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+
+        ConcurrentNavigableMap<String, TypeaheadItemDto> range =
+                terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+
+        Map<String, TypeaheadItemDto> found = new LinkedHashMap<>();
+        for (TypeaheadItemDto item : range.values()) {
+            if (kind != null && item.kind() != kind) {
+                continue;
+            }
+            found.putIfAbsent(documentKey(item.kind(), item.id()), item);
+            if (found.size() == limit) {
+                break;
+            }
+        }
+        return List.copyOf(found.values());
+    }
+
+    // ---------- обновления из сервисов (применяются после коммита) ----------
+
+    public void cityChanged(CityEntity city) {
+        Long id = city.getId();
+        CityDoc doc = new CityDoc(city.getName(), city.getCountry());
+        afterCommit(() -> {
+            cities.put(id, doc);
+            indexCity(id, doc);
+            // у аэропортов города в подсказке его название
+            airports.forEach((airportId, airport) -> {
+                if (id.equals(airport.cityId())) {
+                    indexAirport(airportId, airport);
+                }
+            });
+        });
+    }
+
+    public void cityDeleted(Long id) {
+        afterCommit(() -> {
+            cities.remove(id);
+            unindex(documentKey(TypeaheadKind.CITY, id));
+        });
+    }
+
+    public void airportChanged(AirportEntity airport) {
+        Long id = airport.getId();
+        AirportDoc doc = new AirportDoc(airport.getIataCode(), airport.getName(), airport.getCity().getId());
+        afterCommit(() -> {
+            airports.put(id, doc);
+            indexAirport(id, doc);
+        });
+    }
+
+    public void airportDeleted(Long id) {
+        afterCommit(() -> {
+            airports.remove(id);
+            unindex(documentKey(TypeaheadKind.AIRPORT, id));
+        });
+    }
+
+    // ---------- helpers ----------
+
+    private void indexCity(Long id, CityDoc city) {
+        TypeaheadItemDto item = TypeaheadItemDto.builder()
+                .kind(TypeaheadKind.CITY)
+                .id(id)
+                .label(city.name())
+                .detail(city.country())
+                .cityId(id)
+                .build();
+        index(item, city.name(), city.country());
+    }
+
+    private void indexAirport(Long id, AirportDoc airport) {
+        CityDoc city = cities.get(airport.cityId());
+        TypeaheadItemDto item = TypeaheadItemDto.builder()
+                .kind(TypeaheadKind.AIRPORT)
+                .id(id)
+                .label(airport.iataCode() + " — " + airport.name())
+                .detail(city != null ? city.name() : null)
+                .cityId(airport.cityId())
+                .build();
+        index(item, airport.iataCode(), airport.name());
+    }
+
+    private synchronized void index(TypeaheadItemDto item, String... fields) {
+        String document = documentKey(item.kind(), item.id());
+        unindex(document);
+
+        Set<String> docTerms = new LinkedHashSet<>();
+        for (String field : fields) {
+            String value = normalize(field);
+            if (value.isEmpty()) {
+                continue;
+            }
+            docTerms.add(value);
+            for (int i = value.indexOf(' '); i >= 0; i = value.indexOf(' ', i + 1)) {
+                docTerms.add(value.substring(i + 1));
+            }
+        }
+
+        List<String> keys = new ArrayList<>(docTerms.size());
+        for (String term : docTerms) {
+            String key = term + KEY_SEPARATOR + document;
+            terms.put(key, item);
+            keys.add(key);
+        }
+        keysByDocument.put(document, keys);
+    }
+
+    private synchronized void unindex(String document) {
+        List<String> keys = keysByDocument.remove(document);
+        if (keys != null) {
+            keys.forEach(terms::remove);
+        }
+    }
+
+    private static String documentKey(TypeaheadKind kind, Long id) {
+        return kind + ":" + id;
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,20 @@
+-- id всех сущностей выдаются последовательностями *_seq (allocationSize = 50, pooled).
+-- Последовательности создаёт Hibernate; здесь они сдвигаются за уже существующие id,
+-- а identity-генерация со старых столбцов id снимается.
+
+ALTER TABLE cities ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE airports ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE app_users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE tours ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE tour_departures ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE flights ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE bookings ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+-- pooled: nextval = N выдаёт диапазон (N - 49 .. N), поэтому запас в один шаг
+SELECT setval('cities_seq', (SELECT COALESCE(MAX(id), 0) FROM cities) + 50);
+SELECT setval('airports_seq', (SELECT COALESCE(MAX(id), 0) FROM airports) + 50);
+SELECT setval('app_users_seq', (SELECT COALESCE(MAX(id), 0) FROM app_users) + 50);
+SELECT setval('tours_seq', (SELECT COALESCE(MAX(id), 0) FROM tours) + 50);
+SELECT setval('tour_departures_seq', (SELECT COALESCE(MAX(id), 0) FROM tour_departures) + 50);
+SELECT setval('flights_seq', (SELECT COALESCE(MAX(id), 0) FROM flights) + 50);
+SELECT setval('bookings_seq', (SELECT COALESCE(MAX(id), 0) FROM bookings) + 50);
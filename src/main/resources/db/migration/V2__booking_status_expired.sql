@@ -0,0 +1,6 @@
+-- Истечение удержаний (BookingHoldSweeper) переводит брони в EXPIRED.
+-- Hibernate создаёт CHECK по значениям enum только вместе со столбцом,
+-- в старых базах ограничение не знает статус EXPIRED
+ALTER TABLE bookings DROP CONSTRAINT IF EXISTS bookings_status_check;
+ALTER TABLE bookings ADD CONSTRAINT bookings_status_check
+    CHECK (status IN ('PENDING', 'CONFIRMED', 'CANCELLED', 'COMPLETED', 'EXPIRED'));
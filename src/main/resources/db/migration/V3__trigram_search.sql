@@ -0,0 +1,34 @@
+-- Поиск по подстроке (LOWER(col) LIKE '%x%') в админских списках.
+-- B-tree для такого LIKE бесполезен, GIN по триграммам lower(col) — нет:
+-- выражения индексов совпадают с тем, что пишут запросы репозиториев.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_flights_flight_number_trgm
+    ON flights USING gin (lower(flight_number) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_airports_iata_code_trgm
+    ON airports USING gin (lower(iata_code) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_airports_name_trgm
+    ON airports USING gin (lower(name) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_cities_name_trgm
+    ON cities USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_cities_country_trgm
+    ON cities USING gin (lower(country) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_app_users_username_trgm
+    ON app_users USING gin (lower(username) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_app_users_email_trgm
+    ON app_users USING gin (lower(email) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_app_users_phone_trgm
+    ON app_users USING gin (lower(phone) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_tours_title_trgm
+    ON tours USING gin (lower(title) gin_trgm_ops);
+
+-- соединение рейсов с аэропортами после поиска по названию аэропорта
+CREATE INDEX IF NOT EXISTS idx_flights_departure_airport
+    ON flights (departure_airport_id);
+CREATE INDEX IF NOT EXISTS idx_flights_arrival_airport
+    ON flights (arrival_airport_id);
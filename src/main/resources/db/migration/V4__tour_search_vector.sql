@@ -0,0 +1,18 @@
+-- Полнотекстовый поиск по турам: название (вес A) и описание (вес B).
+-- Столбец вычисляемый — PostgreSQL сам пересчитывает его при INSERT/UPDATE,
+-- сущность TourEntity о нём не знает.
+-- Конфигурация russian: кириллица — russian_stem, латиница — english_stem.
+
+ALTER TABLE tours ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('russian', coalesce(title, '')), 'A')
+            || setweight(to_tsvector('russian', coalesce(description, '')), 'B')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_tours_search_vector
+    ON tours USING gin (search_vector);
+
+-- публичный каталог ищет только среди опубликованных активных туров
+CREATE INDEX IF NOT EXISTS idx_tours_search_vector_published
+    ON tours USING gin (search_vector)
+    WHERE status = 'PUBLISHED' AND is_active;
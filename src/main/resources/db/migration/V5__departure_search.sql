@@ -0,0 +1,10 @@
+-- Поиск вылетов (DepartureSearchService): опубликованные туры города -> их вылеты в окне дат.
+-- Свободные места и цена считаются по столбцам из INCLUDE, без чтения строк таблицы.
+
+CREATE INDEX IF NOT EXISTS idx_tours_published_base_city
+    ON tours (base_city_id)
+    WHERE status = 'PUBLISHED' AND is_active;
+
+CREATE INDEX IF NOT EXISTS idx_tour_departures_tour_start_date
+    ON tour_departures (tour_id, start_date)
+    INCLUDE (end_date, capacity_total, capacity_reserved, price_override, status);
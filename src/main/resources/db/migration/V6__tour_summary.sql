@@ -0,0 +1,29 @@
+-- Сводка по туру для карточек каталога: минимальная цена, ближайший вылет, свободные места.
+-- Считается только по предстоящим вылетам в продаже (PLANNED, start_date >= сегодня).
+-- Таблицу поддерживает TourSummaryService: точечно после коммита изменений вылетов и броней,
+-- целиком — ночной пересборкой. Здесь — начальное заполнение.
+
+CREATE TABLE IF NOT EXISTS tour_summary (
+    tour_id             bigint PRIMARY KEY,
+    min_price           numeric(10, 2),
+    next_departure_date date,
+    seats_left          integer   NOT NULL,
+    upcoming_departures integer   NOT NULL,
+    updated_at          timestamp NOT NULL
+);
+
+ALTER TABLE tour_summary
+    ADD CONSTRAINT fk_tour_summary_tour FOREIGN KEY (tour_id) REFERENCES tours (id) ON DELETE CASCADE;
+
+INSERT INTO tour_summary (tour_id, min_price, next_departure_date, seats_left, upcoming_departures, updated_at)
+SELECT t.id,
+       MIN(COALESCE(td.price_override, t.base_price)),
+       MIN(td.start_date),
+       COALESCE(SUM(GREATEST(td.capacity_total - td.capacity_reserved, 0)), 0),
+       COUNT(td.id),
+       now()
+FROM tours t
+LEFT JOIN tour_departures td
+       ON td.tour_id = t.id AND td.status = 'PLANNED' AND td.start_date >= CURRENT_DATE
+GROUP BY t.id
+ON CONFLICT (tour_id) DO NOTHING;
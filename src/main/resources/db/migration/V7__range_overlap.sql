@@ -0,0 +1,9 @@
+-- Пересечение интервалов рейсов и вылетов: запросы пишут условие как пересечение диапазонов (&&),
+-- GiST-индексы по тем же выражениям находят пересекающиеся строки без полного просмотра.
+-- Рейс — закрытый интервал [depart_at, arrive_at], вылет — закрытый интервал дат [start_date, end_date].
+
+CREATE INDEX IF NOT EXISTS idx_flights_time_range
+    ON flights USING gist (tsrange(depart_at, arrive_at, '[]'));
+
+CREATE INDEX IF NOT EXISTS idx_tour_departures_date_range
+    ON tour_departures USING gist (daterange(start_date, end_date, '[]'));
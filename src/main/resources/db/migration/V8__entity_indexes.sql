@@ -0,0 +1,46 @@
+-- B-tree индексы, объявленные в @Table(indexes = ...) сущностей.
+-- ddl-auto=update создаёт их только там, где он включён; здесь они гарантированы миграцией
+-- (имена и столбцы совпадают с аннотациями, поэтому Hibernate их не дублирует).
+
+-- поиск рейсов по маршруту: диапазон depart_at внутри аэропорта вылета / прилёта
+CREATE INDEX IF NOT EXISTS idx_flights_departure_airport_depart_at
+    ON flights (departure_airport_id, depart_at);
+CREATE INDEX IF NOT EXISTS idx_flights_arrival_airport_depart_at
+    ON flights (arrival_airport_id, depart_at);
+-- город -> его аэропорты
+CREATE INDEX IF NOT EXISTS idx_airports_city_id
+    ON airports (city_id);
+
+-- keyset-пагинация и фильтры списков
+CREATE INDEX IF NOT EXISTS idx_flights_flight_number_id
+    ON flights (flight_number, id);
+CREATE INDEX IF NOT EXISTS idx_tour_departures_start_date_id
+    ON tour_departures (start_date, id);
+CREATE INDEX IF NOT EXISTS idx_tour_departures_status_start_date_id
+    ON tour_departures (status, start_date, id);
+CREATE INDEX IF NOT EXISTS idx_tours_manager_user_title
+    ON tours (manager_user_id, title);
+CREATE INDEX IF NOT EXISTS idx_tours_base_city_title
+    ON tours (base_city_id, title);
+CREATE INDEX IF NOT EXISTS idx_app_users_role_username_id
+    ON app_users (user_role, username, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_created_at_id
+    ON bookings (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_user_created_at_id
+    ON bookings (user_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_status_created_at_id
+    ON bookings (status, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_departure_created_at_id
+    ON bookings (tour_departure_id, created_at, id);
+
+-- брони: истёкшие удержания и занятые места вылета
+CREATE INDEX IF NOT EXISTS idx_bookings_status_hold_expires_at
+    ON bookings (status, hold_expires_at);
+CREATE INDEX IF NOT EXISTS idx_bookings_departure_status_persons
+    ON bookings (tour_departure_id, status, persons_count);
+
+-- связи рейсов и вылетов в обе стороны
+CREATE INDEX IF NOT EXISTS idx_flight_tour_departure_departure_flight
+    ON flight_tour_departure (tour_departure_id, flight_id);
+CREATE INDEX IF NOT EXISTS idx_flight_tour_departure_flight_departure
+    ON flight_tour_departure (flight_id, tour_departure_id);
@@ -0,0 +1,9 @@
+-- PENDING-брони, созданные до появления hold_expires_at, остались без срока удержания:
+-- сборщик их не видит (NULL <= now не истинно), и места на вылетах заняты навсегда.
+-- Срок считаем так же, как при создании брони: created_at + app.booking.hold-ttl.
+-- Давно просроченные удержания сборщик переведёт в EXPIRED первым же проходом.
+
+UPDATE bookings
+SET hold_expires_at = created_at + CAST('${hold-ttl}' AS interval)
+WHERE status = 'PENDING'
+  AND hold_expires_at IS NULL;
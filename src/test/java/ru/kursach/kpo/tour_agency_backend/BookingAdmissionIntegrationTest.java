@@ -0,0 +1,286 @@
+package ru.kursach.kpo.tour_agency_backend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.kursach.kpo.tour_agency_backend.model.entity.*;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
+import ru.kursach.kpo.tour_agency_backend.repository.*;
+import ru.kursach.kpo.tour_agency_backend.service.inventory.AdmissionRejectedException;
+import ru.kursach.kpo.tour_agency_backend.service.inventory.BookingAdmissionGate;
+import ru.kursach.kpo.tour_agency_backend.service.inventory.SeatReservationService;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Допуск к бронированию с маленькими лимитами: одно разрешение и одно место в очереди на вылет.
+ */
+@Testcontainers
+@SpringBootTest(properties = {
+        "app.booking.admission.max-concurrent-per-departure=1",
+        "app.booking.admission.max-queue-per-departure=1",
+        "app.booking.admission.max-wait=PT1S"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookingAdmissionIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tour_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.datasource.url", postgres::getJdbcUrl);
+        r.add("spring.datasource.username", postgres::getUsername);
+        r.add("spring.datasource.password", postgres::getPassword);
+        r.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        r.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired PasswordEncoder passwordEncoder;
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Autowired BookingAdmissionGate admissionGate;
+    @Autowired SeatReservationService seatReservationService;
+
+    @Autowired UserRepository userRepository;
+    @Autowired CityRepository cityRepository;
+    @Autowired TourRepository tourRepository;
+    @Autowired TourDepartureRepository tourDepartureRepository;
+    @Autowired BookingRepository bookingRepository;
+    @Autowired FlightRepository flightRepository;
+    @Autowired AirportRepository airportRepository;
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void clean() {
+        // порядок важен из-за FK
+        bookingRepository.deleteAll();
+        flightRepository.deleteAll();
+        tourDepartureRepository.deleteAll();
+        tourRepository.deleteAll();
+        airportRepository.deleteAll();
+        cityRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @AfterEach
+    void stopPool() {
+        pool.shutdownNow();
+    }
+
+    // ---------- helpers ----------
+
+    private String createUserToken(String email) throws Exception {
+        userRepository.save(UserEntity.builder()
+                .username("user")
+                .email(email)
+                .password(passwordEncoder.encode("Pa$sw0rd!"))
+                .userRole(UserRole.USER)
+                .active(true)
+                .build());
+
+        String resp = mockMvc.perform(post("/api/v1/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                          {"email":"%s","password":"Pa$sw0rd!"}
+                        """.formatted(email)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(resp).get("token").asText();
+    }
+
+    private TourDepartureEntity departure(int capacityTotal) {
+        CityEntity riga = cityRepository.save(CityEntity.builder()
+                .name("Riga")
+                .country("Latvia")
+                .timezone("Europe/Riga")
+                .build());
+        TourEntity tour = tourRepository.save(TourEntity.builder()
+                .title("Riga Tour")
+                .description("desc")
+                .durationDays(7)
+                .basePrice(new BigDecimal("1000.00"))
+                .status(TourStatus.PUBLISHED)
+                .active(true)
+                .baseCity(riga)
+                .build());
+        LocalDate start = LocalDate.now().plusDays(30);
+        return tourDepartureRepository.save(TourDepartureEntity.builder()
+                .tour(tour)
+                .startDate(start)
+                .endDate(start.plusDays(7))
+                .capacityTotal(capacityTotal)
+                .capacityReserved(0)
+                .status(TourDepartureStatus.PLANNED)
+                .build());
+    }
+
+    /**
+     * Занимает единственное разрешение вылета, пока не будет отпущен возвращённый latch.
+     */
+    private CountDownLatch holdLane(Long departureId) throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        pool.submit(() -> admissionGate.admit(departureId, () -> {
+            entered.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        return release;
+    }
+
+    private void awaitQueueDepth(int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queueDepth() != depth) {
+            assertThat(System.nanoTime()).as("очередь допуска не дошла до %d", depth).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private double queueDepth() {
+        return meterRegistry.get("booking.admission.queue.depth").gauge().value();
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.get("booking.admission.rejected").tag("reason", reason).counter().count();
+    }
+
+    private String bookingBody(Long departureId) {
+        return """
+          {"personsCount":1,"totalPrice":1,"tourDepartureId":%d,"outboundFlightId":1}
+        """.formatted(departureId);
+    }
+
+    // ---------- tests ----------
+
+    @Test
+    @DisplayName("POST /api/v1/bookings при переполненной очереди вылета -> 429 с Retry-After")
+    void create_queueFull_429() throws Exception {
+        String token = createUserToken("user@test.com");
+        Long departureId = departure(5).getId();
+        double before = rejected("queue_full");
+
+        CountDownLatch release = holdLane(departureId);
+        // второй запрос встаёт в очередь и занимает её единственное место
+        Future<Object> queued = pool.submit(() -> admissionGate.admit(departureId, () -> null));
+        awaitQueueDepth(1);
+
+        mockMvc.perform(post("/api/v1/bookings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingBody(departureId)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"));
+
+        release.countDown();
+        queued.get(5, TimeUnit.SECONDS);
+
+        assertThat(rejected("queue_full")).isEqualTo(before + 1);
+        awaitQueueDepth(0);
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/bookings: не дождался разрешения за max-wait -> 503 с Retry-After")
+    void create_waitTimeout_503() throws Exception {
+        String token = createUserToken("user@test.com");
+        Long departureId = departure(5).getId();
+        double before = rejected("timeout");
+        long waitsBefore = meterRegistry.get("booking.admission.wait").timer().count();
+
+        CountDownLatch release = holdLane(departureId);
+        long started = System.nanoTime();
+
+        mockMvc.perform(post("/api/v1/bookings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingBody(departureId)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"));
+
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        release.countDown();
+
+        assertThat(waitedMillis).isGreaterThanOrEqualTo(1000);
+        assertThat(rejected("timeout")).isEqualTo(before + 1);
+        assertThat(meterRegistry.get("booking.admission.wait").timer().count()).isEqualTo(waitsBefore + 1);
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/bookings/batch проходит через допуск: занятый вылет -> 503")
+    void batch_goesThroughAdmission() throws Exception {
+        String token = createUserToken("user@test.com");
+        Long departureId = departure(5).getId();
+        double before = rejected("timeout");
+
+        CountDownLatch release = holdLane(departureId);
+
+        mockMvc.perform(post("/api/v1/bookings/batch")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\":[" + bookingBody(departureId) + "]}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists("Retry-After"));
+
+        release.countDown();
+        assertThat(rejected("timeout")).isEqualTo(before + 1);
+    }
+
+    @Test
+    @DisplayName("Последние места заняты в откатившейся транзакции -> вылет не отмечается распроданным")
+    void soldOut_notMarkedOnRollback() {
+        Long departureId = departure(2).getId();
+        // очередь вылета должна существовать, иначе отметке некуда встать
+        admissionGate.admit(departureId, () -> null);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(seatReservationService.tryReserve(departureId, 2)).isTrue();
+            status.setRollbackOnly();
+        });
+
+        assertThat(admissionGate.admit(departureId, () -> "admitted")).isEqualTo("admitted");
+
+        // после коммита — отмечается
+        transactionTemplate.executeWithoutResult(status ->
+                assertThat(seatReservationService.tryReserve(departureId, 2)).isTrue());
+
+        double before = rejected("sold_out");
+        assertThatThrownBy(() -> admissionGate.admit(departureId, () -> null))
+                .isInstanceOf(AdmissionRejectedException.class);
+        assertThat(rejected("sold_out")).isEqualTo(before + 1);
+    }
+}
@@ -0,0 +1,227 @@
+package ru.kursach.kpo.tour_agency_backend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.kursach.kpo.tour_agency_backend.model.entity.*;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
+import ru.kursach.kpo.tour_agency_backend.repository.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.StringJoiner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@Tag("benchmark")
+@Testcontainers
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookingBatchBenchmarkTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tour_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.datasource.url", postgres::getJdbcUrl);
+        r.add("spring.datasource.username", postgres::getUsername);
+        r.add("spring.datasource.password", postgres::getPassword);
+        r.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        r.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+
+    @Autowired PasswordEncoder passwordEncoder;
+
+    @Autowired UserRepository userRepository;
+    @Autowired CityRepository cityRepository;
+    @Autowired AirportRepository airportRepository;
+    @Autowired TourRepository tourRepository;
+    @Autowired TourDepartureRepository tourDepartureRepository;
+    @Autowired FlightRepository flightRepository;
+    @Autowired BookingRepository bookingRepository;
+
+    @BeforeEach
+    void clean() {
+        // порядок важен из-за FK
+        bookingRepository.deleteAll();
+        flightRepository.deleteAll();
+        tourDepartureRepository.deleteAll();
+        tourRepository.deleteAll();
+        airportRepository.deleteAll();
+        cityRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    // ---------- helpers ----------
+
+    private String signInAndGetToken(String email, String pass) throws Exception {
+        String body = """
+          {"email":"%s","password":"%s"}
+        """.formatted(email, pass);
+
+        String resp = mockMvc.perform(post("/api/v1/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").exists())
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode node = objectMapper.readTree(resp);
+        return node.get("token").asText();
+    }
+
+    private UserEntity createUser(String email, String rawPass, UserRole role) {
+        return userRepository.save(UserEntity.builder()
+                .username(role.name().toLowerCase())
+                .email(email)
+                .password(passwordEncoder.encode(rawPass))
+                .userRole(role)
+                .active(true)
+                .build());
+    }
+
+    private String createUserToken(String email) throws Exception {
+        createUser(email, "Pa$sw0rd!", UserRole.USER);
+        return signInAndGetToken(email, "Pa$sw0rd!");
+    }
+
+    private CityEntity city(String name) {
+        return cityRepository.save(CityEntity.builder()
+                .name(name)
+                .country("Latvia")
+                .timezone("Europe/Riga")
+                .build());
+    }
+
+    private AirportEntity airport(String iata, String name, CityEntity city) {
+        return airportRepository.save(AirportEntity.builder()
+                .iataCode(iata)
+                .name(name)
+                .city(city)
+                .build());
+    }
+
+    private TourEntity tour(String title, CityEntity baseCity) {
+        return tourRepository.save(TourEntity.builder()
+                .title(title)
+                .description("desc")
+                .durationDays(7)
+                .basePrice(new BigDecimal("1000.00"))
+                .status(TourStatus.PUBLISHED)
+                .active(true)
+                .baseCity(baseCity)
+                .build());
+    }
+
+    private TourDepartureEntity departure(TourEntity tour, int capacityTotal) {
+        LocalDate start = LocalDate.now().plusDays(30);
+        return tourDepartureRepository.save(TourDepartureEntity.builder()
+                .tour(tour)
+                .startDate(start)
+                .endDate(start.plusDays(7))
+                .capacityTotal(capacityTotal)
+                .capacityReserved(0)
+                .priceOverride(null)
+                .status(TourDepartureStatus.PLANNED)
+                .build());
+    }
+
+    private FlightEntity flightForDeparture(String number, AirportEntity dep, AirportEntity arr,
+                                            TourDepartureEntity departure) {
+        LocalDateTime departAt = departure.getStartDate().atTime(10, 0);
+        FlightEntity flight = FlightEntity.builder()
+                .flightNumber(number)
+                .carrier("airBaltic")
+                .departAt(departAt)
+                .arriveAt(departAt.plusHours(2))
+                .basePrice(new BigDecimal("15000.00"))
+                .departureAirport(dep)
+                .arrivalAirport(arr)
+                .build();
+        flight.addTourDeparture(departure);
+        return flightRepository.save(flight);
+    }
+
+    private String bookingBody(int persons, Long departureId, Long outboundFlightId) {
+        return """
+          {"personsCount":%d,"totalPrice":1,"tourDepartureId":%d,"outboundFlightId":%d}
+        """.formatted(persons, departureId, outboundFlightId);
+    }
+
+    // ---------- tests ----------
+
+    @Test
+    @DisplayName("500 броней пакетом минимум в 10 раз быстрее, чем 500 отдельных POST")
+    void batch_isTenTimesFasterThanLoop() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        int bookings = 500;
+        TourEntity tour = tour("Riga Tour", riga);
+        TourDepartureEntity loopDeparture = departure(tour, bookings);
+        TourDepartureEntity batchDeparture = departure(tour, bookings);
+        FlightEntity loopFlight = flightForDeparture("BT700", rix, vno, loopDeparture);
+        FlightEntity batchFlight = flightForDeparture("BT701", rix, vno, batchDeparture);
+
+        String loopItem = bookingBody(1, loopDeparture.getId(), loopFlight.getId());
+        long loopStart = System.nanoTime();
+        for (int i = 0; i < bookings; i++) {
+            mockMvc.perform(post("/api/v1/bookings")
+                            .header("Authorization", "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(loopItem))
+                    .andExpect(status().isCreated());
+        }
+        long loopNanos = System.nanoTime() - loopStart;
+
+        StringJoiner items = new StringJoiner(",", "{\"mode\":\"ALL_OR_NOTHING\",\"items\":[", "]}");
+        String batchItem = """
+          {"personsCount":1,"totalPrice":1,"tourDepartureId":%d,"outboundFlightId":%d}
+        """.formatted(batchDeparture.getId(), batchFlight.getId());
+        for (int i = 0; i < bookings; i++) {
+            items.add(batchItem);
+        }
+
+        long batchStart = System.nanoTime();
+        mockMvc.perform(post("/api/v1/bookings/batch")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(items.toString()))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.created").value(bookings));
+        long batchNanos = System.nanoTime() - batchStart;
+
+        System.out.printf("loop: %d ms, batch: %d ms%n", loopNanos / 1_000_000, batchNanos / 1_000_000);
+        assertThat(loopNanos).isGreaterThanOrEqualTo(batchNanos * 10);
+        assertThat(bookingRepository.count()).isEqualTo(2L * bookings);
+    }
+}
@@ -0,0 +1,965 @@
+package ru.kursach.kpo.tour_agency_backend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.kursach.kpo.tour_agency_backend.model.entity.*;
+import ru.kursach.kpo.tour_agency_backend.model.enums.BookingStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
+import ru.kursach.kpo.tour_agency_backend.repository.*;
+import ru.kursach.kpo.tour_agency_backend.service.idempotency.IdempotencyStore;
+import ru.kursach.kpo.tour_agency_backend.service.inventory.BookingHoldSweeper;
+import ru.kursach.kpo.tour_agency_backend.service.streaming.RowStreamWriter;
+import ru.kursach.kpo.tour_agency_backend.service.summary.TourSummaryService;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@Testcontainers
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookingIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tour_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.datasource.url", postgres::getJdbcUrl);
+        r.add("spring.datasource.username", postgres::getUsername);
+        r.add("spring.datasource.password", postgres::getPassword);
+        r.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        r.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+
+    @Autowired PasswordEncoder passwordEncoder;
+
+    @Autowired UserRepository userRepository;
+    @Autowired CityRepository cityRepository;
+    @Autowired AirportRepository airportRepository;
+    @Autowired TourRepository tourRepository;
+    @Autowired TourDepartureRepository tourDepartureRepository;
+    @Autowired FlightRepository flightRepository;
+    @Autowired BookingRepository bookingRepository;
+    @Autowired BookingHoldSweeper bookingHoldSweeper;
+    @Autowired TourSummaryRepository tourSummaryRepository;
+    @Autowired TourSummaryService tourSummaryService;
+    @Autowired EntityManagerFactory entityManagerFactory;
+    @Autowired RowStreamWriter rowStreamWriter;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired IdempotencyStore idempotencyStore;
+
+    @BeforeEach
+    void clean() {
+        // порядок важен из-за FK
+        bookingRepository.deleteAll();
+        flightRepository.deleteAll();
+        tourDepartureRepository.deleteAll();
+        tourRepository.deleteAll();
+        airportRepository.deleteAll();
+        cityRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    // ---------- helpers ----------
+
+    private String signInAndGetToken(String email, String pass) throws Exception {
+        String body = """
+          {"email":"%s","password":"%s"}
+        """.formatted(email, pass);
+
+        String resp = mockMvc.perform(post("/api/v1/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").exists())
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode node = objectMapper.readTree(resp);
+        return node.get("token").asText();
+    }
+
+    private UserEntity createUser(String email, String rawPass, UserRole role) {
+        return userRepository.save(UserEntity.builder()
+                .username(role.name().toLowerCase())
+                .email(email)
+                .password(passwordEncoder.encode(rawPass))
+                .userRole(role)
+                .active(true)
+                .build());
+    }
+
+    private String createUserToken(String email) throws Exception {
+        createUser(email, "Pa$sw0rd!", UserRole.USER);
+        return signInAndGetToken(email, "Pa$sw0rd!");
+    }
+
+    private String createAdminToken() throws Exception {
+        createUser("admin@test.com", "Pa$sw0rd!", UserRole.ADMIN);
+        return signInAndGetToken("admin@test.com", "Pa$sw0rd!");
+    }
+
+    private long createBooking(String token, int persons, Long departureId, Long outboundFlightId) throws Exception {
+        String resp = mockMvc.perform(post("/api/v1/bookings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingBody(persons, departureId, outboundFlightId)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(resp).get("id").asLong();
+    }
+
+    private void expireHold(long bookingId) {
+        BookingEntity booking = bookingRepository.findById(bookingId).orElseThrow();
+        booking.setHoldExpiresAt(LocalDateTime.now().minusMinutes(1));
+        bookingRepository.save(booking);
+    }
+
+    private CityEntity city(String name) {
+        return cityRepository.save(CityEntity.builder()
+                .name(name)
+                .country("Latvia")
+                .timezone("Europe/Riga")
+                .build());
+    }
+
+    private AirportEntity airport(String iata, String name, CityEntity city) {
+        return airportRepository.save(AirportEntity.builder()
+                .iataCode(iata)
+                .name(name)
+                .city(city)
+                .build());
+    }
+
+    private TourEntity tour(String title, CityEntity baseCity) {
+        return tourRepository.save(TourEntity.builder()
+                .title(title)
+                .description("desc")
+                .durationDays(7)
+                .basePrice(new BigDecimal("1000.00"))
+                .status(TourStatus.PUBLISHED)
+                .active(true)
+                .baseCity(baseCity)
+                .build());
+    }
+
+    private TourDepartureEntity departure(TourEntity tour, int capacityTotal) {
+        LocalDate start = LocalDate.now().plusDays(30);
+        return tourDepartureRepository.save(TourDepartureEntity.builder()
+                .tour(tour)
+                .startDate(start)
+                .endDate(start.plusDays(7))
+                .capacityTotal(capacityTotal)
+                .capacityReserved(0)
+                .priceOverride(null)
+                .status(TourDepartureStatus.PLANNED)
+                .build());
+    }
+
+    private FlightEntity flightForDeparture(String number, AirportEntity dep, AirportEntity arr,
+                                            TourDepartureEntity departure) {
+        LocalDateTime departAt = departure.getStartDate().atTime(10, 0);
+        FlightEntity flight = FlightEntity.builder()
+                .flightNumber(number)
+                .carrier("airBaltic")
+                .departAt(departAt)
+                .arriveAt(departAt.plusHours(2))
+                .basePrice(new BigDecimal("15000.00"))
+                .departureAirport(dep)
+                .arrivalAirport(arr)
+                .build();
+        flight.addTourDeparture(departure);
+        return flightRepository.save(flight);
+    }
+
+    private String bookingBody(int persons, Long departureId, Long outboundFlightId) {
+        return """
+          {"personsCount":%d,"totalPrice":1,"tourDepartureId":%d,"outboundFlightId":%d}
+        """.formatted(persons, departureId, outboundFlightId);
+    }
+
+    // ---------- tests ----------
+
+    @Test
+    @DisplayName("POST /api/v1/bookings: бронь занимает места на вылете")
+    void create_reservesSeats() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourDepartureEntity dep = departure(tour("Riga Tour", riga), 5);
+        FlightEntity flight = flightForDeparture("BT100", rix, vno, dep);
+
+        mockMvc.perform(post("/api/v1/bookings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingBody(3, dep.getId(), flight.getId())))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.personsCount").value(3))
+                .andExpect(jsonPath("$.status").value(BookingStatus.PENDING.name()));
+
+        mockMvc.perform(post("/api/v1/bookings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingBody(3, dep.getId(), flight.getId())))
+                .andExpect(status().isBadRequest());
+
+        TourDepartureEntity reloaded = tourDepartureRepository.findById(dep.getId()).orElseThrow();
+        assertThat(reloaded.getCapacityReserved()).isEqualTo(3);
+        assertThat(reloaded.getStatus()).isEqualTo(TourDepartureStatus.PLANNED);
+        assertThat(bookingRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/bookings параллельно: не продаётся больше мест, чем есть на вылете")
+    void create_concurrent_neverOversells() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        int capacity = 50;
+        int attempts = 200;
+
+        TourDepartureEntity dep = departure(tour("Riga Tour", riga), capacity);
+        FlightEntity flight = flightForDeparture("BT200", rix, vno, dep);
+        String body = bookingBody(1, dep.getId(), flight.getId());
+
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < attempts; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(post("/api/v1/bookings")
+                                    .header("Authorization", "Bearer " + token)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(body))
+                            .andReturn().getResponse().getStatus();
+                }));
+            }
+            start.countDown();
+
+            int created = 0;
+            for (Future<Integer> result : results) {
+                int httpStatus = result.get(60, TimeUnit.SECONDS);
+                // 400 — не хватило мест в транзакции, 503 — отсечены допуском после распродажи
+                assertThat(httpStatus).isIn(201, 400, 503);
+                if (httpStatus == 201) {
+                    created++;
+                }
+            }
+            assertThat(created).isEqualTo(capacity);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        TourDepartureEntity reloaded = tourDepartureRepository.findById(dep.getId()).orElseThrow();
+        assertThat(reloaded.getCapacityReserved()).isEqualTo(capacity);
+        assertThat(reloaded.getStatus()).isEqualTo(TourDepartureStatus.SALES_CLOSED);
+        assertThat(bookingRepository.count()).isEqualTo(capacity);
+    }
+
+    @Test
+    @DisplayName("Старая база: CHECK по статусам без EXPIRED чинится миграцией V2, после неё сборщик истекает удержание")
+    void legacyStatusCheck_migratedToAcceptExpired() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourDepartureEntity dep = departure(tour("Riga Tour", riga), 4);
+        FlightEntity flight = flightForDeparture("BT410", rix, vno, dep);
+        long bookingId = createBooking(token, 2, dep.getId(), flight.getId());
+        expireHold(bookingId);
+
+        ResourceDatabasePopulator v2 = new ResourceDatabasePopulator(
+                new ClassPathResource("db/migration/V2__booking_status_expired.sql"));
+        // ограничение, которое ddl-auto создал до появления EXPIRED
+        jdbcTemplate.execute("ALTER TABLE bookings DROP CONSTRAINT bookings_status_check");
+        jdbcTemplate.execute("""
+                ALTER TABLE bookings ADD CONSTRAINT bookings_status_check
+                    CHECK (status IN ('PENDING', 'CONFIRMED', 'CANCELLED', 'COMPLETED'))
+                """);
+        try {
+            assertThatThrownBy(() -> jdbcTemplate.update(
+                    "UPDATE bookings SET status = 'EXPIRED' WHERE id = ?", bookingId))
+                    .isInstanceOf(DataIntegrityViolationException.class);
+
+            v2.execute(jdbcTemplate.getDataSource());
+            bookingHoldSweeper.sweepExpiredHolds();
+
+            assertThat(bookingRepository.findById(bookingId).orElseThrow().getStatus()).isEqualTo(BookingStatus.EXPIRED);
+            assertThat(tourDepartureRepository.findById(dep.getId()).orElseThrow().getCapacityReserved()).isZero();
+        } finally {
+            v2.execute(jdbcTemplate.getDataSource());
+        }
+    }
+
+    @Test
+    @DisplayName("PUT /api/v1/tour-departures/{id} параллельно с бронями: занятые места не затираются, вместимость не ниже занятого")
+    void departureUpdate_concurrentWithBookings_keepsReservedSeats() throws Exception {
+        String token = createUserToken("user@test.com");
+        String adminToken = createAdminToken();
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourEntity tour = tour("Riga Tour", riga);
+        TourDepartureEntity dep = departure(tour, 60);
+        FlightEntity flight = flightForDeparture("BT210", rix, vno, dep);
+        String bookingBody = bookingBody(1, dep.getId(), flight.getId());
+        String updateBody = """
+          {"startDate":"%s","endDate":"%s","capacityTotal":%%d,"status":"PLANNED","tourId":%d}
+        """.formatted(dep.getStartDate(), dep.getEndDate(), tour.getId());
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> bookings = new ArrayList<>();
+        List<Future<Integer>> updates = new ArrayList<>();
+        try {
+            for (int i = 0; i < 40; i++) {
+                bookings.add(pool.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(post("/api/v1/bookings")
+                                    .header("Authorization", "Bearer " + token)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(bookingBody))
+                            .andReturn().getResponse().getStatus();
+                }));
+                if (i % 2 == 0) {
+                    updates.add(pool.submit(() -> {
+                        start.await();
+                        return mockMvc.perform(put("/api/v1/tour-departures/" + dep.getId())
+                                        .header("Authorization", "Bearer " + adminToken)
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .content(updateBody.formatted(60)))
+                                .andReturn().getResponse().getStatus();
+                    }));
+                }
+            }
+            start.countDown();
+
+            int created = 0;
+            for (Future<Integer> result : bookings) {
+                if (result.get(60, TimeUnit.SECONDS) == 201) {
+                    created++;
+                }
+            }
+            for (Future<Integer> result : updates) {
+                assertThat(result.get(60, TimeUnit.SECONDS)).isEqualTo(200);
+            }
+            assertThat(created).isEqualTo(40);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(tourDepartureRepository.findById(dep.getId()).orElseThrow().getCapacityReserved()).isEqualTo(40);
+
+        // вместимость меньше занятых мест -> 409, строка не меняется
+        mockMvc.perform(put("/api/v1/tour-departures/" + dep.getId())
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updateBody.formatted(39)))
+                .andExpect(status().isConflict());
+        mockMvc.perform(put("/api/v1/tour-departures/" + dep.getId())
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updateBody.formatted(40)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.capacityTotal").value(40))
+                .andExpect(jsonPath("$.capacityReserved").value(40));
+
+        TourDepartureEntity reloaded = tourDepartureRepository.findById(dep.getId()).orElseThrow();
+        assertThat(reloaded.getCapacityTotal()).isEqualTo(40);
+        assertThat(reloaded.getCapacityReserved()).isEqualTo(40);
+    }
+
+    @Test
+    @DisplayName("PENDING-бронь удерживает места до hold_expires_at, сборщик возвращает места просроченных")
+    void expiredHold_isSweptAndSeatsReleased() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourDepartureEntity dep = departure(tour("Riga Tour", riga), 4);
+        FlightEntity flight = flightForDeparture("BT400", rix, vno, dep);
+
+        long expiring = createBooking(token, 4, dep.getId(), flight.getId());
+        assertThat(bookingRepository.findById(expiring).orElseThrow().getHoldExpiresAt()).isAfter(LocalDateTime.now());
+        assertThat(tourDepartureRepository.findById(dep.getId()).orElseThrow().getStatus())
+                .isEqualTo(TourDepartureStatus.SALES_CLOSED);
+
+        expireHold(expiring);
+        bookingHoldSweeper.sweepExpiredHolds();
+
+        BookingEntity expired = bookingRepository.findById(expiring).orElseThrow();
+        assertThat(expired.getStatus()).isEqualTo(BookingStatus.EXPIRED);
+        assertThat(expired.getHoldExpiresAt()).isNull();
+
+        TourDepartureEntity reloaded = tourDepartureRepository.findById(dep.getId()).orElseThrow();
+        assertThat(reloaded.getCapacityReserved()).isZero();
+        assertThat(reloaded.getStatus()).isEqualTo(TourDepartureStatus.PLANNED);
+
+        // места снова можно забронировать
+        createBooking(token, 4, dep.getId(), flight.getId());
+    }
+
+    @Test
+    @DisplayName("PATCH /api/v1/bookings/{id}/status: удержание подтверждается, пока не истекло, иначе 409")
+    void confirmHold_onlyBeforeExpiry() throws Exception {
+        String userToken = createUserToken("user@test.com");
+        String adminToken = createAdminToken();
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourDepartureEntity dep = departure(tour("Riga Tour", riga), 4);
+        FlightEntity flight = flightForDeparture("BT401", rix, vno, dep);
+
+        long active = createBooking(userToken, 2, dep.getId(), flight.getId());
+        long expiring = createBooking(userToken, 2, dep.getId(), flight.getId());
+        expireHold(expiring);
+
+        // вылет распродан (SALES_CLOSED), но подтверждение удержания всё равно проходит
+        mockMvc.perform(patch("/api/v1/bookings/" + active + "/status")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"CONFIRMED\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value(BookingStatus.CONFIRMED.name()))
+                .andExpect(jsonPath("$.holdExpiresAt").doesNotExist());
+
+        mockMvc.perform(patch("/api/v1/bookings/" + expiring + "/status")
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\":\"CONFIRMED\"}"))
+                .andExpect(status().isConflict());
+
+        assertThat(bookingRepository.findById(expiring).orElseThrow().getStatus()).isEqualTo(BookingStatus.PENDING);
+        assertThat(tourDepartureRepository.findById(dep.getId()).orElseThrow().getCapacityReserved()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/bookings/batch BEST_EFFORT: создаётся то, что помещается, по остальным — причина")
+    void batch_bestEffort_partial() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourEntity tour = tour("Riga Tour", riga);
+        TourDepartureEntity small = departure(tour, 3);
+        TourDepartureEntity big = departure(tour, 10);
+        FlightEntity smallFlight = flightForDeparture("BT500", rix, vno, small);
+        FlightEntity bigFlight = flightForDeparture("BT501", rix, vno, big);
+
+        String body = """
+          {"mode":"BEST_EFFORT","items":[
+            {"personsCount":2,"totalPrice":1,"tourDepartureId":%d,"outboundFlightId":%d},
+            {"personsCount":2,"totalPrice":1,"tourDepartureId":%d,"outboundFlightId":%d},
+            {"personsCount":4,"totalPrice":1,"tourDepartureId":%d,"outboundFlightId":%d},
+            {"personsCount":1,"totalPrice":1,"tourDepartureId":%d,"outboundFlightId":%d}
+          ]}
+        """.formatted(
+                small.getId(), smallFlight.getId(),
+                small.getId(), smallFlight.getId(),
+                big.getId(), bigFlight.getId(),
+                big.getId(), smallFlight.getId());
+
+        mockMvc.perform(post("/api/v1/bookings/batch")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.requested").value(4))
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.items[0].created").value(true))
+                .andExpect(jsonPath("$.items[0].booking.id").exists())
+                .andExpect(jsonPath("$.items[1].created").value(false))
+                .andExpect(jsonPath("$.items[2].created").value(true))
+                .andExpect(jsonPath("$.items[2].booking.totalPrice").value(64000.0))
+                .andExpect(jsonPath("$.items[3].created").value(false))
+                .andExpect(jsonPath("$.items[3].error").exists());
+
+        assertThat(tourDepartureRepository.findById(small.getId()).orElseThrow().getCapacityReserved()).isEqualTo(2);
+        assertThat(tourDepartureRepository.findById(big.getId()).orElseThrow().getCapacityReserved()).isEqualTo(4);
+        assertThat(bookingRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/bookings/batch ALL_OR_NOTHING: при нехватке мест на одном вылете не создаётся ничего")
+    void batch_allOrNothing_rollsBack() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourEntity tour = tour("Riga Tour", riga);
+        TourDepartureEntity first = departure(tour, 10);
+        TourDepartureEntity second = departure(tour, 3);
+        FlightEntity firstFlight = flightForDeparture("BT600", rix, vno, first);
+        FlightEntity secondFlight = flightForDeparture("BT601", rix, vno, second);
+
+        String body = """
+          {"mode":"ALL_OR_NOTHING","items":[
+            {"personsCount":5,"totalPrice":1,"tourDepartureId":%d,"outboundFlightId":%d},
+            {"personsCount":2,"totalPrice":1,"tourDepartureId":%d,"outboundFlightId":%d},
+            {"personsCount":2,"totalPrice":1,"tourDepartureId":%d,"outboundFlightId":%d}
+          ]}
+        """.formatted(
+                first.getId(), firstFlight.getId(),
+                second.getId(), secondFlight.getId(),
+                second.getId(), secondFlight.getId());
+
+        mockMvc.perform(post("/api/v1/bookings/batch")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.created").value(0))
+                .andExpect(jsonPath("$.rejected").value(3))
+                .andExpect(jsonPath("$.items[1].error").exists());
+
+        assertThat(tourDepartureRepository.findById(first.getId()).orElseThrow().getCapacityReserved()).isZero();
+        assertThat(tourDepartureRepository.findById(second.getId()).orElseThrow().getCapacityReserved()).isZero();
+        assertThat(bookingRepository.count()).isZero();
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/bookings с Idempotency-Key: повторы и параллельные дубли возвращают одну и ту же бронь")
+    void create_idempotencyKey_createsOnce() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourDepartureEntity dep = departure(tour("Riga Tour", riga), 10);
+        FlightEntity flight = flightForDeparture("BT800", rix, vno, dep);
+        String body = bookingBody(2, dep.getId(), flight.getId());
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 20; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(post("/api/v1/bookings")
+                                    .header("Authorization", "Bearer " + token)
+                                    .header("Idempotency-Key", "order-42")
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(body))
+                            .andExpect(status().isCreated())
+                            .andReturn().getResponse().getContentAsString();
+                }));
+            }
+            start.countDown();
+
+            long firstId = objectMapper.readTree(results.get(0).get(60, TimeUnit.SECONDS)).get("id").asLong();
+            for (Future<String> result : results) {
+                assertThat(objectMapper.readTree(result.get(60, TimeUnit.SECONDS)).get("id").asLong()).isEqualTo(firstId);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(bookingRepository.count()).isEqualTo(1);
+        assertThat(tourDepartureRepository.findById(dep.getId()).orElseThrow().getCapacityReserved()).isEqualTo(2);
+
+        // тот же ключ с другим телом
+        mockMvc.perform(post("/api/v1/bookings")
+                        .header("Authorization", "Bearer " + token)
+                        .header("Idempotency-Key", "order-42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingBody(3, dep.getId(), flight.getId())))
+                .andExpect(status().isUnprocessableEntity());
+
+        // без ключа — обычное создание
+        createBooking(token, 1, dep.getId(), flight.getId());
+        assertThat(bookingRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Idempotency-Key: действие упало с Error -> ключ освобождается, повтор выполняется заново")
+    void idempotencyKey_errorInAction_releasesKey() {
+        assertThatThrownBy(() -> idempotencyStore.execute("test", "key-1", "body", () -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        assertThat(idempotencyStore.execute("test", "key-1", "body", () -> "done")).isEqualTo("done");
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/bookings на распроданный вылет -> 503 с Retry-After без транзакции бронирования")
+    void create_soldOut_rejectedByAdmission() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourDepartureEntity dep = departure(tour("Riga Tour", riga), 1);
+        FlightEntity flight = flightForDeparture("BT810", rix, vno, dep);
+
+        long bookingId = createBooking(token, 1, dep.getId(), flight.getId());
+
+        mockMvc.perform(post("/api/v1/bookings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingBody(1, dep.getId(), flight.getId())))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists("Retry-After"));
+
+        // место вернулось — вылет снова допускает бронирования
+        mockMvc.perform(patch("/api/v1/bookings/my/" + bookingId + "/cancel")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        createBooking(token, 1, dep.getId(), flight.getId());
+        assertThat(bookingRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/tour-departures/{id}/quote: цена как у брони и пересчёт после изменения вылета")
+    void quote_matchesBookingPrice_andRefreshesAfterUpdate() throws Exception {
+        String token = createUserToken("user@test.com");
+        String adminToken = createAdminToken();
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourEntity tour = tour("Riga Tour", riga);
+        TourDepartureEntity dep = departure(tour, 10);
+        FlightEntity out = flightForDeparture("BT900", rix, vno, dep);
+        FlightEntity ret = flightForDeparture("BT901", vno, rix, dep);
+
+        String quote = mockMvc.perform(get("/api/v1/tour-departures/" + dep.getId() + "/quote")
+                        .param("outboundFlightId", out.getId().toString())
+                        .param("returnFlightId", ret.getId().toString())
+                        .param("persons", "2")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(objectMapper.readTree(quote).get("totalPrice").decimalValue()).isEqualByComparingTo("62000");
+
+        String booking = mockMvc.perform(post("/api/v1/bookings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                          {"personsCount":2,"totalPrice":1,"tourDepartureId":%d,"outboundFlightId":%d,"returnFlightId":%d}
+                        """.formatted(dep.getId(), out.getId(), ret.getId())))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(objectMapper.readTree(booking).get("totalPrice").decimalValue()).isEqualByComparingTo("62000");
+
+        // рейс не привязан к вылету
+        mockMvc.perform(get("/api/v1/tour-departures/" + dep.getId() + "/quote")
+                        .param("outboundFlightId", String.valueOf(out.getId() + 1000))
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(put("/api/v1/tour-departures/" + dep.getId())
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {
+                          "startDate": "%s",
+                          "endDate": "%s",
+                          "capacityTotal": 10,
+                          "capacityReserved": 2,
+                          "priceOverride": 900.00,
+                          "status": "PLANNED",
+                          "tourId": %d,
+                          "flightIds": [%d, %d]
+                        }
+                        """.formatted(dep.getStartDate(), dep.getEndDate(), tour.getId(), out.getId(), ret.getId())))
+                .andExpect(status().isOk());
+
+        String updated = mockMvc.perform(get("/api/v1/tour-departures/" + dep.getId() + "/quote")
+                        .param("outboundFlightId", out.getId().toString())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.personsCount").value(1))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(objectMapper.readTree(updated).get("totalPrice").decimalValue()).isEqualByComparingTo("15900");
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/bookings: фиксированное число SQL-запросов, коллекции рейсов не загружаются")
+    void create_fixedStatementCount_noCollectionLoads() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourDepartureEntity dep = departure(tour("Riga Tour", riga), 100);
+        FlightEntity out = flightForDeparture("BT950", rix, vno, dep);
+        FlightEntity ret = flightForDeparture("BT951", vno, rix, dep);
+
+        // у рейса уже много броней — их не должны читать ради одной новой
+        for (int i = 0; i < 20; i++) {
+            createBooking(token, 1, dep.getId(), out.getId());
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            mockMvc.perform(post("/api/v1/bookings")
+                            .header("Authorization", "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("""
+                              {"personsCount":1,"totalPrice":1,"tourDepartureId":%d,"outboundFlightId":%d,"returnFlightId":%d}
+                            """.formatted(dep.getId(), out.getId(), ret.getId())))
+                    .andExpect(status().isCreated())
+                    .andExpect(jsonPath("$.tourTitle").value("Riga Tour"))
+                    .andExpect(jsonPath("$.returnFlightNumber").value("BT951"));
+
+            // пользователь из JWT-фильтра, пользователь, вылет с туром, оба рейса,
+            // привязка рейсов к вылету, INSERT брони, UPDATE мест
+            assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(7);
+            assertThat(statistics.getCollectionLoadCount()).isZero();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/bookings/my/cursor: страницы по курсору от новых к старым без повторов")
+    void myCursor_walksAllPagesNewestFirst() throws Exception {
+        String token = createUserToken("user@test.com");
+        String otherToken = createUserToken("other@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourDepartureEntity dep = departure(tour("Riga Tour", riga), 20);
+        FlightEntity flight = flightForDeparture("BT960", rix, vno, dep);
+
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(createBooking(token, 1, dep.getId(), flight.getId()));
+        }
+        createBooking(otherToken, 1, dep.getId(), flight.getId());
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = get("/api/v1/bookings/my/cursor")
+                    .param("size", "2")
+                    .header("Authorization", "Bearer " + token);
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String resp = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+
+            JsonNode page = objectMapper.readTree(resp);
+            page.get("content").forEach(b -> seen.add(b.get("id").asLong()));
+            cursor = page.get("hasNext").asBoolean() ? page.get("nextCursor").asText() : null;
+        } while (cursor != null);
+
+        // брони создавались по очереди: от новых к старым — обратный порядок создания
+        Collections.reverse(created);
+        assertThat(seen).containsExactlyElementsOf(created);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/bookings/my/cursor: createdFrom/createdTo принимаются в ISO-формате")
+    void myCursor_isoDateFilter() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourDepartureEntity dep = departure(tour("Riga Tour", riga), 20);
+        FlightEntity flight = flightForDeparture("BT960", rix, vno, dep);
+        long bookingId = createBooking(token, 1, dep.getId(), flight.getId());
+
+        LocalDateTime now = LocalDateTime.now();
+        mockMvc.perform(get("/api/v1/bookings/my/cursor")
+                        .param("createdFrom", now.minusDays(1).toString())
+                        .param("createdTo", now.plusDays(1).toString())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(bookingId));
+
+        mockMvc.perform(get("/api/v1/bookings/my/cursor")
+                        .param("createdFrom", now.plusDays(1).toString())
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(0));
+    }
+
+    @Test
+    @DisplayName("Свободные места в сводке тура после брони пересчитываются фоновой пачкой, а не в запросе брони")
+    void create_tourSummarySeatsRefreshedByBatch() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourEntity t = tour("Riga Tour", riga);
+        TourDepartureEntity dep = departure(t, 10);
+        FlightEntity flight = flightForDeparture("BT810", rix, vno, dep);
+        tourSummaryService.rebuildAll();
+
+        createBooking(token, 3, dep.getId(), flight.getId());
+        createBooking(token, 2, dep.getId(), flight.getId());
+
+        tourSummaryService.flushSeatChanges();
+        assertThat(tourSummaryRepository.findById(t.getId()).orElseThrow().getSeatsLeft()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/bookings/export — MANAGER/ADMIN, /api/v1/users/export — только ADMIN")
+    void export_authorization() throws Exception {
+        String userToken = createUserToken("user@test.com");
+        String adminToken = createAdminToken();
+        createUser("manager@test.com", "Pa$sw0rd!", UserRole.MANAGER);
+        String managerToken = signInAndGetToken("manager@test.com", "Pa$sw0rd!");
+
+        mockMvc.perform(get("/api/v1/bookings/export")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/v1/bookings/export")
+                        .header("Authorization", "Bearer " + managerToken))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"));
+        mockMvc.perform(get("/api/v1/bookings/export")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/v1/users/export")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/v1/users/export")
+                        .header("Authorization", "Bearer " + managerToken))
+                .andExpect(status().isForbidden());
+        String users = mockMvc.perform(get("/api/v1/users/export")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(users.lines().filter(l -> !l.isBlank()).count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/bookings/export сверх app.streaming.export.max-concurrent -> 503 до начала выгрузки, обычный список не ограничен")
+    void export_concurrencyCapped_503() throws Exception {
+        String adminToken = createAdminToken();
+
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // две выгрузки (лимит по умолчанию) висят, пока их не отпустят
+            for (int i = 0; i < 2; i++) {
+                pool.submit(() -> {
+                    rowStreamWriter.ndjson(new MockHttpServletResponse(), sink -> {
+                        started.countDown();
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                    return null;
+                });
+            }
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            mockMvc.perform(get("/api/v1/bookings/export")
+                            .header("Authorization", "Bearer " + adminToken))
+                    .andExpect(status().isServiceUnavailable());
+
+            // лимит только у выгрузок: обычный список отвечает и при занятых выгрузках
+            for (int i = 0; i < 3; i++) {
+                mockMvc.perform(get("/api/v1/bookings")
+                                .header("Authorization", "Bearer " + adminToken))
+                        .andExpect(status().isOk());
+            }
+        } finally {
+            release.countDown();
+            pool.shutdown();
+            assertThat(pool.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        mockMvc.perform(get("/api/v1/bookings/export")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+    }
+}
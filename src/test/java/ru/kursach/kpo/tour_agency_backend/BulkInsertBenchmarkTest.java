@@ -0,0 +1,185 @@
+package ru.kursach.kpo.tour_agency_backend;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.kursach.kpo.tour_agency_backend.model.entity.*;
+import ru.kursach.kpo.tour_agency_backend.model.enums.BookingStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
+import ru.kursach.kpo.tour_agency_backend.repository.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@Testcontainers
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkInsertBenchmarkTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tour_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.datasource.url", postgres::getJdbcUrl);
+        r.add("spring.datasource.username", postgres::getUsername);
+        r.add("spring.datasource.password", postgres::getPassword);
+        r.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        r.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        r.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    private static final int ROWS = 2000;
+
+    @Autowired EntityManager entityManager;
+    @Autowired EntityManagerFactory entityManagerFactory;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Autowired UserRepository userRepository;
+    @Autowired CityRepository cityRepository;
+    @Autowired AirportRepository airportRepository;
+    @Autowired TourRepository tourRepository;
+    @Autowired TourDepartureRepository tourDepartureRepository;
+    @Autowired FlightRepository flightRepository;
+    @Autowired BookingRepository bookingRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void clean() {
+        // порядок важен из-за FK
+        bookingRepository.deleteAll();
+        flightRepository.deleteAll();
+        tourDepartureRepository.deleteAll();
+        tourRepository.deleteAll();
+        airportRepository.deleteAll();
+        cityRepository.deleteAll();
+        userRepository.deleteAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    // ---------- helpers ----------
+
+    /**
+     * Вставляет rows сущностей в одной транзакции.
+     * jdbcBatchSize = 1 воспроизводит прежнее поведение (IDENTITY: один round-trip на строку).
+     *
+     * @return {время в мс, число подготовленных JDBC-выражений}
+     */
+    private long[] load(int jdbcBatchSize, IntFunction<Object> entity) {
+        statistics.clear();
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            for (int i = 0; i < ROWS; i++) {
+                entityManager.persist(entity.apply(i));
+                if ((i + 1) % 500 == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+        return new long[]{(System.nanoTime() - start) / 1_000_000, statistics.getPrepareStatementCount()};
+    }
+
+    private void report(String what, long[] before, long[] after) {
+        System.out.printf("%s x%d: row-by-row %d ms (%d statements, %.0f rows/s), batched %d ms (%d statements, %.0f rows/s)%n",
+                what, ROWS,
+                before[0], before[1], ROWS * 1000.0 / Math.max(before[0], 1),
+                after[0], after[1], ROWS * 1000.0 / Math.max(after[0], 1));
+    }
+
+    // ---------- tests ----------
+
+    @Test
+    @DisplayName("Массовая вставка рейсов и броней: пакеты JDBC вместо вставки по одной строке")
+    void bulkFlightsAndBookings_batchedInserts() {
+        CityEntity riga = cityRepository.save(CityEntity.builder()
+                .name("Riga").country("Latvia").timezone("Europe/Riga").build());
+        CityEntity vilnius = cityRepository.save(CityEntity.builder()
+                .name("Vilnius").country("Lithuania").timezone("Europe/Vilnius").build());
+        AirportEntity rix = airportRepository.save(AirportEntity.builder()
+                .iataCode("RIX").name("Riga Airport").city(riga).build());
+        AirportEntity vno = airportRepository.save(AirportEntity.builder()
+                .iataCode("VNO").name("Vilnius Airport").city(vilnius).build());
+        UserEntity user = userRepository.save(UserEntity.builder()
+                .username("user").email("user@test.com").password("Pa$sw0rd!")
+                .userRole(UserRole.USER).active(true).build());
+        TourEntity tour = tourRepository.save(TourEntity.builder()
+                .title("Riga Tour").description("desc").durationDays(7)
+                .basePrice(new BigDecimal("1000.00"))
+                .status(TourStatus.PUBLISHED).active(true).baseCity(riga).build());
+        LocalDate start = LocalDate.now().plusDays(30);
+        TourDepartureEntity departure = tourDepartureRepository.save(TourDepartureEntity.builder()
+                .tour(tour).startDate(start).endDate(start.plusDays(7))
+                .capacityTotal(10 * ROWS).capacityReserved(0)
+                .status(TourDepartureStatus.PLANNED).build());
+
+        IntFunction<FlightEntity> flight = i -> FlightEntity.builder()
+                .flightNumber("F" + i)
+                .carrier("airBaltic")
+                .departAt(start.atTime(10, 0))
+                .arriveAt(start.atTime(12, 0))
+                .basePrice(new BigDecimal("15000.00"))
+                .departureAirport(entityManager.getReference(AirportEntity.class, rix.getId()))
+                .arrivalAirport(entityManager.getReference(AirportEntity.class, vno.getId()))
+                .build();
+
+        long[] flightsBefore = load(1, flight::apply);
+        long[] flightsAfter = load(50, i -> flight.apply(ROWS + i));
+        report("flights", flightsBefore, flightsAfter);
+
+        FlightEntity outbound = flightRepository.findAll().get(0);
+        IntFunction<Object> booking = i -> BookingEntity.builder()
+                .personsCount(1)
+                .totalPrice(new BigDecimal("16000.00"))
+                .status(BookingStatus.CONFIRMED)
+                .createdAt(LocalDateTime.now())
+                .user(entityManager.getReference(UserEntity.class, user.getId()))
+                .tourDeparture(entityManager.getReference(TourDepartureEntity.class, departure.getId()))
+                .outboundFlight(entityManager.getReference(FlightEntity.class, outbound.getId()))
+                .build();
+
+        long[] bookingsBefore = load(1, booking);
+        long[] bookingsAfter = load(50, booking);
+        report("bookings", bookingsBefore, bookingsAfter);
+
+        assertThat(flightRepository.count()).isEqualTo(2L * ROWS);
+        assertThat(bookingRepository.count()).isEqualTo(2L * ROWS);
+
+        // INSERT пачками по 50 + nextval раз на 50 id
+        assertThat(flightsAfter[1]).isLessThan(flightsBefore[1] / 10);
+        assertThat(bookingsAfter[1]).isLessThan(bookingsBefore[1] / 10);
+        assertThat(flightsAfter[0]).isLessThan(flightsBefore[0]);
+        assertThat(bookingsAfter[0]).isLessThan(bookingsBefore[0]);
+    }
+}
@@ -0,0 +1,252 @@
+package ru.kursach.kpo.tour_agency_backend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.kursach.kpo.tour_agency_backend.model.entity.*;
+import ru.kursach.kpo.tour_agency_backend.model.enums.BookingStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
+import ru.kursach.kpo.tour_agency_backend.repository.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@Testcontainers
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CapacityReconciliationIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tour_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.datasource.url", postgres::getJdbcUrl);
+        r.add("spring.datasource.username", postgres::getUsername);
+        r.add("spring.datasource.password", postgres::getPassword);
+        r.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        r.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+
+    @Autowired PasswordEncoder passwordEncoder;
+
+    @Autowired UserRepository userRepository;
+    @Autowired CityRepository cityRepository;
+    @Autowired AirportRepository airportRepository;
+    @Autowired TourRepository tourRepository;
+    @Autowired TourDepartureRepository tourDepartureRepository;
+    @Autowired FlightRepository flightRepository;
+    @Autowired BookingRepository bookingRepository;
+
+    @BeforeEach
+    void clean() {
+        // порядок важен из-за FK
+        bookingRepository.deleteAll();
+        flightRepository.deleteAll();
+        tourDepartureRepository.deleteAll();
+        tourRepository.deleteAll();
+        airportRepository.deleteAll();
+        cityRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    // ---------- helpers ----------
+
+    private String signInAndGetToken(String email, String pass) throws Exception {
+        String body = """
+          {"email":"%s","password":"%s"}
+        """.formatted(email, pass);
+
+        String resp = mockMvc.perform(post("/api/v1/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").exists())
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode node = objectMapper.readTree(resp);
+        return node.get("token").asText();
+    }
+
+    private UserEntity createUser(String email, String rawPass, UserRole role) {
+        return userRepository.save(UserEntity.builder()
+                .username(role.name().toLowerCase())
+                .email(email)
+                .password(passwordEncoder.encode(rawPass))
+                .userRole(role)
+                .active(true)
+                .build());
+    }
+
+    private String createUserToken(String email) throws Exception {
+        createUser(email, "Pa$sw0rd!", UserRole.USER);
+        return signInAndGetToken(email, "Pa$sw0rd!");
+    }
+
+    private String createAdminToken() throws Exception {
+        createUser("admin@test.com", "Pa$sw0rd!", UserRole.ADMIN);
+        return signInAndGetToken("admin@test.com", "Pa$sw0rd!");
+    }
+
+    private CityEntity city(String name) {
+        return cityRepository.save(CityEntity.builder()
+                .name(name)
+                .country("Latvia")
+                .timezone("Europe/Riga")
+                .build());
+    }
+
+    private AirportEntity airport(String iata, String name, CityEntity city) {
+        return airportRepository.save(AirportEntity.builder()
+                .iataCode(iata)
+                .name(name)
+                .city(city)
+                .build());
+    }
+
+    private TourEntity tour(String title, CityEntity baseCity) {
+        return tourRepository.save(TourEntity.builder()
+                .title(title)
+                .description("desc")
+                .durationDays(7)
+                .basePrice(new BigDecimal("1000.00"))
+                .status(TourStatus.PUBLISHED)
+                .active(true)
+                .baseCity(baseCity)
+                .build());
+    }
+
+    private TourDepartureEntity departure(TourEntity tour, int capacityTotal, int capacityReserved) {
+        LocalDate start = LocalDate.now().plusDays(30);
+        return tourDepartureRepository.save(TourDepartureEntity.builder()
+                .tour(tour)
+                .startDate(start)
+                .endDate(start.plusDays(7))
+                .capacityTotal(capacityTotal)
+                .capacityReserved(capacityReserved)
+                .priceOverride(null)
+                .status(TourDepartureStatus.PLANNED)
+                .build());
+    }
+
+    private FlightEntity flightForDeparture(String number, AirportEntity dep, AirportEntity arr,
+                                            TourDepartureEntity departure) {
+        LocalDateTime departAt = departure.getStartDate().atTime(10, 0);
+        FlightEntity flight = FlightEntity.builder()
+                .flightNumber(number)
+                .carrier("airBaltic")
+                .departAt(departAt)
+                .arriveAt(departAt.plusHours(2))
+                .basePrice(new BigDecimal("15000.00"))
+                .departureAirport(dep)
+                .arrivalAirport(arr)
+                .build();
+        flight.addTourDeparture(departure);
+        return flightRepository.save(flight);
+    }
+
+    private void booking(UserEntity user, TourDepartureEntity departure, FlightEntity flight,
+                         int persons, BookingStatus status) {
+        bookingRepository.save(BookingEntity.builder()
+                .personsCount(persons)
+                .totalPrice(new BigDecimal("1000.00"))
+                .status(status)
+                .user(user)
+                .tourDeparture(departure)
+                .outboundFlight(flight)
+                .build());
+    }
+
+    // ---------- tests ----------
+
+    @Test
+    @DisplayName("POST /api/v1/admin/capacity/reconcile с USER -> 403")
+    void reconcile_user_403() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        mockMvc.perform(post("/api/v1/admin/capacity/reconcile")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/admin/capacity/reconcile: отчёт о расхождениях и исправление по repair=true")
+    void reconcile_reportsAndRepairs() throws Exception {
+        String adminToken = createAdminToken();
+        UserEntity user = createUser("user@test.com", "Pa$sw0rd!", UserRole.USER);
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+        TourEntity tour = tour("Riga Tour", riga);
+
+        // менеджер «поправил» места руками: 9 вместо 3
+        TourDepartureEntity overcounted = departure(tour, 10, 9);
+        FlightEntity f1 = flightForDeparture("BT900", rix, vno, overcounted);
+        booking(user, overcounted, f1, 2, BookingStatus.PENDING);
+        booking(user, overcounted, f1, 1, BookingStatus.CONFIRMED);
+        booking(user, overcounted, f1, 5, BookingStatus.CANCELLED);
+
+        // места сходятся, но вылет полностью выкуплен и всё ещё PLANNED
+        TourDepartureEntity full = departure(tour, 2, 2);
+        FlightEntity f2 = flightForDeparture("BT901", rix, vno, full);
+        booking(user, full, f2, 2, BookingStatus.CONFIRMED);
+
+        TourDepartureEntity consistent = departure(tour, 10, 0);
+
+        mockMvc.perform(post("/api/v1/admin/capacity/reconcile")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.departuresChecked").value(3))
+                .andExpect(jsonPath("$.departuresDrifted").value(2))
+                .andExpect(jsonPath("$.totalSeatDrift").value(6))
+                .andExpect(jsonPath("$.repaired").value(false))
+                .andExpect(jsonPath("$.rowsRepaired").value(0));
+
+        assertThat(tourDepartureRepository.findById(overcounted.getId()).orElseThrow().getCapacityReserved()).isEqualTo(9);
+
+        mockMvc.perform(post("/api/v1/admin/capacity/reconcile")
+                        .param("repair", "true")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.repaired").value(true))
+                .andExpect(jsonPath("$.rowsRepaired").value(2));
+
+        assertThat(tourDepartureRepository.findById(overcounted.getId()).orElseThrow().getCapacityReserved()).isEqualTo(3);
+        assertThat(tourDepartureRepository.findById(full.getId()).orElseThrow().getStatus())
+                .isEqualTo(TourDepartureStatus.SALES_CLOSED);
+        assertThat(tourDepartureRepository.findById(consistent.getId()).orElseThrow().getCapacityReserved()).isZero();
+
+        mockMvc.perform(post("/api/v1/admin/capacity/reconcile")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.departuresDrifted").value(0));
+    }
+}
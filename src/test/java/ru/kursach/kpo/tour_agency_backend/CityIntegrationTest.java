@@ -153,4 +153,95 @@ class CityIntegrationTest {
                 .andExpect(jsonPath("$.id").exists())
                 .andExpect(jsonPath("$.name").value("Riga"));
     }
+
+    @Test
+    @DisplayName("GET /api/v1/typeahead: префиксный поиск городов и аэропортов, индекс обновляется после create/update/delete")
+    void typeahead_followsCityAndAirportChanges() throws Exception {
+        userRepository.save(UserEntity.builder()
+                .username("Admin")
+                .email("admin@test.com")
+                .password(passwordEncoder.encode("Pa$sw0rd!"))
+                .userRole(UserRole.ADMIN)
+                .active(true)
+                .build());
+        String adminToken = signInAndGetToken("admin@test.com", "Pa$sw0rd!");
+
+        String cityJson = mockMvc.perform(post("/api/v1/cities")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                          {"name":"Saint Petersburg","country":"Russia","timezone":"Europe/Moscow"}
+                        """)
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long cityId = objectMapper.readTree(cityJson).get("id").asLong();
+
+        String airportJson = mockMvc.perform(post("/api/v1/airports")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                          {"iataCode":"LED","name":"Pulkovo","cityId":%d}
+                        """.formatted(cityId))
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long airportId = objectMapper.readTree(airportJson).get("id").asLong();
+
+        // слово внутри названия тоже префикс
+        mockMvc.perform(get("/api/v1/typeahead")
+                        .param("q", "PETER")
+                        .param("kind", "CITY")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(cityId))
+                .andExpect(jsonPath("$[0].detail").value("Russia"));
+
+        mockMvc.perform(get("/api/v1/typeahead")
+                        .param("q", "le")
+                        .param("kind", "AIRPORT")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(airportId))
+                .andExpect(jsonPath("$[0].label").value("LED — Pulkovo"))
+                .andExpect(jsonPath("$[0].detail").value("Saint Petersburg"));
+
+        // переименование города: старый терм снят, у аэропорта новое название города
+        mockMvc.perform(put("/api/v1/cities/" + cityId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                          {"name":"Leningrad","country":"Russia","timezone":"Europe/Moscow"}
+                        """)
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/v1/typeahead")
+                        .param("q", "peter")
+                        .param("kind", "CITY")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(get("/api/v1/typeahead")
+                        .param("q", "pulk")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].detail").value("Leningrad"));
+
+        mockMvc.perform(delete("/api/v1/airports/" + airportId)
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().is2xxSuccessful());
+
+        mockMvc.perform(get("/api/v1/typeahead")
+                        .param("q", "pulk")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(get("/api/v1/typeahead")
+                        .param("q", "pulk")
+                        .param("limit", "500")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isBadRequest());
+    }
 }
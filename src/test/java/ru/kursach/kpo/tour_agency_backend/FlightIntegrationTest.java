@@ -12,21 +12,26 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import ru.kursach.kpo.tour_agency_backend.model.entity.AirportEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.CityEntity;
+import ru.kursach.kpo.tour_agency_backend.model.entity.FlightEntity;
 import ru.kursach.kpo.tour_agency_backend.model.entity.UserEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.FlightStatus;
 import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
 import ru.kursach.kpo.tour_agency_backend.repository.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static ru.kursach.kpo.tour_agency_backend.support.SqlStatementRecorder.Recording.countAtMost;
 
 @Testcontainers
 @SpringBootTest
@@ -139,6 +144,11 @@ class FlightIntegrationTest {
 
     private String createFlightBody(String flightNumber, AirportEntity dep, AirportEntity arr,
                                     LocalDateTime departAt, LocalDateTime arriveAt) {
+        return createFlightBody(flightNumber, dep, arr, departAt, arriveAt, new BigDecimal("15000.00"));
+    }
+
+    private String createFlightBody(String flightNumber, AirportEntity dep, AirportEntity arr,
+                                    LocalDateTime departAt, LocalDateTime arriveAt, BigDecimal basePrice) {
         return """
           {
             "flightNumber":"%s",
@@ -153,7 +163,7 @@ class FlightIntegrationTest {
                 flightNumber,
                 departAt,
                 arriveAt,
-                new BigDecimal("15000.00"),
+                basePrice,
                 dep.getId(),
                 arr.getId()
         );
@@ -450,4 +460,301 @@ class FlightIntegrationTest {
                         .header("Authorization", "Bearer " + adminToken))
                 .andExpect(status().isNotFound());
     }
+
+    private long createFlight(String adminToken, String body) throws Exception {
+        String json = mockMvc.perform(post("/api/v1/flights")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body)
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(json).get("id").asLong();
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/flights/itineraries -> маршруты с пересадкой по цене и длительности, граф следует за изменениями")
+    void itineraries_rankedAndUpdatedIncrementally() throws Exception {
+        String adminToken = createAdminAndGetToken();
+
+        CityEntity riga = createCity("Riga", "Latvia");
+        CityEntity vilnius = createCity("Vilnius", "Lithuania");
+        CityEntity tallinn = createCity("Tallinn", "Estonia");
+        AirportEntity rix = createAirport("RIX", "Riga Airport", riga);
+        AirportEntity vno = createAirport("VNO", "Vilnius Airport", vilnius);
+        AirportEntity tll = createAirport("TLL", "Tallinn Airport", tallinn);
+
+        LocalDateTime day = LocalDateTime.of(2026, 3, 1, 0, 0);
+        long first = createFlight(adminToken, createFlightBody("BT100", rix, vno,
+                day.withHour(8), day.withHour(9), new BigDecimal("100.00")));
+        long second = createFlight(adminToken, createFlightBody("BT200", vno, tll,
+                day.withHour(10).withMinute(30), day.withHour(11).withMinute(30), new BigDecimal("100.00")));
+        long direct = createFlight(adminToken, createFlightBody("BT300", rix, tll,
+                day.withHour(8).withMinute(30), day.withHour(9).withMinute(30), new BigDecimal("500.00")));
+        // пересадка 20 минут — меньше минимальной
+        createFlight(adminToken, createFlightBody("BT400", vno, tll,
+                day.withHour(9).withMinute(20), day.withHour(10).withMinute(20), new BigDecimal("50.00")));
+
+        mockMvc.perform(get("/api/v1/flights/itineraries")
+                        .param("fromCityId", riga.getId().toString())
+                        .param("toCityId", tallinn.getId().toString())
+                        .param("departFrom", "2026-03-01T00:00:00")
+                        .param("departTo", "2026-03-01T23:59:00")
+                        .param("maxLegs", "2")
+                        .param("minConnectionMinutes", "60")
+                        .param("sort", "PRICE")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].totalPrice").value(200.0))
+                .andExpect(jsonPath("$[0].transfers").value(1))
+                .andExpect(jsonPath("$[0].legs[0].flightId").value(first))
+                .andExpect(jsonPath("$[0].legs[1].flightId").value(second))
+                .andExpect(jsonPath("$[1].legs[0].flightId").value(direct));
+
+        mockMvc.perform(get("/api/v1/flights/itineraries")
+                        .param("fromCityId", riga.getId().toString())
+                        .param("toCityId", tallinn.getId().toString())
+                        .param("departFrom", "2026-03-01T00:00:00")
+                        .param("departTo", "2026-03-01T23:59:00")
+                        .param("sort", "DURATION")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].legs[0].flightId").value(direct))
+                .andExpect(jsonPath("$[0].durationMinutes").value(60));
+
+        mockMvc.perform(delete("/api/v1/flights/" + direct)
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/v1/flights/itineraries")
+                        .param("fromCityId", riga.getId().toString())
+                        .param("toCityId", tallinn.getId().toString())
+                        .param("departFrom", "2026-03-01T00:00:00")
+                        .param("departTo", "2026-03-01T23:59:00")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].legs.length()").value(2));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/flights/itineraries sort=DURATION: более поздний вылет с пересадкой не отсекается более ранним")
+    void itineraries_duration_laterFirstDepartureNotPruned() throws Exception {
+        String adminToken = createAdminAndGetToken();
+
+        CityEntity riga = createCity("Riga", "Latvia");
+        CityEntity vilnius = createCity("Vilnius", "Lithuania");
+        CityEntity tallinn = createCity("Tallinn", "Estonia");
+        AirportEntity rix = createAirport("RIX", "Riga Airport", riga);
+        AirportEntity vno = createAirport("VNO", "Vilnius Airport", vilnius);
+        AirportEntity tll = createAirport("TLL", "Tallinn Airport", tallinn);
+
+        LocalDateTime day = LocalDateTime.of(2026, 3, 1, 0, 0);
+        // первый рейс короче и прилетает раньше, но вылетает раньше: весь маршрут выходит 180 минут
+        createFlight(adminToken, createFlightBody("DU100", rix, vno,
+                day.withHour(6), day.withHour(7), new BigDecimal("100.00")));
+        long later = createFlight(adminToken, createFlightBody("DU200", rix, vno,
+                day.withHour(6).withMinute(30), day.withHour(7).withMinute(40), new BigDecimal("100.00")));
+        long onward = createFlight(adminToken, createFlightBody("DU300", vno, tll,
+                day.withHour(8), day.withHour(9), new BigDecimal("100.00")));
+
+        mockMvc.perform(get("/api/v1/flights/itineraries")
+                        .param("fromCityId", riga.getId().toString())
+                        .param("toCityId", tallinn.getId().toString())
+                        .param("departFrom", "2026-03-01T00:00:00")
+                        .param("departTo", "2026-03-01T23:59:00")
+                        .param("minConnectionMinutes", "15")
+                        .param("sort", "DURATION")
+                        .param("limit", "1")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].legs[0].flightId").value(later))
+                .andExpect(jsonPath("$[0].legs[1].flightId").value(onward))
+                .andExpect(jsonPath("$[0].durationMinutes").value(150));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/flights/itineraries одинаковые города -> 400")
+    void itineraries_sameCity_400() throws Exception {
+        String adminToken = createAdminAndGetToken();
+        CityEntity riga = createCity("Riga", "Latvia");
+
+        mockMvc.perform(get("/api/v1/flights/itineraries")
+                        .param("fromCityId", riga.getId().toString())
+                        .param("toCityId", riga.getId().toString())
+                        .param("departFrom", "2026-03-01T00:00:00")
+                        .param("departTo", "2026-03-01T23:59:00")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/flights/routes -> рейсы между аэропортами двух городов по дате, статусу и цене")
+    void routes_filteredByCitiesDateAndStatus() throws Exception {
+        String adminToken = createAdminAndGetToken();
+        String userToken = signUpUserAndGetToken("routes@mail.com");
+
+        CityEntity riga = createCity("Riga", "Latvia");
+        CityEntity vilnius = createCity("Vilnius", "Lithuania");
+        CityEntity tallinn = createCity("Tallinn", "Estonia");
+        AirportEntity rix = createAirport("RIX", "Riga Airport", riga);
+        AirportEntity rix2 = createAirport("RX2", "Riga Second", riga);
+        AirportEntity vno = createAirport("VNO", "Vilnius Airport", vilnius);
+        AirportEntity tll = createAirport("TLL", "Tallinn Airport", tallinn);
+
+        LocalDateTime day = LocalDateTime.of(2026, 3, 1, 0, 0);
+        long morning = createFlight(adminToken, createFlightBody("RT100", rix, vno,
+                day.withHour(8), day.withHour(9), new BigDecimal("300.00")));
+        long evening = createFlight(adminToken, createFlightBody("RT200", rix2, vno,
+                day.withHour(18), day.withHour(19), new BigDecimal("100.00")));
+        long nextDay = createFlight(adminToken, createFlightBody("RT300", rix, vno,
+                day.plusDays(1).withHour(8), day.plusDays(1).withHour(9), new BigDecimal("50.00")));
+        long cancelled = createFlight(adminToken, createFlightBody("RT400", rix, vno,
+                day.withHour(12), day.withHour(13), new BigDecimal("10.00")));
+        // другой маршрут и обратное направление в выдачу не попадают
+        createFlight(adminToken, createFlightBody("RT500", rix, tll,
+                day.withHour(10), day.withHour(11)));
+        createFlight(adminToken, createFlightBody("RT600", vno, rix,
+                day.withHour(10), day.withHour(11)));
+
+        FlightEntity toCancel = flightRepository.findById(cancelled).orElseThrow();
+        toCancel.setStatus(FlightStatus.CANCELLED);
+        flightRepository.save(toCancel);
+
+        mockMvc.perform(get("/api/v1/flights/routes")
+                        .param("fromCityId", riga.getId().toString())
+                        .param("toCityId", vilnius.getId().toString())
+                        .param("date", "2026-03-01")
+                        .param("size", "10")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                // без status — только SCHEDULED, отменённый рейс не показывается
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.content[0].id").value(morning))
+                .andExpect(jsonPath("$.content[1].id").value(evening))
+                .andExpect(jsonPath("$.content[1].departureAirportIata").value("RX2"))
+                .andExpect(jsonPath("$.content[1].arrivalAirportName").value("Vilnius Airport"));
+
+        mockMvc.perform(get("/api/v1/flights/routes")
+                        .param("fromCityId", riga.getId().toString())
+                        .param("toCityId", vilnius.getId().toString())
+                        .param("date", "2026-03-01")
+                        .param("status", "CANCELLED")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(cancelled));
+
+        mockMvc.perform(get("/api/v1/flights/routes")
+                        .param("fromCityId", riga.getId().toString())
+                        .param("toCityId", vilnius.getId().toString())
+                        .param("date", "2026-03-01")
+                        .param("flexDays", "1")
+                        .param("status", "SCHEDULED", "DELAYED")
+                        .param("sort", "PRICE_ASC")
+                        .param("size", "10")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(3))
+                .andExpect(jsonPath("$.content[0].id").value(nextDay))
+                .andExpect(jsonPath("$.content[1].id").value(evening))
+                .andExpect(jsonPath("$.content[2].id").value(morning));
+
+        mockMvc.perform(get("/api/v1/flights/routes")
+                        .param("fromCityId", riga.getId().toString())
+                        .param("toCityId", vilnius.getId().toString())
+                        .param("date", "2026-03-01")
+                        .param("status", "SCHEDULED")
+                        .param("count", "NONE")
+                        .param("size", "1")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(morning))
+                .andExpect(jsonPath("$.hasNext").value(true));
+
+        mockMvc.perform(get("/api/v1/flights/routes")
+                        .param("fromCityId", riga.getId().toString())
+                        .param("toCityId", riga.getId().toString())
+                        .param("date", "2026-03-01")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void seedFlights(AirportEntity dep, AirportEntity arr, int from, int to) {
+        for (int i = from; i < to; i++) {
+            LocalDateTime departAt = LocalDateTime.of(2026, 4, 1, 8, 0).plusHours(i);
+            flightRepository.save(FlightEntity.builder()
+                    .flightNumber("QC%03d".formatted(i))
+                    .carrier("Aeroflot")
+                    .departAt(departAt)
+                    .arriveAt(departAt.plusHours(1))
+                    .basePrice(new BigDecimal("100.00"))
+                    .departureAirport(dep)
+                    .arrivalAirport(arr)
+                    .build());
+        }
+    }
+
+    @Test
+    @DisplayName("Списки рейсов: число SQL-запросов ограничено и не растёт с числом строк на странице")
+    void lists_statementCountIndependentOfRows() throws Exception {
+        String adminToken = createAdminAndGetToken();
+        CityEntity riga = createCity("Riga", "Latvia");
+        CityEntity vilnius = createCity("Vilnius", "Lithuania");
+        AirportEntity rix = createAirport("RIX", "Riga Airport", riga);
+        AirportEntity vno = createAirport("VNO", "Vilnius Airport", vilnius);
+
+        MockHttpServletRequestBuilder paged = get("/api/v1/flights/paged").param("size", "20")
+                .header("Authorization", "Bearer " + adminToken);
+        MockHttpServletRequestBuilder cursor = get("/api/v1/flights/cursor").param("size", "20")
+                .header("Authorization", "Bearer " + adminToken);
+        MockHttpServletRequestBuilder all = get("/api/v1/flights")
+                .header("Authorization", "Bearer " + adminToken);
+
+        // пользователь из JWT, строки страницы, привязки к вылетам; неполная страница — без COUNT
+        seedFlights(rix, vno, 0, 2);
+        int pagedPartial = countAtMost(3, () -> mockMvc.perform(paged).andExpect(status().isOk()));
+        int cursorCount = countAtMost(3, () -> mockMvc.perform(cursor).andExpect(status().isOk()));
+        int allCount = countAtMost(3, () -> mockMvc.perform(all).andExpect(status().isOk()));
+
+        // страница заполнена -> добавляется COUNT
+        seedFlights(rix, vno, 2, 25);
+        int pagedFull = countAtMost(4, () -> mockMvc.perform(paged).andExpect(status().isOk()));
+        assertThat(pagedFull).isEqualTo(pagedPartial + 1);
+
+        seedFlights(rix, vno, 25, 45);
+        assertThat(countAtMost(4, () -> mockMvc.perform(paged).andExpect(status().isOk()))).isEqualTo(pagedFull);
+        assertThat(countAtMost(3, () -> mockMvc.perform(cursor).andExpect(status().isOk()))).isEqualTo(cursorCount);
+        assertThat(countAtMost(3, () -> mockMvc.perform(all).andExpect(status().isOk()))).isEqualTo(allCount);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/flights и /flights/export: все рейсы JSON-массивом и NDJSON построчно")
+    void getAllAndExport_streamAllRows() throws Exception {
+        String adminToken = createAdminAndGetToken();
+        CityEntity riga = createCity("Riga", "Latvia");
+        CityEntity vilnius = createCity("Vilnius", "Lithuania");
+        seedFlights(createAirport("RIX", "Riga Airport", riga),
+                createAirport("VNO", "Vilnius Airport", vilnius), 0, 7);
+
+        mockMvc.perform(get("/api/v1/flights")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(7))
+                .andExpect(jsonPath("$[0].departureAirportName").value("Riga Airport"));
+
+        String ndjson = mockMvc.perform(get("/api/v1/flights/export")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = ndjson.lines().filter(l -> !l.isBlank()).toList();
+        assertThat(lines).hasSize(7);
+        assertThat(lines).allSatisfy(line -> assertThat(objectMapper.readTree(line).get("flightNumber").asText())
+                .startsWith("QC"));
+    }
 }
@@ -20,6 +20,7 @@ import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
 import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
 import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
 import ru.kursach.kpo.tour_agency_backend.repository.*;
+import ru.kursach.kpo.tour_agency_backend.service.matching.FlightDepartureIndex;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -61,6 +62,7 @@ class FlightTourDepartureIntegrationTest {
     @Autowired TourRepository tourRepository;
     @Autowired TourDepartureRepository tourDepartureRepository;
     @Autowired FlightRepository flightRepository;
+    @Autowired FlightDepartureIndex flightDepartureIndex;
 
     @BeforeEach
     void clean() {
@@ -280,6 +282,155 @@ class FlightTourDepartureIntegrationTest {
                 .andExpect(jsonPath("$.content[0].flightNumber").value("SU301"));
     }
 
+    @Test
+    @DisplayName("GET /api/v1/flights/for-departure/{departureId}: непересекающиеся рейсы не занимают места на странице")
+    void flightsForDeparture_pagination_countsOnlyOverlapping() throws Exception {
+        String adminToken = createAdminToken();
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourEntity tour = tour("Riga Tour", riga, null);
+        TourDepartureEntity dep = departure(tour, LocalDate.of(2026, 1, 10), LocalDate.of(2026, 1, 12));
+
+        // по номеру идут раньше подходящих, но по датам не пересекаются
+        for (int i = 1; i <= 3; i++) {
+            flight("SU00" + i, rix, vno,
+                    LocalDateTime.of(2026, 2, i, 10, 0),
+                    LocalDateTime.of(2026, 2, i, 12, 0));
+        }
+        // вылетает накануне, прилетает в первый день тура -> пересекается
+        flight("SU401", vno, rix,
+                LocalDateTime.of(2026, 1, 9, 23, 0),
+                LocalDateTime.of(2026, 1, 10, 1, 0));
+        flight("SU402", rix, vno,
+                LocalDateTime.of(2026, 1, 12, 22, 0),
+                LocalDateTime.of(2026, 1, 12, 23, 30));
+
+        mockMvc.perform(get("/api/v1/flights/for-departure/" + dep.getId())
+                        .param("page", "0")
+                        .param("size", "1")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].flightNumber").value("SU401"));
+
+        mockMvc.perform(get("/api/v1/flights/for-departure/" + dep.getId())
+                        .param("page", "1")
+                        .param("size", "1")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$.content[0].flightNumber").value("SU402"));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/tour-departures/for-flight/{flightId} -> вылеты, пересекающиеся с рейсом по датам")
+    void departuresForFlight_admin_ok_overlap() throws Exception {
+        String adminToken = createAdminToken();
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourEntity rigaTour = tour("Riga Tour", riga, null);
+        TourEntity vilniusTour = tour("Vilnius Tour", vilnius, null);
+        TourDepartureEntity rigaDep = departure(rigaTour, LocalDate.of(2026, 1, 8), LocalDate.of(2026, 1, 11));
+        TourDepartureEntity vilniusDep = departure(vilniusTour, LocalDate.of(2026, 1, 11), LocalDate.of(2026, 1, 18));
+        departure(rigaTour, LocalDate.of(2026, 1, 12), LocalDate.of(2026, 1, 19)); // после рейса
+
+        FlightEntity f = flight("SU500", rix, vno,
+                LocalDateTime.of(2026, 1, 11, 10, 0),
+                LocalDateTime.of(2026, 1, 11, 12, 0));
+
+        mockMvc.perform(get("/api/v1/tour-departures/for-flight/" + f.getId())
+                        .param("page", "0")
+                        .param("size", "10")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.content[0].id").value(rigaDep.getId()))
+                .andExpect(jsonPath("$.content[1].id").value(vilniusDep.getId()));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/flights/suggest-for-departure/{departureId} -> подходящие рейсы из индекса по дню вылета")
+    void suggestForDeparture_admin_ok_fromIndex() throws Exception {
+        String adminToken = createAdminToken();
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        CityEntity kaunas = city("Kaunas");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+        AirportEntity kun = airport("KUN", "Kaunas Airport", kaunas);
+
+        TourEntity tour = tour("Riga Tour", riga, null);
+        TourDepartureEntity dep = departure(tour, LocalDate.of(2026, 1, 10), LocalDate.of(2026, 1, 12));
+
+        FlightEntity day = flight("SU601", rix, vno,
+                LocalDateTime.of(2026, 1, 11, 10, 0),
+                LocalDateTime.of(2026, 1, 11, 12, 0));
+        FlightEntity overnight = flight("SU602", vno, rix,
+                LocalDateTime.of(2026, 1, 9, 23, 0),
+                LocalDateTime.of(2026, 1, 10, 1, 0));
+        flight("SU603", rix, vno, // не пересекается по датам
+                LocalDateTime.of(2026, 1, 20, 10, 0),
+                LocalDateTime.of(2026, 1, 20, 12, 0));
+        flight("SU604", vno, kun, // не связан с Ригой
+                LocalDateTime.of(2026, 1, 11, 10, 0),
+                LocalDateTime.of(2026, 1, 11, 12, 0));
+
+        // данные сохранены мимо сервисов — перестраиваем индекс
+        flightDepartureIndex.rebuild();
+
+        mockMvc.perform(post("/api/v1/flights/" + day.getId() + "/departures/" + dep.getId())
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/v1/flights/suggest-for-departure/" + dep.getId())
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(overnight.getId()))
+                .andExpect(jsonPath("$[0].linked").value(false))
+                .andExpect(jsonPath("$[1].id").value(day.getId()))
+                .andExpect(jsonPath("$[1].linked").value(true));
+
+        mockMvc.perform(get("/api/v1/flights/suggest-for-departure/" + dep.getId())
+                        .param("limit", "1")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].flightNumber").value("SU602"));
+    }
+
+    @Test
+    @DisplayName("POST привязки: рейс из другого города отклоняется проверкой по данным БД -> 400")
+    void addDeparture_otherCity_400() throws Exception {
+        String adminToken = createAdminToken();
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        CityEntity kaunas = city("Kaunas");
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+        AirportEntity kun = airport("KUN", "Kaunas Airport", kaunas);
+
+        TourEntity tour = tour("Riga Tour", riga, null);
+        TourDepartureEntity dep = departure(tour, LocalDate.of(2026, 1, 10), LocalDate.of(2026, 1, 12));
+        FlightEntity f = flight("SU700", vno, kun,
+                LocalDateTime.of(2026, 1, 11, 10, 0),
+                LocalDateTime.of(2026, 1, 11, 12, 0));
+
+        mockMvc.perform(post("/api/v1/flights/" + f.getId() + "/departures/" + dep.getId())
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("POST/DELETE привязки: ADMIN может привязать/отвязать любой вылет")
     void addAndRemoveDeparture_admin_ok() throws Exception {
@@ -307,4 +458,57 @@ class FlightTourDepartureIntegrationTest {
                         .header("Authorization", "Bearer " + adminToken))
                 .andExpect(status().isOk());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Списки рейсов и вылетов: id привязок приходят вместе со строками страницы")
+    void lists_includeLinkedIds() throws Exception {
+        String adminToken = createAdminToken();
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourEntity tour = tour("Linked Tour", riga, null);
+        TourDepartureEntity dep = departure(tour, LocalDate.of(2026, 1, 10), LocalDate.of(2026, 1, 12));
+        FlightEntity linked = flight("SU920", rix, vno,
+                LocalDateTime.of(2026, 1, 11, 10, 0),
+                LocalDateTime.of(2026, 1, 11, 12, 0));
+        FlightEntity other = flight("SU921", rix, vno,
+                LocalDateTime.of(2026, 1, 11, 14, 0),
+                LocalDateTime.of(2026, 1, 11, 16, 0));
+
+        mockMvc.perform(post("/api/v1/flights/" + linked.getId() + "/departures/" + dep.getId())
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/v1/flights/paged")
+                        .param("size", "10")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(linked.getId()))
+                .andExpect(jsonPath("$.content[0].departureAirportName").value("Riga Airport"))
+                .andExpect(jsonPath("$.content[0].tourDepartureIds[0]").value(dep.getId()))
+                .andExpect(jsonPath("$.content[1].id").value(other.getId()))
+                .andExpect(jsonPath("$.content[1].tourDepartureIds.length()").value(0));
+
+        mockMvc.perform(get("/api/v1/flights/cursor")
+                        .param("size", "1")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].tourDepartureIds[0]").value(dep.getId()))
+                .andExpect(jsonPath("$.hasNext").value(true));
+
+        mockMvc.perform(get("/api/v1/tour-departures/paged")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].tourTitle").value("Linked Tour"))
+                .andExpect(jsonPath("$.content[0].flightIds.length()").value(1))
+                .andExpect(jsonPath("$.content[0].flightIds[0]").value(linked.getId()));
+
+        mockMvc.perform(get("/api/v1/tour-departures")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].flightIds[0]").value(linked.getId()));
+    }
+}
@@ -0,0 +1,144 @@
+package ru.kursach.kpo.tour_agency_backend;
+
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.kursach.kpo.tour_agency_backend.dto.itinerary.ItineraryDto;
+import ru.kursach.kpo.tour_agency_backend.model.enums.ItinerarySort;
+import ru.kursach.kpo.tour_agency_backend.service.itinerary.ItineraryEngine;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@Testcontainers
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ItinerarySearchBenchmarkTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tour_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.datasource.url", postgres::getJdbcUrl);
+        r.add("spring.datasource.username", postgres::getUsername);
+        r.add("spring.datasource.password", postgres::getPassword);
+        r.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        r.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        r.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    private static final int CITIES = 300;
+    private static final int AIRPORTS = 600;
+    private static final int FLIGHTS = 500_000;
+    private static final int DAYS = 30;
+    private static final int RUNS = 500;
+    private static final double P99_TARGET_MS = 10.0;
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 0, 0);
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired ItineraryEngine itineraryEngine;
+
+    private List<Long> cityIds;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("""
+                INSERT INTO cities (id, name, country, timezone)
+                SELECT nextval('cities_seq'), 'City ' || i, 'Country', 'UTC'
+                FROM generate_series(1, %d) i
+                """.formatted(CITIES));
+        // по два аэропорта на город
+        jdbcTemplate.execute("""
+                INSERT INTO airports (id, iata_code, name, city_id)
+                SELECT nextval('airports_seq'), 'A' || lpad(i::text, 4, '0'), 'Airport ' || i,
+                       c.ids[1 + i %% %d]
+                FROM generate_series(0, %d) i,
+                     (SELECT array_agg(id ORDER BY id) AS ids FROM cities) c
+                """.formatted(CITIES, AIRPORTS - 1));
+        // вылеты равномерно по 30 дням, в пути 1-5 часов, цена 50-500
+        jdbcTemplate.execute("""
+                INSERT INTO flights (id, flight_number, carrier, depart_at, arrive_at, status, base_price,
+                                     departure_airport_id, arrival_airport_id)
+                SELECT nextval('flights_seq'), 'FN' || lpad(i::text, 7, '0'), 'Carrier',
+                       timestamp '2026-03-01' + make_interval(mins => (i * 37) %% (%d * 1440)),
+                       timestamp '2026-03-01' + make_interval(mins => (i * 37) %% (%d * 1440) + 60 + i %% 240),
+                       'SCHEDULED', 50 + (i::bigint * 7919) %% 451,
+                       a.ids[1 + (i * 13) %% %d],
+                       a.ids[1 + ((i * 13) %% %d + 1 + (i * 31) %% (%d - 1)) %% %d]
+                FROM generate_series(1, %d) i,
+                     (SELECT array_agg(id ORDER BY id) AS ids FROM airports) a
+                """.formatted(DAYS, DAYS, AIRPORTS, AIRPORTS, AIRPORTS, AIRPORTS, FLIGHTS));
+        cityIds = jdbcTemplate.queryForList("SELECT id FROM cities ORDER BY id", Long.class);
+        itineraryEngine.rebuild();
+    }
+
+    @Test
+    @DisplayName("Маршруты с пересадками по 500k рейсов: p99 поиска укладывается в 10 мс")
+    void itinerarySearch_p99() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            search(random, 2); // прогрев
+        }
+
+        long[] times = new long[RUNS];
+        int found = 0;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            List<ItineraryDto> result = search(random, 2);
+            times[i] = System.nanoTime() - start;
+            if (!result.isEmpty()) {
+                found++;
+                for (int r = 1; r < result.size(); r++) {
+                    assertThat(result.get(r).totalPrice()).isGreaterThanOrEqualTo(result.get(r - 1).totalPrice());
+                }
+            }
+        }
+        Arrays.sort(times);
+        double p50 = times[RUNS / 2] / 1_000_000.0;
+        double p99 = times[RUNS * 99 / 100] / 1_000_000.0;
+        System.out.printf("flights x%d, itineraries (max 2 legs): p50 %.2f ms, p99 %.2f ms, found %d/%d%n",
+                FLIGHTS, p50, p99, found, RUNS);
+
+        // три рейса — для сравнения, без порога
+        long[] threeLegs = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            search(random, 3);
+            threeLegs[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(threeLegs);
+        System.out.printf("flights x%d, itineraries (max 3 legs): p50 %.2f ms, p99 %.2f ms%n",
+                FLIGHTS, threeLegs[RUNS / 2] / 1_000_000.0, threeLegs[RUNS * 99 / 100] / 1_000_000.0);
+
+        assertThat(found).isPositive();
+        assertThat(p99).isLessThan(P99_TARGET_MS);
+    }
+
+    private List<ItineraryDto> search(Random random, int maxLegs) {
+        Long from = cityIds.get(random.nextInt(CITIES));
+        Long to = cityIds.get(random.nextInt(CITIES));
+        while (to.equals(from)) {
+            to = cityIds.get(random.nextInt(CITIES));
+        }
+        LocalDateTime day = START.plusDays(random.nextInt(DAYS - 2));
+        return itineraryEngine.search(from, to, day, day.plusDays(1), maxLegs, 60, ItinerarySort.PRICE, 10);
+    }
+}
@@ -0,0 +1,266 @@
+package ru.kursach.kpo.tour_agency_backend;
+
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.kursach.kpo.tour_agency_backend.mapper.BookingMapper;
+import ru.kursach.kpo.tour_agency_backend.mapper.TourDepartureMapper;
+import ru.kursach.kpo.tour_agency_backend.mapper.TourMapper;
+import ru.kursach.kpo.tour_agency_backend.model.entity.BookingEntity;
+import ru.kursach.kpo.tour_agency_backend.model.entity.TourDepartureEntity;
+import ru.kursach.kpo.tour_agency_backend.model.enums.BookingStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
+import ru.kursach.kpo.tour_agency_backend.repository.*;
+import ru.kursach.kpo.tour_agency_backend.repository.specification.BookingSpecifications;
+import ru.kursach.kpo.tour_agency_backend.repository.specification.TourDepartureSpecifications;
+import ru.kursach.kpo.tour_agency_backend.repository.specification.TourSpecifications;
+import ru.kursach.kpo.tour_agency_backend.repository.specification.UserSpecifications;
+import ru.kursach.kpo.tour_agency_backend.support.GeneratedSqlPlans;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@Testcontainers
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SearchSpecificationPlanBenchmarkTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tour_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.datasource.url", postgres::getJdbcUrl);
+        r.add("spring.datasource.username", postgres::getUsername);
+        r.add("spring.datasource.password", postgres::getPassword);
+        r.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        r.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        r.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    private static final int USERS = 50_000;
+    private static final int TOURS = 5_000;
+    private static final int DEPARTURES = 200_000;
+    private static final int BOOKINGS = 1_000_000;
+
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Autowired BookingRepository bookingRepository;
+    @Autowired TourDepartureRepository tourDepartureRepository;
+    @Autowired TourRepository tourRepository;
+    @Autowired UserRepository userRepository;
+
+    private long userId;
+    private long managerId;
+    private long tourId;
+    private long departureId;
+
+    @BeforeAll
+    void seed() {
+        // последовательности идут с шагом 50: ссылки берутся по номеру строки n, а не как MIN(id) + k
+        jdbcTemplate.execute("""
+                INSERT INTO cities (id, name, country, timezone)
+                SELECT nextval('cities_seq'), 'City ' || i, 'Country', 'UTC'
+                FROM generate_series(1, 50) i
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO airports (id, iata_code, name, city_id)
+                SELECT nextval('airports_seq'), 'AP' || i, 'Airport ' || i, (SELECT MIN(id) FROM cities)
+                FROM generate_series(1, 2) i
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO flights (id, flight_number, carrier, depart_at, arrive_at, status, base_price,
+                                     departure_airport_id, arrival_airport_id)
+                SELECT nextval('flights_seq'), 'FN0000001', 'Carrier', now(), now() + interval '2 hours',
+                       'SCHEDULED', 10000, MIN(id), MAX(id)
+                FROM airports
+                """);
+        // каждый 500-й пользователь — менеджер
+        jdbcTemplate.execute("""
+                INSERT INTO app_users (id, username, email, password_hash, phone, user_role, is_active)
+                SELECT nextval('app_users_seq'), 'user' || i, 'user' || i || '@bench.test', 'x', NULL,
+                       CASE WHEN i %% 500 = 0 THEN 'MANAGER' ELSE 'USER' END, i %% 10 <> 0
+                FROM generate_series(1, %d) i
+                """.formatted(USERS));
+        jdbcTemplate.execute("""
+                INSERT INTO tours (id, title, description, duration_days, base_price, status, is_active,
+                                   base_city_id, manager_user_id)
+                SELECT nextval('tours_seq'), 'Tour ' || i, 'desc', 7, 1000, 'PUBLISHED', true,
+                       c.id,
+                       (SELECT id FROM app_users WHERE user_role = 'MANAGER' ORDER BY id OFFSET i %% 100 LIMIT 1)
+                FROM generate_series(1, %d) i
+                JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM cities) c ON c.n = i %% 50
+                """.formatted(TOURS));
+        jdbcTemplate.execute("""
+                INSERT INTO tour_departures (id, start_date, end_date, capacity_total, capacity_reserved,
+                                             price_override, status, tour_id)
+                SELECT nextval('tour_departures_seq'),
+                       DATE '2025-01-01' + i %% 700, DATE '2025-01-08' + i %% 700, 30, 0, NULL,
+                       (ARRAY['PLANNED','PLANNED','PLANNED','SALES_CLOSED','IN_PROGRESS',
+                              'COMPLETED','COMPLETED','COMPLETED','COMPLETED','CANCELLED'])[1 + i %% 10],
+                       t.id
+                FROM generate_series(1, %d) i
+                JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM tours) t ON t.n = i %% %d
+                """.formatted(DEPARTURES, TOURS));
+        jdbcTemplate.execute("""
+                INSERT INTO bookings (id, persons_count, total_price, status, created_at,
+                                      user_id, tour_departure_id, outbound_flight_id)
+                SELECT nextval('bookings_seq'), 1, 1000,
+                       (ARRAY['CONFIRMED','CONFIRMED','CONFIRMED','CONFIRMED','COMPLETED',
+                              'COMPLETED','COMPLETED','CANCELLED','EXPIRED','PENDING'])[1 + i %% 10],
+                       TIMESTAMP '2025-01-01' + make_interval(mins => i),
+                       u.id, d.id, f.id
+                FROM generate_series(1, %d) i
+                JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM app_users) u ON u.n = i %% %d
+                JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM tour_departures) d ON d.n = i %% %d
+                CROSS JOIN (SELECT MIN(id) AS id FROM flights) f
+                """.formatted(BOOKINGS, USERS, DEPARTURES));
+        for (String table : List.of("cities", "app_users", "tours", "tour_departures", "bookings")) {
+            jdbcTemplate.execute("ANALYZE " + table);
+        }
+
+        // брони пользователя n — строки i = n (mod USERS), статус по i % 10: при n = 771 это CONFIRMED
+        userId = jdbcTemplate.queryForObject("SELECT id FROM app_users ORDER BY id OFFSET 771 LIMIT 1", Long.class);
+        managerId = jdbcTemplate.queryForObject(
+                "SELECT MIN(id) FROM app_users WHERE user_role = 'MANAGER'", Long.class);
+        tourId = jdbcTemplate.queryForObject("SELECT id FROM tours ORDER BY id OFFSET 42 LIMIT 1", Long.class);
+        departureId = jdbcTemplate.queryForObject(
+                "SELECT id FROM tour_departures ORDER BY id OFFSET 4242 LIMIT 1", Long.class);
+    }
+
+    // ---------- helpers ----------
+
+    /** План SQL, который Hibernate построил для этого запроса репозитория. */
+    private String explain(Runnable query) {
+        return GeneratedSqlPlans.explain(jdbcTemplate, query);
+    }
+
+    // ---------- tests ----------
+
+    @Test
+    @DisplayName("Брони по пользователю, статусу, вылету, периоду и курсору: каждый набор фильтров идёт по своему индексу")
+    void bookingFilters_useIndexes() {
+        Sort order = Sort.by("createdAt").descending().and(Sort.by("id").descending());
+        var pageable = PageRequest.of(0, 20, order);
+
+        String byUser = explain(() -> bookingRepository.findRowSlice(
+                BookingSpecifications.search(userId, null, null, null, null), BookingMapper.RESPONSE_ROW, pageable));
+        assertThat(byUser).contains("idx_bookings_user_created_at_id");
+
+        String byStatus = explain(() -> bookingRepository.findRowSlice(
+                BookingSpecifications.search(null, null, BookingStatus.PENDING, null, null),
+                BookingMapper.RESPONSE_ROW, pageable));
+        assertThat(byStatus).contains("idx_bookings_status_created_at_id");
+
+        String byDeparture = explain(() -> bookingRepository.findRowSlice(
+                BookingSpecifications.search(null, departureId, null, null, null), BookingMapper.RESPONSE_ROW, pageable));
+        assertThat(byDeparture).contains("idx_bookings_departure_");
+
+        String byPeriod = explain(() -> bookingRepository.findRowSlice(
+                BookingSpecifications.search(null, null, null,
+                        LocalDateTime.of(2025, 6, 1, 0, 0), LocalDateTime.of(2025, 6, 2, 0, 0)),
+                BookingMapper.RESPONSE_ROW, pageable));
+        assertThat(byPeriod).contains("idx_bookings_created_at_id");
+
+        // следующая страница курсора: условие before(...) поверх фильтра
+        LocalDateTime cursorAt = LocalDateTime.of(2025, 6, 1, 0, 0);
+        String byStatusAfterCursor = explain(() -> bookingRepository.findRows(
+                BookingSpecifications.search(null, null, BookingStatus.PENDING, null, null)
+                        .and(BookingSpecifications.before(cursorAt, Long.MAX_VALUE)),
+                BookingMapper.RESPONSE_ROW, order, 21));
+        assertThat(byStatusAfterCursor).contains("idx_bookings_status_created_at_id");
+
+        String afterCursor = explain(() -> bookingRepository.findRows(
+                BookingSpecifications.before(cursorAt, Long.MAX_VALUE), BookingMapper.RESPONSE_ROW, order, 21));
+        assertThat(afterCursor).contains("idx_bookings_created_at_id");
+
+        for (String plan : List.of(byUser, byStatus, byDeparture, byPeriod, byStatusAfterCursor, afterCursor)) {
+            assertThat(plan).doesNotContain("Seq Scan on bookings");
+        }
+
+        List<BookingEntity> found = bookingRepository.findAll(
+                BookingSpecifications.search(userId, null, BookingStatus.CONFIRMED, null, null), pageable).getContent();
+        assertThat(found).isNotEmpty().allSatisfy(b -> {
+            assertThat(b.getUser().getId()).isEqualTo(userId);
+            assertThat(b.getStatus()).isEqualTo(BookingStatus.CONFIRMED);
+        });
+    }
+
+    @Test
+    @DisplayName("Вылеты по туру и датам, по статусу и по курсору: индексный скан вместо прохода по таблице")
+    void departureFilters_useIndexes() {
+        Sort order = Sort.by("startDate").ascending().and(Sort.by("id").ascending());
+        var pageable = PageRequest.of(0, 20, order);
+        LocalDate from = LocalDate.of(2025, 3, 1);
+
+        String byTourAndDates = explain(() -> tourDepartureRepository.findRowSlice(
+                TourDepartureSpecifications.search(tourId, null, from, null), TourDepartureMapper.RESPONSE_ROW, pageable));
+        assertThat(byTourAndDates).contains("idx_tour_departures_tour_start_date");
+
+        String byStatus = explain(() -> tourDepartureRepository.findRowSlice(
+                TourDepartureSpecifications.search(null, TourDepartureStatus.SALES_CLOSED, from, null),
+                TourDepartureMapper.RESPONSE_ROW, pageable));
+        assertThat(byStatus).contains("idx_tour_departures_status_start_date_id");
+
+        String byStatusAfterCursor = explain(() -> tourDepartureRepository.findRows(
+                TourDepartureSpecifications.search(null, TourDepartureStatus.SALES_CLOSED, null, null)
+                        .and(TourDepartureSpecifications.after(from, 0)),
+                TourDepartureMapper.RESPONSE_ROW, order, 21));
+        assertThat(byStatusAfterCursor).contains("idx_tour_departures_status_start_date_id");
+
+        for (String plan : List.of(byTourAndDates, byStatus, byStatusAfterCursor)) {
+            assertThat(plan).doesNotContain("Seq Scan on tour_departures");
+        }
+
+        List<TourDepartureEntity> found = tourDepartureRepository.findSlice(
+                TourDepartureSpecifications.search(null, TourDepartureStatus.SALES_CLOSED, from, null),
+                pageable).getContent();
+        assertThat(found).hasSize(20).allSatisfy(d -> {
+            assertThat(d.getStatus()).isEqualTo(TourDepartureStatus.SALES_CLOSED);
+            assertThat(d.getStartDate()).isAfterOrEqualTo(from);
+        });
+    }
+
+    @Test
+    @DisplayName("Туры менеджера и пользователи по роли: индексный скан")
+    void tourAndUserFilters_useIndexes() {
+        var tourPage = PageRequest.of(0, 20, Sort.by("title").ascending());
+        String toursByManager = explain(() -> tourRepository.findRowSlice(
+                TourSpecifications.search(null, null, null, null, managerId), TourMapper.RESPONSE_ROW, tourPage));
+        assertThat(toursByManager).contains("idx_tours_manager_user_title");
+        assertThat(toursByManager).doesNotContain("Seq Scan on tours");
+
+        var userPage = PageRequest.of(0, 20, Sort.by("username").ascending().and(Sort.by("id").ascending()));
+        String usersByRole = explain(() -> userRepository.findSlice(
+                UserSpecifications.search("", UserRole.MANAGER, null), userPage));
+        assertThat(usersByRole).contains("idx_app_users_role_username_id");
+        assertThat(usersByRole).doesNotContain("Seq Scan on app_users");
+
+        assertThat(tourRepository.findRows(
+                TourSpecifications.search(null, null, null, null, managerId), TourMapper.RESPONSE_ROW, tourPage).getContent())
+                .isNotEmpty()
+                .allSatisfy(row -> assertThat(row.managerUserId()).isEqualTo(managerId));
+
+        assertThat(userRepository.findAll(UserSpecifications.search("", UserRole.MANAGER, null), userPage).getContent())
+                .hasSize(20)
+                .allSatisfy(u -> assertThat(u.getUserRole()).isEqualTo(UserRole.MANAGER));
+    }
+}
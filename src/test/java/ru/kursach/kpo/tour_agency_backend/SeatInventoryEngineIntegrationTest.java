@@ -0,0 +1,373 @@
+package ru.kursach.kpo.tour_agency_backend;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.kursach.kpo.tour_agency_backend.model.entity.*;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
+import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
+import ru.kursach.kpo.tour_agency_backend.repository.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@Testcontainers
+@SpringBootTest(properties = "app.inventory.engine.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SeatInventoryEngineIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tour_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.datasource.url", postgres::getJdbcUrl);
+        r.add("spring.datasource.username", postgres::getUsername);
+        r.add("spring.datasource.password", postgres::getPassword);
+        r.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        r.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+
+    @Autowired PasswordEncoder passwordEncoder;
+
+    @Autowired UserRepository userRepository;
+    @Autowired CityRepository cityRepository;
+    @Autowired AirportRepository airportRepository;
+    @Autowired TourRepository tourRepository;
+    @Autowired TourDepartureRepository tourDepartureRepository;
+    @Autowired FlightRepository flightRepository;
+    @Autowired BookingRepository bookingRepository;
+
+    @BeforeEach
+    void clean() {
+        // порядок важен из-за FK
+        bookingRepository.deleteAll();
+        flightRepository.deleteAll();
+        tourDepartureRepository.deleteAll();
+        tourRepository.deleteAll();
+        airportRepository.deleteAll();
+        cityRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    // ---------- helpers ----------
+
+    private String signInAndGetToken(String email, String pass) throws Exception {
+        String body = """
+          {"email":"%s","password":"%s"}
+        """.formatted(email, pass);
+
+        String resp = mockMvc.perform(post("/api/v1/auth/sign-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").exists())
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode node = objectMapper.readTree(resp);
+        return node.get("token").asText();
+    }
+
+    private UserEntity createUser(String email, String rawPass, UserRole role) {
+        return userRepository.save(UserEntity.builder()
+                .username(role.name().toLowerCase())
+                .email(email)
+                .password(passwordEncoder.encode(rawPass))
+                .userRole(role)
+                .active(true)
+                .build());
+    }
+
+    private String createUserToken(String email) throws Exception {
+        createUser(email, "Pa$sw0rd!", UserRole.USER);
+        return signInAndGetToken(email, "Pa$sw0rd!");
+    }
+
+    private String createAdminToken() throws Exception {
+        createUser("admin@test.com", "Pa$sw0rd!", UserRole.ADMIN);
+        return signInAndGetToken("admin@test.com", "Pa$sw0rd!");
+    }
+
+    private CityEntity city(String name) {
+        return cityRepository.save(CityEntity.builder()
+                .name(name)
+                .country("Latvia")
+                .timezone("Europe/Riga")
+                .build());
+    }
+
+    private AirportEntity airport(String iata, String name, CityEntity city) {
+        return airportRepository.save(AirportEntity.builder()
+                .iataCode(iata)
+                .name(name)
+                .city(city)
+                .build());
+    }
+
+    private TourEntity tour(String title, CityEntity baseCity) {
+        return tourRepository.save(TourEntity.builder()
+                .title(title)
+                .description("desc")
+                .durationDays(7)
+                .basePrice(new BigDecimal("1000.00"))
+                .status(TourStatus.PUBLISHED)
+                .active(true)
+                .baseCity(baseCity)
+                .build());
+    }
+
+    private TourDepartureEntity departure(TourEntity tour, int capacityTotal) {
+        LocalDate start = LocalDate.now().plusDays(30);
+        return tourDepartureRepository.save(TourDepartureEntity.builder()
+                .tour(tour)
+                .startDate(start)
+                .endDate(start.plusDays(7))
+                .capacityTotal(capacityTotal)
+                .capacityReserved(0)
+                .priceOverride(null)
+                .status(TourDepartureStatus.PLANNED)
+                .build());
+    }
+
+    private FlightEntity flightForDeparture(String number, AirportEntity dep, AirportEntity arr,
+                                            TourDepartureEntity departure) {
+        LocalDateTime departAt = departure.getStartDate().atTime(10, 0);
+        FlightEntity flight = FlightEntity.builder()
+                .flightNumber(number)
+                .carrier("airBaltic")
+                .departAt(departAt)
+                .arriveAt(departAt.plusHours(2))
+                .basePrice(new BigDecimal("15000.00"))
+                .departureAirport(dep)
+                .arrivalAirport(arr)
+                .build();
+        flight.addTourDeparture(departure);
+        return flightRepository.save(flight);
+    }
+
+    private TourDepartureEntity awaitReserved(Long departureId, int expected) throws InterruptedException {
+        TourDepartureEntity reloaded = tourDepartureRepository.findById(departureId).orElseThrow();
+        for (int i = 0; i < 50 && reloaded.getCapacityReserved() != expected; i++) {
+            Thread.sleep(100);
+            reloaded = tourDepartureRepository.findById(departureId).orElseThrow();
+        }
+        return reloaded;
+    }
+
+    private String bookingBody(int persons, Long departureId, Long outboundFlightId) {
+        return """
+          {"personsCount":%d,"totalPrice":1,"tourDepartureId":%d,"outboundFlightId":%d}
+        """.formatted(persons, departureId, outboundFlightId);
+    }
+
+    // ---------- tests ----------
+
+    @Test
+    @DisplayName("Шардированный учёт мест: параллельные брони не превышают вместимость и доезжают до БД")
+    void create_concurrent_neverOversells_andFlushes() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        int capacity = 50;
+        int attempts = 300;
+
+        TourDepartureEntity dep = departure(tour("Riga Tour", riga), capacity);
+        FlightEntity flight = flightForDeparture("BT300", rix, vno, dep);
+        String body = bookingBody(1, dep.getId(), flight.getId());
+
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < attempts; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(post("/api/v1/bookings")
+                                    .header("Authorization", "Bearer " + token)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(body))
+                            .andReturn().getResponse().getStatus();
+                }));
+            }
+            start.countDown();
+
+            int created = 0;
+            for (Future<Integer> result : results) {
+                if (result.get(60, TimeUnit.SECONDS) == 201) {
+                    created++;
+                }
+            }
+            assertThat(created).isEqualTo(capacity);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        TourDepartureEntity reloaded = awaitReserved(dep.getId(), capacity);
+        assertThat(reloaded.getCapacityReserved()).isEqualTo(capacity);
+        assertThat(reloaded.getStatus()).isEqualTo(TourDepartureStatus.SALES_CLOSED);
+        assertThat(bookingRepository.count()).isEqualTo(capacity);
+    }
+
+    @Test
+    @DisplayName("Шардированный учёт мест: отмена брони возвращает место")
+    void cancel_releasesSeat() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourDepartureEntity dep = departure(tour("Riga Tour", riga), 2);
+        FlightEntity flight = flightForDeparture("BT301", rix, vno, dep);
+
+        String resp = mockMvc.perform(post("/api/v1/bookings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingBody(2, dep.getId(), flight.getId())))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long bookingId = objectMapper.readTree(resp).get("id").asLong();
+
+        assertThat(awaitReserved(dep.getId(), 2).getStatus()).isEqualTo(TourDepartureStatus.SALES_CLOSED);
+
+        mockMvc.perform(patch("/api/v1/bookings/my/" + bookingId + "/cancel")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().is2xxSuccessful());
+
+        assertThat(awaitReserved(dep.getId(), 0).getStatus()).isEqualTo(TourDepartureStatus.PLANNED);
+
+        mockMvc.perform(post("/api/v1/bookings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingBody(2, dep.getId(), flight.getId())))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    @DisplayName("Шардированный учёт мест: PUT брони на распроданном вылете занимает/возвращает только разницу в местах")
+    void update_onSoldOutDeparture_reservesOnlyDifference() throws Exception {
+        String token = createUserToken("user@test.com");
+        String adminToken = createAdminToken();
+        Long userId = userRepository.findByEmail("user@test.com").orElseThrow().getId();
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourDepartureEntity dep = departure(tour("Riga Tour", riga), 2);
+        FlightEntity flight = flightForDeparture("BT302", rix, vno, dep);
+
+        String resp = mockMvc.perform(post("/api/v1/bookings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingBody(2, dep.getId(), flight.getId())))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long bookingId = objectMapper.readTree(resp).get("id").asLong();
+        assertThat(awaitReserved(dep.getId(), 2).getStatus()).isEqualTo(TourDepartureStatus.SALES_CLOSED);
+
+        String updateBody = """
+          {"personsCount":%%d,"totalPrice":1,"status":"PENDING","tourDepartureId":%d,"outboundFlightId":%d,"userId":%d}
+        """.formatted(dep.getId(), flight.getId(), userId);
+
+        // то же число человек на том же распроданном вылете
+        mockMvc.perform(put("/api/v1/bookings/" + bookingId)
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updateBody.formatted(2)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(put("/api/v1/bookings/" + bookingId)
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updateBody.formatted(1)))
+                .andExpect(status().isOk());
+        assertThat(awaitReserved(dep.getId(), 1).getCapacityReserved()).isEqualTo(1);
+
+        mockMvc.perform(put("/api/v1/bookings/" + bookingId)
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updateBody.formatted(3)))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(put("/api/v1/bookings/" + bookingId)
+                        .header("Authorization", "Bearer " + adminToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updateBody.formatted(2)))
+                .andExpect(status().isOk());
+        assertThat(awaitReserved(dep.getId(), 2).getCapacityReserved()).isEqualTo(2);
+        assertThat(bookingRepository.findById(bookingId).orElseThrow().getPersonsCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Шардированный учёт мест: места занимаются до транзакции и возвращаются, если бронь не создана")
+    void create_failedAfterHold_returnsSeats() throws Exception {
+        String token = createUserToken("user@test.com");
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        AirportEntity rix = airport("RIX", "Riga Airport", riga);
+        AirportEntity vno = airport("VNO", "Vilnius Airport", vilnius);
+
+        TourDepartureEntity dep = departure(tour("Riga Tour", riga), 2);
+        TourDepartureEntity other = departure(tour("Vilnius Tour", vilnius), 2);
+        FlightEntity flight = flightForDeparture("BT303", rix, vno, dep);
+        FlightEntity foreignFlight = flightForDeparture("BT304", vno, rix, other);
+
+        // места удержаны до транзакции, рейс не относится к вылету -> 400, удержание снимается
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/v1/bookings")
+                            .header("Authorization", "Bearer " + token)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(bookingBody(2, dep.getId(), foreignFlight.getId())))
+                    .andExpect(status().isBadRequest());
+        }
+
+        mockMvc.perform(post("/api/v1/bookings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingBody(2, dep.getId(), flight.getId())))
+                .andExpect(status().isCreated());
+        assertThat(awaitReserved(dep.getId(), 2).getCapacityReserved()).isEqualTo(2);
+
+        mockMvc.perform(post("/api/v1/bookings")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(bookingBody(1, dep.getId(), flight.getId())))
+                .andExpect(status().is4xxClientError());
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -20,13 +21,17 @@ import ru.kursach.kpo.tour_agency_backend.model.enums.TourDepartureStatus;
 import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
 import ru.kursach.kpo.tour_agency_backend.model.enums.UserRole;
 import ru.kursach.kpo.tour_agency_backend.repository.*;
+import ru.kursach.kpo.tour_agency_backend.service.summary.TourSummaryService;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static ru.kursach.kpo.tour_agency_backend.support.SqlStatementRecorder.Recording.countAtMost;
 
 @Testcontainers
 @SpringBootTest
@@ -57,6 +62,8 @@ class TourDepartureIntegrationTest {
     @Autowired CityRepository cityRepository;
     @Autowired TourRepository tourRepository;
     @Autowired TourDepartureRepository tourDepartureRepository;
+    @Autowired TourSummaryRepository tourSummaryRepository;
+    @Autowired TourSummaryService tourSummaryService;
 
     // (flight/airport репо здесь не нужно — мы тестим departure без привязки рейсов)
     @BeforeEach
@@ -133,13 +140,18 @@ class TourDepartureIntegrationTest {
     }
 
     private TourDepartureEntity departure(TourEntity tour, LocalDate start, LocalDate end, TourDepartureStatus status) {
+        return departure(tour, start, end, status, 0, null);
+    }
+
+    private TourDepartureEntity departure(TourEntity tour, LocalDate start, LocalDate end, TourDepartureStatus status,
+                                          int capacityReserved, BigDecimal priceOverride) {
         return tourDepartureRepository.save(TourDepartureEntity.builder()
                 .tour(tour)
                 .startDate(start)
                 .endDate(end)
                 .capacityTotal(30)
-                .capacityReserved(0)
-                .priceOverride(null)
+                .capacityReserved(capacityReserved)
+                .priceOverride(priceOverride)
                 .status(status != null ? status : TourDepartureStatus.PLANNED)
                 .build());
     }
@@ -194,6 +206,213 @@ class TourDepartureIntegrationTest {
                 .andExpect(jsonPath("$.content[0].status").value("PLANNED"));
     }
 
+    @Test
+    @DisplayName("GET /api/v1/tour-departures/cursor: страницы по курсору в порядке startDate, id без пропусков и повторов")
+    void departuresCursor_walksAllPages() throws Exception {
+        String adminToken = createAdminToken();
+
+        CityEntity riga = city("Riga");
+        TourEntity t1 = tour("T1", riga, null, new BigDecimal("1000.00"));
+        TourEntity t2 = tour("T2", riga, null, new BigDecimal("1000.00"));
+
+        // две даты повторяются — порядок внутри одной даты держится на id
+        departure(t1, LocalDate.of(2026, 3, 10), LocalDate.of(2026, 3, 12), TourDepartureStatus.PLANNED);
+        departure(t1, LocalDate.of(2026, 1, 10), LocalDate.of(2026, 1, 12), TourDepartureStatus.PLANNED);
+        departure(t1, LocalDate.of(2026, 1, 10), LocalDate.of(2026, 1, 14), TourDepartureStatus.PLANNED);
+        departure(t1, LocalDate.of(2026, 2, 10), LocalDate.of(2026, 2, 12), TourDepartureStatus.PLANNED);
+        departure(t1, LocalDate.of(2026, 2, 10), LocalDate.of(2026, 2, 12), TourDepartureStatus.PLANNED);
+        departure(t2, LocalDate.of(2026, 1, 1), LocalDate.of(2026, 1, 5), TourDepartureStatus.PLANNED);
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var request = get("/api/v1/tour-departures/cursor")
+                    .param("tourId", String.valueOf(t1.getId()))
+                    .param("size", "2")
+                    .header("Authorization", "Bearer " + adminToken);
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String resp = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+
+            JsonNode page = objectMapper.readTree(resp);
+            page.get("content").forEach(d -> seen.add(d.get("startDate").asText() + "#" + d.get("id").asLong()));
+            cursor = page.get("hasNext").asBoolean() ? page.get("nextCursor").asText() : null;
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).hasSize(5).doesNotHaveDuplicates();
+        assertThat(seen).isSortedAccordingTo((a, b) -> {
+            int byDate = a.substring(0, 10).compareTo(b.substring(0, 10));
+            return byDate != 0 ? byDate
+                    : Long.compare(Long.parseLong(a.substring(11)), Long.parseLong(b.substring(11)));
+        });
+
+        mockMvc.perform(get("/api/v1/tour-departures/cursor")
+                        .param("cursor", "not-a-cursor")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/tour-departures/search: фильтр по местам, цене и датам одним запросом + фасеты по городам и статусам")
+    void search_filtersBySeatsAndPrice_withFacets() throws Exception {
+        String userToken = createAdminToken();
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+        TourEntity rigaTour = tour("Riga Tour", riga, null, new BigDecimal("1000.00"));
+        TourEntity vilniusTour = tour("Vilnius Tour", vilnius, null, new BigDecimal("800.00"));
+
+        LocalDate base = LocalDate.now().plusDays(30);
+
+        // Riga: цена из тура 1000, 25 свободных мест
+        TourDepartureEntity cheapOverride = departure(rigaTour, base, base.plusDays(7), TourDepartureStatus.PLANNED,
+                5, new BigDecimal("700.00"));
+        TourDepartureEntity full = departure(rigaTour, base.plusDays(1), base.plusDays(8), TourDepartureStatus.PLANNED,
+                29, null);
+        TourDepartureEntity closed = departure(rigaTour, base.plusDays(2), base.plusDays(9), TourDepartureStatus.SALES_CLOSED);
+        // вне окна дат
+        departure(rigaTour, base.plusDays(60), base.plusDays(67), TourDepartureStatus.PLANNED);
+        // Vilnius: 800
+        TourDepartureEntity vilniusDeparture = departure(vilniusTour, base.plusDays(3), base.plusDays(10), TourDepartureStatus.PLANNED);
+
+        mockMvc.perform(get("/api/v1/tour-departures/search")
+                        .param("cityId", String.valueOf(riga.getId()))
+                        .param("status", "PLANNED")
+                        .param("startFrom", base.toString())
+                        .param("startTo", base.plusDays(10).toString())
+                        .param("minFreeSeats", "2")
+                        .param("maxPrice", "900")
+                        .param("sort", "PRICE_ASC")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results.totalElements").value(1))
+                .andExpect(jsonPath("$.results.content[0].tourDepartureId").value(cheapOverride.getId()))
+                .andExpect(jsonPath("$.results.content[0].freeSeats").value(25))
+                .andExpect(jsonPath("$.results.content[0].price").value(700.00))
+                // фасет по городу не учитывает сам фильтр города: Vilnius (800) тоже проходит
+                .andExpect(jsonPath("$.cityFacets.length()").value(2))
+                .andExpect(jsonPath("$.cityFacets[?(@.label == 'Vilnius')].count").value(1))
+                .andExpect(jsonPath("$.cityFacets[?(@.label == 'Riga')].count").value(1))
+                // фасет по статусу не учитывает фильтр статуса
+                .andExpect(jsonPath("$.statusFacets.length()").value(1))
+                .andExpect(jsonPath("$.statusFacets[0].value").value("PLANNED"));
+
+        // без фильтров цены и мест: сортировка по свободным местам, SALES_CLOSED в фасете статусов
+        mockMvc.perform(get("/api/v1/tour-departures/search")
+                        .param("startFrom", base.toString())
+                        .param("startTo", base.plusDays(10).toString())
+                        .param("sort", "FREE_SEATS_DESC")
+                        .param("size", "2")
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results.totalElements").value(4))
+                .andExpect(jsonPath("$.results.hasNext").value(true))
+                .andExpect(jsonPath("$.results.content.length()").value(2))
+                .andExpect(jsonPath("$.results.content[0].freeSeats").value(30))
+                .andExpect(jsonPath("$.results.content[0].tourDepartureId").value(closed.getId()))
+                .andExpect(jsonPath("$.results.content[1].tourDepartureId").value(vilniusDeparture.getId()))
+                .andExpect(jsonPath("$.statusFacets[?(@.value == 'PLANNED')].count").value(3))
+                .andExpect(jsonPath("$.statusFacets[?(@.value == 'SALES_CLOSED')].count").value(1));
+
+        mockMvc.perform(get("/api/v1/tour-departures/search")
+                        .param("startFrom", base.plusDays(5).toString())
+                        .param("startTo", base.toString())
+                        .header("Authorization", "Bearer " + userToken))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Сводка тура (мин. цена, ближайший вылет, свободные места) обновляется при изменении вылетов и пересобирается целиком")
+    void tourSummary_followsDepartureChanges() throws Exception {
+        String adminToken = createAdminToken();
+
+        CityEntity riga = city("Riga");
+        TourEntity rigaTour = tour("Riga Tour", riga, null, new BigDecimal("1000.00"));
+
+        LocalDate base = LocalDate.now().plusDays(30);
+        String createBody = """
+        {
+          "startDate": "%s",
+          "endDate": "%s",
+          "capacityTotal": 30,
+          "capacityReserved": 10,
+          "priceOverride": 900.00,
+          "tourId": %d,
+          "flightIds": []
+        }
+        """;
+
+        String created = mockMvc.perform(post("/api/v1/tour-departures")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(createBody.formatted(base.plusDays(5), base.plusDays(12), rigaTour.getId()))
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long laterId = objectMapper.readTree(created).get("id").asLong();
+
+        mockMvc.perform(post("/api/v1/tour-departures")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(createBody.formatted(base, base.plusDays(7), rigaTour.getId())
+                                .replace("900.00", "null").replace("\"capacityReserved\": 10", "\"capacityReserved\": 0"))
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isCreated());
+
+        // прошедший вылет и закрытый для продаж в сводку не входят
+        departure(rigaTour, LocalDate.now().minusDays(10), LocalDate.now().minusDays(3), TourDepartureStatus.PLANNED);
+        departure(rigaTour, base.minusDays(5), base, TourDepartureStatus.SALES_CLOSED);
+
+        mockMvc.perform(get("/api/v1/tours/public/paged")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(rigaTour.getId()))
+                .andExpect(jsonPath("$.content[0].minPrice").value(900.00))
+                .andExpect(jsonPath("$.content[0].nextDepartureDate").value(base.toString()))
+                .andExpect(jsonPath("$.content[0].seatsLeft").value(50));
+
+        // вылет с ценой 900 заполнен полностью и переходит в SALES_CLOSED
+        String updateBody = """
+        {
+          "startDate": "%s",
+          "endDate": "%s",
+          "capacityTotal": 10,
+          "capacityReserved": 10,
+          "priceOverride": 900.00,
+          "status": "SALES_CLOSED",
+          "tourId": %d,
+          "flightIds": []
+        }
+        """.formatted(base.plusDays(5), base.plusDays(12), rigaTour.getId());
+        mockMvc.perform(put("/api/v1/tour-departures/" + laterId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(updateBody)
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/v1/tours/" + rigaTour.getId())
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.minPrice").value(1000.00))
+                .andExpect(jsonPath("$.seatsLeft").value(30));
+
+        // изменения мимо сервисов подхватывает полная пересборка
+        TourDepartureEntity direct = departure(rigaTour, base.minusDays(1), base.plusDays(6), TourDepartureStatus.PLANNED);
+        direct.setPriceOverride(new BigDecimal("500.00"));
+        tourDepartureRepository.save(direct);
+        tourSummaryService.rebuildAll();
+
+        TourSummaryEntity summary = tourSummaryRepository.findById(rigaTour.getId()).orElseThrow();
+        assertThat(summary.getMinPrice()).isEqualByComparingTo("500.00");
+        assertThat(summary.getNextDepartureDate()).isEqualTo(base.minusDays(1));
+        assertThat(summary.getSeatsLeft()).isEqualTo(60);
+        assertThat(summary.getUpcomingDepartures()).isEqualTo(2);
+    }
+
     @Test
     @DisplayName("GET /api/v1/tour-departures/my/paged: MANAGER видит только свои вылеты")
     void myPaged_manager_onlyOwnDepartures() throws Exception {
@@ -419,4 +638,46 @@ class TourDepartureIntegrationTest {
                         .header("Authorization", "Bearer " + m1Token))
                 .andExpect(status().isNoContent());
     }
-}
\ No newline at end of file
+
+    private void seedDepartures(UserEntity manager, CityEntity city, int from, int to) {
+        for (int i = from; i < to; i++) {
+            // у каждого вылета свой тур: ленивая загрузка тура на строку сразу видна по числу запросов
+            TourEntity t = tour("Tour " + i, city, manager, new BigDecimal("1000.00"));
+            departure(t, LocalDate.of(2026, 3, 1).plusDays(i), LocalDate.of(2026, 3, 5).plusDays(i),
+                    TourDepartureStatus.PLANNED);
+        }
+    }
+
+    @Test
+    @DisplayName("Списки вылетов: число SQL-запросов ограничено и не растёт с числом строк на странице")
+    void lists_statementCountIndependentOfRows() throws Exception {
+        String managerToken = createManagerToken("mq@test.com");
+        UserEntity manager = userRepository.findByEmail("mq@test.com").orElseThrow();
+        CityEntity riga = city("Riga");
+
+        MockHttpServletRequestBuilder paged = get("/api/v1/tour-departures/paged").param("size", "20")
+                .header("Authorization", "Bearer " + managerToken);
+        MockHttpServletRequestBuilder my = get("/api/v1/tour-departures/my/paged").param("size", "20")
+                .header("Authorization", "Bearer " + managerToken);
+        MockHttpServletRequestBuilder all = get("/api/v1/tour-departures")
+                .header("Authorization", "Bearer " + managerToken);
+
+        // пользователь из JWT, строки страницы, привязки рейсов (+ менеджер для my/paged); неполная страница — без COUNT
+        seedDepartures(manager, riga, 0, 2);
+        int pagedPartial = countAtMost(3, () -> mockMvc.perform(paged).andExpect(status().isOk()));
+        int myPartial = countAtMost(4, () -> mockMvc.perform(my).andExpect(status().isOk()));
+        int allCount = countAtMost(3, () -> mockMvc.perform(all).andExpect(status().isOk()));
+
+        // страница заполнена -> добавляется COUNT
+        seedDepartures(manager, riga, 2, 25);
+        int pagedFull = countAtMost(4, () -> mockMvc.perform(paged).andExpect(status().isOk()));
+        int myFull = countAtMost(5, () -> mockMvc.perform(my).andExpect(status().isOk()));
+        assertThat(pagedFull).isEqualTo(pagedPartial + 1);
+        assertThat(myFull).isEqualTo(myPartial + 1);
+
+        seedDepartures(manager, riga, 25, 45);
+        assertThat(countAtMost(4, () -> mockMvc.perform(paged).andExpect(status().isOk()))).isEqualTo(pagedFull);
+        assertThat(countAtMost(5, () -> mockMvc.perform(my).andExpect(status().isOk()))).isEqualTo(myFull);
+        assertThat(countAtMost(3, () -> mockMvc.perform(all).andExpect(status().isOk()))).isEqualTo(allCount);
+    }
+}
@@ -0,0 +1,136 @@
+package ru.kursach.kpo.tour_agency_backend;
+
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.kursach.kpo.tour_agency_backend.dto.pagination.PageResponseDto;
+import ru.kursach.kpo.tour_agency_backend.dto.tour.TourResponseDto;
+import ru.kursach.kpo.tour_agency_backend.model.enums.PageCountMode;
+import ru.kursach.kpo.tour_agency_backend.model.enums.TourStatus;
+import ru.kursach.kpo.tour_agency_backend.service.entity.TourService;
+import ru.kursach.kpo.tour_agency_backend.support.GeneratedSqlPlans;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@Testcontainers
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TourFullTextSearchBenchmarkTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tour_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.datasource.url", postgres::getJdbcUrl);
+        r.add("spring.datasource.username", postgres::getUsername);
+        r.add("spring.datasource.password", postgres::getPassword);
+        r.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        r.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        r.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    private static final int ROWS = 1_000_000;
+    private static final int RUNS = 200;
+    private static final double P99_TARGET_MS = 20.0;
+
+    // набираемые пользователем запросы: целые слова и неполное последнее слово
+    private static final List<String> QUERIES = List.of(
+            "paris beach", "rome museum", "riga spa", "oslo fjord", "vienna opera",
+            "paris bea", "rome mus", "lisbon surf", "prague castle", "berlin night"
+    );
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TourService tourService;
+
+    private Long cityId;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("""
+                INSERT INTO cities (id, name, country, timezone)
+                SELECT nextval('cities_seq'), 'City ' || i, 'Country', 'UTC'
+                FROM generate_series(1, 20) i
+                """);
+        cityId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM cities", Long.class);
+
+        // последовательности идут с шагом 50: город берётся по номеру строки n, а не как MIN(id) + k
+
+        // 20 городов x 40 тем x 25 прилагательных: пара "город тема" встречается ~1250 раз
+        jdbcTemplate.execute("""
+                INSERT INTO tours (id, title, description, duration_days, base_price, status, is_active, base_city_id)
+                SELECT nextval('tours_seq'),
+                       (ARRAY['Paris','Rome','Riga','Oslo','Vienna','Lisbon','Prague','Berlin','Madrid','Athens',
+                              'Dublin','Warsaw','Tallinn','Vilnius','Helsinki','Milan','Porto','Nice','Split','Sofia'])[1 + i %% 20]
+                       || ' ' ||
+                       (ARRAY['beach','museum','spa','fjord','opera','surf','castle','night','wine','food',
+                              'hiking','cycling','river','lake','mountain','island','garden','market','jazz','art',
+                              'history','family','romantic','luxury','budget','weekend','festival','cruise','ski','safari',
+                              'photo','yoga','diving','sailing','golf','architecture','street','coffee','beer','cheese'])[1 + (i / 20) %% 40]
+                       || ' ' || i,
+                       (ARRAY['quiet','sunny','classic','modern','cozy','wild','calm','bright','green','blue',
+                              'old','new','small','grand','hidden','famous','local','slow','fast','warm',
+                              'cool','rich','simple','happy','lazy'])[1 + i %% 25] || ' trip with guide',
+                       1 + i %% 14, 1000, CASE WHEN i %% 7 = 3 THEN 'ARCHIVED' ELSE 'PUBLISHED' END, true, c.id
+                FROM generate_series(1, %d) i
+                JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM cities) c ON c.n = i %% 20
+                """.formatted(ROWS));
+        // VACUUM переносит строки из pending list GIN в само дерево, как это делает autovacuum после загрузки
+        jdbcTemplate.execute("VACUUM ANALYZE tours");
+    }
+
+    @Test
+    @DisplayName("Полнотекстовый поиск по 1M туров: p99 первой страницы без COUNT укладывается в 20 мс")
+    void fullTextSearch_p99() {
+        // общий план подготовленного запроса: в SQL только заданные фильтры, без catch-all «IS NULL OR»
+        String plan = GeneratedSqlPlans.explain(jdbcTemplate, () -> search("paris beach", null));
+        String byCity = GeneratedSqlPlans.explain(jdbcTemplate, () -> search("paris beach", cityId));
+        for (String p : List.of(plan, byCity)) {
+            assertThat(p).contains("idx_tours_search_vector");
+            assertThat(p).doesNotContain("Seq Scan on tours");
+            assertThat(p).doesNotContain("IS NULL");
+        }
+
+        PageResponseDto<TourResponseDto> first = search("paris beach", null);
+        assertThat(first.content()).hasSize(20);
+        assertThat(first.content()).allSatisfy(t -> assertThat(t.title()).startsWith("Paris beach"));
+        assertThat(search("paris beach", cityId).content())
+                .allSatisfy(t -> assertThat(t.baseCityId()).isEqualTo(cityId));
+
+        for (String q : QUERIES) {
+            search(q, null); // прогрев
+        }
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            String q = QUERIES.get(i % QUERIES.size());
+            long start = System.nanoTime();
+            search(q, i % 2 == 0 ? null : cityId);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        double p50 = times[RUNS / 2] / 1_000_000.0;
+        double p99 = times[RUNS * 99 / 100] / 1_000_000.0;
+        System.out.printf("tours x%d, full-text search: p50 %.2f ms, p99 %.2f ms%n", ROWS, p50, p99);
+
+        assertThat(p99).isLessThan(P99_TARGET_MS);
+    }
+
+    private PageResponseDto<TourResponseDto> search(String q, Long baseCityId) {
+        return tourService.searchFullText(q, baseCityId, TourStatus.PUBLISHED, true, PageCountMode.NONE, 0, 20);
+    }
+}
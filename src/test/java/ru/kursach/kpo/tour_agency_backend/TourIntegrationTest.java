@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
@@ -28,6 +29,7 @@ import ru.kursach.kpo.tour_agency_backend.repository.UserRepository;
 import java.math.BigDecimal;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.nullValue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -55,6 +57,7 @@ class TourIntegrationTest {
     @Autowired MockMvc mockMvc;
     @Autowired ObjectMapper objectMapper;
     @Autowired PasswordEncoder passwordEncoder;
+    @Autowired JdbcTemplate jdbcTemplate;
 
     @Autowired UserRepository userRepository;
     @Autowired CityRepository cityRepository;
@@ -181,6 +184,60 @@ class TourIntegrationTest {
                 .andExpect(jsonPath("$.content[0].active").value(true));
     }
 
+    @Test
+    @DisplayName("GET /api/v1/tours/public/paged?q=: полнотекстовый поиск по названию и описанию, совпадение в названии выше")
+    void publicPaged_fullTextSearch_rankedWithPrefix() throws Exception {
+        String adminToken = createAdminToken();
+
+        CityEntity riga = city("Riga");
+        CityEntity vilnius = city("Vilnius");
+
+        TourEntity inTitle = tour("Jurmala Beach", riga, null, TourStatus.PUBLISHED, true, null);
+        TourEntity inDescription = tourRepository.save(TourEntity.builder()
+                .title("Old Town Walk")
+                .description("Evening walk and a short trip to the beach")
+                .durationDays(3)
+                .basePrice(new BigDecimal("500.00"))
+                .status(TourStatus.PUBLISHED)
+                .active(true)
+                .baseCity(riga)
+                .build());
+
+        // не должны попасть: другой город, черновик, нет совпадения
+        tour("Palanga Beach", vilnius, null, TourStatus.PUBLISHED, true, null);
+        tour("Beach Draft", riga, null, TourStatus.DRAFT, true, null);
+        tour("Riga Museums", riga, null, TourStatus.PUBLISHED, true, null);
+
+        mockMvc.perform(get("/api/v1/tours/public/paged")
+                        .param("q", "beach")
+                        .param("baseCityId", String.valueOf(riga.getId()))
+                        .param("page", "0")
+                        .param("size", "10")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.content[0].id").value(inTitle.getId()))
+                .andExpect(jsonPath("$.content[1].id").value(inDescription.getId()));
+
+        // поиск по мере набора: неполное слово ищется как префикс
+        mockMvc.perform(get("/api/v1/public/tours/paged")
+                        .param("q", "jurm bea")
+                        .param("page", "0")
+                        .param("size", "10")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(inTitle.getId()));
+
+        // символы синтаксиса tsquery во вводе не ломают запрос
+        mockMvc.perform(get("/api/v1/tours/public/paged")
+                        .param("q", "beach & | !(")
+                        .param("baseCityId", String.valueOf(riga.getId()))
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2));
+    }
+
     @Test
     @DisplayName("GET /api/v1/tours/my/paged: MANAGER видит только свои туры")
     void myPaged_manager_onlyOwnTours() throws Exception {
@@ -215,6 +272,65 @@ class TourIntegrationTest {
                 .andExpect(jsonPath("$.content[0].managerUserId").value(m2.getId()));
     }
 
+    @Test
+    @DisplayName("GET /api/v1/tours/paged?count=NONE|ESTIMATED: без COUNT, hasNext по size + 1 строкам")
+    void toursPaged_countFreeModes() throws Exception {
+        String adminToken = createAdminToken();
+        CityEntity riga = city("Riga");
+
+        tour("Tour A", riga, null, TourStatus.PUBLISHED, true, null);
+        tour("Tour B", riga, null, TourStatus.PUBLISHED, true, null);
+        tour("Tour C", riga, null, TourStatus.DRAFT, true, null);
+
+        mockMvc.perform(get("/api/v1/tours/paged")
+                        .param("count", "NONE")
+                        .param("page", "0")
+                        .param("size", "2")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.totalElements").value(nullValue()))
+                .andExpect(jsonPath("$.totalPages").value(nullValue()));
+
+        mockMvc.perform(get("/api/v1/tours/paged")
+                        .param("count", "NONE")
+                        .param("page", "1")
+                        .param("size", "2")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].title").value("Tour C"))
+                .andExpect(jsonPath("$.hasNext").value(false));
+
+        // оценка берётся из pg_class.reltuples, свежая статистика — после ANALYZE
+        jdbcTemplate.execute("ANALYZE tours");
+
+        mockMvc.perform(get("/api/v1/tours/paged")
+                        .param("count", "ESTIMATED")
+                        .param("page", "0")
+                        .param("size", "2")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(3))
+                .andExpect(jsonPath("$.totalPages").value(2))
+                .andExpect(jsonPath("$.totalEstimated").value(true))
+                .andExpect(jsonPath("$.hasNext").value(true));
+
+        // с фильтром оценка неприменима — итогов нет
+        mockMvc.perform(get("/api/v1/tours/paged")
+                        .param("count", "ESTIMATED")
+                        .param("status", "PUBLISHED")
+                        .param("page", "0")
+                        .param("size", "2")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$.totalElements").value(nullValue()))
+                .andExpect(jsonPath("$.totalEstimated").value(false));
+    }
+
     @Test
     @DisplayName("POST /api/v1/tours: ADMIN создаёт тур -> 201, возвращает нужные поля")
     void createTour_admin_created_201() throws Exception {
@@ -0,0 +1,177 @@
+package ru.kursach.kpo.tour_agency_backend;
+
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.kursach.kpo.tour_agency_backend.dto.flight.FlightResponseDto;
+import ru.kursach.kpo.tour_agency_backend.mapper.FlightMapper;
+import ru.kursach.kpo.tour_agency_backend.model.entity.UserEntity;
+import ru.kursach.kpo.tour_agency_backend.repository.*;
+import ru.kursach.kpo.tour_agency_backend.repository.specification.FlightSpecifications;
+import ru.kursach.kpo.tour_agency_backend.repository.specification.UserSpecifications;
+import ru.kursach.kpo.tour_agency_backend.support.GeneratedSqlPlans;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@Testcontainers
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TrigramSearchBenchmarkTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("tour_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.datasource.url", postgres::getJdbcUrl);
+        r.add("spring.datasource.username", postgres::getUsername);
+        r.add("spring.datasource.password", postgres::getPassword);
+        r.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        r.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        r.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    private static final int ROWS = 1_000_000;
+    private static final int RUNS = 20;
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired TransactionTemplate transactionTemplate;
+
+    @Autowired FlightRepository flightRepository;
+    @Autowired UserRepository userRepository;
+
+    @BeforeAll
+    void seed() {
+        // 100 городов, 1000 аэропортов, 1M рейсов и 1M пользователей — одним INSERT ... SELECT на таблицу.
+        // Последовательности идут с шагом 50, поэтому ссылки берутся по номеру строки n, а не как MIN(id) + k
+        jdbcTemplate.execute("""
+                INSERT INTO cities (id, name, country, timezone)
+                SELECT nextval('cities_seq'), 'City ' || i, 'Country ' || (i % 10), 'UTC'
+                FROM generate_series(1, 100) i
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO airports (id, iata_code, name, city_id)
+                SELECT nextval('airports_seq'), 'A' || lpad(i::text, 4, '0'), 'Airport ' || i, c.id
+                FROM generate_series(1, 1000) i
+                JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM cities) c ON c.n = i % 100
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO flights (id, flight_number, carrier, depart_at, arrive_at, status, base_price,
+                                     departure_airport_id, arrival_airport_id)
+                SELECT nextval('flights_seq'), 'FN' || lpad(i::text, 7, '0'), 'Carrier ' || (i %% 50),
+                       now() + make_interval(hours => i %% 1000), now() + make_interval(hours => i %% 1000 + 2),
+                       'SCHEDULED', 10000,
+                       da.id, aa.id
+                FROM generate_series(1, %d) i
+                JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM airports) da ON da.n = i %% 1000
+                JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM airports) aa ON aa.n = (i + 1) %% 1000
+                """.formatted(ROWS));
+        jdbcTemplate.execute("""
+                INSERT INTO app_users (id, username, email, password_hash, phone, user_role, is_active)
+                SELECT nextval('app_users_seq'), 'user' || i, 'user' || i || '@bench.test', 'x',
+                       '+371' || lpad(i::text, 8, '0'), 'USER', true
+                FROM generate_series(1, %d) i
+                """.formatted(ROWS));
+        jdbcTemplate.execute("ANALYZE cities");
+        jdbcTemplate.execute("ANALYZE airports");
+        jdbcTemplate.execute("ANALYZE flights");
+        jdbcTemplate.execute("ANALYZE app_users");
+    }
+
+    // ---------- helpers ----------
+
+    /**
+     * План SQL, который Hibernate построил для запроса репозитория, при этих значениях параметров:
+     * селективность LIKE по триграммам планировщик оценивает только по самому шаблону.
+     */
+    private String explain(Runnable query, Object... parameters) {
+        return GeneratedSqlPlans.explain(jdbcTemplate, query, parameters);
+    }
+
+    /** Медиана времени выполнения, мс. */
+    private double medianMs(Supplier<?> query) {
+        query.get(); // прогрев
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            query.get();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2] / 1_000_000.0;
+    }
+
+    /** То же, но с запрещёнными индексными сканами — последовательный проход, как было до миграции. */
+    private double medianMsSeqScan(Supplier<?> query) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_indexscan = off");
+            jdbcTemplate.execute("SET LOCAL enable_bitmapscan = off");
+            return medianMs(query);
+        });
+    }
+
+    // ---------- tests ----------
+
+    @Test
+    @DisplayName("Поиск рейса по подстроке номера на 1M строк идёт по GIN-индексу триграмм")
+    void flightSearch_usesTrigramIndex() {
+        var pageable = PageRequest.of(0, 20, Sort.by("flightNumber").ascending());
+        Supplier<Page<FlightResponseDto>> search = () -> flightRepository.findRows(
+                FlightSpecifications.search("0424242", "", ""), FlightMapper.RESPONSE_ROW, pageable);
+
+        String plan = explain(search::get, "%0424242%", 20);
+        assertThat(plan).contains("idx_flights_flight_number_trgm");
+        assertThat(plan).doesNotContain("Seq Scan on flights");
+
+        assertThat(search.get().getContent())
+                .extracting(FlightResponseDto::flightNumber)
+                .containsExactly("FN0424242");
+
+        double indexed = medianMs(search);
+        double seqScan = medianMsSeqScan(search);
+        System.out.printf("flights x%d, search by number: trigram index %.2f ms, seq scan %.2f ms%n",
+                ROWS, indexed, seqScan);
+        assertThat(indexed).isLessThan(seqScan);
+    }
+
+    @Test
+    @DisplayName("Поиск пользователя по подстроке username/email/phone на 1M строк: BitmapOr трёх GIN-индексов")
+    void userSearch_usesTrigramIndexes() {
+        var pageable = PageRequest.of(0, 20, Sort.by("username").ascending().and(Sort.by("id").ascending()));
+        Supplier<Page<UserEntity>> search = () -> userRepository.findAll(UserSpecifications.search("user777777", null, null), pageable);
+
+        String plan = explain(search::get, "%user777777%", "%user777777%", "%user777777%", 0, 20);
+        assertThat(plan).contains("idx_app_users_username_trgm");
+        assertThat(plan).contains("idx_app_users_email_trgm");
+        assertThat(plan).doesNotContain("Seq Scan on app_users");
+
+        assertThat(search.get().getContent())
+                .extracting(UserEntity::getUsername)
+                .containsExactly("user777777");
+
+        double indexed = medianMs(search);
+        double seqScan = medianMsSeqScan(search);
+        System.out.printf("app_users x%d, search by substring: trigram index %.2f ms, seq scan %.2f ms%n",
+                ROWS, indexed, seqScan);
+        assertThat(indexed).isLessThan(seqScan);
+    }
+}
@@ -0,0 +1,127 @@
+package ru.kursach.kpo.tour_agency_backend.support;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * План того SQL, который Hibernate действительно построил для запроса репозитория.
+ * <p>
+ * Запрос выполняется под {@link SqlStatementRecorder}, берётся первая выборка строк (не COUNT),
+ * параметры JDBC (?) переводятся в $1, $2, ..., запрос готовится через PREPARE и план строится
+ * EXPLAIN EXECUTE. По умолчанию — общий план (force_generic_plan), без значений параметров,
+ * как у подготовленного запроса после перехода на общий план. (EXPLAIN (GENERIC_PLAN) с $n
+ * драйвер не пропускает: расширенный протокол ждёт для них значения.)
+ * Если индекс виден только при конкретных значениях (catch-all условия, partial-индекс
+ * с параметром вместо литерала), общий план это покажет.
+ */
+public final class GeneratedSqlPlans {
+
+    private static final String STATEMENT = "generated_sql_plan";
+    private static final Pattern PARAMETER = Pattern.compile("\\$\\d+");
+
+    private GeneratedSqlPlans() {
+    }
+
+    /**
+     * Общий план: значения параметров неизвестны.
+     */
+    public static String explain(JdbcTemplate jdbcTemplate, Runnable query) {
+        String prepared = positional(generatedSelect(query));
+        List<String> nulls = Collections.nCopies(parameterCount(prepared), "NULL");
+        return explainExecute(jdbcTemplate, prepared, nulls, true);
+    }
+
+    /**
+     * План для конкретных значений параметров ($1, $2, ... по порядку, включая OFFSET/LIMIT) —
+     * для условий, селективность которых планировщик оценивает только по значению
+     * (LIKE по триграммам, полнотекстовый запрос). Первые выполнения подготовленного запроса
+     * строятся именно так, а на общий план он переходит, только если тот не дороже.
+     */
+    public static String explain(JdbcTemplate jdbcTemplate, Runnable query, Object... parameters) {
+        String prepared = positional(generatedSelect(query));
+        if (parameterCount(prepared) != parameters.length) {
+            throw new AssertionError("В запросе " + parameterCount(prepared) + " параметров, передано "
+                    + parameters.length + ": " + prepared);
+        }
+        List<String> literals = Arrays.stream(parameters).map(GeneratedSqlPlans::literal).toList();
+        return explainExecute(jdbcTemplate, prepared, literals, false);
+    }
+
+    private static String generatedSelect(Runnable query) {
+        try (SqlStatementRecorder.Recording recording = SqlStatementRecorder.start()) {
+            query.run();
+            return recording.statements().stream()
+                    .filter(s -> !s.toLowerCase(Locale.ROOT).matches("(?s)\\s*select\\s+count\\(.*"))
+                    .findFirst()
+                    .orElseThrow(() -> new AssertionError("Запрос не выполнил ни одной выборки строк"));
+        }
+    }
+
+    private static String explainExecute(JdbcTemplate jdbcTemplate, String prepared, List<String> values,
+                                         boolean generic) {
+        String execute = "EXPLAIN EXECUTE " + STATEMENT + (values.isEmpty() ? "" : "(" + String.join(", ", values) + ")");
+
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET plan_cache_mode = " + (generic ? "force_generic_plan" : "force_custom_plan"));
+                statement.execute("PREPARE " + STATEMENT + " AS " + prepared);
+                try {
+                    List<String> lines = new ArrayList<>();
+                    try (ResultSet rs = statement.executeQuery(execute)) {
+                        while (rs.next()) {
+                            lines.add(rs.getString(1));
+                        }
+                    }
+                    return String.join("\n", lines);
+                } finally {
+                    statement.execute("DEALLOCATE " + STATEMENT);
+                    statement.execute("RESET plan_cache_mode");
+                }
+            }
+        });
+    }
+
+    private static int parameterCount(String prepared) {
+        return (int) PARAMETER.matcher(prepared).results().count();
+    }
+
+    private static String literal(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        return "'" + value.toString().replace("'", "''") + "'";
+    }
+
+    /**
+     * ? вне строковых литералов -> $1, $2, ...
+     */
+    static String positional(String sql) {
+        StringBuilder out = new StringBuilder(sql.length() + 16);
+        boolean inLiteral = false;
+        int index = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                inLiteral = !inLiteral;
+            }
+            if (c == '?' && !inLiteral) {
+                out.append('$').append(++index);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package ru.kursach.kpo.tour_agency_backend.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Запись SQL, который Hibernate отправляет в БД, — для проверки числа запросов на один вызов эндпоинта.
+ * <p>
+ * Подключается в тестовом профиле (hibernate.session_factory.statement_inspector в
+ * application-test.properties). Пишутся только запросы текущего потока: MockMvc выполняет запрос
+ * в потоке теста, а фоновые задачи (сборщики, after-commit в других потоках) в счёт не попадают.
+ * Запросы через JdbcTemplate идут мимо Hibernate и не считаются.
+ *
+ * <pre>{@code
+ * try (Recording sql = SqlStatementRecorder.start()) {
+ *     mockMvc.perform(get("/api/v1/flights/paged")).andExpect(status().isOk());
+ *     sql.assertAtMost(4);
+ * }
+ * // то же одной строкой, с числом запросов в ответ
+ * int n = Recording.countAtMost(4, () -> mockMvc.perform(get("/api/v1/flights/paged")));
+ * }</pre>
+ */
+public class SqlStatementRecorder implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> CURRENT = new ThreadLocal<>();
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Override
+    public String inspect(String sql) {
+        List<String> recorded = CURRENT.get();
+        if (recorded != null) {
+            recorded.add(sql);
+        }
+        return sql;
+    }
+
+    public static Recording start() {
+        if (CURRENT.get() != null) {
+            throw new IllegalStateException("Запись SQL в этом потоке уже идёт");
+        }
+        List<String> recorded = new ArrayList<>();
+        CURRENT.set(recorded);
+        return new Recording(recorded);
+    }
+
+    /**
+     * Форма запроса: без литералов, списки параметров IN (?, ?, ...) свёрнуты, пробелы нормализованы.
+     * Одинаковые формы подряд — типичный след N+1.
+     */
+    static String shape(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("(?...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    public static final class Recording implements AutoCloseable {
+
+        private final List<String> recorded;
+
+        private Recording(List<String> recorded) {
+            this.recorded = recorded;
+        }
+
+        public int count() {
+            return recorded.size();
+        }
+
+        public List<String> statements() {
+            return Collections.unmodifiableList(recorded);
+        }
+
+        /**
+         * Число запросов с каждой формой, частые раньше.
+         */
+        public Map<String, Long> shapes() {
+            Map<String, Long> counts = recorded.stream()
+                    .collect(Collectors.groupingBy(SqlStatementRecorder::shape, LinkedHashMap::new, Collectors.counting()));
+            return counts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+        }
+
+        /**
+         * Выполняет action под записью и проверяет, что SQL-запросов не больше max; возвращает их число.
+         */
+        public static int countAtMost(int max, Action action) throws Exception {
+            try (Recording sql = start()) {
+                action.run();
+                sql.assertAtMost(max);
+                return sql.count();
+            }
+        }
+
+        /**
+         * @throws AssertionError с отчётом по повторяющимся формам запросов, если запросов больше max
+         */
+        public void assertAtMost(int max) {
+            if (recorded.size() > max) {
+                throw new AssertionError("Ожидалось не больше " + max + " SQL-запросов, выполнено "
+                        + recorded.size() + "\n" + report());
+            }
+        }
+
+        public String report() {
+            StringBuilder report = new StringBuilder();
+            Map<String, Long> shapes = shapes();
+            List<Map.Entry<String, Long>> repeated = shapes.entrySet().stream()
+                    .filter(e -> e.getValue() > 1)
+                    .toList();
+            if (!repeated.isEmpty()) {
+                report.append("Повторяющиеся формы запросов:\n");
+                repeated.forEach(e -> report.append("  x").append(e.getValue()).append("  ").append(e.getKey()).append('\n'));
+            }
+            report.append("Все запросы по порядку:\n");
+            for (int i = 0; i < recorded.size(); i++) {
+                report.append("  ").append(i + 1).append(". ").append(shape(recorded.get(i))).append('\n');
+            }
+            return report.toString();
+        }
+
+        @Override
+        public void close() {
+            CURRENT.remove();
+        }
+    }
+}